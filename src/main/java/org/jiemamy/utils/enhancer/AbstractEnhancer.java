@@ -18,10 +18,22 @@
  */
 package org.jiemamy.utils.enhancer;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.jiemamy.utils.enhancer.helper.EnhanceMonitor;
+import org.jiemamy.utils.enhancer.helper.HandlerTable;
+
 /**
  * {@link Enhancer}の骨格実装。
+ * <p>
+ * この実装は、拡張されたクラスに適用されるハンドラの一覧を単一のテーブルで管理する。
+ * {@link #replaceHandlers(Map)}などを利用すると、クラスを再生成することなく
+ * 拡張済みのクラスに適用されるハンドラを置き換えることができる。
+ * </p>
  * @since 0.2.0
  * @version 0.2.0
  * @author Suguru ARAKAWA
@@ -31,6 +43,10 @@ public abstract class AbstractEnhancer<T> implements Enhancer<T> {
 	
 	private AtomicReference<Factory<? extends T>> factoryCache = new AtomicReference<Factory<? extends T>>();
 	
+	private final HandlerTable handlerTable = new HandlerTable();
+	
+	private final List<EnhanceListener> listeners = new CopyOnWriteArrayList<EnhanceListener>();
+	
 
 	/**
 	 * エンハンスされたクラスのインスタンスを生成するファクトリを返す。
@@ -54,6 +70,150 @@ public abstract class AbstractEnhancer<T> implements Enhancer<T> {
 		return cached;
 	}
 	
+	/**
+	 * このエンハンサが拡張したクラス上の、ハンドラが適用されるジョインポイントの一覧を返す。
+	 * <p>
+	 * まだ拡張が行われていない場合、この呼び出しは{@link #getFactory()}を利用して拡張を行う。
+	 * </p>
+	 * @return ジョインポイントの一覧
+	 * @throws EnhanceException 拡張に失敗した場合
+	 * @since 0.2.1
+	 */
+	public List<Joinpoint> getJoinpoints() throws EnhanceException {
+		getFactory();
+		return handlerTable.getJoinpoints();
+	}
+	
+	/**
+	 * 拡張済みのクラス上で、指定のジョインポイントに適用されるハンドラの一覧を置き換える。
+	 * <p>
+	 * この呼び出しは{@link #replaceHandlers(Map)}に単一の置き換えを指定した場合と同様である。
+	 * </p>
+	 * @param joinpoint 対象のジョインポイント
+	 * @param handlers 新しく適用するハンドラの一覧
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException
+	 *      ジョインポイントがこのエンハンサの{@link #getJoinpoints()}に含まれない場合
+	 * @since 0.2.1
+	 */
+	public void replaceHandlers(Joinpoint joinpoint, List<? extends InvocationHandler> handlers) {
+		if (joinpoint == null) {
+			throw new NullPointerException("joinpoint"); //$NON-NLS-1$
+		}
+		if (handlers == null) {
+			throw new NullPointerException("handlers"); //$NON-NLS-1$
+		}
+		handlerTable.replace(Collections.singletonMap(joinpoint, handlers));
+	}
+	
+	/**
+	 * 拡張済みのクラス上で、それぞれのジョインポイントに適用されるハンドラの一覧をまとめて置き換える。
+	 * <p>
+	 * 指定したすべての置き換えは、単一の操作として安全に公開される。
+	 * つまり、この呼び出しと並行して実行されるメソッド起動やインスタンス生成は、
+	 * いずれも置き換え前、または置き換え後のいずれか一方のハンドラのみを利用する。
+	 * なお、置き換えの時点ですでに開始されているメソッド起動やインスタンス生成には影響しない。
+	 * </p>
+	 * <p>
+	 * 引数に含まれないジョインポイントについては、ハンドラの一覧は変更されない。
+	 * また、空のハンドラ一覧を指定した場合、そのジョインポイントでは本来の処理が直接実行される。
+	 * </p>
+	 * @param replacements ジョインポイントと、新しく適用するハンドラ一覧のペア
+	 * @throws NullPointerException 引数に{@code null}が含まれる場合
+	 * @throws IllegalArgumentException
+	 *      このエンハンサの{@link #getJoinpoints()}に含まれないジョインポイントが指定された場合
+	 * @since 0.2.1
+	 */
+	public void replaceHandlers(Map<? extends Joinpoint, ? extends List<? extends InvocationHandler>> replacements) {
+		if (replacements == null) {
+			throw new NullPointerException("replacements"); //$NON-NLS-1$
+		}
+		handlerTable.replace(replacements);
+	}
+	
+	/**
+	 * 拡張済みのクラス上のすべてのジョインポイントについて、指定のハンドラを別のハンドラに置き換える。
+	 * <p>
+	 * ハンドラは同一性({@code ==})によって比較される。
+	 * {@link #replaceHandlers(Map)}と同様に、すべての置き換えは単一の操作として公開される。
+	 * </p>
+	 * @param oldHandler 置き換えられるハンドラ
+	 * @param newHandler 新しく適用するハンドラ
+	 * @return 置き換えが行われたジョインポイントの個数
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public int replaceHandler(InvocationHandler oldHandler, InvocationHandler newHandler) {
+		if (oldHandler == null) {
+			throw new NullPointerException("oldHandler"); //$NON-NLS-1$
+		}
+		if (newHandler == null) {
+			throw new NullPointerException("newHandler"); //$NON-NLS-1$
+		}
+		return handlerTable.replace(oldHandler, newHandler);
+	}
+	
+	/**
+	 * このエンハンサによる拡張の進行状況を受け取るリスナーを登録する。
+	 * <p>
+	 * リスナーには、この呼び出し以降に行われる拡張の情報のみが通知される。
+	 * 拡張は{@link #getFactory()}などの初回の呼び出し時に行われるため、
+	 * リスナーはそれより前に登録しておく必要がある。
+	 * </p>
+	 * @param listener 登録するリスナー
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public void addListener(EnhanceListener listener) {
+		if (listener == null) {
+			throw new NullPointerException("listener"); //$NON-NLS-1$
+		}
+		listeners.add(listener);
+	}
+	
+	/**
+	 * {@link #addListener(EnhanceListener)}で登録したリスナーを削除する。
+	 * @param listener 削除するリスナー
+	 * @return 削除した場合は{@code true}、登録されていなかった場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public boolean removeListener(EnhanceListener listener) {
+		if (listener == null) {
+			throw new NullPointerException("listener"); //$NON-NLS-1$
+		}
+		return listeners.remove(listener);
+	}
+	
+	/**
+	 * 拡張の各段階を計測し、登録されたリスナーに通知するオブジェクトを生成する。
+	 * <p>
+	 * サブクラスは、拡張を開始する際にこのメソッドを利用して計測を開始する。
+	 * </p>
+	 * @param factoryName 拡張の対象となるファクトリの名前
+	 * @return 生成したオブジェクト
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	protected EnhanceMonitor createMonitor(String factoryName) {
+		if (factoryName == null) {
+			throw new NullPointerException("factoryName"); //$NON-NLS-1$
+		}
+		return new EnhanceMonitor(factoryName, listeners);
+	}
+	
+	/**
+	 * このエンハンサが拡張したクラスに適用されるハンドラの一覧を保持するテーブルを返す。
+	 * <p>
+	 * サブクラスは、拡張したクラスをインストールする際にこのテーブルを利用しなければならない。
+	 * </p>
+	 * @return ハンドラの一覧を保持するテーブル
+	 * @since 0.2.1
+	 */
+	protected HandlerTable getHandlerTable() {
+		return handlerTable;
+	}
+	
 	/**
 	 * 指定のクラスのインスタンスを生成するファクトリを返す。
 	 * @return 生成したファクトリ
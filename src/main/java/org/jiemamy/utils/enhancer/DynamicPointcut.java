@@ -0,0 +1,61 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+/**
+ * 実行時の引数の値によって、ハンドラを適用するかどうかを呼び出しごとに判定するポイントカット定義。
+ * <p>
+ * {@link #isTarget(javassist.CtClass, javassist.CtBehavior) isTarget}は通常通り拡張時に一度だけ評価され、
+ * その結果が{@code true}となったメソッドやコンストラクタについて、
+ * {@link #isApplicable(Object, Object[])}が呼び出しのたびに評価される。
+ * この結果が{@code false}であれば、対応する{@link Enhance 拡張}のハンドラは呼び出されない。
+ * </p>
+ * <p>
+ * 拡張されたメソッドは、適用するハンドラが存在するかどうかをハンドラのチェインを構築する前に判定し、
+ * ひとつも存在しなければ本来のメソッドを直接呼び出す。
+ * そのため、特定の引数の値に対してのみ適用するハンドラは、その他の呼び出しにほとんど負荷を与えない。
+ * </p>
+ * <p>
+ * このポイントカット定義は、単独で、または{@link Pointcuts#and(InvocationPointcut, InvocationPointcut) and}
+ * の項として利用できる。
+ * {@link Pointcuts#or(InvocationPointcut, InvocationPointcut) or}や{@link Pointcuts#not(InvocationPointcut) not}
+ * の内側に含まれる場合、{@link #isApplicable(Object, Object[])}は評価されない。
+ * </p>
+ * <p>
+ * このインターフェースは、クライアントが実装してエンハンサに登録することができる。
+ * {@link #isApplicable(Object, Object[])}はすべての呼び出しで実行されるため、
+ * 十分に軽量な処理でなければならない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ * @see GuardedInvocationHandler
+ */
+public interface DynamicPointcut extends InvocationPointcut {
+	
+	/**
+	 * この呼び出しに対して、対応するハンドラを適用する場合のみ{@code true}を返す。
+	 * <p>
+	 * 実引数の一覧を変更してはならない。
+	 * </p>
+	 * @param invoker
+	 *      呼び出しを行おうとしているオブジェクト。
+	 *      詳しくは{@link Invocation#getInvoker()}を参照
+	 * @param arguments 本来の実引数の一覧
+	 * @return 対応するハンドラを適用する場合に{@code true}
+	 */
+	boolean isApplicable(Object invoker, Object[] arguments);
+}
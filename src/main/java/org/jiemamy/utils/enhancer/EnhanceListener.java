@@ -0,0 +1,53 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+/**
+ * エンハンサによる拡張の進行状況を受け取るリスナー。
+ * <p>
+ * {@link AbstractEnhancer#addListener(EnhanceListener)}で登録したリスナーには、
+ * ファクトリを拡張する際の各段階の所要時間や、生成されたクラスの統計情報が通知される。
+ * 多数のエンハンサを利用するアプリケーションで、起動時間やメタスペースの消費の原因となっている
+ * エンハンサを特定するために利用する。
+ * </p>
+ * <p>
+ * それぞれのメソッドは、拡張を行うスレッド上で同期的に呼び出される。
+ * リスナーがスローした例外は、拡張の失敗として呼び出し元に伝播する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public interface EnhanceListener {
+	
+	/**
+	 * 拡張のひとつの段階が完了したことを通知する。
+	 * @param report 完了した段階の情報
+	 */
+	void phaseCompleted(EnhancePhaseReport report);
+	
+	/**
+	 * 拡張によって新しいクラスが生成されたことを通知する。
+	 * @param report 生成されたクラスの情報
+	 */
+	void classGenerated(GeneratedClassReport report);
+	
+	/**
+	 * 拡張のすべての段階が完了したことを通知する。
+	 * @param report 拡張全体の情報
+	 */
+	void enhanceCompleted(EnhanceReport report);
+}
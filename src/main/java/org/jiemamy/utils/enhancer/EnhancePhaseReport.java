@@ -0,0 +1,118 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+import java.text.MessageFormat;
+
+/**
+ * 拡張のひとつの段階に関する情報。
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ * @see EnhanceListener#phaseCompleted(EnhancePhaseReport)
+ */
+public class EnhancePhaseReport {
+	
+	private final String factoryName;
+	
+	private final String phaseName;
+	
+	private final int count;
+	
+	private final long elapsedNanos;
+	
+	private final long allocatedBytes;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param factoryName 拡張の対象となるファクトリの名前
+	 * @param phaseName 段階の名前
+	 * @param count この段階で処理した要素の個数
+	 * @param elapsedNanos この段階の所要時間 (ナノ秒)
+	 * @param allocatedBytes この段階で割り当てられたヒープの量 (バイト)、計測できない場合は{@code -1}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public EnhancePhaseReport(String factoryName, String phaseName, int count, long elapsedNanos,
+			long allocatedBytes) {
+		super();
+		if (factoryName == null) {
+			throw new NullPointerException("factoryName"); //$NON-NLS-1$
+		}
+		if (phaseName == null) {
+			throw new NullPointerException("phaseName"); //$NON-NLS-1$
+		}
+		this.factoryName = factoryName;
+		this.phaseName = phaseName;
+		this.count = count;
+		this.elapsedNanos = elapsedNanos;
+		this.allocatedBytes = allocatedBytes;
+	}
+	
+	/**
+	 * 拡張の対象となるファクトリの名前を返す。
+	 * @return 拡張の対象となるファクトリの名前
+	 */
+	public String getFactoryName() {
+		return factoryName;
+	}
+	
+	/**
+	 * 段階の名前を返す。
+	 * @return 段階の名前
+	 */
+	public String getPhaseName() {
+		return phaseName;
+	}
+	
+	/**
+	 * この段階で処理した要素の個数を返す。
+	 * <p>
+	 * 要素の種類は段階ごとに異なり、たとえばプロダクトの収集では収集したプロダクトの個数となる。
+	 * </p>
+	 * @return この段階で処理した要素の個数
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	/**
+	 * この段階の所要時間を返す。
+	 * @return この段階の所要時間 (ナノ秒)
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+	
+	/**
+	 * この段階で、拡張を行うスレッドが割り当てたヒープの量を返す。
+	 * @return 割り当てられたヒープの量 (バイト)、計測できない場合は{@code -1}
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0}:{1}(count={2}, elapsed={3}ns, allocated={4}bytes)", //$NON-NLS-1$
+				factoryName, phaseName, String.valueOf(count), String.valueOf(elapsedNanos),
+				String.valueOf(allocatedBytes));
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ひとつのファクトリに対する拡張の計画。
+ * <p>
+ * この計画は、プロダクトの収集とポイントカットの判定のみを行って作成され、
+ * 実際にはクラスのコンパイルや定義を行わない。
+ * そのため、計画に含まれるクラスファイルの大きさは、実際に生成されるものとは異なる見積もりである。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ * @see FactoryEnhancer#plan()
+ * @see InterfaceEnhancer#plan()
+ */
+public class EnhancePlan {
+	
+	private final String factoryName;
+	
+	private final List<ProductPlan> products;
+	
+	private final List<String> newSites;
+	
+	private final int estimatedFactorySize;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param factoryName 拡張の対象となるファクトリの名前
+	 * @param products 拡張されるプロダクトクラスの計画一覧
+	 * @param newSites ファクトリ上で書き換えられるインスタンス生成の一覧
+	 * @param estimatedFactorySize 生成されるファクトリクラスのクラスファイルの大きさの見積もり (バイト)
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public EnhancePlan(String factoryName, List<ProductPlan> products, List<String> newSites,
+			int estimatedFactorySize) {
+		super();
+		if (factoryName == null) {
+			throw new NullPointerException("factoryName"); //$NON-NLS-1$
+		}
+		if (products == null) {
+			throw new NullPointerException("products"); //$NON-NLS-1$
+		}
+		if (newSites == null) {
+			throw new NullPointerException("newSites"); //$NON-NLS-1$
+		}
+		this.factoryName = factoryName;
+		this.products = Collections.unmodifiableList(new ArrayList<ProductPlan>(products));
+		this.newSites = Collections.unmodifiableList(new ArrayList<String>(newSites));
+		this.estimatedFactorySize = estimatedFactorySize;
+	}
+	
+	/**
+	 * 拡張の対象となるファクトリの名前を返す。
+	 * @return 拡張の対象となるファクトリの名前
+	 */
+	public String getFactoryName() {
+		return factoryName;
+	}
+	
+	/**
+	 * 拡張されるプロダクトクラスの計画一覧を返す。
+	 * @return 拡張されるプロダクトクラスの計画一覧
+	 */
+	public List<ProductPlan> getProducts() {
+		return products;
+	}
+	
+	/**
+	 * ファクトリ上で書き換えられるインスタンス生成の一覧を返す。
+	 * <p>
+	 * それぞれの要素は、生成されるクラスとコンストラクタのディスクリプタ、
+	 * およびインスタンス生成が記述された位置を表す文字列である。
+	 * </p>
+	 * @return 書き換えられるインスタンス生成の一覧
+	 */
+	public List<String> getNewSites() {
+		return newSites;
+	}
+	
+	/**
+	 * プロダクトクラス上でハンドラが適用されるメソッドの個数の合計を返す。
+	 * @return ハンドラが適用されるメソッドの個数の合計
+	 */
+	public int getJoinpointCount() {
+		int count = 0;
+		for (ProductPlan product : products) {
+			count += product.getJoinpoints().size();
+		}
+		return count;
+	}
+	
+	/**
+	 * 生成されるファクトリクラスのクラスファイルの大きさの見積もりを返す。
+	 * @return ファクトリクラスの大きさの見積もり (バイト)
+	 */
+	public int getEstimatedFactorySize() {
+		return estimatedFactorySize;
+	}
+	
+	/**
+	 * 生成されるすべてのクラスについて、クラスファイルの大きさの見積もりの合計を返す。
+	 * @return クラスファイルの大きさの見積もりの合計 (バイト)
+	 */
+	public int getEstimatedBytecodeSize() {
+		int size = estimatedFactorySize;
+		for (ProductPlan product : products) {
+			size += product.getEstimatedBytecodeSize();
+		}
+		return size;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0}(products={1}, joinpoints={2}, newSites={3}, estimated={4}bytes)", //$NON-NLS-1$
+				factoryName, String.valueOf(products.size()), String.valueOf(getJoinpointCount()),
+				String.valueOf(newSites.size()), String.valueOf(getEstimatedBytecodeSize()));
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+import java.text.MessageFormat;
+
+/**
+ * ひとつのファクトリに対する拡張全体の情報。
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ * @see EnhanceListener#enhanceCompleted(EnhanceReport)
+ */
+public class EnhanceReport {
+	
+	private final String factoryName;
+	
+	private final int productCount;
+	
+	private final int joinpointCount;
+	
+	private final int adviceTableSize;
+	
+	private final long elapsedNanos;
+	
+	private final long allocatedBytes;
+	
+	private final long peakHeapUsage;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param factoryName 拡張の対象となるファクトリの名前
+	 * @param productCount 拡張したプロダクトクラスの個数
+	 * @param joinpointCount ハンドラが適用されるジョインポイントの個数
+	 * @param adviceTableSize 生成されたすべてのアドバイステーブルのエントリ数の合計
+	 * @param elapsedNanos 拡張全体の所要時間 (ナノ秒)
+	 * @param allocatedBytes 拡張全体で割り当てられたヒープの量 (バイト)、計測できない場合は{@code -1}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public EnhanceReport(String factoryName, int productCount, int joinpointCount, int adviceTableSize,
+			long elapsedNanos, long allocatedBytes) {
+		this(factoryName, productCount, joinpointCount, adviceTableSize, elapsedNanos, allocatedBytes, -1);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * @param factoryName 拡張の対象となるファクトリの名前
+	 * @param productCount 拡張したプロダクトクラスの個数
+	 * @param joinpointCount ハンドラが適用されるジョインポイントの個数
+	 * @param adviceTableSize 生成されたすべてのアドバイステーブルのエントリ数の合計
+	 * @param elapsedNanos 拡張全体の所要時間 (ナノ秒)
+	 * @param allocatedBytes 拡張全体で割り当てられたヒープの量 (バイト)、計測できない場合は{@code -1}
+	 * @param peakHeapUsage 拡張中に観測したヒープ使用量の最大値 (バイト)、計測できない場合は{@code -1}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public EnhanceReport(String factoryName, int productCount, int joinpointCount, int adviceTableSize,
+			long elapsedNanos, long allocatedBytes, long peakHeapUsage) {
+		super();
+		if (factoryName == null) {
+			throw new NullPointerException("factoryName"); //$NON-NLS-1$
+		}
+		this.factoryName = factoryName;
+		this.productCount = productCount;
+		this.joinpointCount = joinpointCount;
+		this.adviceTableSize = adviceTableSize;
+		this.elapsedNanos = elapsedNanos;
+		this.allocatedBytes = allocatedBytes;
+		this.peakHeapUsage = peakHeapUsage;
+	}
+	
+	/**
+	 * 拡張の対象となるファクトリの名前を返す。
+	 * @return 拡張の対象となるファクトリの名前
+	 */
+	public String getFactoryName() {
+		return factoryName;
+	}
+	
+	/**
+	 * 拡張したプロダクトクラスの個数を返す。
+	 * @return 拡張したプロダクトクラスの個数
+	 */
+	public int getProductCount() {
+		return productCount;
+	}
+	
+	/**
+	 * ハンドラが適用されるジョインポイントの個数を返す。
+	 * @return ジョインポイントの個数
+	 */
+	public int getJoinpointCount() {
+		return joinpointCount;
+	}
+	
+	/**
+	 * 生成されたすべてのアドバイステーブルのエントリ数の合計を返す。
+	 * @return アドバイステーブルのエントリ数の合計
+	 */
+	public int getAdviceTableSize() {
+		return adviceTableSize;
+	}
+	
+	/**
+	 * 拡張全体の所要時間を返す。
+	 * @return 拡張全体の所要時間 (ナノ秒)
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+	
+	/**
+	 * 拡張全体で、拡張を行うスレッドが割り当てたヒープの量を返す。
+	 * @return 割り当てられたヒープの量 (バイト)、計測できない場合は{@code -1}
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+	
+	/**
+	 * 拡張中に観測した、ヒープ使用量の最大値を返す。
+	 * <p>
+	 * ヒープ使用量は拡張の開始時、各段階の終了時、および拡張全体の終了時に観測される。
+	 * この値は拡張を行うスレッド以外によるものも含めた、VM全体のヒープ使用量である。
+	 * </p>
+	 * @return 観測したヒープ使用量の最大値 (バイト)、計測できない場合は{@code -1}
+	 */
+	public long getPeakHeapUsage() {
+		return peakHeapUsage;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format(
+				"{0}(products={1}, joinpoints={2}, adviceTable={3}, elapsed={4}ns, allocated={5}bytes, " //$NON-NLS-1$
+						+ "peakHeap={6}bytes)", //$NON-NLS-1$
+				factoryName, String.valueOf(productCount), String.valueOf(joinpointCount),
+				String.valueOf(adviceTableSize), String.valueOf(elapsedNanos), String.valueOf(allocatedBytes),
+				String.valueOf(peakHeapUsage));
+	}
+}
@@ -20,9 +20,14 @@ import static org.jiemamy.utils.enhancer.helper.EnhanceManipulator.createInherit
 
 import java.lang.reflect.Modifier;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import javassist.CtClass;
@@ -36,7 +41,9 @@ import org.jiemamy.utils.enhancer.helper.AccessibilityValidator;
 import org.jiemamy.utils.enhancer.helper.AspectList;
 import org.jiemamy.utils.enhancer.helper.CtClassComparator;
 import org.jiemamy.utils.enhancer.helper.EnhanceManager;
+import org.jiemamy.utils.enhancer.helper.EnhanceMonitor;
 import org.jiemamy.utils.enhancer.helper.EnhanceManipulator;
+import org.jiemamy.utils.enhancer.helper.EnhancePlanner;
 import org.jiemamy.utils.enhancer.helper.EnhanceTargetProductCollector;
 import org.jiemamy.utils.enhancer.helper.JavassistConverter;
 import org.jiemamy.utils.enhancer.helper.NewInstanceEnhancer;
@@ -114,6 +121,8 @@ public class FactoryEnhancer<T> extends AbstractEnhancer<T> {
 	
 	private Class<? extends T> enhancedFactory;
 	
+	private boolean lazyProducts;
+	
 
 	/**
 	 * インスタンスを生成する。
@@ -297,6 +306,97 @@ public class FactoryEnhancer<T> extends AbstractEnhancer<T> {
 		return Arrays.asList(values);
 	}
 	
+	/**
+	 * 拡張されたプロダクトクラスの生成を、それぞれのインスタンスが最初に生成されるまで遅延させるかどうかを設定する。
+	 * <p>
+	 * {@code true}を指定した場合、拡張されたプロダクトクラスへのポイントカットの織り込みとVM上への定義は、
+	 * 拡張されたファクトリがそのプロダクトのインスタンスを最初に生成する時点まで遅延される。
+	 * これにより、拡張にかかる時間はプロダクトクラスの総数ではなく、実際に利用されたプロダクトクラスの個数に比例する。
+	 * </p>
+	 * <p>
+	 * ただし、まだインスタンスが生成されていないプロダクトクラスのジョインポイントは、
+	 * {@link #getJoinpoints()}の結果に含まれない。
+	 * また、遅延された拡張に失敗した場合、そのプロダクトのインスタンス生成時に{@link IllegalStateException}がスローされる。
+	 * 失敗した拡張は再度試みられず、以後のインスタンス生成でも同様に{@link IllegalStateException}がスローされる。
+	 * </p>
+	 * <p>
+	 * 既定では、すべてのプロダクトクラスを{@link #getEnhanced()}の呼び出し時に拡張する。
+	 * </p>
+	 * @param lazy 拡張されたプロダクトクラスの生成を遅延させる場合は{@code true}
+	 * @throws IllegalStateException すでに拡張されたファクトリが生成されている場合
+	 * @since 0.2.1
+	 */
+	public synchronized void setLazyProducts(boolean lazy) {
+		if (enhancedFactory != null) {
+			throw new IllegalStateException("The factory is already enhanced"); //$NON-NLS-1$
+		}
+		lazyProducts = lazy;
+	}
+	
+	/**
+	 * 拡張されたクラスを定義するクラスローダを、同じ親クラスローダを持つ他のエンハンサと共有するかどうかを設定する。
+	 * <p>
+	 * {@code true}を指定した場合、拡張されたクラスは{@link org.jiemamy.utils.enhancer.helper.EmptyClassLoader#getShared(ClassLoader)}が返す
+	 * 共有されたクラスローダ上に定義される。
+	 * 多数のファクトリを並行して拡張する場合にクラスローダの生成を抑えられるが、
+	 * 共有されたクラスローダが到達可能である限り、それを共有するすべてのエンハンサが生成したクラスはアンロードされない。
+	 * </p>
+	 * <p>
+	 * 既定では、このエンハンサごとに専用のクラスローダを利用する。
+	 * </p>
+	 * @param shared クラスローダを共有する場合は{@code true}
+	 * @throws IllegalStateException すでに拡張されたファクトリが生成されている場合
+	 * @since 0.2.1
+	 */
+	public synchronized void setSharedClassLoader(boolean shared) {
+		if (enhancedFactory != null) {
+			throw new IllegalStateException("The factory is already enhanced"); //$NON-NLS-1$
+		}
+		converter = new JavassistConverter(factoryImplementation, shared);
+	}
+	
+	/**
+	 * クラスのコンパイルや定義を行わずに、このオブジェクトによる拡張の計画を作成して返す。
+	 * <p>
+	 * この呼び出しはプロダクトクラスの収集とポイントカットの判定のみを行い、
+	 * 拡張されるプロダクトクラスとそのジョインポイント、書き換えられるインスタンス生成式、
+	 * および生成されるクラスファイルの大きさの見積もりを計画として返す。
+	 * 計画の作成は{@link #getEnhanced()}の結果に影響せず、登録されたリスナーにも通知されない。
+	 * </p>
+	 * <p>
+	 * {@link #setLazyProducts(boolean) 遅延}させる場合も、計画には遅延されるすべてのプロダクトクラスが含まれる。
+	 * </p>
+	 * @return 作成した計画
+	 * @throws EnhanceException 計画の作成に失敗した場合
+	 * @throws IllegalStateException すでに拡張されたファクトリが生成されている場合
+	 * @since 0.2.1
+	 */
+	public synchronized EnhancePlan plan() throws EnhanceException {
+		if (enhancedFactory != null) {
+			throw new IllegalStateException("The factory is already enhanced"); //$NON-NLS-1$
+		}
+		LOG.debug("Planning factory enhancer: {}", factoryImplementation);
+		
+		// 収集の過程でクラスが凍結されるため、拡張に利用するものとは別のクラスプールを利用する
+		JavassistConverter planner = new JavassistConverter(factoryImplementation);
+		CtClass factory = planner.loadCtClass(factoryImplementation);
+		List<CtClass> targets = EnhanceTargetProductCollector.collect(factory, enhanceManager);
+		Set<String> productNames = new HashSet<String>();
+		for (CtClass product : targets) {
+			productNames.add(product.getName());
+		}
+		Map<String, Set<String>> constructors = new HashMap<String, Set<String>>();
+		List<String> newSites = EnhancePlanner.collectNewSites(factory, enhanceManager, productNames, constructors);
+		List<ProductPlan> products = new ArrayList<ProductPlan>();
+		for (CtClass product : targets) {
+			// ファクトリから起動されない移譲コンストラクタは取り除かれるため、起動されるもののみを数える
+			Set<String> used = constructors.get(product.getName());
+			products.add(EnhancePlanner.planProduct(enhanceManager, product, used == null ? 0 : used.size()));
+		}
+		int factorySize = EnhancePlanner.estimateFactorySize(factory, newSites.size());
+		return new EnhancePlan(factoryImplementation.getName(), products, newSites, factorySize);
+	}
+	
 	/**
 	 * 拡張されたファクトリのクラスオブジェクトを返す。
 	 * <p>
@@ -354,19 +454,76 @@ public class FactoryEnhancer<T> extends AbstractEnhancer<T> {
 	private Class<? extends T> prepareEnhanced() throws EnhanceException {
 		LOG.debug("Start factory enhancer: {}", factoryImplementation);
 		
+		EnhanceMonitor monitor = createMonitor(factoryImplementation.getName());
+		
+		monitor.begin("createCopyClass"); //$NON-NLS-1$
 		CtClass original = converter.loadCtClass(factoryImplementation);
 		CtClass enhance = createCopyClass(original);
+		monitor.end(1);
 		
+		monitor.begin("validate"); //$NON-NLS-1$
 		AccessibilityValidator.validate(enhance);
+		monitor.end(1);
 		
+		monitor.begin("collect"); //$NON-NLS-1$
 		Map<CtClass, CtClass> targetProducts =
 				createProductMap(enhance);
-		Map<CtClass, AspectList<CtMethod>> allProductAspects =
-				EnhanceManipulator.weavePointcutIntoAllProducts(enhanceManager, targetProducts);
+		monitor.end(targetProducts.size());
+		
+		Map<CtClass, AspectList<CtMethod>> allProductAspects;
+		if (lazyProducts) {
+			// プロダクトへの織り込みは、それぞれのインスタンス生成時まで遅延させる
+			allProductAspects = Collections.emptyMap();
+		} else {
+			monitor.begin("weavePointcutIntoAllProducts"); //$NON-NLS-1$
+			allProductAspects = EnhanceManipulator.weavePointcutIntoAllProducts(enhanceManager, targetProducts);
+			monitor.end(allProductAspects.size());
+		}
+		
+		monitor.begin("weavePointcutIntoFactory"); //$NON-NLS-1$
 		AspectList<CtConstructor> factoryAspects =
 				weavePointcutIntoFactory(enhance, targetProducts, allProductAspects);
-		Class<?> installedFactory =
-				EnhanceManipulator.install(converter, enhance, targetProducts, factoryAspects, allProductAspects);
+		monitor.end(factoryAspects == null ? 0 : factoryAspects.getAdviceTableSize());
+		
+		monitor.begin("pruneDelegateConstructors"); //$NON-NLS-1$
+		int pruned = EnhanceManipulator.pruneDelegateConstructors(targetProducts, factoryAspects);
+		monitor.end(pruned);
+		
+		monitor.begin("install"); //$NON-NLS-1$
+		Class<?> installedFactory;
+		if (lazyProducts) {
+			installedFactory =
+					EnhanceManipulator.installLazily(converter, getHandlerTable(), enhanceManager, enhance,
+							targetProducts, factoryAspects);
+			monitor.end(1);
+		} else {
+			installedFactory =
+					EnhanceManipulator.install(converter, getHandlerTable(), enhance, targetProducts, factoryAspects,
+							allProductAspects);
+			monitor.end(targetProducts.size() + 1);
+		}
+		
+		monitor.generated(enhance);
+		if (lazyProducts == false) {
+			for (CtClass product : targetProducts.values()) {
+				monitor.generated(product);
+			}
+		}
+		
+		monitor.begin("release"); //$NON-NLS-1$
+		int released = converter.releaseAll(Arrays.asList(new CtClass[] {
+			original,
+			enhance
+		}));
+		if (lazyProducts == false) {
+			// 遅延させる場合、プロダクトクラスはそれぞれのインストール時まで保持しておく
+			released += converter.releaseAll(targetProducts.keySet());
+			released += converter.releaseAll(targetProducts.values());
+		}
+		monitor.end(released);
+		
+		monitor.completed(targetProducts.size(), getHandlerTable().getJoinpoints().size(),
+				EnhanceMonitor.countAdvices(factoryAspects, allProductAspects));
 		
 		return installedFactory.asSubclass(factoryInterface);
 	}
@@ -376,6 +533,7 @@ public class FactoryEnhancer<T> extends AbstractEnhancer<T> {
 	 * <p>
 	 * 拡張されたプロダクトクラスは、親クラスにもとのプロダクトクラスを持ち、
 	 * 全ての(公開)コンストラクタが移譲コンストラクタとして宣言されている。
+	 * なお、ファクトリから起動されない移譲コンストラクタは、ファクトリの拡張後に取り除かれる。
 	 * ただし、返されるマップに含まれるプロダクトクラスは、メソッド呼び出しのポイントカットが存在するものに限られる。
 	 * つまり、該当するジョインポイントが存在しないクラスは、このメソッド呼び出しの戻り値に含まれない。
 	 * </p>
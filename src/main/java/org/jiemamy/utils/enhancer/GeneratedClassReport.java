@@ -0,0 +1,153 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 拡張によって生成されたクラスに関する情報。
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ * @see EnhanceListener#classGenerated(GeneratedClassReport)
+ */
+public class GeneratedClassReport {
+	
+	private final String factoryName;
+	
+	private final String className;
+	
+	private final int bytecodeSize;
+	
+	private final int constantPoolSize;
+	
+	private final int maxMethodSize;
+	
+	private final List<String> oversizedMethods;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param factoryName 拡張の対象となるファクトリの名前
+	 * @param className 生成されたクラスの名前
+	 * @param bytecodeSize 生成されたクラスファイルの大きさ (バイト)
+	 * @param constantPoolSize 生成されたクラスのコンスタントプールのエントリ数
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public GeneratedClassReport(String factoryName, String className, int bytecodeSize, int constantPoolSize) {
+		this(factoryName, className, bytecodeSize, constantPoolSize, 0, Collections.<String> emptyList());
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * @param factoryName 拡張の対象となるファクトリの名前
+	 * @param className 生成されたクラスの名前
+	 * @param bytecodeSize 生成されたクラスファイルの大きさ (バイト)
+	 * @param constantPoolSize 生成されたクラスのコンスタントプールのエントリ数
+	 * @param maxMethodSize 生成されたクラスが宣言するメソッドのうち、最も長いバイトコードの長さ (バイト)
+	 * @param oversizedMethods インライン展開の閾値を超えるメソッドの一覧
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public GeneratedClassReport(String factoryName, String className, int bytecodeSize, int constantPoolSize,
+			int maxMethodSize, List<String> oversizedMethods) {
+		super();
+		if (factoryName == null) {
+			throw new NullPointerException("factoryName"); //$NON-NLS-1$
+		}
+		if (className == null) {
+			throw new NullPointerException("className"); //$NON-NLS-1$
+		}
+		if (oversizedMethods == null) {
+			throw new NullPointerException("oversizedMethods"); //$NON-NLS-1$
+		}
+		this.factoryName = factoryName;
+		this.className = className;
+		this.bytecodeSize = bytecodeSize;
+		this.constantPoolSize = constantPoolSize;
+		this.maxMethodSize = maxMethodSize;
+		this.oversizedMethods = Collections.unmodifiableList(new ArrayList<String>(oversizedMethods));
+	}
+	
+	/**
+	 * 拡張の対象となるファクトリの名前を返す。
+	 * @return 拡張の対象となるファクトリの名前
+	 */
+	public String getFactoryName() {
+		return factoryName;
+	}
+	
+	/**
+	 * 生成されたクラスの名前を返す。
+	 * @return 生成されたクラスの名前
+	 */
+	public String getClassName() {
+		return className;
+	}
+	
+	/**
+	 * 生成されたクラスファイルの大きさを返す。
+	 * @return 生成されたクラスファイルの大きさ (バイト)
+	 */
+	public int getBytecodeSize() {
+		return bytecodeSize;
+	}
+	
+	/**
+	 * 生成されたクラスのコンスタントプールのエントリ数を返す。
+	 * @return コンスタントプールのエントリ数
+	 */
+	public int getConstantPoolSize() {
+		return constantPoolSize;
+	}
+	
+	/**
+	 * 生成されたクラスが宣言するメソッドおよびコンストラクタのうち、最も長いバイトコードの長さを返す。
+	 * @return 最も長いバイトコードの長さ (バイト)、不明の場合は{@code 0}
+	 * @since 0.2.1
+	 */
+	public int getMaxMethodSize() {
+		return maxMethodSize;
+	}
+	
+	/**
+	 * 生成されたクラスが宣言するメソッドのうち、
+	 * バイトコードの長さがHotSpotのインライン展開の閾値 ({@code -XX:MaxInlineSize}) を超えるものの一覧を返す。
+	 * <p>
+	 * それぞれの要素は、メソッド名とそのディスクリプタを連結した文字列である。
+	 * 一覧に含まれるメソッドは、頻繁に起動される場合を除いてインライン展開されない。
+	 * </p>
+	 * @return 閾値を超えるメソッドの一覧
+	 * @since 0.2.1
+	 */
+	public List<String> getOversizedMethods() {
+		return oversizedMethods;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0}(bytecode={1}bytes, constantPool={2}, maxMethod={3}bytes, oversized={4})", //$NON-NLS-1$
+				className, String.valueOf(bytecodeSize), String.valueOf(constantPoolSize),
+				String.valueOf(maxMethodSize), oversizedMethods);
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+/**
+ * 呼び出しごとに、自身を適用するかどうかを判定する{@link InvocationHandler}。
+ * <p>
+ * エンハンサは、このインターフェースを実装したハンドラを呼び出す前に
+ * {@link #isApplicable(Object, Object[])}を呼び出し、その結果が{@code false}であれば
+ * このハンドラを呼び出さずに次のハンドラ、または本来の処理を実行する。
+ * 適用されるすべてのハンドラが{@code false}を返した場合、ハンドラのチェインを構築せずに本来の処理が直接実行される。
+ * </p>
+ * <p>
+ * このインターフェースは、クライアントが実装してエンハンサに登録することができる。
+ * {@link #isApplicable(Object, Object[])}はすべての呼び出しで実行されるため、
+ * 十分に軽量な処理でなければならない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public interface GuardedInvocationHandler extends InvocationHandler {
+	
+	/**
+	 * この呼び出しに対して、このハンドラを適用する場合のみ{@code true}を返す。
+	 * <p>
+	 * 引数に渡される値は、ハンドラのチェインが実行される前の本来の値である。
+	 * 実引数の一覧を変更してはならない。
+	 * </p>
+	 * @param invoker
+	 *      呼び出しを行おうとしているオブジェクト。
+	 *      詳しくは{@link Invocation#getInvoker()}を参照
+	 * @param arguments 本来の実引数の一覧
+	 * @return このハンドラを適用する場合に{@code true}
+	 */
+	boolean isApplicable(Object invoker, Object[] arguments);
+}
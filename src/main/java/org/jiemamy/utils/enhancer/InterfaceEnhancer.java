@@ -26,6 +26,7 @@ import static org.jiemamy.utils.enhancer.helper.EnhanceManipulator.weavePointcut
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -44,6 +45,8 @@ import org.slf4j.LoggerFactory;
 import org.jiemamy.utils.enhancer.helper.AccessibilityValidator;
 import org.jiemamy.utils.enhancer.helper.AspectList;
 import org.jiemamy.utils.enhancer.helper.EnhanceManager;
+import org.jiemamy.utils.enhancer.helper.EnhanceMonitor;
+import org.jiemamy.utils.enhancer.helper.EnhancePlanner;
 import org.jiemamy.utils.enhancer.helper.JavassistConverter;
 import org.jiemamy.utils.enhancer.helper.NewInstanceEnhancer;
 import org.jiemamy.utils.enhancer.reflection.ReflectionFactory;
@@ -317,6 +320,75 @@ public class InterfaceEnhancer<T> extends AbstractEnhancer<T> {
 		return createMetaFactory(getImplemtation());
 	}
 	
+	/**
+	 * 実装されたクラスを定義するクラスローダを、同じ親クラスローダを持つ他のエンハンサと共有するかどうかを設定する。
+	 * <p>
+	 * {@code true}を指定した場合、実装されたクラスは
+	 * {@link org.jiemamy.utils.enhancer.helper.EmptyClassLoader#getShared(ClassLoader)}が返す
+	 * 共有されたクラスローダ上に定義される。
+	 * 共有されたクラスローダが到達可能である限り、それを共有するすべてのエンハンサが生成したクラスはアンロードされない。
+	 * </p>
+	 * <p>
+	 * 既定では、このエンハンサごとに専用のクラスローダを利用する。
+	 * </p>
+	 * @param shared クラスローダを共有する場合は{@code true}
+	 * @throws IllegalStateException すでにファクトリの実装が生成されている場合
+	 * @since 0.2.1
+	 */
+	public synchronized void setSharedClassLoader(boolean shared) {
+		if (factoryImplementation != null) {
+			throw new IllegalStateException("The factory is already implemented"); //$NON-NLS-1$
+		}
+		converter = new JavassistConverter(factoryInterface, shared);
+	}
+	
+	/**
+	 * クラスのコンパイルや定義を行わずに、このオブジェクトによる拡張の計画を作成して返す。
+	 * <p>
+	 * この呼び出しはポイントカットの判定のみを行い、それぞれのプロダクトインターフェースに対するジョインポイント、
+	 * ファクトリメソッドが行うインスタンス生成、および生成されるクラスファイルの大きさの見積もりを計画として返す。
+	 * 計画の作成は{@link #getFactory()}の結果に影響せず、登録されたリスナーにも通知されない。
+	 * </p>
+	 * @return 作成した計画
+	 * @throws EnhanceException 計画の作成に失敗した場合
+	 * @throws IllegalStateException すでにファクトリの実装が生成されている場合
+	 * @since 0.2.1
+	 */
+	public synchronized EnhancePlan plan() throws EnhanceException {
+		if (factoryImplementation != null) {
+			throw new IllegalStateException("The factory is already implemented"); //$NON-NLS-1$
+		}
+		LOG.debug("Planning interface enhancer: {}", factoryInterface);
+		
+		// 拡張に利用するクラスプールには影響させない
+		JavassistConverter planner = new JavassistConverter(factoryInterface);
+		CtClass factory = planner.loadCtClass(factoryInterface);
+		List<ProductPlan> products = new ArrayList<ProductPlan>();
+		for (Class<?> productInterface : productInterfaces) {
+			CtClass base = planner.loadCtClass(productInterface);
+			products.add(EnhancePlanner.planProduct(enhanceManager, base, countFactoryMethods(productInterface)));
+		}
+		List<String> newSites = EnhancePlanner.listFactoryMethods(factory);
+		int factorySize = EnhancePlanner.estimateFactorySize(factory, newSites.size());
+		return new EnhancePlan(factoryInterface.getName(), products, newSites, factorySize);
+	}
+	
+	/**
+	 * 指定のプロダクトインターフェースを返すファクトリメソッドの個数を返す。
+	 * @param productInterface 対象のプロダクトインターフェース
+	 * @return 対応するファクトリメソッドの個数
+	 */
+	private int countFactoryMethods(Class<?> productInterface) {
+		assert productInterface != null;
+		int count = 0;
+		for (Method method : factoryInterface.getMethods()) {
+			if (method.getReturnType() == productInterface) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
 	private synchronized Class<? extends T> getImplemtation() throws EnhanceException {
 		if (factoryImplementation == null) {
 			this.factoryImplementation = createImplementation();
@@ -372,18 +444,48 @@ public class InterfaceEnhancer<T> extends AbstractEnhancer<T> {
 		assert converter != null;
 		LOG.trace("Creating an implementation of factory: {}", factoryImplementation);
 		
+		EnhanceMonitor monitor = createMonitor(factoryInterface.getName());
+		
+		monitor.begin("createProductMap"); //$NON-NLS-1$
 		Map<CtClass, CtClass> targetProducts = createProductMap();
+		monitor.end(targetProducts.size());
+		
+		monitor.begin("createFactory"); //$NON-NLS-1$
 		CtClass implementation = createFactory(targetProducts);
+		monitor.end(1);
 		
+		monitor.begin("weavePointcutIntoAllProducts"); //$NON-NLS-1$
 		Map<CtClass, AspectList<CtMethod>> allProductAspects =
 				weavePointcutIntoAllProducts(enhanceManager, targetProducts);
+		monitor.end(allProductAspects.size());
 		
+		monitor.begin("validate"); //$NON-NLS-1$
 		AccessibilityValidator.validate(implementation);
+		monitor.end(1);
 		
+		monitor.begin("weavePointcutIntoFactory"); //$NON-NLS-1$
 		AspectList<CtConstructor> factoryAspects =
 				weavePointcutIntoFactory(implementation, targetProducts, allProductAspects);
+		monitor.end(factoryAspects == null ? 0 : factoryAspects.getAdviceTableSize());
+		
+		monitor.begin("install"); //$NON-NLS-1$
 		Class<?> installedFactory =
-				install(converter, implementation, targetProducts, factoryAspects, allProductAspects);
+				install(converter, getHandlerTable(), implementation, targetProducts, factoryAspects, allProductAspects);
+		monitor.end(targetProducts.size() + 1);
+		
+		monitor.generated(implementation);
+		for (CtClass product : targetProducts.values()) {
+			monitor.generated(product);
+		}
+		
+		monitor.begin("release"); //$NON-NLS-1$
+		int released = converter.release(implementation) ? 1 : 0;
+		released += converter.releaseAll(targetProducts.keySet());
+		released += converter.releaseAll(targetProducts.values());
+		monitor.end(released);
+		
+		monitor.completed(targetProducts.size(), getHandlerTable().getJoinpoints().size(),
+				EnhanceMonitor.countAdvices(factoryAspects, allProductAspects));
 		
 		return installedFactory.asSubclass(factoryInterface);
 	}
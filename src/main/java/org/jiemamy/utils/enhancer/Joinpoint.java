@@ -0,0 +1,55 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+import java.lang.reflect.Member;
+import java.util.List;
+
+/**
+ * 拡張されたクラス上で、ハンドラが適用されるメソッド起動やインスタンス生成を表現するインターフェース。
+ * <p>
+ * このインターフェースのインスタンスはエンハンサによって提供され、
+ * {@link AbstractEnhancer#replaceHandlers(Joinpoint, List)}などを利用して、
+ * 拡張済みのクラスに対して適用されるハンドラを置き換えるために利用する。
+ * </p>
+ * <p>
+ * このインターフェースは、クライアントが実装するべきではない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public interface Joinpoint {
+	
+	/**
+	 * このジョインポイントが表現する、拡張を行う前の本来のメソッド、またはコンストラクタを返す。
+	 * <p>
+	 * 返される値は、このジョインポイントで{@link InvocationHandler}に渡される
+	 * {@link Invocation#getTarget()}の値と同一である。
+	 * </p>
+	 * @return 拡張を行う前の本来のメソッド、またはコンストラクタ
+	 */
+	Member getTarget();
+	
+	/**
+	 * このジョインポイントに現在適用されているハンドラの一覧を返す。
+	 * <p>
+	 * 返されるリストは、呼び出し時点でのハンドラ一覧のスナップショットであり、変更できない。
+	 * </p>
+	 * @return 現在適用されているハンドラの一覧
+	 */
+	List<InvocationHandler> getHandlers();
+}
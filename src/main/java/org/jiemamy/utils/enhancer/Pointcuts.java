@@ -15,6 +15,7 @@
  */
 package org.jiemamy.utils.enhancer;
 
+import java.lang.annotation.Annotation;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -25,20 +26,30 @@ import javassist.CtConstructor;
 import javassist.CtMethod;
 
 import org.jiemamy.utils.enhancer.helper.AndInvocationPointcut;
+import org.jiemamy.utils.enhancer.helper.AnnotatedPointcut;
+import org.jiemamy.utils.enhancer.helper.ArgumentEqualsPointcut;
+import org.jiemamy.utils.enhancer.helper.AnnotationIndex;
+import org.jiemamy.utils.enhancer.helper.ClassMetadata;
+import org.jiemamy.utils.enhancer.helper.ClassMetadataPointcut;
+import org.jiemamy.utils.enhancer.helper.CostedPointcut;
+import org.jiemamy.utils.enhancer.helper.DeclaringTypePointcut;
+import org.jiemamy.utils.enhancer.helper.InstantiationPointcut;
 import org.jiemamy.utils.enhancer.helper.NotInvocationPointcut;
 import org.jiemamy.utils.enhancer.helper.OrInvocationPointcut;
+import org.jiemamy.utils.enhancer.helper.PointcutOptimizer;
+import org.jiemamy.utils.enhancer.helper.PointcutParser;
 
 /**
  * 一般的なポイントカット定義の一覧。
  * @version $Date$
  * @author Suguru ARAKAWA (Gluegent, Inc.)
  */
-public enum Pointcuts implements InvocationPointcut {
+public enum Pointcuts implements CostedPointcut, ClassMetadataPointcut {
 	
 	/**
 	 * すべてを対象とするポイントカット定義。
 	 */
-	TRUE("true") { //$NON-NLS-1$
+	TRUE("true", CostedPointcut.COST_CONSTANT) { //$NON-NLS-1$
 	
 		public boolean isTarget(CtClass self, CtBehavior behavior) {
 			return true;
@@ -48,17 +59,22 @@ public enum Pointcuts implements InvocationPointcut {
 	/**
 	 * 何も対象としないポイントカット定義。
 	 */
-	FALSE("false") { //$NON-NLS-1$
+	FALSE("false", CostedPointcut.COST_CONSTANT) { //$NON-NLS-1$
 	
 		public boolean isTarget(CtClass self, CtBehavior behavior) {
 			return false;
 		}
+		
+		@Override
+		public boolean isCandidate(ClassMetadata metadata) {
+			return false;
+		}
 	},
 	
 	/**
 	 * メソッドのみを対象とするポイントカット定義。
 	 */
-	METHODS("methods") { //$NON-NLS-1$
+	METHODS("methods", CostedPointcut.COST_KIND) { //$NON-NLS-1$
 	
 		public boolean isTarget(CtClass self, CtBehavior behavior) {
 			return behavior instanceof CtMethod;
@@ -68,11 +84,31 @@ public enum Pointcuts implements InvocationPointcut {
 	/**
 	 * コンストラクタのみを対象とするポイントカット定義。
 	 */
-	CONSTRUCTORS("constructors") { //$NON-NLS-1$
+	CONSTRUCTORS("constructors", CostedPointcut.COST_KIND) { //$NON-NLS-1$
 	
 		public boolean isTarget(CtClass self, CtBehavior behavior) {
 			return behavior instanceof CtConstructor;
 		}
+		
+		@Override
+		public boolean isCandidate(ClassMetadata metadata) {
+			return false;
+		}
+	},
+	
+	/**
+	 * {@link Pure}が付与されたメソッドのみを対象とするポイントカット定義。
+	 * <p>
+	 * 注釈はクラスファイルから直接読み出されるため、この判定のために対象のクラスはロードされない。
+	 * また、読み出した注釈はクラスごとに索引として再利用される。
+	 * </p>
+	 * @since 0.2.1
+	 */
+	PURE("pure", CostedPointcut.COST_ANNOTATION) { //$NON-NLS-1$
+	
+		public boolean isTarget(CtClass self, CtBehavior behavior) {
+			return behavior instanceof CtMethod && AnnotationIndex.isAnnotated(behavior, Pure.class.getName());
+		}
 	};
 	
 	/**
@@ -213,6 +249,140 @@ public enum Pointcuts implements InvocationPointcut {
 		return new OrInvocationPointcut(toList(a, b, rest));
 	}
 	
+	/**
+	 * 指定の型、またはそのサブタイプのインスタンス生成のみを対象とするポイントカット定義を返す。
+	 * <p>
+	 * 返されるオブジェクトは、
+	 * {@link InvocationPointcut#isTarget(javassist.CtClass, javassist.CtBehavior)
+	 * isTarget(self, declaring)}
+	 * が呼び出された際に、{@code declaring}がコンストラクタであり、
+	 * かつそれを宣言するクラスが{@code type}のサブタイプである場合のみ{@code true}を返す。
+	 * ファクトリ内のインスタンス生成式を拡張する
+	 * {@link org.jiemamy.utils.enhancer.handler.PoolingHandler}などと組み合わせて利用できる。
+	 * </p>
+	 * @param type 対象とするインスタンスの型
+	 * @return 指定の型のインスタンス生成を対象とするポイントカット定義
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public static InvocationPointcut newInstanceOf(Class<?> type) {
+		if (type == null) {
+			throw new NullPointerException("type"); //$NON-NLS-1$
+		}
+		return new InstantiationPointcut(type);
+	}
+	
+	/**
+	 * 指定の注釈が付与されたメソッドやコンストラクタのみを対象とするポイントカット定義を返す。
+	 * <p>
+	 * 返されるオブジェクトは、
+	 * {@link InvocationPointcut#isTarget(javassist.CtClass, javassist.CtBehavior)
+	 * isTarget(self, declaring)}
+	 * が呼び出された際に、{@code declaring}に{@code annotationType}の注釈が直接付与されている場合のみ
+	 * {@code true}を返す。
+	 * 注釈はクラスファイルから直接読み出され、クラスごとに一度だけ走査した結果が索引として再利用される。
+	 * </p>
+	 * @param annotationType 対象とする注釈の型
+	 * @return 指定の注釈が付与されたメソッドやコンストラクタを対象とするポイントカット定義
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public static InvocationPointcut annotatedWith(Class<? extends Annotation> annotationType) {
+		if (annotationType == null) {
+			throw new NullPointerException("annotationType"); //$NON-NLS-1$
+		}
+		return new AnnotatedPointcut(annotationType);
+	}
+	
+	/**
+	 * 指定の型で宣言されたメソッドやコンストラクタのみを対象とするポイントカット定義を返す。
+	 * <p>
+	 * 返されるオブジェクトは、
+	 * {@link InvocationPointcut#isTarget(javassist.CtClass, javassist.CtBehavior)
+	 * isTarget(self, declaring)}
+	 * が呼び出された際に、{@code declaring}を宣言するクラスが{@code type}と等しい場合のみ{@code true}を返す。
+	 * {@code type}に注釈型を指定した場合、{@code declaring}を宣言するクラスにその注釈が
+	 * 直接付与されている場合のみ{@code true}を返す。
+	 * </p>
+	 * @param type 対象のメソッドやコンストラクタを宣言する型、またはその型に付与された注釈の型
+	 * @return 指定の型で宣言されたメソッドやコンストラクタを対象とするポイントカット定義
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public static InvocationPointcut declaredIn(Class<?> type) {
+		if (type == null) {
+			throw new NullPointerException("type"); //$NON-NLS-1$
+		}
+		return new DeclaringTypePointcut(type);
+	}
+	
+	/**
+	 * 指定の位置の実引数が指定の値と等しい呼び出しのみを対象とするポイントカット定義を返す。
+	 * <p>
+	 * 返されるポイントカット定義は{@link DynamicPointcut}であり、実引数の比較は呼び出しのたびに行われる。
+	 * 拡張時には、指定の位置に引数を持つメソッドやコンストラクタのみを対象とする。
+	 * 通常は、{@link #and(InvocationPointcut, InvocationPointcut) and}によって他のポイントカット定義と組み合わせて利用する。
+	 * </p>
+	 * @param index 対象の引数の位置 ({@code 0}から始まる)
+	 * @param value 比較する値
+	 * @return 対応するポイントカット定義
+	 * @throws IllegalArgumentException 引数の位置に負の値が指定された場合
+	 * @since 0.2.1
+	 */
+	public static InvocationPointcut argumentEquals(int index, Object value) {
+		return new ArgumentEqualsPointcut(index, value);
+	}
+	
+	/**
+	 * ポイントカット式を解析し、対応するポイントカット定義を返す。
+	 * <p>
+	 * 例えば、{@code execution(public * com.example..*Product.get*(..)) && !annotated(@NoTrace)}は、
+	 * {@code com.example}以下のパッケージに含まれ、名前が{@code Product}で終わる型が公開する
+	 * {@code get}で始まる名前のメソッドのうち、{@code NoTrace}という名前の注釈が付与されていないものを対象とする。
+	 * </p>
+	 * <p>
+	 * 式は呼び出しの際に一度だけ解析され、名前や型に対するパターンはすべて事前に計算される。
+	 * 構文の詳細は{@link PointcutParser}を参照。
+	 * </p>
+	 * @param expression ポイントカット式
+	 * @return 対応するポイントカット定義
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException ポイントカット式の構文が正しくない場合
+	 * @since 0.2.1
+	 */
+	public static InvocationPointcut parse(String expression) {
+		if (expression == null) {
+			throw new NullPointerException("expression"); //$NON-NLS-1$
+		}
+		return PointcutParser.parse(expression);
+	}
+	
+	/**
+	 * 指定のポイントカット定義を、同じ判定結果を返すより評価の安価なポイントカット定義に変換する。
+	 * <p>
+	 * {@link #and(InvocationPointcut, InvocationPointcut) and}, {@link #or(InvocationPointcut, InvocationPointcut) or},
+	 * {@link #not(InvocationPointcut) not}によって構築された入れ子を平坦化し、
+	 * {@link #TRUE}や{@link #FALSE}を畳み込み、重複する項を除去した上で、
+	 * {@link #METHODS}のような安価な判定が先に評価されるように項を並べ替える。
+	 * 並べ替えを行うため、それぞれの項の判定は副作用を持たないことが前提となる。
+	 * ただし、{@link CostedPointcut}を実装しないポイントカット定義を越えて項が移動することはない。
+	 * </p>
+	 * <p>
+	 * エンハンサは、登録されたポイントカット定義に対してこの変換を自動的に適用する。
+	 * </p>
+	 * @param pointcut 対象のポイントカット定義
+	 * @return 変換後のポイントカット定義
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @see PointcutOptimizer
+	 * @since 0.2.1
+	 */
+	public static InvocationPointcut optimize(InvocationPointcut pointcut) {
+		if (pointcut == null) {
+			throw new NullPointerException("pointcut"); //$NON-NLS-1$
+		}
+		return PointcutOptimizer.optimize(pointcut);
+	}
+	
 	private static List<InvocationPointcut> toList(InvocationPointcut a, InvocationPointcut b) {
 		if (a == null) {
 			throw new NullPointerException("a"); //$NON-NLS-1$
@@ -252,10 +422,32 @@ public enum Pointcuts implements InvocationPointcut {
 
 	private final String description;
 	
+	private final int cost;
+	
 
-	private Pointcuts(String description) {
+	private Pointcuts(String description, int cost) {
 		assert description != null;
 		this.description = description;
+		this.cost = cost;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 0.2.1
+	 */
+	public int getCost() {
+		return cost;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、{@link #FALSE}と{@link #CONSTRUCTORS}のみが{@code false}を返す。
+	 * </p>
+	 * @since 0.2.1
+	 */
+	public boolean isCandidate(ClassMetadata metadata) {
+		return true;
 	}
 	
 	/**
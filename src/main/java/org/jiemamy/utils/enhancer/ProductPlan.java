@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 拡張の計画において、ひとつのプロダクトクラスに対して生成されるクラスの情報。
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ * @see EnhancePlan#getProducts()
+ */
+public class ProductPlan {
+	
+	private final String className;
+	
+	private final List<String> joinpoints;
+	
+	private final int estimatedBytecodeSize;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param className 拡張の対象となるプロダクトクラス(またはプロダクトインターフェース)の名前
+	 * @param joinpoints ハンドラが適用されるメソッドの名前とディスクリプタの一覧
+	 * @param estimatedBytecodeSize 生成されるクラスファイルの大きさの見積もり (バイト)
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public ProductPlan(String className, List<String> joinpoints, int estimatedBytecodeSize) {
+		super();
+		if (className == null) {
+			throw new NullPointerException("className"); //$NON-NLS-1$
+		}
+		if (joinpoints == null) {
+			throw new NullPointerException("joinpoints"); //$NON-NLS-1$
+		}
+		this.className = className;
+		this.joinpoints = Collections.unmodifiableList(new ArrayList<String>(joinpoints));
+		this.estimatedBytecodeSize = estimatedBytecodeSize;
+	}
+	
+	/**
+	 * 拡張の対象となるプロダクトクラス(またはプロダクトインターフェース)の名前を返す。
+	 * @return 拡張の対象となるプロダクトクラスの名前
+	 */
+	public String getClassName() {
+		return className;
+	}
+	
+	/**
+	 * ハンドラが適用されるメソッドの一覧を返す。
+	 * <p>
+	 * それぞれの要素は、メソッドの名前とそのディスクリプタを連結した文字列である。
+	 * </p>
+	 * @return ハンドラが適用されるメソッドの一覧
+	 */
+	public List<String> getJoinpoints() {
+		return joinpoints;
+	}
+	
+	/**
+	 * 生成されるクラスファイルの大きさの見積もりを返す。
+	 * @return 生成されるクラスファイルの大きさの見積もり (バイト)
+	 */
+	public int getEstimatedBytecodeSize() {
+		return estimatedBytecodeSize;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0}(joinpoints={1}, estimated={2}bytes)", //$NON-NLS-1$
+				className, joinpoints, String.valueOf(estimatedBytecodeSize));
+	}
+}
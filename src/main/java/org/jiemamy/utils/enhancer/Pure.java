@@ -0,0 +1,41 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 副作用を持たず、同一の実引数に対して常に同一の結果を返すメソッドであることを表す注釈。
+ * <p>
+ * この注釈が付与されたメソッドの結果は、呼び出しを行ったオブジェクトの状態に依存してはならない。
+ * {@link Pointcuts#PURE}はこの注釈が付与されたメソッドのみを対象とするため、
+ * {@link org.jiemamy.utils.enhancer.handler.MemoizingHandler}などと組み合わせて、
+ * 結果を再利用するメソッドを選択するために利用できる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Pure {
+	// no members
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.MessageFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+
+/**
+ * メソッドの本来の処理を指定の{@link Executor}上で非同期に実行し、呼び出し元にすぐに制御を戻すハンドラ。
+ * <p>
+ * このハンドラは、次のいずれかのメソッド起動に対して適用する。
+ * </p>
+ * <ul>
+ * <li> {@code void}型のメソッド - 呼び出し元には直ちに制御が戻り、本来の処理で発生した例外は記録のみ行われる </li>
+ * <li> {@link Future}型のメソッド - 呼び出し元には直ちに{@link Future}が返され、
+ *     本来の処理が返した{@link Future}の結果または本来の処理で発生した例外が、返された{@link Future}に設定される </li>
+ * <li> {@code java.util.concurrent.CompletionStage}型のメソッド (Java SE 8以降のみ) - 呼び出し元には直ちに
+ *     {@code java.util.concurrent.CompletableFuture}が返され、
+ *     本来の処理が返した{@code CompletionStage}の結果または本来の処理で発生した例外が、返された値に設定される </li>
+ * </ul>
+ * <p>
+ * これら以外のメソッド起動や、インスタンス生成に対して適用された場合、
+ * このハンドラは何も行わずに本来の処理を実行する。
+ * なお、{@link Future}型のメソッドでは、本来の処理が返した{@link Future}の完了を{@link Executor}上のスレッドで待機する。
+ * </p>
+ * <p>
+ * {@link Executor}がタスクの実行を拒否した場合の動作は、その{@link Executor}に従う。
+ * たとえば、{@link #newBoundedExecutor(int, int, RejectedExecutionHandler)}に
+ * {@link ThreadPoolExecutor.CallerRunsPolicy}を指定した場合、
+ * キューがあふれた際には呼び出し元のスレッドで本来の処理が実行される。
+ * また、{@link ThreadPoolExecutor.AbortPolicy}を指定した場合、呼び出し元に
+ * {@link java.util.concurrent.RejectedExecutionException}がスローされる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class AsyncHandler implements InvocationHandler {
+	
+	/**
+	 * デーモンスレッドを作成するファクトリ。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+		
+		private final AtomicInteger count = new AtomicInteger();
+		
+
+		DaemonThreadFactory() {
+			super();
+		}
+		
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "AsyncHandler-" + count.incrementAndGet()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+	
+	/**
+	 * {@code java.util.concurrent.CompletionStage}をリフレクションで操作する。
+	 * <p>
+	 * このライブラリはJava SE 6で動作するため、Java SE 8以降のAPIを直接参照しない。
+	 * </p>
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class CompletionStages {
+		
+		static final Class<?> STAGE;
+		
+		static final Class<?> FUTURE;
+		
+		static final Class<?> BI_CONSUMER;
+		
+		static final Method COMPLETE;
+		
+		static final Method COMPLETE_EXCEPTIONALLY;
+		
+		static final Method WHEN_COMPLETE;
+		
+		static {
+			Class<?> stage = null;
+			Class<?> future = null;
+			Class<?> biConsumer = null;
+			Method complete = null;
+			Method completeExceptionally = null;
+			Method whenComplete = null;
+			try {
+				stage = Class.forName("java.util.concurrent.CompletionStage"); //$NON-NLS-1$
+				future = Class.forName("java.util.concurrent.CompletableFuture"); //$NON-NLS-1$
+				biConsumer = Class.forName("java.util.function.BiConsumer"); //$NON-NLS-1$
+				complete = future.getMethod("complete", Object.class); //$NON-NLS-1$
+				completeExceptionally = future.getMethod("completeExceptionally", Throwable.class); //$NON-NLS-1$
+				whenComplete = stage.getMethod("whenComplete", biConsumer); //$NON-NLS-1$
+			} catch (ClassNotFoundException e) {
+				LOG.debug("CompletionStage is not available", e);
+				stage = null;
+			} catch (NoSuchMethodException e) {
+				LOG.debug("CompletionStage is not available", e);
+				stage = null;
+			}
+			STAGE = stage;
+			FUTURE = future;
+			BI_CONSUMER = biConsumer;
+			COMPLETE = complete;
+			COMPLETE_EXCEPTIONALLY = completeExceptionally;
+			WHEN_COMPLETE = whenComplete;
+		}
+		
+
+		static boolean isSupported(Class<?> type) {
+			assert type != null;
+			return STAGE != null && STAGE.isAssignableFrom(type) && type.isAssignableFrom(FUTURE);
+		}
+		
+		static Object newFuture() throws Exception {
+			return FUTURE.getConstructor().newInstance();
+		}
+		
+		static void complete(Object future, Object value) {
+			invoke(COMPLETE, future, value);
+		}
+		
+		static void completeExceptionally(Object future, Throwable cause) {
+			invoke(COMPLETE_EXCEPTIONALLY, future, cause);
+		}
+		
+		static void forward(Object stage, final Object future) {
+			Object consumer = Proxy.newProxyInstance(
+					BI_CONSUMER.getClassLoader(),
+					new Class<?>[] {
+						BI_CONSUMER
+					},
+					new java.lang.reflect.InvocationHandler() {
+						
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							if (method.getDeclaringClass() == Object.class) {
+								return invokeObjectMethod(proxy, method, args);
+							}
+							Throwable cause = (Throwable) args[1];
+							if (cause == null) {
+								complete(future, args[0]);
+							} else {
+								completeExceptionally(future, cause);
+							}
+							return null;
+						}
+					});
+			invoke(WHEN_COMPLETE, stage, consumer);
+		}
+		
+		static Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if (name.equals("equals")) { //$NON-NLS-1$
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) { //$NON-NLS-1$
+				return System.identityHashCode(proxy);
+			} else {
+				return "BiConsumer@" + Integer.toHexString(System.identityHashCode(proxy)); //$NON-NLS-1$
+			}
+		}
+		
+		private static void invoke(Method method, Object target, Object argument) {
+			assert method != null;
+			try {
+				method.invoke(target, argument);
+			} catch (IllegalAccessException e) {
+				throw new AssertionError(e);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+	}
+	
+
+	private static final Logger LOG = LoggerFactory.getLogger(AsyncHandler.class);
+	
+	private final Executor executor;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param executor 本来の処理を実行する{@link Executor}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public AsyncHandler(Executor executor) {
+		super();
+		if (executor == null) {
+			throw new NullPointerException("executor"); //$NON-NLS-1$
+		}
+		this.executor = executor;
+	}
+	
+	/**
+	 * タスクごとに仮想スレッドを作成する{@link ExecutorService}を返す。
+	 * <p>
+	 * 実行環境が仮想スレッドを利用できない場合、
+	 * 代わりに必要に応じてデーモンスレッドを作成する{@link ExecutorService}を返す。
+	 * </p>
+	 * @return タスクごとに仮想スレッドを作成する{@link ExecutorService}、または代替の{@link ExecutorService}
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor"); //$NON-NLS-1$
+			return (ExecutorService) factory.invoke(null);
+		} catch (NoSuchMethodException e) {
+			LOG.debug("Virtual threads are not available", e);
+		} catch (IllegalAccessException e) {
+			LOG.debug("Virtual threads are not available", e);
+		} catch (InvocationTargetException e) {
+			// 仮想スレッドがプレビュー機能である場合は UnsupportedOperationException となる
+			LOG.debug("Virtual threads are not available", e);
+		}
+		return Executors.newCachedThreadPool(new DaemonThreadFactory());
+	}
+	
+	/**
+	 * 固定数のデーモンスレッドと、有限のキューを持つ{@link ExecutorService}を返す。
+	 * @param threads スレッド数
+	 * @param queueCapacity 実行を待つタスクの最大数
+	 * @param policy キューがあふれた際のタスクの取り扱い
+	 * @return 作成した{@link ExecutorService}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException スレッド数や最大数に{@code 0}以下が指定された場合
+	 */
+	public static ExecutorService newBoundedExecutor(int threads, int queueCapacity, RejectedExecutionHandler policy) {
+		if (policy == null) {
+			throw new NullPointerException("policy"); //$NON-NLS-1$
+		}
+		if (threads <= 0) {
+			throw new IllegalArgumentException("threads must be > 0"); //$NON-NLS-1$
+		}
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("queueCapacity must be > 0"); //$NON-NLS-1$
+		}
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+				queueCapacity), new DaemonThreadFactory(), policy);
+	}
+	
+	/**
+	 * 本来の処理を{@link Executor}上で実行し、その結果を待たずに制御を戻す。
+	 */
+	public Object handle(final Invocation invocation) throws Throwable {
+		Member target = invocation.getTarget();
+		if ((target instanceof Method) == false) {
+			return invocation.proceed();
+		}
+		Class<?> type = ((Method) target).getReturnType();
+		if (type == void.class) {
+			executor.execute(new Runnable() {
+				
+				public void run() {
+					try {
+						invocation.proceed();
+					} catch (InvocationTargetException e) {
+						LOG.warn(MessageFormat.format("Asynchronous invocation failed: {0}", invocation), e.getCause());
+					} catch (Throwable t) {
+						LOG.warn(MessageFormat.format("Asynchronous invocation failed: {0}", invocation), t);
+					}
+				}
+			});
+			return null;
+		}
+		if (Future.class.isAssignableFrom(type) && type.isAssignableFrom(FutureTask.class)) {
+			FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+				
+				public Object call() throws Exception {
+					Future<?> future = (Future<?>) proceed(invocation);
+					if (future == null) {
+						return null;
+					}
+					try {
+						return future.get();
+					} catch (ExecutionException e) {
+						throw rethrow(e.getCause());
+					}
+				}
+			});
+			executor.execute(task);
+			return task;
+		}
+		if (CompletionStages.isSupported(type)) {
+			final Object future = CompletionStages.newFuture();
+			executor.execute(new Runnable() {
+				
+				public void run() {
+					try {
+						Object stage = proceed(invocation);
+						if (stage == null) {
+							CompletionStages.complete(future, null);
+						} else {
+							CompletionStages.forward(stage, future);
+						}
+					} catch (Throwable t) {
+						CompletionStages.completeExceptionally(future, t);
+					}
+				}
+			});
+			return future;
+		}
+		return invocation.proceed();
+	}
+	
+	static Object proceed(Invocation invocation) throws Exception {
+		assert invocation != null;
+		try {
+			return invocation.proceed();
+		} catch (InvocationTargetException e) {
+			throw rethrow(e.getCause());
+		}
+	}
+	
+	static Exception rethrow(Throwable cause) {
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		} else if (cause instanceof Exception) {
+			return (Exception) cause;
+		}
+		return new ExecutionException(cause);
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("Async({0})", executor); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * {@link BatchingHandler}が蓄積した呼び出しを、まとめて処理する。
+ * <p>
+ * このインターフェースは、クライアントが実装して{@link BatchingHandler}に登録する。
+ * ひとつの{@link BatchingHandler}から、このインターフェースのメソッドが同時に複数呼び出されることはない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public interface BatchSink {
+	
+	/**
+	 * 蓄積された呼び出しをまとめて処理する。
+	 * <p>
+	 * 引数のリストには、指定のメソッドに対するそれぞれの呼び出しに指定された実引数の一覧が、
+	 * 呼び出された順に格納されている。
+	 * ひとつのバッチには同一のメソッドに対する呼び出しのみが含まれ、
+	 * 異なるメソッドに対する呼び出しは、呼び出された順序を保ったまま別のバッチとして渡される。
+	 * </p>
+	 * @param target 呼び出された対象のメソッド
+	 * @param batch 蓄積された呼び出しの実引数一覧
+	 * @throws Exception 処理に失敗した場合
+	 */
+	void flush(Method target, List<Object[]> batch) throws Exception;
+}
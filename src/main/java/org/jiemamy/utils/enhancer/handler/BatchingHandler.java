@@ -0,0 +1,287 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+
+/**
+ * 戻り値を持たないメソッドの呼び出しを蓄積し、まとめて{@link BatchSink}に渡すハンドラ。
+ * <p>
+ * このハンドラは、{@code void}型のメソッド起動に対して適用する。
+ * 対象のメソッドが呼び出されると、本来の処理は実行されずに実引数の一覧が蓄積され、
+ * 蓄積された件数が指定のバッチサイズに達した際、またはフラッシュ間隔を指定した場合にはその間隔ごとに、
+ * 蓄積された呼び出しが対象のメソッドごとにまとめて{@link BatchSink#flush(Method, List)}に渡される。
+ * 戻り値を持つメソッド起動や、インスタンス生成に対して適用された場合、
+ * このハンドラは何も行わずに本来の処理を実行する。
+ * </p>
+ * <p>
+ * 蓄積された件数が指定の最大件数に達している場合、呼び出し元のスレッドはフラッシュが完了するまで待機する。
+ * また、{@link #close()}を呼び出した後は、このハンドラは何も行わずに本来の処理を実行する。
+ * </p>
+ * <p>
+ * メソッド起動やフラッシュ間隔を契機としたフラッシュが失敗した場合、その例外は記録され、
+ * 対象の呼び出しは破棄される。
+ * 明示的に{@link #flush()}を呼び出した場合には、その例外が呼び出し元に通知される。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class BatchingHandler implements InvocationHandler {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(BatchingHandler.class);
+	
+	private final BatchSink sink;
+	
+	private final int batchSize;
+	
+	private final int capacity;
+	
+	private final Queue<BatchedCall> queue = new ConcurrentLinkedQueue<BatchedCall>();
+	
+	private final AtomicInteger pending = new AtomicInteger();
+	
+	/**
+	 * {@link BatchSink}の呼び出しを直列化するためのロック。
+	 */
+	private final ReentrantLock flushLock = new ReentrantLock();
+	
+	private final ScheduledExecutorService scheduler;
+	
+	private volatile boolean closed;
+	
+
+	/**
+	 * 蓄積された件数のみを契機にフラッシュを行うインスタンスを生成する。
+	 * @param sink 蓄積された呼び出しを処理するオブジェクト
+	 * @param batchSize フラッシュを行う件数
+	 * @param capacity 蓄積する呼び出しの最大件数
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 件数に{@code 0}以下が指定された場合、
+	 *     または最大件数がフラッシュを行う件数より小さい場合
+	 */
+	public BatchingHandler(BatchSink sink, int batchSize, int capacity) {
+		this(sink, batchSize, capacity, 0, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * <p>
+	 * フラッシュ間隔に{@code 1}以上を指定した場合、このハンドラはフラッシュを行うためのデーモンスレッドを作成する。
+	 * このスレッドは{@link #close()}の呼び出しによって終了する。
+	 * </p>
+	 * @param sink 蓄積された呼び出しを処理するオブジェクト
+	 * @param batchSize フラッシュを行う件数
+	 * @param capacity 蓄積する呼び出しの最大件数
+	 * @param interval フラッシュを行う間隔、{@code 0}の場合は件数のみを契機にフラッシュを行う
+	 * @param unit フラッシュを行う間隔の単位
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 件数に{@code 0}以下が指定された場合、
+	 *     または最大件数がフラッシュを行う件数より小さい場合
+	 * @throws IllegalArgumentException 間隔に負の値が指定された場合
+	 */
+	public BatchingHandler(BatchSink sink, int batchSize, int capacity, long interval, TimeUnit unit) {
+		super();
+		if (sink == null) {
+			throw new NullPointerException("sink"); //$NON-NLS-1$
+		}
+		if (unit == null) {
+			throw new NullPointerException("unit"); //$NON-NLS-1$
+		}
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be > 0"); //$NON-NLS-1$
+		}
+		if (capacity < batchSize) {
+			throw new IllegalArgumentException("capacity must be >= batchSize"); //$NON-NLS-1$
+		}
+		if (interval < 0) {
+			throw new IllegalArgumentException("interval must be >= 0"); //$NON-NLS-1$
+		}
+		this.sink = sink;
+		this.batchSize = batchSize;
+		this.capacity = capacity;
+		if (interval == 0) {
+			this.scheduler = null;
+		} else {
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "BatchingHandler-flusher"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				
+				public void run() {
+					flushQuietly(true);
+				}
+			}, interval, interval, unit);
+		}
+	}
+	
+	/**
+	 * 対象が戻り値を持たないメソッドであれば実引数を蓄積し、そうでなければ本来の処理を実行する。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		if (closed || isVoidMethod(invocation.getTarget()) == false) {
+			return invocation.proceed();
+		}
+		queue.offer(new BatchedCall((Method) invocation.getTarget(), invocation.getArguments().clone()));
+		int count = pending.incrementAndGet();
+		if (count >= capacity || closed) {
+			// back-pressure: 蓄積された呼び出しを処理し終えるまで呼び出し元を待たせる
+			// また、close()と競合した場合には蓄積した呼び出しが残らないように処理する
+			flushQuietly(true);
+		} else if (count >= batchSize) {
+			flushQuietly(false);
+		}
+		return null;
+	}
+	
+	private static boolean isVoidMethod(Member target) {
+		assert target != null;
+		return target instanceof Method && ((Method) target).getReturnType() == void.class;
+	}
+	
+	/**
+	 * 現在蓄積されているすべての呼び出しを{@link BatchSink}に渡す。
+	 * <p>
+	 * 他のスレッドがフラッシュを実行中の場合、この呼び出しはそれが完了するまで待機する。
+	 * </p>
+	 * @throws Exception {@link BatchSink#flush(Method, List)}が例外をスローした場合
+	 */
+	public void flush() throws Exception {
+		flushLock.lock();
+		try {
+			drain();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+	
+	/**
+	 * 以後の呼び出しの蓄積を停止し、現在蓄積されているすべての呼び出しを{@link BatchSink}に渡す。
+	 * <p>
+	 * この呼び出しの後、このハンドラは何も行わずに本来の処理を実行する。
+	 * また、フラッシュを行うためのスレッドを作成していた場合、そのスレッドは終了する。
+	 * </p>
+	 * @throws Exception {@link BatchSink#flush(Method, List)}が例外をスローした場合
+	 */
+	public void close() throws Exception {
+		closed = true;
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+		flush();
+	}
+	
+	private void flushQuietly(boolean wait) {
+		if (wait) {
+			flushLock.lock();
+		} else if (flushLock.tryLock() == false) {
+			// 他のスレッドがフラッシュを実行中
+			return;
+		}
+		try {
+			drain();
+		} catch (Exception e) {
+			LOG.warn(MessageFormat.format("Failed to flush batched invocations: {0}", sink), e);
+		} finally {
+			flushLock.unlock();
+		}
+	}
+	
+	private void drain() throws Exception {
+		assert flushLock.isHeldByCurrentThread();
+		while (true) {
+			BatchedCall first = queue.poll();
+			if (first == null) {
+				return;
+			}
+			List<Object[]> batch = new ArrayList<Object[]>();
+			batch.add(first.arguments);
+			// 要素を取り出すのはロックを保持するスレッドのみであるため、peek()した要素をそのまま取り出せる
+			for (BatchedCall next = queue.peek(); next != null; next = queue.peek()) {
+				if (batch.size() >= batchSize || next.target.equals(first.target) == false) {
+					break;
+				}
+				BatchedCall polled = queue.poll();
+				assert polled == next;
+				batch.add(next.arguments);
+			}
+			pending.addAndGet(-batch.size());
+			sink.flush(first.target, batch);
+		}
+	}
+	
+	/**
+	 * 現在蓄積されている呼び出しの件数を返す。
+	 * @return 蓄積されている呼び出しの件数
+	 */
+	public int getPendingCount() {
+		return pending.get();
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("Batching(pending={0}, batchSize={1}, capacity={2}, sink={3})", //$NON-NLS-1$
+				String.valueOf(getPendingCount()), String.valueOf(batchSize), String.valueOf(capacity), sink);
+	}
+	
+
+	/**
+	 * 蓄積された呼び出し。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class BatchedCall {
+		
+		final Method target;
+		
+		final Object[] arguments;
+		
+
+		BatchedCall(Method target, Object[] arguments) {
+			assert target != null;
+			assert arguments != null;
+			this.target = target;
+			this.arguments = arguments;
+		}
+	}
+}
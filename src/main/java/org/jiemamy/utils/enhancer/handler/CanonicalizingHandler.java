@@ -0,0 +1,170 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.text.MessageFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+
+/**
+ * 同一の実引数で生成されたプロダクトを共有する(正規化する)ハンドラ。
+ * <p>
+ * このハンドラはファクトリ内のインスタンス生成式(コンストラクタの起動)に対して適用する。
+ * {@link org.jiemamy.utils.enhancer.Pointcuts#newInstanceOf(Class)}と組み合わせて利用するとよい。
+ * メソッド起動に対して適用された場合、このハンドラは何も行わずに本来の処理を実行する。
+ * </p>
+ * <p>
+ * 同一のコンストラクタに同値の実引数を指定したインスタンス生成が行われた場合、
+ * このハンドラは以前に生成したプロダクトがまだ利用されていればそれを返し、新しいインスタンスを生成しない。
+ * 共有するプロダクトは弱参照で保持されるため、このハンドラがプロダクトの回収を妨げることはない。
+ * 実引数の比較は{@link java.util.Arrays#deepEquals(Object[], Object[])}と同様の方法で行う。
+ * </p>
+ * <p>
+ * 生成されたプロダクトは複数の呼び出し元で共有されるため、
+ * このハンドラは不変なプロダクトのインスタンス生成に対してのみ適用するべきである。
+ * また、同一のインスタンス生成が同時に行われた場合、それぞれが本来のインスタンス生成を実行する場合があるが、
+ * その場合でもいずれか一方のプロダクトのみが呼び出し元に返される。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class CanonicalizingHandler implements InvocationHandler {
+	
+	/**
+	 * 共有されるプロダクトへの弱参照。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class ProductReference extends WeakReference<Object> {
+		
+		final InvocationKey key;
+		
+
+		ProductReference(InvocationKey key, Object product, ReferenceQueue<Object> queue) {
+			super(product, queue);
+			assert key != null;
+			this.key = key;
+		}
+	}
+	
+
+	private final ConcurrentMap<InvocationKey, ProductReference> products =
+			new ConcurrentHashMap<InvocationKey, ProductReference>();
+	
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+	
+	private final AtomicLong hitCount = new AtomicLong();
+	
+	private final AtomicLong missCount = new AtomicLong();
+	
+
+	/**
+	 * 同値の実引数で生成されたプロダクトがまだ利用されていればそれを返し、
+	 * そうでなければ本来のインスタンス生成を行ってその結果を保持する。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		if ((invocation.getTarget() instanceof Constructor<?>) == false) {
+			return invocation.proceed();
+		}
+		expunge();
+		InvocationKey key = InvocationKey.of(invocation);
+		ProductReference found = products.get(key);
+		if (found != null) {
+			Object product = found.get();
+			if (product != null) {
+				hitCount.incrementAndGet();
+				return product;
+			}
+		}
+		missCount.incrementAndGet();
+		Object created = invocation.proceed();
+		if (created == null) {
+			return null;
+		}
+		ProductReference reference = new ProductReference(key, created, queue);
+		while (true) {
+			ProductReference current = products.putIfAbsent(key, reference);
+			if (current == null) {
+				return created;
+			}
+			Object product = current.get();
+			if (product != null) {
+				// 他のスレッドが先に生成したプロダクトを利用する
+				return product;
+			}
+			if (products.replace(key, current, reference)) {
+				return created;
+			}
+		}
+	}
+	
+	/**
+	 * 回収されたプロダクトに対応するエントリを除去する。
+	 */
+	private void expunge() {
+		for (Reference<?> ref = queue.poll(); ref != null; ref = queue.poll()) {
+			ProductReference reference = (ProductReference) ref;
+			products.remove(reference.key, reference);
+		}
+	}
+	
+	/**
+	 * 共有されたプロダクトを再利用した回数を返す。
+	 * @return 共有されたプロダクトを再利用した回数
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	
+	/**
+	 * 本来のインスタンス生成を行った回数を返す。
+	 * @return 本来のインスタンス生成を行った回数
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+	
+	/**
+	 * 現在保持しているプロダクトの個数を返す。
+	 * <p>
+	 * 返される個数には、すでに回収されているがまだ除去されていないプロダクトが含まれる場合がある。
+	 * </p>
+	 * @return 保持しているプロダクトの個数
+	 */
+	public int size() {
+		expunge();
+		return products.size();
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("Canonicalizing(size={0}, hit={1}, miss={2})", //$NON-NLS-1$
+				String.valueOf(size()), String.valueOf(getHitCount()), String.valueOf(getMissCount()));
+	}
+}
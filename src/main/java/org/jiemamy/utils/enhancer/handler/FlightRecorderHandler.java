@@ -0,0 +1,100 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+import org.jiemamy.utils.enhancer.helper.FlightRecorderSupport;
+
+/**
+ * 指定の閾値を超えて実行された呼び出しを、JDK Flight Recorderのイベントとして記録するハンドラ。
+ * <p>
+ * 記録されるイベントは{@code org.jiemamy.enhancer.SlowInvocation}で、
+ * 呼び出し対象、呼び出しを行ったオブジェクトのクラス名、および所要時間を保持する。
+ * 閾値を下回る呼び出しでは、所要時間の計測以外の処理を行わない。
+ * また、JDK Flight Recorderが利用できない環境では、このハンドラは何も記録しない。
+ * </p>
+ * <p>
+ * 所要時間には、このハンドラよりも後に適用されるハンドラの処理時間も含まれる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class FlightRecorderHandler implements InvocationHandler {
+	
+	private final long thresholdNanos;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param threshold イベントを記録する所要時間の閾値
+	 * @param unit 閾値の単位
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 閾値に負の値が指定された場合
+	 */
+	public FlightRecorderHandler(long threshold, TimeUnit unit) {
+		super();
+		if (unit == null) {
+			throw new NullPointerException("unit"); //$NON-NLS-1$
+		}
+		if (threshold < 0) {
+			throw new IllegalArgumentException("threshold must be >= 0"); //$NON-NLS-1$
+		}
+		this.thresholdNanos = unit.toNanos(threshold);
+	}
+	
+	/**
+	 * 本来の処理を実行し、その所要時間が閾値以上であればイベントを記録する。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		long start = System.nanoTime();
+		try {
+			return invocation.proceed();
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			if (elapsed >= thresholdNanos) {
+				FlightRecorderSupport.slowInvocation(invocation.getTarget(), invocation.getInvoker(), elapsed);
+			}
+		}
+	}
+	
+	/**
+	 * イベントを記録する所要時間の閾値を返す。
+	 * @param unit 閾値の単位
+	 * @return イベントを記録する所要時間の閾値
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public long getThreshold(TimeUnit unit) {
+		if (unit == null) {
+			throw new NullPointerException("unit"); //$NON-NLS-1$
+		}
+		return unit.convert(thresholdNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("FlightRecorder(threshold={0}ns)", //$NON-NLS-1$
+				String.valueOf(thresholdNanos));
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+import org.jiemamy.utils.enhancer.Invocation;
+
+/**
+ * 呼び出し先と実引数の組を表現するキー。
+ * <p>
+ * 実引数は生成時に複製され、配列を含む場合はその内容によって比較される。
+ * また、レシーバを含むキーは、レシーバの同一性({@code ==})によっても比較される。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+final class InvocationKey {
+	
+	private final Member target;
+	
+	private final Object[] arguments;
+	
+	private final Object receiver;
+	
+	private final int hashCode;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param target 呼び出し先
+	 * @param arguments 実引数の一覧
+	 */
+	InvocationKey(Member target, Object[] arguments) {
+		this(target, arguments, null);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * @param target 呼び出し先
+	 * @param arguments 実引数の一覧
+	 * @param receiver 呼び出しのレシーバ、キーに含めない場合は{@code null}
+	 */
+	InvocationKey(Member target, Object[] arguments, Object receiver) {
+		assert target != null;
+		assert arguments != null;
+		this.target = target;
+		this.arguments = arguments.clone();
+		this.receiver = receiver;
+		this.hashCode = (target.hashCode() * 31 + Arrays.deepHashCode(this.arguments)) * 31
+				+ System.identityHashCode(receiver);
+	}
+	
+	/**
+	 * 指定の呼び出しに対応するキーを返す。
+	 * @param invocation 対象の呼び出し
+	 * @return 対応するキー
+	 */
+	static InvocationKey of(Invocation invocation) {
+		assert invocation != null;
+		return new InvocationKey(invocation.getTarget(), invocation.getArguments());
+	}
+	
+	/**
+	 * 指定の呼び出しに対応する、レシーバを含むキーを返す。
+	 * <p>
+	 * 呼び出し先がインスタンスメソッドである場合、呼び出しを行ったオブジェクトをレシーバとしてキーに含める。
+	 * そうでない場合、この呼び出しは{@link #of(Invocation)}と同様のキーを返す。
+	 * </p>
+	 * @param invocation 対象の呼び出し
+	 * @return 対応するキー
+	 */
+	static InvocationKey withReceiver(Invocation invocation) {
+		assert invocation != null;
+		Member target = invocation.getTarget();
+		if (target instanceof Method && Modifier.isStatic(target.getModifiers()) == false) {
+			return new InvocationKey(target, invocation.getArguments(), invocation.getInvoker());
+		}
+		return of(invocation);
+	}
+	
+	/**
+	 * 呼び出し先を返す。
+	 * @return 呼び出し先
+	 */
+	Member getTarget() {
+		return target;
+	}
+	
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		InvocationKey other = (InvocationKey) obj;
+		if (hashCode != other.hashCode) {
+			return false;
+		}
+		return receiver == other.receiver && target.equals(other.target)
+				&& Arrays.deepEquals(arguments, other.arguments);
+	}
+	
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0}{1}", //$NON-NLS-1$
+				target.getName(), Arrays.deepToString(arguments));
+	}
+}
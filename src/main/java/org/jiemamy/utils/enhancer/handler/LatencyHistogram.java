@@ -0,0 +1,299 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ロックを利用せずに値を記録する、固定サイズの対数線形ヒストグラム。
+ * <p>
+ * 記録する値は{@code 0}以上の{@code long}値で、主にナノ秒単位の経過時間を想定している。
+ * 値は2の累乗ごとの区間をさらに{@value #SUB_BUCKETS}等分したバケットに分類されるため、
+ * 記録された値とパーセンタイルの結果との相対誤差は最大で{@code 1/}{@value #SUB_BUCKETS}程度となる。
+ * ただし、{@value #SUB_BUCKETS}未満の値は誤差なく記録される。
+ * </p>
+ * <p>
+ * 同時に記録を行うスレッド間の競合を避けるため、バケットはスレッドごとに分割された複数の区画に保持され、
+ * {@link #snapshot()}の際に合算される。
+ * このクラスのインスタンスはスレッドセーフである。
+ * ただし、{@link #snapshot()}や{@link #reset()}と並行して行われた記録は、
+ * その結果に反映される場合とされない場合がある。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class LatencyHistogram {
+	
+	/**
+	 * ある時点でのヒストグラムの内容。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 * @since 0.2.1
+	 */
+	public static class Snapshot {
+		
+		private final long[] counts;
+		
+		private final long count;
+		
+		private final long sum;
+		
+		private final long max;
+		
+
+		Snapshot(long[] counts, long sum, long max) {
+			assert counts != null;
+			this.counts = counts;
+			long total = 0;
+			for (long c : counts) {
+				total += c;
+			}
+			this.count = total;
+			this.sum = sum;
+			this.max = max;
+		}
+		
+		/**
+		 * 記録された値の個数を返す。
+		 * @return 記録された値の個数
+		 */
+		public long getCount() {
+			return count;
+		}
+		
+		/**
+		 * 記録された値の合計を返す。
+		 * @return 記録された値の合計
+		 */
+		public long getSum() {
+			return sum;
+		}
+		
+		/**
+		 * 記録された値の最大値を返す。
+		 * @return 記録された値の最大値、ひとつも記録されていない場合は{@code 0}
+		 */
+		public long getMax() {
+			return max;
+		}
+		
+		/**
+		 * 記録された値の平均を返す。
+		 * @return 記録された値の平均、ひとつも記録されていない場合は{@code 0}
+		 */
+		public double getMean() {
+			if (count == 0) {
+				return 0;
+			}
+			return (double) sum / count;
+		}
+		
+		/**
+		 * 指定のパーセンタイルに対応する値を返す。
+		 * <p>
+		 * 返される値は、そのパーセンタイルに対応する値が含まれるバケットの上限値である。
+		 * ただし、記録された値の最大値を超えることはない。
+		 * </p>
+		 * @param percentile パーセンタイル ({@code 0.0}以上{@code 100.0}以下、{@code 99.9}など)
+		 * @return 指定のパーセンタイルに対応する値、ひとつも記録されていない場合は{@code 0}
+		 * @throws IllegalArgumentException パーセンタイルが範囲外である場合
+		 */
+		public long getPercentile(double percentile) {
+			if (percentile < 0.0 || percentile > 100.0) {
+				throw new IllegalArgumentException("percentile must be in [0.0, 100.0]"); //$NON-NLS-1$
+			}
+			if (count == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(count * percentile / 100.0);
+			if (rank < 1) {
+				rank = 1;
+			}
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(upperBoundOf(i), max);
+				}
+			}
+			return max;
+		}
+		
+		/**
+		 * このオブジェクトの文字列表現を返す。
+		 * @return このオブジェクトのデバッグ用の文字列表現
+		 */
+		@Override
+		public String toString() {
+			return MessageFormat.format("count={0}, mean={1}, p50={2}, p99={3}, p999={4}, max={5}", //$NON-NLS-1$
+					String.valueOf(getCount()), String.valueOf((long) getMean()), String.valueOf(getPercentile(50)),
+					String.valueOf(getPercentile(99)), String.valueOf(getPercentile(99.9)), String.valueOf(getMax()));
+		}
+	}
+	
+
+	/**
+	 * 2の累乗ごとの区間を分割するビット数。
+	 */
+	private static final int SUB_BITS = 3;
+	
+	/**
+	 * 2の累乗ごとの区間を分割する個数。
+	 */
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+	
+	/**
+	 * バケットの個数。
+	 */
+	static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS;
+	
+	/**
+	 * 区画の個数 (2の累乗)。
+	 */
+	private static final int STRIPES = 4;
+	
+	/**
+	 * 区画ごとのバケット ({@code stripe * BUCKETS + bucket})。
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+	
+	private final AtomicLongArray sums = new AtomicLongArray(STRIPES);
+	
+	private final AtomicLong max = new AtomicLong();
+	
+
+	/**
+	 * 値を記録する。
+	 * <p>
+	 * 負の値は{@code 0}として記録される。
+	 * </p>
+	 * @param value 記録する値
+	 */
+	public void record(long value) {
+		long v = value < 0 ? 0 : value;
+		int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+		counts.incrementAndGet(stripe * BUCKETS + indexOf(v));
+		sums.addAndGet(stripe, v);
+		for (long current = max.get(); v > current; current = max.get()) {
+			if (max.compareAndSet(current, v)) {
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * 経過時間を記録する。
+	 * @param duration 経過時間
+	 * @param unit 経過時間の単位
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public void record(long duration, TimeUnit unit) {
+		if (unit == null) {
+			throw new NullPointerException("unit"); //$NON-NLS-1$
+		}
+		record(unit.toNanos(duration));
+	}
+	
+	/**
+	 * 現在のヒストグラムの内容を返す。
+	 * @return 現在のヒストグラムの内容
+	 */
+	public Snapshot snapshot() {
+		long[] merged = new long[BUCKETS];
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			int offset = stripe * BUCKETS;
+			for (int i = 0; i < BUCKETS; i++) {
+				merged[i] += counts.get(offset + i);
+			}
+		}
+		long sum = 0;
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			sum += sums.get(stripe);
+		}
+		return new Snapshot(merged, sum, max.get());
+	}
+	
+	/**
+	 * 現在のヒストグラムの内容を返し、その内容を消去する。
+	 * @return 消去する直前のヒストグラムの内容
+	 */
+	public Snapshot snapshotAndReset() {
+		long[] merged = new long[BUCKETS];
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			int offset = stripe * BUCKETS;
+			for (int i = 0; i < BUCKETS; i++) {
+				merged[i] += counts.getAndSet(offset + i, 0);
+			}
+		}
+		long sum = 0;
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			sum += sums.getAndSet(stripe, 0);
+		}
+		return new Snapshot(merged, sum, max.getAndSet(0));
+	}
+	
+	/**
+	 * ヒストグラムの内容を消去する。
+	 */
+	public void reset() {
+		snapshotAndReset();
+	}
+	
+	/**
+	 * 指定の値を格納するバケットの番号を返す。
+	 * @param value 対象の値 ({@code 0}以上)
+	 * @return 対応するバケットの番号
+	 */
+	static int indexOf(long value) {
+		assert value >= 0;
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BITS;
+		int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + sub;
+	}
+	
+	/**
+	 * 指定のバケットに格納される値の上限を返す。
+	 * @param index 対象のバケットの番号
+	 * @return 対応するバケットに格納される値の上限
+	 */
+	static long upperBoundOf(int index) {
+		assert 0 <= index && index < BUCKETS;
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long sub = index % SUB_BUCKETS;
+		long lower = (SUB_BUCKETS + sub) << shift;
+		return lower + ((1L << shift) - 1);
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("LatencyHistogram({0})", snapshot()); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.lang.reflect.Member;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+
+/**
+ * 本来の処理の実行時間を、呼び出し先ごとの{@link LatencyHistogram}に記録するハンドラ。
+ * <p>
+ * 実行時間は{@link Invocation#proceed()}の開始から終了までをナノ秒単位で計測し、
+ * {@link Invocation#getTarget()}ごとに記録する。
+ * 本来の処理が例外をスローした場合にも、その実行時間は記録される。
+ * </p>
+ * <p>
+ * 記録された内容は{@link #getSnapshots()}などで取得でき、
+ * {@link LatencyHistogram.Snapshot#getPercentile(double)}を利用してパーセンタイルを求めることができる。
+ * このクラスのインスタンスはスレッドセーフである。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class LatencyHistogramHandler implements InvocationHandler {
+	
+	private final ConcurrentMap<Member, LatencyHistogram> histograms =
+			new ConcurrentHashMap<Member, LatencyHistogram>();
+	
+
+	/**
+	 * 本来の処理を実行し、その実行時間を記録する。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		LatencyHistogram histogram = histogramFor(invocation.getTarget());
+		long start = System.nanoTime();
+		try {
+			return invocation.proceed();
+		} finally {
+			histogram.record(System.nanoTime() - start);
+		}
+	}
+	
+	private LatencyHistogram histogramFor(Member target) {
+		assert target != null;
+		LatencyHistogram histogram = histograms.get(target);
+		if (histogram == null) {
+			histogram = new LatencyHistogram();
+			LatencyHistogram other = histograms.putIfAbsent(target, histogram);
+			if (other != null) {
+				histogram = other;
+			}
+		}
+		return histogram;
+	}
+	
+	/**
+	 * 指定の呼び出し先に対するヒストグラムを返す。
+	 * @param target 対象の呼び出し先
+	 * @return 対応するヒストグラム、まだ一度も呼び出されていない場合は{@code null}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public LatencyHistogram getHistogram(Member target) {
+		if (target == null) {
+			throw new NullPointerException("target"); //$NON-NLS-1$
+		}
+		return histograms.get(target);
+	}
+	
+	/**
+	 * 呼び出し先ごとの、現在のヒストグラムの内容を返す。
+	 * @return 呼び出し先と、そのヒストグラムの内容の対応表
+	 */
+	public Map<Member, LatencyHistogram.Snapshot> getSnapshots() {
+		Map<Member, LatencyHistogram.Snapshot> results = new HashMap<Member, LatencyHistogram.Snapshot>();
+		for (Map.Entry<Member, LatencyHistogram> entry : histograms.entrySet()) {
+			results.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return Collections.unmodifiableMap(results);
+	}
+	
+	/**
+	 * すべてのヒストグラムの内容を消去する。
+	 */
+	public void reset() {
+		for (LatencyHistogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("LatencyHistogram{0}", getSnapshots()); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.text.MessageFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.EnhanceException;
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+import org.jiemamy.utils.enhancer.helper.LazyProductFactory;
+
+/**
+ * インスタンス生成をフックして、本来のインスタンス生成を最初のメソッド起動まで遅延させるハンドラ。
+ * <p>
+ * このハンドラはファクトリ内のインスタンス生成式(コンストラクタの起動)に対して適用する。
+ * {@link org.jiemamy.utils.enhancer.Pointcuts#newInstanceOf(Class)}と組み合わせて利用するとよい。
+ * メソッド起動に対して適用された場合、このハンドラは何も行わずに本来の処理を実行する。
+ * </p>
+ * <p>
+ * このハンドラは、インスタンス生成の代わりに本来のプロダクトクラスを継承した代理オブジェクトを返す。
+ * 代理オブジェクトは、公開されたインスタンスメソッドが最初に起動された際に本来のインスタンス生成を実行し、
+ * 以後のすべてのメソッド起動をそのインスタンスに移譲する。
+ * 本来のインスタンス生成で例外が発生した場合、その例外はメソッド起動の呼び出し元に通知される。
+ * </p>
+ * <p>
+ * 遅延生成の対象とすることができないプロダクトクラスのインスタンス生成では、
+ * このハンドラは何も行わずに本来の処理を実行する。
+ * 対象とすることができるプロダクトクラスの条件は{@link LazyProductFactory}を参照。
+ * また、代理オブジェクトに対するフィールドの参照や{@code getClass()}の結果は、本来のインスタンスのものとは異なる。
+ * </p>
+ * <p>
+ * 他のハンドラと組み合わせる場合、このハンドラより内側のハンドラは本来のインスタンス生成の際に実行される。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class LazyInstantiationHandler implements InvocationHandler {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(LazyInstantiationHandler.class);
+	
+	/**
+	 * 遅延生成の対象とすることができないプロダクトクラスを表す。
+	 */
+	private static final Object UNSUPPORTED = new Object();
+	
+	/**
+	 * プロダクトクラスと、その{@link LazyProductFactory}または{@link #UNSUPPORTED}の対応表。
+	 */
+	private final ConcurrentMap<Class<?>, Object> factories = new ConcurrentHashMap<Class<?>, Object>();
+	
+
+	/**
+	 * 指定のオブジェクトがこのハンドラによって作成された代理オブジェクトであり、
+	 * かつ本来のインスタンスがまだ生成されていない場合のみ{@code true}を返す。
+	 * @param product 対象のオブジェクト
+	 * @return 本来のインスタンスがまだ生成されていない場合に{@code true}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static boolean isPending(Object product) {
+		if (product == null) {
+			throw new NullPointerException("product"); //$NON-NLS-1$
+		}
+		return LazyProductFactory.isPending(product);
+	}
+	
+	/**
+	 * 本来のインスタンス生成を遅延させた代理オブジェクトを返す。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		Member target = invocation.getTarget();
+		if ((target instanceof Constructor<?>) == false) {
+			return invocation.proceed();
+		}
+		LazyProductFactory factory = findFactory(target.getDeclaringClass());
+		if (factory == null) {
+			return invocation.proceed();
+		}
+		return factory.newInstance(invocation);
+	}
+	
+	private LazyProductFactory findFactory(Class<?> productClass) {
+		assert productClass != null;
+		Object cached = factories.get(productClass);
+		if (cached == null) {
+			cached = createFactory(productClass);
+			Object other = factories.putIfAbsent(productClass, cached);
+			if (other != null) {
+				cached = other;
+			}
+		}
+		return cached == UNSUPPORTED ? null : (LazyProductFactory) cached;
+	}
+	
+	private Object createFactory(Class<?> productClass) {
+		assert productClass != null;
+		try {
+			return LazyProductFactory.create(productClass);
+		} catch (IllegalArgumentException e) {
+			LOG.debug(MessageFormat.format("{0} cannot be instantiated lazily", productClass.getName()), e);
+			return UNSUPPORTED;
+		} catch (EnhanceException e) {
+			LOG.warn(MessageFormat.format("Failed to create a lazy class for {0}", productClass.getName()), e);
+			return UNSUPPORTED;
+		}
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("LazyInstantiation{0}", factories.keySet()); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+
+/**
+ * メソッドの実行結果をキャッシュし、同一の呼び出しに対して以前の結果を再利用するハンドラ。
+ * <p>
+ * キャッシュのキーは、{@link Invocation#getTarget()}と{@link Invocation#getArguments()}の組である。
+ * 呼び出しを行ったオブジェクト({@link Invocation#getInvoker()})はキーに含まれないため、
+ * このハンドラは{@link org.jiemamy.utils.enhancer.Pure}が付与されたメソッドのように、
+ * 実引数のみから結果が定まるメソッドに対してのみ適用するべきである。
+ * </p>
+ * <p>
+ * キャッシュは指定された最大件数を超えないように保持され、
+ * 最大件数を超える場合には、最も長い間参照されていない結果から破棄される。
+ * この順序はキャッシュを分割したそれぞれの区画ごとに管理されるため、厳密なLRUではない。
+ * また、有効期間を指定した場合には、期間を過ぎた結果は再利用されない。
+ * </p>
+ * <p>
+ * 呼び出し先で例外が発生した場合、その結果はキャッシュされない。
+ * また、同一の呼び出しが同時に行われた場合、それぞれが本来の処理を実行する場合がある。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class MemoizingHandler implements InvocationHandler {
+	
+	/**
+	 * キャッシュされた結果。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class CachedResult {
+		
+		final Object value;
+		
+		final long expiresAt;
+		
+
+		CachedResult(Object value, long expiresAt) {
+			assert value != null;
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+		
+		boolean isExpiredAt(long now) {
+			return expiresAt - now <= 0;
+		}
+	}
+	
+	/**
+	 * キャッシュの区画。
+	 * <p>
+	 * 参照順に整列された{@link LinkedHashMap}に、区画ごとの最大件数までの結果を保持する。
+	 * </p>
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private class Segment extends LinkedHashMap<InvocationKey, CachedResult> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int capacity;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param capacity この区画の最大件数
+		 */
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			assert capacity > 0;
+			this.capacity = capacity;
+		}
+		
+		synchronized Object find(InvocationKey key) {
+			CachedResult entry = get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (timeToLiveNanos != 0 && entry.isExpiredAt(System.nanoTime())) {
+				remove(key);
+				evictionCount.incrementAndGet();
+				return null;
+			}
+			return entry.value;
+		}
+		
+		synchronized void store(InvocationKey key, Object value) {
+			long expiresAt = timeToLiveNanos == 0 ? 0 : System.nanoTime() + timeToLiveNanos;
+			put(key, new CachedResult(value, expiresAt));
+		}
+		
+		synchronized int count() {
+			return size();
+		}
+		
+		synchronized void clearAll() {
+			clear();
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<InvocationKey, CachedResult> eldest) {
+			if (size() > capacity) {
+				evictionCount.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+	
+
+	/**
+	 * キャッシュの区画の最大数。
+	 */
+	private static final int MAX_SEGMENTS = 16;
+	
+	/**
+	 * {@code null}を結果として保持するための代替値。
+	 */
+	private static final Object NULL_VALUE = new Object();
+	
+	private final Segment[] segments;
+	
+	private final int maximumSize;
+	
+	private final long timeToLiveNanos;
+	
+	private final AtomicLong hitCount = new AtomicLong();
+	
+	private final AtomicLong missCount = new AtomicLong();
+	
+	private final AtomicLong evictionCount = new AtomicLong();
+	
+
+	/**
+	 * 有効期間を持たないキャッシュを利用するインスタンスを生成する。
+	 * @param maximumSize キャッシュする結果の最大件数
+	 * @throws IllegalArgumentException 最大件数に{@code 0}以下が指定された場合
+	 */
+	public MemoizingHandler(int maximumSize) {
+		this(maximumSize, 0, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * @param maximumSize キャッシュする結果の最大件数
+	 * @param timeToLive キャッシュした結果の有効期間、{@code 0}の場合は期限なし
+	 * @param unit 有効期間の単位
+	 * @throws IllegalArgumentException 最大件数に{@code 0}以下が指定された場合
+	 * @throws IllegalArgumentException 有効期間に負の値が指定された場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public MemoizingHandler(int maximumSize, long timeToLive, TimeUnit unit) {
+		super();
+		if (unit == null) {
+			throw new NullPointerException("unit"); //$NON-NLS-1$
+		}
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize must be > 0"); //$NON-NLS-1$
+		}
+		if (timeToLive < 0) {
+			throw new IllegalArgumentException("timeToLive must be >= 0"); //$NON-NLS-1$
+		}
+		this.maximumSize = maximumSize;
+		this.timeToLiveNanos = unit.toNanos(timeToLive);
+		int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maximumSize));
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			int capacity = maximumSize / count + (i < maximumSize % count ? 1 : 0);
+			segments[i] = new Segment(capacity);
+		}
+	}
+	
+	/**
+	 * 以前の同一の呼び出しの結果が保持されていればそれを返し、
+	 * そうでなければ本来の処理を実行してその結果を保持する。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		InvocationKey key = InvocationKey.of(invocation);
+		Segment segment = segmentFor(key);
+		Object cached = segment.find(key);
+		if (cached != null) {
+			hitCount.incrementAndGet();
+			return cached == NULL_VALUE ? null : cached;
+		}
+		missCount.incrementAndGet();
+		Object result = invocation.proceed();
+		segment.store(key, result == null ? NULL_VALUE : result);
+		return result;
+	}
+	
+	private Segment segmentFor(InvocationKey key) {
+		assert key != null;
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[hash & (segments.length - 1)];
+	}
+	
+	/**
+	 * キャッシュされた結果を再利用した回数を返す。
+	 * @return キャッシュを再利用した回数
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	
+	/**
+	 * キャッシュされた結果が存在せず、本来の処理を実行した回数を返す。
+	 * @return 本来の処理を実行した回数
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+	
+	/**
+	 * 最大件数の超過や有効期間の経過によって、キャッシュから結果を破棄した回数を返す。
+	 * @return キャッシュから結果を破棄した回数
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+	
+	/**
+	 * 現在キャッシュされている結果の件数を返す。
+	 * <p>
+	 * 返される件数には、有効期間を過ぎているがまだ破棄されていない結果も含まれる。
+	 * </p>
+	 * @return キャッシュされている結果の件数
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.count();
+		}
+		return size;
+	}
+	
+	/**
+	 * キャッシュされたすべての結果を破棄する。
+	 * <p>
+	 * この操作による破棄は{@link #getEvictionCount()}に計上されない。
+	 * </p>
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clearAll();
+		}
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("Memoizing(size={0}/{1}, hit={2}, miss={3}, eviction={4})", //$NON-NLS-1$
+				String.valueOf(size()), String.valueOf(maximumSize), String.valueOf(getHitCount()),
+				String.valueOf(getMissCount()), String.valueOf(getEvictionCount()));
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+
+/**
+ * インスタンス生成をフックして、解放されたプロダクトを再利用するハンドラ。
+ * <p>
+ * このハンドラはファクトリ内のインスタンス生成式(コンストラクタの起動)に対して適用する。
+ * {@link org.jiemamy.utils.enhancer.Pointcuts#newInstanceOf(Class)}と組み合わせて利用するとよい。
+ * メソッド起動に対して適用された場合、このハンドラは何も行わずに本来の処理を実行する。
+ * </p>
+ * <p>
+ * 利用を終えたプロダクトを{@link #release(Object)}でこのハンドラに返却すると、
+ * 以後の同じクラスのインスタンス生成では、本来のインスタンス生成の代わりに返却されたプロダクトが
+ * {@link ProductResetter}によって初期化されたのちに返される。
+ * プロダクトはインスタンス生成時に本来呼び出されるはずだったコンストラクタを宣言するクラスごとに管理される。
+ * </p>
+ * <p>
+ * 返却されたプロダクトがどのコンストラクタで生成されたかは記録されないため、
+ * プールの対象となるのは、単一のコンストラクタのみでインスタンスが生成されるクラスに限られる。
+ * あるクラスのインスタンスが複数のコンストラクタによって生成された場合、
+ * 以後そのクラスはプールの対象から外され、常に本来のインスタンス生成が行われる。
+ * 複数のコンストラクタを持つクラスに適用する場合は、
+ * 単一のコンストラクタのみを対象とするポイントカットと組み合わせて利用すること。
+ * </p>
+ * <p>
+ * 返却されたプロダクトは、返却を行ったスレッドごとのプールに保持される。
+ * そのため、プールの操作にはスレッド間の同期を必要としない。
+ * 一方で、あるスレッドで返却されたプロダクトは、他のスレッドでは再利用されない。
+ * </p>
+ * <p>
+ * 返却したプロダクトを、返却後に利用してはならない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class PoolingHandler implements InvocationHandler {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(PoolingHandler.class);
+	
+	private final int capacity;
+	
+	private final ProductResetter resetter;
+	
+	/**
+	 * スレッドごとのプール。
+	 */
+	private final ThreadLocal<Map<Class<?>, ArrayDeque<Object>>> pools =
+			new ThreadLocal<Map<Class<?>, ArrayDeque<Object>>>() {
+				
+				@Override
+				protected Map<Class<?>, ArrayDeque<Object>> initialValue() {
+					return new HashMap<Class<?>, ArrayDeque<Object>>();
+				}
+			};
+	
+	/**
+	 * このハンドラがインスタンス生成を管理するクラスと、そのインスタンスを生成するコンストラクタの対応表。
+	 */
+	private final ConcurrentMap<Class<?>, Constructor<?>> pooledClasses =
+			new ConcurrentHashMap<Class<?>, Constructor<?>>();
+	
+	/**
+	 * 複数のコンストラクタによってインスタンスが生成されたため、プールの対象から外されたクラスの一覧。
+	 */
+	private final ConcurrentMap<Class<?>, Boolean> excludedClasses = new ConcurrentHashMap<Class<?>, Boolean>();
+	
+	/**
+	 * 実際のプロダクトのクラスと、それを管理するプールのキーとなるクラスの対応表。
+	 */
+	private final ConcurrentMap<Class<?>, Class<?>> poolKeys = new ConcurrentHashMap<Class<?>, Class<?>>();
+	
+	private final AtomicLong creationCount = new AtomicLong();
+	
+	private final AtomicLong reuseCount = new AtomicLong();
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param capacity それぞれのスレッドが、クラスごとに保持するプロダクトの最大数
+	 * @param resetter 再利用するプロダクトを初期化するオブジェクト
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 最大数に{@code 0}以下が指定された場合
+	 */
+	public PoolingHandler(int capacity, ProductResetter resetter) {
+		super();
+		if (resetter == null) {
+			throw new NullPointerException("resetter"); //$NON-NLS-1$
+		}
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be > 0"); //$NON-NLS-1$
+		}
+		this.capacity = capacity;
+		this.resetter = resetter;
+	}
+	
+	/**
+	 * 返却されたプロダクトが存在すればそれを初期化して返し、
+	 * そうでなければ本来のインスタンス生成を行う。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		Member target = invocation.getTarget();
+		if ((target instanceof Constructor<?>) == false) {
+			return invocation.proceed();
+		}
+		Constructor<?> constructor = (Constructor<?>) target;
+		Class<?> key = constructor.getDeclaringClass();
+		if (isPoolable(key, constructor) == false) {
+			creationCount.incrementAndGet();
+			return invocation.proceed();
+		}
+		ArrayDeque<Object> pool = pools.get().get(key);
+		if (pool != null) {
+			for (Object product = pool.pollFirst(); product != null; product = pool.pollFirst()) {
+				try {
+					resetter.reset(product, invocation.getArguments());
+					reuseCount.incrementAndGet();
+					return product;
+				} catch (Exception e) {
+					LOG.debug(MessageFormat.format("Failed to reset a pooled product: {0}", product), e);
+				}
+			}
+		}
+		creationCount.incrementAndGet();
+		return invocation.proceed();
+	}
+	
+	/**
+	 * 指定のコンストラクタによるインスタンス生成で、プロダクトを再利用できる場合のみ{@code true}を返す。
+	 * <p>
+	 * 対象のクラスのインスタンスが他のコンストラクタによってすでに生成されていた場合、
+	 * そのクラスをプールの対象から外し、{@code false}を返す。
+	 * </p>
+	 */
+	private boolean isPoolable(Class<?> key, Constructor<?> constructor) {
+		assert key != null;
+		assert constructor != null;
+		if (excludedClasses.containsKey(key)) {
+			return false;
+		}
+		Constructor<?> pooled = pooledClasses.putIfAbsent(key, constructor);
+		if (pooled == null || pooled.equals(constructor)) {
+			return true;
+		}
+		if (excludedClasses.putIfAbsent(key, Boolean.TRUE) == null) {
+			LOG.warn(MessageFormat.format(
+					"{0} is created by multiple constructors ({1}, {2}), pooling is disabled for the class",
+					key.getName(),
+					pooled,
+					constructor));
+		}
+		pools.get().remove(key);
+		return false;
+	}
+	
+	/**
+	 * 利用を終えたプロダクトをこのハンドラに返却する。
+	 * <p>
+	 * 返却されたプロダクトは、この呼び出しを行ったスレッドのプールに保持され、
+	 * 以後の同じスレッドでのインスタンス生成において再利用される。
+	 * ただし、指定のプロダクトがこのハンドラを経由して生成されたクラスのインスタンスでない場合や、
+	 * そのクラスがプールの対象から外されている場合、
+	 * およびプールがすでに最大数のプロダクトを保持している場合には、プロダクトは保持されない。
+	 * </p>
+	 * @param product 返却するプロダクト
+	 * @return プロダクトがプールに保持された場合は{@code true}、そうでない場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public boolean release(Object product) {
+		if (product == null) {
+			throw new NullPointerException("product"); //$NON-NLS-1$
+		}
+		Class<?> key = findPoolKey(product.getClass());
+		if (key == null || excludedClasses.containsKey(key)) {
+			return false;
+		}
+		Map<Class<?>, ArrayDeque<Object>> map = pools.get();
+		ArrayDeque<Object> pool = map.get(key);
+		if (pool == null) {
+			pool = new ArrayDeque<Object>();
+			map.put(key, pool);
+		}
+		if (pool.size() >= capacity) {
+			return false;
+		}
+		pool.addFirst(product);
+		return true;
+	}
+	
+	private Class<?> findPoolKey(Class<?> productClass) {
+		assert productClass != null;
+		Class<?> cached = poolKeys.get(productClass);
+		if (cached != null) {
+			return cached;
+		}
+		// 拡張されたプロダクトは本来のプロダクトのサブクラスであるため、親クラスをたどる
+		for (Class<?> current = productClass; current != null; current = current.getSuperclass()) {
+			if (pooledClasses.containsKey(current)) {
+				poolKeys.putIfAbsent(productClass, current);
+				return current;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 本来のインスタンス生成を行った回数を返す。
+	 * @return 本来のインスタンス生成を行った回数
+	 */
+	public long getCreationCount() {
+		return creationCount.get();
+	}
+	
+	/**
+	 * 返却されたプロダクトを再利用した回数を返す。
+	 * @return 返却されたプロダクトを再利用した回数
+	 */
+	public long getReuseCount() {
+		return reuseCount.get();
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("Pooling(capacity={0}, created={1}, reused={2})", //$NON-NLS-1$
+				String.valueOf(capacity), String.valueOf(getCreationCount()), String.valueOf(getReuseCount()));
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+/**
+ * {@link PoolingHandler}が再利用するプロダクトを、新しく生成したものと同等の状態に初期化する。
+ * <p>
+ * このインターフェースは、クライアントが実装して{@link PoolingHandler}に登録する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public interface ProductResetter {
+	
+	/**
+	 * 再利用するプロダクトを、指定の実引数でインスタンスを生成した場合と同等の状態に初期化する。
+	 * <p>
+	 * この呼び出しで例外が発生した場合、対象のプロダクトは破棄され、
+	 * 代わりに本来のインスタンス生成が行われる。
+	 * </p>
+	 * @param product 再利用するプロダクト
+	 * @param arguments 本来のインスタンス生成に利用される実引数の一覧
+	 * @throws Exception 初期化に失敗した場合
+	 */
+	void reset(Object product, Object[] arguments) throws Exception;
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.text.MessageFormat;
+
+import org.jiemamy.utils.enhancer.GuardedInvocationHandler;
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+
+/**
+ * 一定の割合の呼び出しに対してのみ、他のハンドラを適用するハンドラ。
+ * <p>
+ * このハンドラは、それぞれのスレッドで{@link #getRate() N}回に1回の呼び出しでのみ
+ * 指定のハンドラを適用し、残りの呼び出しではハンドラを一切経由せずに本来の処理を実行させる。
+ * {@link LatencyHistogramHandler}のように、すべての呼び出しに適用するとコストが大きい計測用のハンドラを
+ * 間引いて適用するために利用する。
+ * </p>
+ * <p>
+ * 適用の割合は{@link #setRate(int)}を利用して、拡張を行った後にも変更することができる。
+ * このハンドラを{@link org.jiemamy.utils.enhancer.Enhance}ごとに作成すれば、
+ * それぞれの拡張ごとに割合を調整できる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class SamplingHandler implements GuardedInvocationHandler {
+	
+	private final InvocationHandler delegate;
+	
+	private volatile int rate;
+	
+	/**
+	 * スレッドごとの、前回ハンドラを適用してからの呼び出し回数。
+	 */
+	private final ThreadLocal<int[]> counters = new ThreadLocal<int[]>() {
+		
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param delegate 一定の割合の呼び出しにのみ適用するハンドラ
+	 * @param rate ハンドラを適用する割合 (N回に1回)、{@code 0}の場合はハンドラを一切適用しない
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 割合に負の値が指定された場合
+	 */
+	public SamplingHandler(InvocationHandler delegate, int rate) {
+		super();
+		if (delegate == null) {
+			throw new NullPointerException("delegate"); //$NON-NLS-1$
+		}
+		this.delegate = delegate;
+		setRate(rate);
+	}
+	
+	/**
+	 * この呼び出しが、ハンドラを適用する呼び出しである場合のみ{@code true}を返す。
+	 */
+	public boolean isApplicable(Object invoker, Object[] arguments) {
+		int n = rate;
+		if (n <= 1) {
+			return n == 1;
+		}
+		int[] counter = counters.get();
+		if (++counter[0] >= n) {
+			counter[0] = 0;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * 指定のハンドラに処理を委譲する。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		return delegate.handle(invocation);
+	}
+	
+	/**
+	 * ハンドラを適用する割合を返す。
+	 * @return ハンドラを適用する割合 (N回に1回)、{@code 0}の場合はハンドラを一切適用しない
+	 */
+	public int getRate() {
+		return rate;
+	}
+	
+	/**
+	 * ハンドラを適用する割合を変更する。
+	 * <p>
+	 * 変更した割合は、以後の呼び出しに直ちに反映される。
+	 * </p>
+	 * @param rate ハンドラを適用する割合 (N回に1回)、{@code 0}の場合はハンドラを一切適用しない
+	 * @throws IllegalArgumentException 割合に負の値が指定された場合
+	 */
+	public void setRate(int rate) {
+		if (rate < 0) {
+			throw new IllegalArgumentException("rate must be >= 0"); //$NON-NLS-1$
+		}
+		this.rate = rate;
+	}
+	
+	/**
+	 * このハンドラが適用するハンドラを返す。
+	 * @return 適用するハンドラ
+	 */
+	public InvocationHandler getDelegate() {
+		return delegate;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("Sampling(1/{0}, {1})", //$NON-NLS-1$
+				String.valueOf(rate), delegate);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import java.lang.reflect.Method;
+import java.text.MessageFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+
+/**
+ * 同一の呼び出しが同時に行われた場合に、それらをひとつの実行にまとめるハンドラ。
+ * <p>
+ * このハンドラは、同じメソッドに対して等価な実引数で行われた呼び出しが実行中であれば、
+ * 新しい呼び出しでは本来の処理を実行せずに、実行中の呼び出しの完了を待ってその結果を共有する。
+ * 実行中の呼び出しが例外をスローした場合、待機していたすべての呼び出しに同じ例外がスローされる。
+ * </p>
+ * <p>
+ * {@link MemoizingHandler}とは異なり、呼び出しが完了した時点でその結果は破棄される。
+ * そのため、以後の呼び出しは再び本来の処理を実行する。
+ * </p>
+ * <p>
+ * インスタンスメソッドの呼び出しは、呼び出しを行ったオブジェクトが同一である場合のみまとめられる。
+ * また、インスタンス生成をまとめると複数の呼び出し元が同一のインスタンスを共有してしまうため、
+ * このハンドラはインスタンス生成に対しては何も行わない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class SingleFlightHandler implements InvocationHandler {
+	
+	/**
+	 * 実行中の呼び出し。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class Flight {
+		
+		private final CountDownLatch done = new CountDownLatch(1);
+		
+		private Object result;
+		
+		private Throwable failure;
+		
+
+		Flight() {
+			super();
+		}
+		
+		void complete(Object value, Throwable cause) {
+			this.result = value;
+			this.failure = cause;
+			done.countDown();
+		}
+		
+		Object await() throws Throwable {
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						done.await();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return result;
+		}
+	}
+	
+
+	private final ConcurrentMap<InvocationKey, Flight> flights = new ConcurrentHashMap<InvocationKey, Flight>();
+	
+	private final AtomicLong executionCount = new AtomicLong();
+	
+	private final AtomicLong sharedCount = new AtomicLong();
+	
+
+	/**
+	 * 同一の呼び出しが実行中であればその完了を待って結果を共有し、
+	 * そうでなければ本来の処理を実行する。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		if ((invocation.getTarget() instanceof Method) == false) {
+			return invocation.proceed();
+		}
+		InvocationKey key = InvocationKey.withReceiver(invocation);
+		Flight flight = new Flight();
+		Flight running = flights.putIfAbsent(key, flight);
+		if (running != null) {
+			sharedCount.incrementAndGet();
+			return running.await();
+		}
+		executionCount.incrementAndGet();
+		Object result = null;
+		Throwable failure = null;
+		try {
+			result = invocation.proceed();
+			return result;
+		} catch (Throwable t) {
+			failure = t;
+			throw t;
+		} finally {
+			flights.remove(key, flight);
+			flight.complete(result, failure);
+		}
+	}
+	
+	/**
+	 * 本来の処理を実行した回数を返す。
+	 * @return 本来の処理を実行した回数
+	 */
+	public long getExecutionCount() {
+		return executionCount.get();
+	}
+	
+	/**
+	 * 実行中の呼び出しの結果を共有した回数を返す。
+	 * @return 結果を共有した回数
+	 */
+	public long getSharedCount() {
+		return sharedCount.get();
+	}
+	
+	/**
+	 * 現在実行中の呼び出しの個数を返す。
+	 * @return 実行中の呼び出しの個数
+	 */
+	public int getInFlightCount() {
+		return flights.size();
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("SingleFlight(inFlight={0}, execution={1}, shared={2})", //$NON-NLS-1$
+				String.valueOf(getInFlightCount()), String.valueOf(getExecutionCount()),
+				String.valueOf(getSharedCount()));
+	}
+}
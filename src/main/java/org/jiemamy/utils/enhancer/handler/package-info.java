@@ -0,0 +1,26 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+/**
+ * 汎用的に利用できる{@link org.jiemamy.utils.enhancer.InvocationHandler}の実装群。
+ * <p>
+ * それぞれのハンドラは{@link org.jiemamy.utils.enhancer.Enhance}を利用して、
+ * 適切な{@link org.jiemamy.utils.enhancer.InvocationPointcut}と組み合わせて利用する。
+ * 特に断りのない限り、このパッケージのハンドラはいずれもスレッドセーフである。
+ * </p>
+ * @see org.jiemamy.utils.enhancer.Pointcuts
+ */
+package org.jiemamy.utils.enhancer.handler;
@@ -17,13 +17,18 @@ package org.jiemamy.utils.enhancer.helper;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.jiemamy.utils.enhancer.EnhanceException;
+import org.jiemamy.utils.enhancer.GuardedInvocationHandler;
 import org.jiemamy.utils.enhancer.Invocation;
 import org.jiemamy.utils.enhancer.InvocationHandler;
+import org.jiemamy.utils.enhancer.Joinpoint;
 
 /**
  * {@link InvocationHandler}によるアドバイスを適用する。
@@ -39,10 +44,15 @@ import org.jiemamy.utils.enhancer.InvocationHandler;
  * それぞれのオブジェクトに対して{@link #invoke(Object, Object[])}メソッドを呼び出すことで
  * インターセプトを実現する。
  * </p>
+ * <p>
+ * 適用するハンドラの一覧は、このオブジェクト自身ではなく共有の{@link HandlerTable}に保持される。
+ * そのため、{@link HandlerTable}上のハンドラ一覧を置き換えることで、
+ * クラスを再生成することなく、拡張済みのクラスに適用されるハンドラを変更することができる。
+ * </p>
  * @version $Date$
  * @author Suguru ARAKAWA (Gluegent, Inc.)
  */
-public class AdviceApplier {
+public class AdviceApplier implements Joinpoint {
 	
 	private static class ConstructorDefinition implements Definition {
 		
@@ -76,6 +86,76 @@ public class AdviceApplier {
 			return new ConstructorInvocation(original, actual, object, arguments);
 		}
 		
+		public Member getOriginal() {
+			return original;
+		}
+		
+		@Override
+		public String toString() {
+			return MessageFormat.format(
+					"{0}#{1}({2})", //$NON-NLS-1$
+					original.getDeclaringClass().getName(), original.getDeclaringClass().getSimpleName(),
+					toParams(original.getParameterTypes()));
+		}
+	}
+	
+	/**
+	 * 実際に呼び出されるコンストラクタを、最初の起動時に解決するコンストラクタの宣言。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 * @see LazyProductInstaller
+	 */
+	private static class LazyConstructorDefinition implements Definition {
+		
+		private final Constructor<?> original;
+		
+		private final LazyProductInstaller installer;
+		
+		private final Class<?>[] parameterTypes;
+		
+		private volatile Constructor<?> actual;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param original 本来呼び出されるべきコンストラクタ
+		 * @param installer 実際に呼び出されるコンストラクタを宣言するクラスをインストールする
+		 * @param parameterTypes 仮引数の型一覧
+		 */
+		public LazyConstructorDefinition(Constructor<?> original, LazyProductInstaller installer,
+				Class<?>[] parameterTypes) {
+			super();
+			assert original != null;
+			assert installer != null;
+			assert parameterTypes != null;
+			this.original = original;
+			this.installer = installer;
+			this.parameterTypes = parameterTypes.clone();
+		}
+		
+		public Invocation newInvocation(Object object, Object[] arguments) {
+			return new ConstructorInvocation(original, resolve(), object, arguments);
+		}
+		
+		private Constructor<?> resolve() {
+			Constructor<?> result = actual;
+			if (result == null) {
+				try {
+					result = load(installer.install(), parameterTypes);
+				} catch (EnhanceException e) {
+					throw new IllegalStateException(MessageFormat.format(
+							"Cannot install {0}",
+							installer.getName()), e);
+				}
+				actual = result;
+			}
+			return result;
+		}
+		
+		public Member getOriginal() {
+			return original;
+		}
+		
 		@Override
 		public String toString() {
 			return MessageFormat.format(
@@ -105,6 +185,12 @@ public class AdviceApplier {
 		 * @return 生成した{@link Invocation}オブジェクト
 		 */
 		Invocation newInvocation(Object invoker, Object[] arguments);
+		
+		/**
+		 * 本来呼び出されるべきメソッドまたはコンストラクタを返す。
+		 * @return 本来呼び出されるべきメソッドまたはコンストラクタ
+		 */
+		Member getOriginal();
 	}
 	
 	/**
@@ -145,6 +231,10 @@ public class AdviceApplier {
 			return new MethodInvocation(original, actual, object, arguments);
 		}
 		
+		public Member getOriginal() {
+			return original;
+		}
+		
 		@Override
 		public String toString() {
 			return MessageFormat.format("{0}#{1}({2})", //$NON-NLS-1$
@@ -188,9 +278,34 @@ public class AdviceApplier {
 	 */
 	public static AdviceApplier constructor(List<? extends InvocationHandler> handlers, Class<?> originalType,
 			Class<?> actualType, Class<?>[] parameterTypes) throws EnhanceException {
+		return constructor(new HandlerTable(), handlers, originalType, actualType, parameterTypes);
+	}
+	
+	/**
+	 * コンストラクタに関するこのクラスのインスタンスを生成し、指定のハンドラテーブルに登録して返す。
+	 * <p>
+	 * 返されるオブジェクトが利用するハンドラの一覧は{@code table}上に保持され、
+	 * 以後は{@link HandlerTable#replace(java.util.Map)}などによって置き換えることができる。
+	 * その他については{@link #constructor(List, Class, Class, Class[])}と同様である。
+	 * </p>
+	 * @param table ハンドラの一覧を保持するテーブル
+	 * @param handlers ハンドラ一覧
+	 * @param originalType オリジナルのコンストラクタが定義された型
+	 * @param actualType 実際にコンストラクタが定義された型
+	 * @param parameterTypes 仮引数の型一覧
+	 * @return このクラスのインスタンス
+	 * @throws EnhanceException コンストラクタの検出に失敗した場合
+	 * @throws NullPointerException いずれかの引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public static AdviceApplier constructor(HandlerTable table, List<? extends InvocationHandler> handlers,
+			Class<?> originalType, Class<?> actualType, Class<?>[] parameterTypes) throws EnhanceException {
 		
+		if (table == null) {
+			throw new NullPointerException("table"); //$NON-NLS-1$
+		}
 		if (handlers == null) {
-			throw new NullPointerException("targetType"); //$NON-NLS-1$
+			throw new NullPointerException("handlers"); //$NON-NLS-1$
 		}
 		if (originalType == null) {
 			throw new NullPointerException("originalType"); //$NON-NLS-1$
@@ -204,7 +319,50 @@ public class AdviceApplier {
 		Constructor<?> original = load(originalType, parameterTypes);
 		Constructor<?> actual = load(actualType, parameterTypes);
 		Definition definition = new ConstructorDefinition(original, actual);
-		return new AdviceApplier(definition, handlers);
+		return register(table, definition, handlers);
+	}
+	
+	/**
+	 * 実際に呼び出されるコンストラクタを宣言するクラスのインストールを遅延させる、
+	 * コンストラクタに関するこのクラスのインスタンスを生成し、指定のハンドラテーブルに登録して返す。
+	 * <p>
+	 * 返されるオブジェクトは、最初に{@link #invoke(Object, Object[])}が呼び出された時点で
+	 * {@link LazyProductInstaller#install()}を実行し、実際に呼び出すコンストラクタを解決する。
+	 * インストールに失敗した場合、その呼び出しは{@link IllegalStateException}をスローする。
+	 * その他については{@link #constructor(HandlerTable, List, Class, Class, Class[])}と同様である。
+	 * </p>
+	 * @param table ハンドラの一覧を保持するテーブル
+	 * @param handlers ハンドラ一覧
+	 * @param originalType オリジナルのコンストラクタが定義された型
+	 * @param actualType 実際にコンストラクタが定義された型をインストールするオブジェクト
+	 * @param parameterTypes 仮引数の型一覧
+	 * @return このクラスのインスタンス
+	 * @throws EnhanceException オリジナルのコンストラクタの検出に失敗した場合
+	 * @throws NullPointerException いずれかの引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public static AdviceApplier constructor(HandlerTable table, List<? extends InvocationHandler> handlers,
+			Class<?> originalType, LazyProductInstaller actualType, Class<?>[] parameterTypes)
+			throws EnhanceException {
+		
+		if (table == null) {
+			throw new NullPointerException("table"); //$NON-NLS-1$
+		}
+		if (handlers == null) {
+			throw new NullPointerException("handlers"); //$NON-NLS-1$
+		}
+		if (originalType == null) {
+			throw new NullPointerException("originalType"); //$NON-NLS-1$
+		}
+		if (actualType == null) {
+			throw new NullPointerException("actualType"); //$NON-NLS-1$
+		}
+		if (parameterTypes == null) {
+			throw new NullPointerException("parameterTypes"); //$NON-NLS-1$
+		}
+		Constructor<?> original = load(originalType, parameterTypes);
+		Definition definition = new LazyConstructorDefinition(original, actualType, parameterTypes);
+		return register(table, definition, handlers);
 	}
 	
 	private static Constructor<?> load(Class<?> type, Class<?>[] params) throws EnhanceException {
@@ -263,9 +421,38 @@ public class AdviceApplier {
 	public static AdviceApplier method(List<? extends InvocationHandler> handlers, Class<?> originalType,
 			String originalName, Class<?> actualType, String actualName, Class<?>[] parameterTypes)
 			throws EnhanceException {
+		return method(new HandlerTable(), handlers, originalType, originalName, actualType, actualName,
+				parameterTypes);
+	}
+	
+	/**
+	 * メソッドに関するこのクラスのインスタンスを生成し、指定のハンドラテーブルに登録して返す。
+	 * <p>
+	 * 返されるオブジェクトが利用するハンドラの一覧は{@code table}上に保持され、
+	 * 以後は{@link HandlerTable#replace(java.util.Map)}などによって置き換えることができる。
+	 * その他については{@link #method(List, Class, String, Class, String, Class[])}と同様である。
+	 * </p>
+	 * @param table ハンドラの一覧を保持するテーブル
+	 * @param handlers ハンドラ一覧
+	 * @param originalType オリジナルのメソッドを定義するクラス
+	 * @param originalName オリジナルのメソッド名
+	 * @param actualType 実際に呼び出すメソッドを定義するクラス
+	 * @param actualName 実際に呼び出すメソッド名
+	 * @param parameterTypes 仮引数の型一覧
+	 * @return このクラスのインスタンス
+	 * @throws EnhanceException メソッドの検出に失敗した場合
+	 * @throws NullPointerException いずれかの引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public static AdviceApplier method(HandlerTable table, List<? extends InvocationHandler> handlers,
+			Class<?> originalType, String originalName, Class<?> actualType, String actualName,
+			Class<?>[] parameterTypes) throws EnhanceException {
 		
+		if (table == null) {
+			throw new NullPointerException("table"); //$NON-NLS-1$
+		}
 		if (handlers == null) {
-			throw new NullPointerException("targetType"); //$NON-NLS-1$
+			throw new NullPointerException("handlers"); //$NON-NLS-1$
 		}
 		if (originalType == null) {
 			throw new NullPointerException("originalType"); //$NON-NLS-1$
@@ -285,7 +472,18 @@ public class AdviceApplier {
 		Method original = load(originalType, originalName, parameterTypes);
 		Method actual = load(actualType, actualName, parameterTypes);
 		Definition definition = new MethodDefinition(original, actual);
-		return new AdviceApplier(definition, handlers);
+		return register(table, definition, handlers);
+	}
+	
+	private static AdviceApplier register(HandlerTable table, Definition definition,
+			List<? extends InvocationHandler> handlers) {
+		assert table != null;
+		assert definition != null;
+		assert handlers != null;
+		int index = table.register(handlers);
+		AdviceApplier applier = new AdviceApplier(definition, table, index);
+		table.bind(index, applier);
+		return applier;
 	}
 	
 	/**
@@ -312,36 +510,110 @@ public class AdviceApplier {
 
 	private final Definition definition;
 	
-	private final List<? extends InvocationHandler> handlers;
+	private final HandlerTable table;
+	
+	private final int index;
 	
 
-	private AdviceApplier(Definition definition, List<? extends InvocationHandler> handlers) {
+	private AdviceApplier(Definition definition, HandlerTable table, int index) {
 		super();
 		assert definition != null;
-		assert handlers != null;
+		assert table != null;
+		assert index >= 0;
 		this.definition = definition;
-		this.handlers = handlers;
+		this.table = table;
+		this.index = index;
 	}
 	
 	/**
 	 * このヘルパを利用してメソッドまたはコンストラクタを起動する。
+	 * <p>
+	 * 起動に利用するハンドラの一覧は、この呼び出しの開始時点で{@link HandlerTable}が保持する
+	 * ものが利用される。起動の途中でハンドラの一覧が置き換えられても、この起動には影響しない。
+	 * また、{@link GuardedInvocationHandler}を実装したハンドラのうち、
+	 * この起動に適用しないと判定したものはハンドラのチェインに含めない。
+	 * </p>
 	 * @param object 呼び出し用のオブジェクト (インスタンスメソッド以外では{@code null})
 	 * @param arguments 実引数リスト
 	 * @return ハンドラと実際の呼び出しの実行結果
 	 * @throws Throwable 呼び出し先、またはハンドラの処理で例外が発生した場合
 	 */
 	public Object invoke(Object object, Object[] arguments) throws Throwable {
-		Invocation current = definition.newInvocation(object, arguments);
-		for (InvocationHandler h : handlers) {
-			current = new DelegateInvocation(current, h);
+		Invocation chain = createChain(object, arguments);
+		if (chain == null) {
+			chain = definition.newInvocation(object, arguments);
+		}
+		return proceed(chain);
+	}
+	
+	/**
+	 * この呼び出しに適用するハンドラのチェインを作成して返す。
+	 * <p>
+	 * {@link GuardedInvocationHandler}を実装したハンドラの判定は、この呼び出しの中で一度だけ行われる。
+	 * 適用するハンドラがひとつも存在しない場合、この呼び出しは{@code null}を返す。
+	 * 拡張されたメソッドは、返されたチェインを{@link #proceed(Invocation)}で実行し、
+	 * {@code null}が返された場合は本来のメソッドを直接呼び出す。
+	 * </p>
+	 * @param object 呼び出し対象のオブジェクト
+	 * @param arguments 呼び出し引数の一覧
+	 * @return 適用するハンドラのチェイン、適用するハンドラが存在しない場合は{@code null}
+	 * @since 0.2.1
+	 */
+	public Invocation prepare(Object object, Object[] arguments) {
+		return createChain(object, arguments);
+	}
+	
+	/**
+	 * {@link #prepare(Object, Object[])}が返したハンドラのチェインを実行する。
+	 * @param chain 実行するチェイン
+	 * @return ハンドラと実際の呼び出しの実行結果
+	 * @throws Throwable 呼び出し先、またはハンドラの処理で例外が発生した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public Object proceed(Invocation chain) throws Throwable {
+		if (chain == null) {
+			throw new NullPointerException("chain"); //$NON-NLS-1$
 		}
 		try {
-			return current.proceed();
+			return chain.proceed();
 		} catch (InvocationTargetException e) {
 			throw e.getCause();
 		}
 	}
 	
+	private Invocation createChain(Object object, Object[] arguments) {
+		Invocation current = null;
+		for (InvocationHandler h : table.get(index)) {
+			// 適用しないと判定したハンドラは、チェインに含めない
+			if (h instanceof GuardedInvocationHandler
+					&& ((GuardedInvocationHandler) h).isApplicable(object, arguments) == false) {
+				continue;
+			}
+			if (current == null) {
+				current = definition.newInvocation(object, arguments);
+			}
+			current = new DelegateInvocation(current, h);
+		}
+		return current;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 0.2.1
+	 */
+	public Member getTarget() {
+		return definition.getOriginal();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 0.2.1
+	 */
+	public List<InvocationHandler> getHandlers() {
+		return Collections.unmodifiableList(Arrays.asList(table.get(index)));
+	}
+	
 	/**
 	 * このオブジェクトの文字列表現を返す。
 	 * <p>
@@ -353,6 +625,6 @@ public class AdviceApplier {
 	@Override
 	public String toString() {
 		return MessageFormat.format("{0}->{1}", //$NON-NLS-1$
-				handlers, definition);
+				getHandlers(), definition);
 	}
 }
@@ -17,6 +17,7 @@ package org.jiemamy.utils.enhancer.helper;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javassist.CtBehavior;
@@ -29,7 +30,7 @@ import org.jiemamy.utils.enhancer.InvocationPointcut;
  * @version $Date$
  * @author Suguru ARAKAWA (Gluegent, Inc.)
  */
-public class AndInvocationPointcut implements InvocationPointcut {
+public class AndInvocationPointcut implements TypePrefixedPointcut, CostedPointcut, ClassMetadataPointcut {
 	
 	private final List<InvocationPointcut> terms;
 	
@@ -69,6 +70,62 @@ public class AndInvocationPointcut implements InvocationPointcut {
 		return true;
 	}
 	
+	/**
+	 * 項にとるポイントカット定義の一覧を返す。
+	 * @return 項にとるポイントカット定義の一覧
+	 * @since 0.2.1
+	 */
+	public List<InvocationPointcut> getTerms() {
+		return Collections.unmodifiableList(terms);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、項にとるポイントカット定義のコストの合計を返す。
+	 * </p>
+	 * @since 0.2.1
+	 */
+	public int getCost() {
+		return PointcutOptimizer.costOf(terms);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、項にとるポイントカット定義が持つ接頭辞のうち、最も長いものを返す。
+	 * </p>
+	 * @since 0.2.1
+	 */
+	public String getTypePrefix() {
+		String result = ""; //$NON-NLS-1$
+		for (InvocationPointcut term : terms) {
+			if (term instanceof TypePrefixedPointcut) {
+				String prefix = ((TypePrefixedPointcut) term).getTypePrefix();
+				if (prefix.length() > result.length()) {
+					result = prefix;
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、項にとるポイントカット定義のいずれかが対象となりえないと判定した場合に{@code false}を返す。
+	 * </p>
+	 * @since 0.2.1
+	 */
+	public boolean isCandidate(ClassMetadata metadata) {
+		for (InvocationPointcut term : terms) {
+			if (term instanceof ClassMetadataPointcut && ((ClassMetadataPointcut) term).isCandidate(metadata) == false) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * このオブジェクトの文字列表現を返す。
 	 * <p>
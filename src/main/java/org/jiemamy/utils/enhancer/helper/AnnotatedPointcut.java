@@ -0,0 +1,107 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.lang.annotation.Annotation;
+import java.text.MessageFormat;
+
+import javassist.CtBehavior;
+import javassist.CtClass;
+
+/**
+ * 指定の注釈が付与されたメソッドやコンストラクタのみを対象とするポイントカット定義。
+ * <p>
+ * 注釈の判定には{@link AnnotationIndex}を利用するため、
+ * それぞれのクラスの注釈はクラスごとに一度だけ走査される。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class AnnotatedPointcut implements CostedPointcut {
+	
+	private final String annotationName;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param annotationType 対象とする注釈の型
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public AnnotatedPointcut(Class<? extends Annotation> annotationType) {
+		super();
+		if (annotationType == null) {
+			throw new NullPointerException("annotationType"); //$NON-NLS-1$
+		}
+		this.annotationName = annotationType.getName();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、対象のメソッドまたはコンストラクタに、
+	 * コンストラクタに指定された注釈が直接付与されている場合のみ{@code true}を返す。
+	 * </p>
+	 */
+	public boolean isTarget(CtClass self, CtBehavior behavior) {
+		return AnnotationIndex.isAnnotated(behavior, annotationName);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、{@link #COST_ANNOTATION}を返す。
+	 * </p>
+	 */
+	public int getCost() {
+		return COST_ANNOTATION;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + annotationName.hashCode();
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		AnnotatedPointcut other = (AnnotatedPointcut) obj;
+		if (annotationName.equals(other.annotationName) == false) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("@{0}", annotationName); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javassist.ClassPool;
+import javassist.CtBehavior;
+import javassist.CtClass;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.annotation.Annotation;
+
+/**
+ * クラスファイル上の注釈から、注釈型と対象のメソッドやコンストラクタを対応付ける索引。
+ * <p>
+ * 索引は{@link ClassPool}ごとに作成され、それぞれのクラスについて最初に検査された際に、
+ * そのクラスファイルに含まれるすべての注釈を一度だけ走査して構築される。
+ * 以後の同じクラスに対する検査は、索引を参照するのみで完了する。
+ * </p>
+ * <p>
+ * 索引を構築した後に変更されたクラスについては索引を利用せず、
+ * {@link AnnotationInspector}を利用して直接注釈を検査する。
+ * </p>
+ * <p>
+ * このクラスのインスタンスはスレッドセーフである。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class AnnotationIndex {
+	
+	/**
+	 * ひとつのクラスに含まれる注釈の索引。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class ClassEntry {
+		
+		/**
+		 * クラス自身に付与された注釈型の名前。
+		 */
+		final Set<String> typeAnnotations;
+		
+		/**
+		 * 注釈型の名前と、それが付与されたメソッドやコンストラクタの名前と記述子の組。
+		 */
+		final Map<String, Set<String>> behaviors;
+		
+
+		ClassEntry(Set<String> typeAnnotations, Map<String, Set<String>> behaviors) {
+			assert typeAnnotations != null;
+			assert behaviors != null;
+			this.typeAnnotations = typeAnnotations;
+			this.behaviors = behaviors;
+		}
+	}
+	
+
+	private static final Map<ClassPool, AnnotationIndex> INDICES = new WeakHashMap<ClassPool, AnnotationIndex>();
+	
+	private final ConcurrentMap<String, ClassEntry> entries = new ConcurrentHashMap<String, ClassEntry>();
+	
+
+	/**
+	 * 指定の{@link ClassPool}に対する索引を返す。
+	 * <p>
+	 * 同一の{@link ClassPool}に対しては、常に同一の索引が返される。
+	 * </p>
+	 * @param pool 対象の{@link ClassPool}
+	 * @return 対応する索引
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static AnnotationIndex of(ClassPool pool) {
+		if (pool == null) {
+			throw new NullPointerException("pool"); //$NON-NLS-1$
+		}
+		synchronized (INDICES) {
+			AnnotationIndex index = INDICES.get(pool);
+			if (index == null) {
+				index = new AnnotationIndex();
+				INDICES.put(pool, index);
+			}
+			return index;
+		}
+	}
+	
+	/**
+	 * 指定のメソッドまたはコンストラクタに、指定の名前を持つ型の注釈が付与されている場合のみ{@code true}を返す。
+	 * <p>
+	 * 判定の対象は{@link AnnotationInspector#isAnnotated(CtBehavior, String)}と同様である。
+	 * 対象を宣言するクラスの{@link ClassPool}に対応する索引が利用される。
+	 * </p>
+	 * @param behavior 対象のメソッドまたはコンストラクタ
+	 * @param annotationName 注釈型の完全限定名
+	 * @return 注釈が付与されている場合に{@code true}、そうでない場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static boolean isAnnotated(CtBehavior behavior, String annotationName) {
+		if (behavior == null) {
+			throw new NullPointerException("behavior"); //$NON-NLS-1$
+		}
+		if (annotationName == null) {
+			throw new NullPointerException("annotationName"); //$NON-NLS-1$
+		}
+		CtClass declaring = behavior.getDeclaringClass();
+		if (declaring.isModified()) {
+			return AnnotationInspector.isAnnotated(behavior, annotationName);
+		}
+		ClassEntry entry = of(declaring.getClassPool()).entryOf(declaring);
+		Set<String> annotated = entry.behaviors.get(annotationName);
+		if (annotated == null) {
+			return false;
+		}
+		MethodInfo info = behavior.getMethodInfo2();
+		return annotated.contains(info.getName() + info.getDescriptor());
+	}
+	
+	/**
+	 * 指定のクラスに、指定の名前を持つ型の注釈が付与されている場合のみ{@code true}を返す。
+	 * <p>
+	 * この判定は、実行時に参照可能な注釈とそうでない注釈の双方を対象とする。
+	 * ただし、親クラスなどから継承される注釈は対象としない。
+	 * </p>
+	 * @param klass 対象のクラス
+	 * @param annotationName 注釈型の完全限定名
+	 * @return 注釈が付与されている場合に{@code true}、そうでない場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static boolean isTypeAnnotated(CtClass klass, String annotationName) {
+		if (klass == null) {
+			throw new NullPointerException("klass"); //$NON-NLS-1$
+		}
+		if (annotationName == null) {
+			throw new NullPointerException("annotationName"); //$NON-NLS-1$
+		}
+		if (klass.isPrimitive() || klass.isArray()) {
+			return false;
+		}
+		if (klass.isModified()) {
+			return scanType(klass.getClassFile2()).contains(annotationName);
+		}
+		return of(klass.getClassPool()).entryOf(klass).typeAnnotations.contains(annotationName);
+	}
+	
+	/**
+	 * 指定のメソッドまたはコンストラクタに付与された注釈型の名前の一覧を返す。
+	 * <p>
+	 * 判定の対象は{@link #isAnnotated(CtBehavior, String)}と同様である。
+	 * </p>
+	 * @param behavior 対象のメソッドまたはコンストラクタ
+	 * @return 付与された注釈型の完全限定名の一覧
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static Set<String> getAnnotationNames(CtBehavior behavior) {
+		if (behavior == null) {
+			throw new NullPointerException("behavior"); //$NON-NLS-1$
+		}
+		MethodInfo info = behavior.getMethodInfo2();
+		CtClass declaring = behavior.getDeclaringClass();
+		if (declaring.isModified()) {
+			return annotationNames(info.getAttribute(AnnotationsAttribute.visibleTag), info
+				.getAttribute(AnnotationsAttribute.invisibleTag));
+		}
+		ClassEntry entry = of(declaring.getClassPool()).entryOf(declaring);
+		String key = info.getName() + info.getDescriptor();
+		Set<String> results = new HashSet<String>();
+		for (Map.Entry<String, Set<String>> annotated : entry.behaviors.entrySet()) {
+			if (annotated.getValue().contains(key)) {
+				results.add(annotated.getKey());
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 指定のクラスに付与された注釈型の名前の一覧を返す。
+	 * <p>
+	 * 判定の対象は{@link #isTypeAnnotated(CtClass, String)}と同様である。
+	 * </p>
+	 * @param klass 対象のクラス
+	 * @return 付与された注釈型の完全限定名の一覧
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static Set<String> getTypeAnnotationNames(CtClass klass) {
+		if (klass == null) {
+			throw new NullPointerException("klass"); //$NON-NLS-1$
+		}
+		if (klass.isPrimitive() || klass.isArray()) {
+			return Collections.emptySet();
+		}
+		if (klass.isModified()) {
+			return scanType(klass.getClassFile2());
+		}
+		return Collections.unmodifiableSet(of(klass.getClassPool()).entryOf(klass).typeAnnotations);
+	}
+	
+	/**
+	 * この索引に登録されたクラスの個数を返す。
+	 * @return 登録されたクラスの個数
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	private ClassEntry entryOf(CtClass klass) {
+		assert klass != null;
+		String name = klass.getName();
+		ClassEntry entry = entries.get(name);
+		if (entry == null) {
+			entry = scan(klass.getClassFile2());
+			ClassEntry other = entries.putIfAbsent(name, entry);
+			if (other != null) {
+				entry = other;
+			}
+		}
+		return entry;
+	}
+	
+	private static ClassEntry scan(ClassFile classFile) {
+		assert classFile != null;
+		Map<String, Set<String>> behaviors = new HashMap<String, Set<String>>();
+		for (Object element : classFile.getMethods()) {
+			MethodInfo method = (MethodInfo) element;
+			String key = method.getName() + method.getDescriptor();
+			for (String annotationName : annotationNames(method.getAttribute(AnnotationsAttribute.visibleTag),
+					method.getAttribute(AnnotationsAttribute.invisibleTag))) {
+				Set<String> keys = behaviors.get(annotationName);
+				if (keys == null) {
+					keys = new HashSet<String>();
+					behaviors.put(annotationName, keys);
+				}
+				keys.add(key);
+			}
+		}
+		return new ClassEntry(scanType(classFile), behaviors);
+	}
+	
+	private static Set<String> scanType(ClassFile classFile) {
+		assert classFile != null;
+		Set<String> names = annotationNames(classFile.getAttribute(AnnotationsAttribute.visibleTag), classFile
+			.getAttribute(AnnotationsAttribute.invisibleTag));
+		return names.isEmpty() ? Collections.<String> emptySet() : names;
+	}
+	
+	private static Set<String> annotationNames(Object... attributes) {
+		assert attributes != null;
+		Set<String> results = new HashSet<String>();
+		for (Object attribute : attributes) {
+			if (attribute instanceof AnnotationsAttribute) {
+				for (Annotation annotation : ((AnnotationsAttribute) attribute).getAnnotations()) {
+					results.add(annotation.getTypeName());
+				}
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("AnnotationIndex(classes={0})", //$NON-NLS-1$
+				String.valueOf(size()));
+	}
+}
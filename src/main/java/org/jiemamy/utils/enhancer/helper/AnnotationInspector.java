@@ -0,0 +1,84 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.lang.annotation.Annotation;
+
+import javassist.CtBehavior;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.MethodInfo;
+
+/**
+ * クラスファイル上の注釈を、クラスをロードせずに検査するためのユーティリティ。
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class AnnotationInspector {
+	
+	/**
+	 * 指定のメソッドまたはコンストラクタに、指定の型の注釈が付与されている場合のみ{@code true}を返す。
+	 * <p>
+	 * この判定は、実行時に参照可能な注釈とそうでない注釈の双方を対象とする。
+	 * ただし、親クラスなどから継承される注釈は対象としない。
+	 * </p>
+	 * @param behavior 対象のメソッドまたはコンストラクタ
+	 * @param annotationType 注釈の型
+	 * @return 注釈が付与されている場合に{@code true}、そうでない場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static boolean isAnnotated(CtBehavior behavior, Class<? extends Annotation> annotationType) {
+		if (behavior == null) {
+			throw new NullPointerException("behavior"); //$NON-NLS-1$
+		}
+		if (annotationType == null) {
+			throw new NullPointerException("annotationType"); //$NON-NLS-1$
+		}
+		return isAnnotated(behavior, annotationType.getName());
+	}
+	
+	/**
+	 * 指定のメソッドまたはコンストラクタに、指定の名前を持つ型の注釈が付与されている場合のみ{@code true}を返す。
+	 * @param behavior 対象のメソッドまたはコンストラクタ
+	 * @param annotationName 注釈型の完全限定名
+	 * @return 注釈が付与されている場合に{@code true}、そうでない場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @see #isAnnotated(CtBehavior, Class)
+	 */
+	public static boolean isAnnotated(CtBehavior behavior, String annotationName) {
+		if (behavior == null) {
+			throw new NullPointerException("behavior"); //$NON-NLS-1$
+		}
+		if (annotationName == null) {
+			throw new NullPointerException("annotationName"); //$NON-NLS-1$
+		}
+		MethodInfo info = behavior.getMethodInfo2();
+		return contains(info.getAttribute(AnnotationsAttribute.visibleTag), annotationName)
+				|| contains(info.getAttribute(AnnotationsAttribute.invisibleTag), annotationName);
+	}
+	
+	private static boolean contains(Object attribute, String annotationName) {
+		assert annotationName != null;
+		if ((attribute instanceof AnnotationsAttribute) == false) {
+			return false;
+		}
+		return ((AnnotationsAttribute) attribute).getAnnotation(annotationName) != null;
+	}
+	
+	private AnnotationInspector() {
+		throw new AssertionError();
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+import java.util.Set;
+
+import javassist.CtBehavior;
+import javassist.CtClass;
+
+/**
+ * 注釈型の名前に対するパターンによって対象を決定するポイントカット定義。
+ * <p>
+ * パターンがピリオドを含まない場合、注釈型の完全限定名に加えて、その単純名に対しても照合を行う。
+ * 注釈の判定には{@link AnnotationIndex}を利用する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class AnnotationPatternPointcut implements CostedPointcut {
+	
+	private final NamePattern annotation;
+	
+	/**
+	 * 型に付与された注釈を対象とする場合に{@code true}、
+	 * メソッドやコンストラクタに付与された注釈を対象とする場合に{@code false}。
+	 */
+	private final boolean onType;
+	
+	private final boolean simple;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param annotation 注釈型の名前に対するパターン
+	 * @param onType
+	 *      {@code self}に付与された注釈を対象とする場合に{@code true}、
+	 *      メソッドやコンストラクタ自身に付与された注釈を対象とする場合に{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public AnnotationPatternPointcut(NamePattern annotation, boolean onType) {
+		super();
+		if (annotation == null) {
+			throw new NullPointerException("annotation"); //$NON-NLS-1$
+		}
+		this.annotation = annotation;
+		this.onType = onType;
+		this.simple = annotation.toString().indexOf('.') < 0;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、対象に付与された注釈のいずれかの型の名前が、
+	 * コンストラクタに指定されたパターンに一致する場合のみ{@code true}を返す。
+	 * </p>
+	 */
+	public boolean isTarget(CtClass self, CtBehavior behavior) {
+		Set<String> names = onType
+				? AnnotationIndex.getTypeAnnotationNames(self)
+				: AnnotationIndex.getAnnotationNames(behavior);
+		for (String name : names) {
+			if (annotation.matches(name)) {
+				return true;
+			}
+			if (simple && annotation.matches(simpleNameOf(name))) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static String simpleNameOf(String name) {
+		assert name != null;
+		int start = Math.max(name.lastIndexOf('.'), name.lastIndexOf('$'));
+		return name.substring(start + 1);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、{@link #COST_ANNOTATION}を返す。
+	 * </p>
+	 */
+	public int getCost() {
+		return COST_ANNOTATION;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + annotation.hashCode();
+		result = prime * result + (onType ? 1231 : 1237);
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		AnnotationPatternPointcut other = (AnnotationPatternPointcut) obj;
+		if (annotation.equals(other.annotation) == false) {
+			return false;
+		}
+		if (onType != other.onType) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format(onType ? "within(@{0})" : "annotated(@{0})", //$NON-NLS-1$ //$NON-NLS-2$
+				annotation);
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+
+import javassist.CtBehavior;
+import javassist.CtClass;
+import javassist.bytecode.Descriptor;
+
+import org.jiemamy.utils.enhancer.DynamicPointcut;
+
+/**
+ * 特定の位置の実引数が、指定の値と等しい呼び出しのみを対象とするポイントカット定義。
+ * <p>
+ * 拡張時には、指定の位置に引数を持つメソッドやコンストラクタのみを対象とする。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class ArgumentEqualsPointcut implements DynamicPointcut, CostedPointcut {
+	
+	private final int index;
+	
+	private final Object value;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param index 対象の引数の位置 ({@code 0}から始まる)
+	 * @param value 比較する値、{@code null}の場合は実引数が{@code null}である呼び出しを対象とする
+	 * @throws IllegalArgumentException 引数の位置に負の値が指定された場合
+	 */
+	public ArgumentEqualsPointcut(int index, Object value) {
+		super();
+		if (index < 0) {
+			throw new IllegalArgumentException("index must be >= 0"); //$NON-NLS-1$
+		}
+		this.index = index;
+		this.value = value;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、対象が指定の位置に引数を持つ場合のみ{@code true}を返す。
+	 * </p>
+	 */
+	public boolean isTarget(CtClass self, CtBehavior behavior) {
+		return Descriptor.numOfParameters(behavior.getMethodInfo2().getDescriptor()) > index;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、指定の位置の実引数が指定の値と等しい場合のみ{@code true}を返す。
+	 * </p>
+	 */
+	public boolean isApplicable(Object invoker, Object[] arguments) {
+		Object argument = arguments[index];
+		return value == null ? argument == null : value.equals(argument);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、{@link #COST_NAME}を返す。
+	 * </p>
+	 */
+	public int getCost() {
+		return COST_NAME;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + index;
+		result = prime * result + (value == null ? 0 : value.hashCode());
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		ArgumentEqualsPointcut other = (ArgumentEqualsPointcut) obj;
+		if (index != other.index) {
+			return false;
+		}
+		if (value == null ? other.value != null : value.equals(other.value) == false) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("args[{0}] == {1}", //$NON-NLS-1$
+				String.valueOf(index),
+				value);
+	}
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javassist.CannotCompileException;
+import javassist.CtBehavior;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtPrimitiveType;
+import javassist.Modifier;
+import javassist.NotFoundException;
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.CodeIterator;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.Descriptor;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+import javassist.expr.NewExpr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 拡張によって生成される、定型のメソッド本体をバイトコードとして直接組み立てる。
+ * <p>
+ * 移譲コンストラクタやバイパスメソッド、ポイントカットメソッドなどの本体は、
+ * 引数の受け渡しと単一の呼び出しのみからなる決まった形をしている。
+ * このクラスはそれらの本体を{@link Bytecode}で直接生成し、
+ * Javassistのソースコンパイラによる構文解析や型の解決を省略する。
+ * </p>
+ * <p>
+ * それぞれのメソッドが生成する本体は、対応するソースコードをJavassistでコンパイルしたものと同じ振る舞いをする。
+ * ただし、プリミティブ型の引数は{@code valueOf}によってボクシングされる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class BytecodeStubs {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(BytecodeStubs.class);
+	
+	private static final String OBJECT = Object.class.getName();
+	
+	private static final String ADVICE_APPLIER = AdviceApplier.class.getName();
+	
+	private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;"; //$NON-NLS-1$
+	
+	private static final String PREPARE_DESCRIPTOR =
+			"(Ljava/lang/Object;[Ljava/lang/Object;)Lorg/jiemamy/utils/enhancer/Invocation;"; //$NON-NLS-1$
+	
+	private static final String PROCEED_DESCRIPTOR =
+			"(Lorg/jiemamy/utils/enhancer/Invocation;)Ljava/lang/Object;"; //$NON-NLS-1$
+	
+	/**
+	 * {@code ldc_w}でクラス定数を参照できる最小のクラスファイルのメジャーバージョン (Java 5)。
+	 */
+	private static final int CLASS_CONSTANT_VERSION = 49;
+	
+
+	/**
+	 * 親クラスのコンストラクタを起動するだけのコンストラクタ本体を設定する。
+	 * <p>
+	 * {@code passArguments}に{@code true}を指定した場合、
+	 * 対象のコンストラクタと同じ仮引数リストを持つ親クラスのコンストラクタに、すべての引数をそのまま渡す
+	 * ({@code super($$);})。
+	 * そうでない場合、親クラスの引数をとらないコンストラクタを起動する({@code super();})。
+	 * </p>
+	 * @param constructor 対象のコンストラクタ
+	 * @param passArguments 引数をそのまま親クラスのコンストラクタに渡す場合は{@code true}
+	 * @throws CannotCompileException 本体の生成に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static void setSuperConstructorBody(CtConstructor constructor, boolean passArguments)
+			throws CannotCompileException {
+		if (constructor == null) {
+			throw new NullPointerException("constructor"); //$NON-NLS-1$
+		}
+		try {
+			CtClass declaring = constructor.getDeclaringClass();
+			CtClass superclass = declaring.getSuperclass();
+			CtClass[] parameterTypes = constructor.getParameterTypes();
+			Bytecode code = newBytecode(constructor, parameterTypes);
+			code.addAload(0);
+			if (passArguments) {
+				code.addLoadParameters(parameterTypes, 1);
+				code.addInvokespecial(superclass, MethodInfo.nameInit, constructor.getSignature());
+			} else {
+				code.addInvokespecial(superclass, MethodInfo.nameInit, "()V"); //$NON-NLS-1$
+			}
+			code.addOpcode(Opcode.RETURN);
+			install(constructor, code);
+		} catch (NotFoundException e) {
+			throw new CannotCompileException(e);
+		}
+	}
+	
+	/**
+	 * 親クラスの同名のメソッドを起動するだけのメソッド本体を設定する。
+	 * <p>
+	 * {@code target}が親クラスで宣言されていない場合、対象のメソッドはかわりに{@link AbstractMethodError}をスローする。
+	 * </p>
+	 * @param bypass 対象のメソッド
+	 * @param target 親クラス上で起動するメソッド
+	 * @throws CannotCompileException 本体の生成に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static void setSuperMethodBody(CtMethod bypass, CtMethod target) throws CannotCompileException {
+		if (bypass == null) {
+			throw new NullPointerException("bypass"); //$NON-NLS-1$
+		}
+		if (target == null) {
+			throw new NullPointerException("target"); //$NON-NLS-1$
+		}
+		try {
+			Bytecode code = newBytecode(bypass, bypass.getParameterTypes());
+			addSuperInvocation(code, bypass.getDeclaringClass(), target);
+			install(bypass, code);
+		} catch (NotFoundException e) {
+			throw new CannotCompileException(e);
+		}
+	}
+	
+	/**
+	 * アドバイステーブルの指定の要素を実行するポイントカットメソッドの本体を設定する。
+	 * <p>
+	 * {@code guard}に{@code null}以外が指定された場合、アドバイスを実行する前に
+	 * {@link AdviceApplier#prepare(Object, Object[])}でハンドラのチェインを作成し、適用するハンドラが存在しなければ
+	 * {@link #setSuperMethodBody(CtMethod, CtMethod)}と同じ処理を直接実行する。
+	 * 作成したチェインは{@link AdviceApplier#proceed(org.jiemamy.utils.enhancer.Invocation)}で実行するため、
+	 * ハンドラの適用の判定は呼び出しごとに一度だけ行われる。
+	 * </p>
+	 * @param pointcut 対象のメソッド
+	 * @param holder アドバイステーブルを保持するフィールド
+	 * @param index アドバイステーブル上の位置
+	 * @param guard 適用を判定する場合に親クラス上で起動するメソッド、判定しない場合は{@code null}
+	 * @throws CannotCompileException 本体の生成に失敗した場合
+	 * @throws NullPointerException 引数{@code pointcut}, {@code holder}に{@code null}が指定された場合
+	 */
+	public static void setPointcutBody(CtMethod pointcut, CtField holder, int index, CtMethod guard)
+			throws CannotCompileException {
+		if (pointcut == null) {
+			throw new NullPointerException("pointcut"); //$NON-NLS-1$
+		}
+		if (holder == null) {
+			throw new NullPointerException("holder"); //$NON-NLS-1$
+		}
+		try {
+			CtClass[] parameterTypes = pointcut.getParameterTypes();
+			Bytecode code = newBytecode(pointcut, parameterTypes);
+			if (guard == null) {
+				addAdviceInvocation(code, holder, index, parameterTypes);
+				addResultConversion(code, pointcut.getReturnType());
+			} else {
+				int chain = code.getMaxLocals();
+				code.incMaxLocals(1);
+				addAdviceApplier(code, holder, index);
+				code.addAload(0);
+				addArgumentArray(code, parameterTypes);
+				code.addInvokevirtual(ADVICE_APPLIER, "prepare", PREPARE_DESCRIPTOR); //$NON-NLS-1$
+				code.addAstore(chain);
+				code.addAload(chain);
+				int branch = code.currentPc();
+				code.addOpcode(Opcode.IFNULL);
+				code.addIndex(0);
+				addAdviceApplier(code, holder, index);
+				code.addAload(chain);
+				code.addInvokevirtual(ADVICE_APPLIER, "proceed", PROCEED_DESCRIPTOR); //$NON-NLS-1$
+				addResultConversion(code, pointcut.getReturnType());
+				code.write16bit(branch + 1, code.currentPc() - branch);
+				addSuperInvocation(code, pointcut.getDeclaringClass(), guard);
+			}
+			install(pointcut, code);
+		} catch (NotFoundException e) {
+			throw new CannotCompileException(e);
+		}
+	}
+	
+	/**
+	 * 指定のプロダクトクラスのインスタンスを生成して返すファクトリメソッドの本体を設定する。
+	 * <p>
+	 * 生成されるメソッドは、対象のメソッドと同じ仮引数リストを持つプロダクトクラスのコンストラクタに、
+	 * すべての引数をそのまま渡す({@code return new Product($$);})。
+	 * </p>
+	 * @param factoryMethod 対象のメソッド
+	 * @param product インスタンスを生成するプロダクトクラス
+	 * @throws CannotCompileException 本体の生成に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static void setFactoryMethodBody(CtMethod factoryMethod, CtClass product) throws CannotCompileException {
+		if (factoryMethod == null) {
+			throw new NullPointerException("factoryMethod"); //$NON-NLS-1$
+		}
+		if (product == null) {
+			throw new NullPointerException("product"); //$NON-NLS-1$
+		}
+		try {
+			CtClass[] parameterTypes = factoryMethod.getParameterTypes();
+			Bytecode code = newBytecode(factoryMethod, parameterTypes);
+			code.addNew(product);
+			code.addOpcode(Opcode.DUP);
+			code.addLoadParameters(parameterTypes, 1);
+			code.addInvokespecial(product, MethodInfo.nameInit, Descriptor.ofConstructor(parameterTypes));
+			code.addOpcode(Opcode.ARETURN);
+			install(factoryMethod, code);
+		} catch (NotFoundException e) {
+			throw new CannotCompileException(e);
+		}
+	}
+	
+	/**
+	 * 最も特殊なメソッドに処理を移譲するブリッジメソッドの本体を設定する。
+	 * <p>
+	 * 生成されるメソッドは、{@code this}を{@code most}の宣言クラスにキャストした上で、
+	 * すべての引数をそのまま渡して{@code most}を起動し、その結果を返す。
+	 * </p>
+	 * @param bridge 対象のメソッド
+	 * @param most 処理を移譲する先のメソッド
+	 * @throws CannotCompileException 本体の生成に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static void setBridgeBody(CtMethod bridge, CtMethod most) throws CannotCompileException {
+		if (bridge == null) {
+			throw new NullPointerException("bridge"); //$NON-NLS-1$
+		}
+		if (most == null) {
+			throw new NullPointerException("most"); //$NON-NLS-1$
+		}
+		try {
+			CtClass owner = most.getDeclaringClass();
+			CtClass[] parameterTypes = bridge.getParameterTypes();
+			Bytecode code = newBytecode(bridge, parameterTypes);
+			code.addAload(0);
+			code.addCheckcast(owner);
+			int words = code.addLoadParameters(parameterTypes, 1);
+			if (owner.isInterface()) {
+				code.addInvokeinterface(owner, most.getName(), most.getSignature(), words + 1);
+			} else {
+				code.addInvokevirtual(owner, most.getName(), most.getSignature());
+			}
+			code.addReturn(bridge.getReturnType());
+			install(bridge, code);
+		} catch (NotFoundException e) {
+			throw new CannotCompileException(e);
+		}
+	}
+	
+	/**
+	 * 指定のインスタンス生成式を、アドバイステーブルの指定の要素を実行する静的メソッドの呼び出しに書き換える。
+	 * <p>
+	 * この呼び出しは、インスタンス生成式を構成する{@code new}, {@code dup}, {@code invokespecial}の各命令を、
+	 * それぞれ同じ長さの命令列に置き換える。
+	 * つまり、{@code new}を起動元オブジェクトの読み込みに、{@code dup}を{@code nop}に、
+	 * {@code invokespecial}を返される静的メソッドの呼び出しに置き換える。
+	 * 命令の位置が変化しないため、{@link javassist.expr.ExprEditor}による走査中にも安全に実行できる。
+	 * </p>
+	 * <p>
+	 * 返される静的メソッドはまだ対象のクラスに追加されていないため、
+	 * 走査の終了後に{@link CtClass#addMethod(CtMethod)}で追加しなければならない。
+	 * インスタンス生成式が想定した形をしていない場合、この呼び出しは何も行わずに{@code null}を返す。
+	 * </p>
+	 * @param expr 対象のインスタンス生成式
+	 * @param resultType 生成するインスタンス型の上限境界
+	 * @param holder アドバイステーブルを保持するフィールド
+	 * @param index アドバイステーブル上の位置
+	 * @param methodName 生成する静的メソッドの名前
+	 * @return 書き換えた命令が呼び出す静的メソッド、書き換えなかった場合は{@code null}
+	 * @throws CannotCompileException 書き換えに失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static CtMethod patchNewExpr(NewExpr expr, CtClass resultType, CtField holder, int index,
+			String methodName) throws CannotCompileException {
+		if (expr == null) {
+			throw new NullPointerException("expr"); //$NON-NLS-1$
+		}
+		if (resultType == null) {
+			throw new NullPointerException("resultType"); //$NON-NLS-1$
+		}
+		if (holder == null) {
+			throw new NullPointerException("holder"); //$NON-NLS-1$
+		}
+		if (methodName == null) {
+			throw new NullPointerException("methodName"); //$NON-NLS-1$
+		}
+		CtBehavior context = expr.where();
+		CtClass target = holder.getDeclaringClass();
+		boolean isStatic = Modifier.isStatic(context.getModifiers());
+		if (isStatic && target.getClassFile2().getMajorVersion() < CLASS_CONSTANT_VERSION) {
+			LOG.debug("Cannot patch new expression in static context: {}", context.getLongName());
+			return null;
+		}
+		try {
+			MethodInfo info = context.getMethodInfo();
+			CodeAttribute attribute = info.getCodeAttribute();
+			ConstPool cp = info.getConstPool();
+			CodeIterator iterator = attribute.iterator();
+			int invokePos = expr.indexOfBytecode();
+			if (iterator.byteAt(invokePos) != Opcode.INVOKESPECIAL) {
+				return null;
+			}
+			int newPos = findNewPosition(iterator, cp, invokePos);
+			if (newPos < 0 || iterator.byteAt(newPos + 3) != Opcode.DUP) {
+				LOG.debug("Unexpected shape of new expression: {} (at {})", expr.getClassName(), newPos);
+				return null;
+			}
+			CtClass[] parameterTypes = expr.getConstructor().getParameterTypes();
+			CtClass[] helperParameterTypes = new CtClass[parameterTypes.length + 1];
+			helperParameterTypes[0] = target.getClassPool().get(OBJECT);
+			System.arraycopy(parameterTypes, 0, helperParameterTypes, 1, parameterTypes.length);
+			CtMethod helper = new CtMethod(resultType, methodName, helperParameterTypes, target);
+			helper.setModifiers(Modifier.PRIVATE | Modifier.STATIC);
+			helper.getMethodInfo().setAccessFlags(helper.getMethodInfo().getAccessFlags() | AccessFlag.SYNTHETIC);
+			Bytecode code = newBytecode(helper, helperParameterTypes);
+			addAdviceApplier(code, holder, index);
+			code.addAload(0);
+			addArgumentArray(code, parameterTypes, 1);
+			code.addInvokevirtual(ADVICE_APPLIER, "invoke", INVOKE_DESCRIPTOR); //$NON-NLS-1$
+			code.addCheckcast(resultType);
+			code.addOpcode(Opcode.ARETURN);
+			install(helper, code);
+			
+			// new T -> aload_0 (this) または ldc_w (このクラス)
+			if (isStatic) {
+				iterator.writeByte(Opcode.LDC_W, newPos);
+				iterator.write16bit(cp.getThisClassInfo(), newPos + 1);
+			} else {
+				iterator.writeByte(Opcode.ALOAD_0, newPos);
+				iterator.writeByte(Opcode.NOP, newPos + 1);
+				iterator.writeByte(Opcode.NOP, newPos + 2);
+			}
+			// dup -> nop
+			iterator.writeByte(Opcode.NOP, newPos + 3);
+			// invokespecial T.<init> -> invokestatic helper
+			iterator.writeByte(Opcode.INVOKESTATIC, invokePos);
+			iterator.write16bit(cp.addMethodrefInfo(cp.getThisClassInfo(), methodName, helper.getSignature()),
+					invokePos + 1);
+			return helper;
+		} catch (NotFoundException e) {
+			throw new CannotCompileException(e);
+		} catch (BadBytecode e) {
+			throw new CannotCompileException(e);
+		}
+	}
+	
+	/**
+	 * 指定の位置にあるコンストラクタ起動に対応する、{@code new}命令の位置を返す。
+	 * <p>
+	 * 対応関係は{@link javassist.expr.ExprEditor}と同様に、
+	 * 同じクラスに対する直近の未対応の{@code new}命令によって判定する。
+	 * </p>
+	 * @param iterator 対象のコードを走査する反復子
+	 * @param cp 対象のコンスタントプール
+	 * @param invokePos コンストラクタを起動する{@code invokespecial}命令の位置
+	 * @return 対応する{@code new}命令の位置、存在しない場合は{@code -1}
+	 * @throws BadBytecode コードの走査に失敗した場合
+	 */
+	private static int findNewPosition(CodeIterator iterator, ConstPool cp, int invokePos) throws BadBytecode {
+		assert iterator != null;
+		assert cp != null;
+		List<Integer> positions = new ArrayList<Integer>();
+		List<String> types = new ArrayList<String>();
+		iterator.begin();
+		while (iterator.hasNext()) {
+			int pos = iterator.next();
+			if (pos > invokePos) {
+				break;
+			}
+			int opcode = iterator.byteAt(pos);
+			if (opcode == Opcode.NEW) {
+				positions.add(pos);
+				types.add(cp.getClassInfo(iterator.u16bitAt(pos + 1)));
+			} else if (opcode == Opcode.INVOKESPECIAL && types.isEmpty() == false) {
+				int last = types.size() - 1;
+				if (cp.isConstructor(types.get(last), iterator.u16bitAt(pos + 1)) > 0) {
+					int newPos = positions.remove(last);
+					types.remove(last);
+					if (pos == invokePos) {
+						return newPos;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+	
+	private static Bytecode newBytecode(CtBehavior behavior, CtClass[] parameterTypes) {
+		assert behavior != null;
+		assert parameterTypes != null;
+		Bytecode code = new Bytecode(behavior.getDeclaringClass().getClassFile().getConstPool());
+		code.setMaxLocals(Modifier.isStatic(behavior.getModifiers()), parameterTypes, 0);
+		return code;
+	}
+	
+	private static void install(CtBehavior behavior, Bytecode code) {
+		assert behavior != null;
+		assert code != null;
+		MethodInfo info = behavior.getMethodInfo();
+		info.setCodeAttribute(code.toCodeAttribute());
+		info.setAccessFlags(info.getAccessFlags() & ~AccessFlag.ABSTRACT);
+	}
+	
+	/**
+	 * 親クラスの同名のメソッドを起動して結果を返す命令列を追加する。
+	 */
+	private static void addSuperInvocation(Bytecode code, CtClass enhance, CtMethod target) throws NotFoundException {
+		assert code != null;
+		assert enhance != null;
+		assert target != null;
+		CtClass superclass = enhance.getSuperclass();
+		if (isDeclaredIn(target, superclass) == false) {
+			LOG.debug("Bypass target {}{} is not declared in {}; this throws {}", new Object[] {
+				target.getName(),
+				target.getSignature(),
+				superclass.getName(),
+				AbstractMethodError.class.getName()
+			});
+			code.addNew(AbstractMethodError.class.getName());
+			code.addOpcode(Opcode.DUP);
+			code.addLdc(target.getName());
+			code.addInvokespecial(AbstractMethodError.class.getName(), MethodInfo.nameInit, "(Ljava/lang/String;)V"); //$NON-NLS-1$
+			code.addOpcode(Opcode.ATHROW);
+			return;
+		}
+		LOG.debug("Bypass target {}{} is in {}; this just invokes it", new Object[] {
+			target.getName(),
+			target.getSignature(),
+			superclass.getName()
+		});
+		code.addAload(0);
+		code.addLoadParameters(target.getParameterTypes(), 1);
+		code.addInvokespecial(superclass, target.getName(), target.getSignature());
+		code.addReturn(target.getReturnType());
+	}
+	
+	private static boolean isDeclaredIn(CtMethod method, CtClass aClass) {
+		assert method != null;
+		if (aClass == null) {
+			return false;
+		}
+		return TypeHierarchyCache.of(aClass.getClassPool()).hasMethod(aClass, method.getName(), method.getSignature());
+	}
+	
+	/**
+	 * アドバイステーブルの指定の要素をスタックに積む命令列を追加する。
+	 */
+	private static void addAdviceApplier(Bytecode code, CtField holder, int index) {
+		assert code != null;
+		assert holder != null;
+		code.addGetstatic(holder.getDeclaringClass(), holder.getName(), holder.getSignature());
+		code.addIconst(index);
+		code.addOpcode(Opcode.AALOAD);
+	}
+	
+	/**
+	 * {@code this}と引数の配列を渡してアドバイスを実行する命令列を追加する。
+	 */
+	private static void addAdviceInvocation(Bytecode code, CtField holder, int index, CtClass[] parameterTypes) {
+		assert code != null;
+		assert holder != null;
+		assert parameterTypes != null;
+		addAdviceApplier(code, holder, index);
+		code.addAload(0);
+		addArgumentArray(code, parameterTypes);
+		code.addInvokevirtual(ADVICE_APPLIER, "invoke", INVOKE_DESCRIPTOR); //$NON-NLS-1$
+	}
+	
+	/**
+	 * インスタンスメソッドの引数をすべて格納した配列をスタックに積む命令列を追加する({@code $args})。
+	 */
+	private static void addArgumentArray(Bytecode code, CtClass[] parameterTypes) {
+		addArgumentArray(code, parameterTypes, 1);
+	}
+	
+	private static void addArgumentArray(Bytecode code, CtClass[] parameterTypes, int offset) {
+		assert code != null;
+		assert parameterTypes != null;
+		code.addIconst(parameterTypes.length);
+		code.addAnewarray(OBJECT);
+		int local = offset;
+		for (int i = 0; i < parameterTypes.length; i++) {
+			CtClass type = parameterTypes[i];
+			code.addOpcode(Opcode.DUP);
+			code.addIconst(i);
+			local += code.addLoad(local, type);
+			if (type.isPrimitive()) {
+				CtPrimitiveType primitive = (CtPrimitiveType) type;
+				String wrapper = primitive.getWrapperName();
+				code.addInvokestatic(wrapper, "valueOf", //$NON-NLS-1$
+						"(" + primitive.getDescriptor() + ")L" + wrapper.replace('.', '/') + ";"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			code.addOpcode(Opcode.AASTORE);
+		}
+	}
+	
+	/**
+	 * スタック上のアドバイスの実行結果を、メソッドの戻り値の型に変換して返す命令列を追加する({@code return ($r) result;})。
+	 */
+	private static void addResultConversion(Bytecode code, CtClass returnType) {
+		assert code != null;
+		assert returnType != null;
+		if (returnType == CtClass.voidType) {
+			code.addOpcode(Opcode.POP);
+			code.addOpcode(Opcode.RETURN);
+		} else if (returnType.isPrimitive()) {
+			CtPrimitiveType primitive = (CtPrimitiveType) returnType;
+			String wrapper = primitive.getWrapperName();
+			code.addCheckcast(wrapper);
+			code.addInvokevirtual(wrapper, primitive.getGetMethodName(), primitive.getGetMethodDescriptor());
+			code.addReturn(returnType);
+		} else {
+			if (returnType.getName().equals(OBJECT) == false) {
+				code.addCheckcast(returnType);
+			}
+			code.addOpcode(Opcode.ARETURN);
+		}
+	}
+	
+	/**
+	 * インスタンス生成の禁止。
+	 */
+	private BytecodeStubs() {
+		throw new AssertionError();
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javassist.ClassPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * クラスファイルから直接読み出した、クラスの最小限の情報。
+ * <p>
+ * このクラスは、クラスの名前、アクセスフラグ、親クラスとインターフェースの名前、
+ * および宣言されたメソッドの名前と記述子のみを定数プールから読み出す。
+ * {@link javassist.CtClass}とは異なり、メソッド本体や属性は解析せず、親クラスなどもロードしない。
+ * また、Javassistが解釈できない新しい形式の定数プールを持つクラスファイルも読み出すことができる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class ClassMetadata {
+	
+	/**
+	 * クラスファイルに宣言されたメソッドの情報。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 * @since 0.2.1
+	 */
+	public static class MethodMetadata {
+		
+		private final int accessFlags;
+		
+		private final String name;
+		
+		private final String descriptor;
+		
+
+		MethodMetadata(int accessFlags, String name, String descriptor) {
+			assert name != null;
+			assert descriptor != null;
+			this.accessFlags = accessFlags;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+		
+		/**
+		 * このメソッドのアクセスフラグを返す。
+		 * @return アクセスフラグ
+		 */
+		public int getAccessFlags() {
+			return accessFlags;
+		}
+		
+		/**
+		 * このメソッドの名前を返す。
+		 * <p>
+		 * コンストラクタの場合は{@code <init>}を返す。
+		 * </p>
+		 * @return メソッドの名前
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * このメソッドの記述子を返す。
+		 * @return メソッドの記述子
+		 */
+		public String getDescriptor() {
+			return descriptor;
+		}
+		
+		/**
+		 * このオブジェクトの文字列表現を返す。
+		 * @return このオブジェクトのデバッグ用の文字列表現
+		 */
+		@Override
+		public String toString() {
+			return name + descriptor;
+		}
+	}
+	
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClassMetadata.class);
+	
+	private static final int MAGIC = 0xCAFEBABE;
+	
+	private final String name;
+	
+	private final int accessFlags;
+	
+	private final String superclassName;
+	
+	private final List<String> interfaceNames;
+	
+	private final List<MethodMetadata> methods;
+	
+
+	private ClassMetadata(String name, int accessFlags, String superclassName, List<String> interfaceNames,
+			List<MethodMetadata> methods) {
+		assert name != null;
+		assert interfaceNames != null;
+		assert methods != null;
+		this.name = name;
+		this.accessFlags = accessFlags;
+		this.superclassName = superclassName;
+		this.interfaceNames = Collections.unmodifiableList(interfaceNames);
+		this.methods = Collections.unmodifiableList(methods);
+	}
+	
+	/**
+	 * 指定の{@link ClassPool}のクラスパスから、指定の名前を持つクラスのクラスファイルを読み出す。
+	 * <p>
+	 * {@link ClassPool}上で生成されたクラスのように、クラスパス上にクラスファイルが存在しない場合や、
+	 * クラスファイルの読み出しに失敗した場合、この呼び出しは{@code null}を返す。
+	 * </p>
+	 * @param pool 対象の{@link ClassPool}
+	 * @param className 対象のクラスの完全限定名
+	 * @return 読み出した情報、読み出せない場合は{@code null}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static ClassMetadata find(ClassPool pool, String className) {
+		if (pool == null) {
+			throw new NullPointerException("pool"); //$NON-NLS-1$
+		}
+		if (className == null) {
+			throw new NullPointerException("className"); //$NON-NLS-1$
+		}
+		URL url = pool.find(className);
+		if (url == null) {
+			return null;
+		}
+		try {
+			InputStream input = url.openStream();
+			try {
+				return read(input);
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			LOG.debug(MessageFormat.format("Cannot read class file: {0}", url), e);
+			return null;
+		}
+	}
+	
+	/**
+	 * 指定のストリームからクラスファイルを読み出す。
+	 * <p>
+	 * 指定のストリームはこの呼び出しによって閉じられない。
+	 * </p>
+	 * @param input クラスファイルの内容を提供するストリーム
+	 * @return 読み出した情報
+	 * @throws IOException クラスファイルの読み出しに失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static ClassMetadata read(InputStream input) throws IOException {
+		if (input == null) {
+			throw new NullPointerException("input"); //$NON-NLS-1$
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a class file"); //$NON-NLS-1$
+		}
+		in.readUnsignedShort(); // minor_version
+		in.readUnsignedShort(); // major_version
+		int count = in.readUnsignedShort();
+		String[] utf8 = new String[count];
+		int[] classes = new int[count];
+		for (int i = 1; i < count; i++) {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+				case 1: // Utf8
+					utf8[i] = in.readUTF();
+					break;
+				case 7: // Class
+					classes[i] = in.readUnsignedShort();
+					break;
+				case 8: // String
+				case 16: // MethodType
+				case 19: // Module
+				case 20: // Package
+					skip(in, 2);
+					break;
+				case 15: // MethodHandle
+					skip(in, 3);
+					break;
+				case 3: // Integer
+				case 4: // Float
+				case 9: // Fieldref
+				case 10: // Methodref
+				case 11: // InterfaceMethodref
+				case 12: // NameAndType
+				case 17: // Dynamic
+				case 18: // InvokeDynamic
+					skip(in, 4);
+					break;
+				case 5: // Long
+				case 6: // Double
+					skip(in, 8);
+					i++;
+					break;
+				default:
+					throw new IOException(MessageFormat.format("Unknown constant pool tag: {0}", //$NON-NLS-1$
+							String.valueOf(tag)));
+			}
+		}
+		int accessFlags = in.readUnsignedShort();
+		String name = className(utf8, classes, in.readUnsignedShort());
+		String superclassName = className(utf8, classes, in.readUnsignedShort());
+		int interfaceCount = in.readUnsignedShort();
+		List<String> interfaceNames = new ArrayList<String>(interfaceCount);
+		for (int i = 0; i < interfaceCount; i++) {
+			interfaceNames.add(className(utf8, classes, in.readUnsignedShort()));
+		}
+		int fieldCount = in.readUnsignedShort();
+		for (int i = 0; i < fieldCount; i++) {
+			skip(in, 6);
+			skipAttributes(in);
+		}
+		int methodCount = in.readUnsignedShort();
+		List<MethodMetadata> methods = new ArrayList<MethodMetadata>(methodCount);
+		for (int i = 0; i < methodCount; i++) {
+			int methodAccess = in.readUnsignedShort();
+			String methodName = utf8[in.readUnsignedShort()];
+			String descriptor = utf8[in.readUnsignedShort()];
+			if (methodName == null || descriptor == null) {
+				throw new IOException("Broken method_info"); //$NON-NLS-1$
+			}
+			methods.add(new MethodMetadata(methodAccess, methodName, descriptor));
+			skipAttributes(in);
+		}
+		if (name == null) {
+			throw new IOException("Broken this_class"); //$NON-NLS-1$
+		}
+		return new ClassMetadata(name, accessFlags, superclassName, interfaceNames, methods);
+	}
+	
+	private static String className(String[] utf8, int[] classes, int index) throws IOException {
+		assert utf8 != null;
+		assert classes != null;
+		if (index == 0) {
+			return null;
+		}
+		if (index >= classes.length || utf8[classes[index]] == null) {
+			throw new IOException(MessageFormat.format("Broken CONSTANT_Class: {0}", //$NON-NLS-1$
+					String.valueOf(index)));
+		}
+		return utf8[classes[index]].replace('/', '.');
+	}
+	
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		assert in != null;
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			skip(in, 2);
+			skip(in, in.readInt() & 0xffffffffL);
+		}
+	}
+	
+	private static void skip(DataInputStream in, long size) throws IOException {
+		assert in != null;
+		long rest = size;
+		while (rest > 0) {
+			long skipped = in.skip(rest);
+			if (skipped <= 0) {
+				in.readByte();
+				skipped = 1;
+			}
+			rest -= skipped;
+		}
+	}
+	
+	/**
+	 * このクラスの完全限定名を返す。
+	 * @return クラスの完全限定名
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * このクラスのアクセスフラグを返す。
+	 * @return アクセスフラグ
+	 */
+	public int getAccessFlags() {
+		return accessFlags;
+	}
+	
+	/**
+	 * このクラスが{@code public}として宣言されている場合のみ{@code true}を返す。
+	 * @return {@code public}として宣言されている場合に{@code true}
+	 */
+	public boolean isPublic() {
+		return Modifier.isPublic(accessFlags);
+	}
+	
+	/**
+	 * このクラスが{@code final}として宣言されている場合のみ{@code true}を返す。
+	 * @return {@code final}として宣言されている場合に{@code true}
+	 */
+	public boolean isFinal() {
+		return Modifier.isFinal(accessFlags);
+	}
+	
+	/**
+	 * このクラスの親クラスの完全限定名を返す。
+	 * @return 親クラスの完全限定名、このクラスが{@code java.lang.Object}である場合は{@code null}
+	 */
+	public String getSuperclassName() {
+		return superclassName;
+	}
+	
+	/**
+	 * このクラスが直接実装するインターフェースの完全限定名の一覧を返す。
+	 * @return インターフェースの完全限定名の一覧
+	 */
+	public List<String> getInterfaceNames() {
+		return interfaceNames;
+	}
+	
+	/**
+	 * このクラスに宣言されたメソッドとコンストラクタの一覧を返す。
+	 * <p>
+	 * 親クラスから継承したメソッドは含まれない。
+	 * </p>
+	 * @return 宣言されたメソッドとコンストラクタの一覧
+	 */
+	public List<MethodMetadata> getMethods() {
+		return methods;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("ClassMetadata({0}, methods={1})", //$NON-NLS-1$
+				name,
+				String.valueOf(methods.size()));
+	}
+}
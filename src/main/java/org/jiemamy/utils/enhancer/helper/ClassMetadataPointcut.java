@@ -0,0 +1,45 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import org.jiemamy.utils.enhancer.InvocationPointcut;
+
+/**
+ * クラスファイルから直接読み出した情報のみを利用して、対象となりえないクラスを事前に除外できるポイントカット定義。
+ * <p>
+ * {@link EnhanceTargetProductCollector}は、プロダクトの候補となるクラスについて
+ * {@link javassist.CtClass}を構築してその親クラスを解決する前に、このインターフェースを利用して候補を絞り込む。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public interface ClassMetadataPointcut extends InvocationPointcut {
+	
+	/**
+	 * 指定のクラスが公開するいずれかのメソッドが、このポイントカット定義の対象となりうる場合に{@code true}を返す。
+	 * <p>
+	 * この呼び出しが{@code false}を返す場合、
+	 * {@link #isTarget(javassist.CtClass, javassist.CtBehavior) isTarget(self, method)}は、
+	 * {@code self}が指定のクラスであるすべてのメソッドについて{@code false}を返さなければならない。
+	 * 指定のクラスが継承するメソッドは引数の情報に含まれないことに注意が必要である。
+	 * 判定できない場合は{@code true}を返す。
+	 * </p>
+	 * @param metadata 対象のクラスの情報
+	 * @return 対象となりうる場合に{@code true}、対象となりえない場合は{@code false}
+	 */
+	boolean isCandidate(ClassMetadata metadata);
+}
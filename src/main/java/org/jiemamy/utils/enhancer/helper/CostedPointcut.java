@@ -0,0 +1,69 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import org.jiemamy.utils.enhancer.InvocationPointcut;
+
+/**
+ * 評価の相対的なコストを宣言するポイントカット定義。
+ * <p>
+ * {@link PointcutOptimizer}は、論理積や論理和の項をこのコストの昇順に並べ替え、
+ * 安価な判定によって高価な判定を省略できるようにする。
+ * コストを宣言しないポイントカット定義は{@link #COST_UNKNOWN}として扱われる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public interface CostedPointcut extends InvocationPointcut {
+	
+	/**
+	 * 引数を参照せずに結果が定まる判定のコスト。
+	 */
+	int COST_CONSTANT = 0;
+	
+	/**
+	 * メソッドとコンストラクタの区別など、オブジェクトの種類のみを参照する判定のコスト。
+	 */
+	int COST_KIND = 1;
+	
+	/**
+	 * 名前やシグネチャの文字列を参照する判定のコスト。
+	 */
+	int COST_NAME = 10;
+	
+	/**
+	 * 付与された注釈を参照する判定のコスト。
+	 */
+	int COST_ANNOTATION = 20;
+	
+	/**
+	 * 型の階層を参照する判定のコスト。
+	 */
+	int COST_HIERARCHY = 50;
+	
+	/**
+	 * コストが不明な判定のコスト。
+	 */
+	int COST_UNKNOWN = 100;
+	
+
+	/**
+	 * このポイントカット定義を一度評価する際の相対的なコストを返す。
+	 * @return 評価の相対的なコスト、{@code 0}以上
+	 */
+	int getCost();
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+
+import javassist.CtBehavior;
+import javassist.CtClass;
+
+/**
+ * 指定の型で宣言されたメソッドやコンストラクタのみを対象とするポイントカット定義。
+ * <p>
+ * 注釈型を指定した場合、その注釈が付与された型で宣言されたメソッドやコンストラクタを対象とする。
+ * 型の注釈の判定には{@link AnnotationIndex}を利用する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class DeclaringTypePointcut implements CostedPointcut {
+	
+	private final String typeName;
+	
+	/**
+	 * {@link #typeName}が注釈型を表す場合に{@code true}。
+	 */
+	private final boolean annotation;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param type 対象のメソッドやコンストラクタを宣言する型、またはその型に付与された注釈の型
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public DeclaringTypePointcut(Class<?> type) {
+		super();
+		if (type == null) {
+			throw new NullPointerException("type"); //$NON-NLS-1$
+		}
+		this.typeName = type.getName();
+		this.annotation = type.isAnnotation();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、対象のメソッドまたはコンストラクタを宣言するクラスが
+	 * コンストラクタに指定された型と等しい場合、またはコンストラクタに指定された注釈が付与されている場合に
+	 * {@code true}を返す。
+	 * </p>
+	 */
+	public boolean isTarget(CtClass self, CtBehavior behavior) {
+		CtClass declaring = behavior.getDeclaringClass();
+		if (annotation) {
+			return AnnotationIndex.isTypeAnnotated(declaring, typeName);
+		}
+		return declaring.getName().equals(typeName);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、注釈型を対象とする場合に{@link #COST_ANNOTATION}を、そうでない場合に{@link #COST_NAME}を返す。
+	 * </p>
+	 */
+	public int getCost() {
+		return annotation ? COST_ANNOTATION : COST_NAME;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + typeName.hashCode();
+		result = prime * result + (annotation ? 1231 : 1237);
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		DeclaringTypePointcut other = (DeclaringTypePointcut) obj;
+		if (typeName.equals(other.typeName) == false) {
+			return false;
+		}
+		if (annotation != other.annotation) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		if (annotation) {
+			return MessageFormat.format("within(@{0} *)", typeName); //$NON-NLS-1$
+		}
+		return MessageFormat.format("within({0})", typeName); //$NON-NLS-1$
+	}
+}
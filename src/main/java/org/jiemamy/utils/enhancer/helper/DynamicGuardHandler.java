@@ -0,0 +1,123 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jiemamy.utils.enhancer.DynamicPointcut;
+import org.jiemamy.utils.enhancer.GuardedInvocationHandler;
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+
+/**
+ * {@link DynamicPointcut}の判定を、ハンドラの適用条件として付与するハンドラ。
+ * <p>
+ * {@link EnhanceManager}は、動的な判定を含むポイントカット定義に対応するハンドラをこのクラスで包む。
+ * 元のハンドラが{@link GuardedInvocationHandler}である場合、その判定も同時に行う。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class DynamicGuardHandler implements GuardedInvocationHandler {
+	
+	private final InvocationHandler delegate;
+	
+	private final DynamicPointcut[] guards;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param delegate 元のハンドラ
+	 * @param guards 適用条件の一覧、すべてが{@code true}を返す場合のみハンドラを適用する
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 適用条件が空である場合
+	 */
+	public DynamicGuardHandler(InvocationHandler delegate, List<? extends DynamicPointcut> guards) {
+		super();
+		if (delegate == null) {
+			throw new NullPointerException("delegate"); //$NON-NLS-1$
+		}
+		if (guards == null) {
+			throw new NullPointerException("guards"); //$NON-NLS-1$
+		}
+		if (guards.isEmpty()) {
+			throw new IllegalArgumentException("guards is empty"); //$NON-NLS-1$
+		}
+		this.delegate = delegate;
+		this.guards = guards.toArray(new DynamicPointcut[guards.size()]);
+	}
+	
+	/**
+	 * このハンドラが包む元のハンドラを返す。
+	 * @return 元のハンドラ
+	 */
+	public InvocationHandler getDelegate() {
+		return delegate;
+	}
+	
+	/**
+	 * 同じ適用条件を持ち、指定のハンドラを包む新しいインスタンスを返す。
+	 * @param handler 新しく包むハンドラ
+	 * @return 新しいインスタンス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public DynamicGuardHandler rebind(InvocationHandler handler) {
+		if (handler == null) {
+			throw new NullPointerException("handler"); //$NON-NLS-1$
+		}
+		return new DynamicGuardHandler(handler, Arrays.asList(guards));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、すべての適用条件が{@code true}を返し、
+	 * かつ元のハンドラ自身も適用を拒否しない場合のみ{@code true}を返す。
+	 * </p>
+	 */
+	public boolean isApplicable(Object invoker, Object[] arguments) {
+		for (DynamicPointcut guard : guards) {
+			if (guard.isApplicable(invoker, arguments) == false) {
+				return false;
+			}
+		}
+		if (delegate instanceof GuardedInvocationHandler) {
+			return ((GuardedInvocationHandler) delegate).isApplicable(invoker, arguments);
+		}
+		return true;
+	}
+	
+	/**
+	 * 元のハンドラに処理を委譲する。
+	 */
+	public Object handle(Invocation invocation) throws Throwable {
+		return delegate.handle(invocation);
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0} if {1}", //$NON-NLS-1$
+				delegate,
+				Arrays.toString(guards));
+	}
+}
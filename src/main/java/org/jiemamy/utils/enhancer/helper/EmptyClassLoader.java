@@ -15,6 +15,20 @@
  */
 package org.jiemamy.utils.enhancer.helper;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * 自身ではクラスをロードすることができないクラスローダ。
  * <p>
@@ -39,11 +53,97 @@ package org.jiemamy.utils.enhancer.helper;
  *     することができ、動的生成されたクラスによるメモリリークを防げる可能性がある。
  *   </li>
  * </ul>
+ * <p>
+ * 実行環境が対応している場合、このクラスローダは並列なクラスのロードに対応する
+ * (parallel capable)クラスローダとして登録される。
+ * また、{@link #getShared(ClassLoader)}を利用して、同じ親クラスローダを持つ複数の機構で
+ * ひとつのインスタンスを共有することもできる。
+ * この場合、それぞれの機構は{@link #reserve(String)}で予約した名前でクラスを定義し、定義が衝突しないようにする。
+ * </p>
  * @version $Date$
  * @author Suguru ARAKAWA (Gluegent, Inc.)
  */
 public class EmptyClassLoader extends ClassLoader {
 	
+	private static final Logger LOG = LoggerFactory.getLogger(EmptyClassLoader.class);
+	
+	/**
+	 * 親クラスローダごとに共有されるインスタンス。
+	 * <p>
+	 * 共有されるインスタンスは、それが定義したクラスが到達可能である間のみ保持される。
+	 * </p>
+	 */
+	private static final Map<ClassLoader, WeakReference<EmptyClassLoader>> SHARED =
+			new WeakHashMap<ClassLoader, WeakReference<EmptyClassLoader>>();
+	
+	/**
+	 * このクラスが並列なクラスのロードに対応するクラスローダとして登録された場合のみ{@code true}。
+	 */
+	static final boolean PARALLEL_CAPABLE = tryRegisterAsParallelCapable();
+	
+	/**
+	 * このクラスを並列なクラスのロードに対応するクラスローダとして登録する。
+	 * <p>
+	 * {@code ClassLoader.registerAsParallelCapable()}はJava SE 7以降でのみ利用でき、
+	 * また{@code protected}として宣言されているため、リフレクションを利用してアクセス可能にしてから呼び出す。
+	 * このメソッドは呼び出し元のクラスを登録するため、このクラスの初期化子からのみ呼び出すこと。
+	 * </p>
+	 * @return 登録に成功した場合は{@code true}
+	 */
+	private static boolean tryRegisterAsParallelCapable() {
+		try {
+			Method register = ClassLoader.class.getDeclaredMethod("registerAsParallelCapable"); //$NON-NLS-1$
+			register.setAccessible(true);
+			Object registered = register.invoke(null);
+			LOG.debug("Register as parallel capable: {}", registered);
+			return Boolean.TRUE.equals(registered);
+		} catch (NoSuchMethodException e) {
+			LOG.debug("Parallel capable class loaders are not supported", e);
+		} catch (IllegalAccessException e) {
+			LOG.warn("Cannot register as parallel capable", e);
+		} catch (InvocationTargetException e) {
+			LOG.warn("Cannot register as parallel capable", e);
+		} catch (RuntimeException e) {
+			// SecurityException や、モジュールによるアクセス制限
+			LOG.warn("Cannot register as parallel capable", e);
+		}
+		return false;
+	}
+	
+	/**
+	 * このクラスローダ上で予約された、または定義されたクラスの名前。
+	 */
+	private final ConcurrentMap<String, Boolean> reserved = new ConcurrentHashMap<String, Boolean>();
+	
+	/**
+	 * このクラスローダ上で定義されたクラスの名前と、そのバイトコードのダイジェスト。
+	 */
+	private final ConcurrentMap<String, byte[]> definitions = new ConcurrentHashMap<String, byte[]>();
+	
+
+	/**
+	 * 指定の親クラスローダに対する、共有されたインスタンスを返す。
+	 * <p>
+	 * 同じ親クラスローダを指定した呼び出しは、返されたインスタンスが到達可能である限り、同一のインスタンスを返す。
+	 * 共有されたインスタンス上でクラスを定義する場合、その名前は{@link #reserve(String)}で予約したものを利用すべきである。
+	 * </p>
+	 * @param parent 親クラスローダ、ブートストラップクラスローダの場合は{@code null}
+	 * @return 共有されたインスタンス
+	 * @since 0.2.1
+	 */
+	public static EmptyClassLoader getShared(ClassLoader parent) {
+		synchronized (SHARED) {
+			WeakReference<EmptyClassLoader> ref = SHARED.get(parent);
+			EmptyClassLoader loader = ref == null ? null : ref.get();
+			if (loader == null) {
+				loader = new EmptyClassLoader(parent);
+				SHARED.put(parent, new WeakReference<EmptyClassLoader>(loader));
+				LOG.debug("Created a shared class loader for {}", parent);
+			}
+			return loader;
+		}
+	}
+	
 	/**
 	 * インスタンスを生成する。
 	 * @param parent 親クラスローダ
@@ -51,4 +151,91 @@ public class EmptyClassLoader extends ClassLoader {
 	public EmptyClassLoader(ClassLoader parent) {
 		super(parent);
 	}
+	
+	/**
+	 * このクラスローダ上で定義するクラスの名前を予約し、予約した名前を返す。
+	 * <p>
+	 * 指定の名前がまだ予約されていなければ、その名前をそのまま予約して返す。
+	 * すでに予約されている場合、指定の名前の末尾に連番を付与した、まだ予約されていない名前を予約して返す。
+	 * </p>
+	 * @param name 予約したいクラスの名前
+	 * @return 実際に予約したクラスの名前
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public String reserve(String name) {
+		if (name == null) {
+			throw new NullPointerException("name"); //$NON-NLS-1$
+		}
+		String candidate = name;
+		for (int i = 1; reserved.putIfAbsent(candidate, Boolean.TRUE) != null; i++) {
+			candidate = name + i;
+		}
+		return candidate;
+	}
+	
+	/**
+	 * 指定のバイトコードをこのクラスローダ上にクラスとして定義する。
+	 * <p>
+	 * 定義されたクラスの保護ドメインは、このクラスローダのクラスが持つ保護ドメインとなる。
+	 * 同名のクラスが同一のバイトコードですでに定義されている場合、新たな定義は行わずにそのクラスを返す。
+	 * 同名のクラスが異なるバイトコードで定義されている場合は{@link LinkageError}をスローする。
+	 * </p>
+	 * <p>
+	 * この呼び出しはクラスローダ全体をロックしないため、異なるクラスを並行して定義できる。
+	 * この呼び出しはクラスを拡張するこのパッケージの内部からのみ利用する。
+	 * </p>
+	 * @param name 定義するクラスのバイナリ名
+	 * @param bytecode 定義するクラスのバイトコード
+	 * @return 定義されたクラス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws ClassFormatError バイトコードが不正である場合
+	 * @throws LinkageError 同名のクラスが異なるバイトコードで定義されている場合
+	 */
+	Class<?> define(String name, byte[] bytecode) {
+		if (name == null) {
+			throw new NullPointerException("name"); //$NON-NLS-1$
+		}
+		if (bytecode == null) {
+			throw new NullPointerException("bytecode"); //$NON-NLS-1$
+		}
+		reserved.putIfAbsent(name, Boolean.TRUE);
+		byte[] digest = digest(bytecode);
+		byte[] previous = definitions.putIfAbsent(name, digest);
+		if (previous != null) {
+			if (MessageDigest.isEqual(previous, digest) == false) {
+				throw new LinkageError(MessageFormat.format(
+						"{0} is already defined with different bytecode",
+						name));
+			}
+			Class<?> loaded = findLoadedClass(name);
+			if (loaded != null) {
+				return loaded;
+			}
+		}
+		try {
+			return defineClass(name, bytecode, 0, bytecode.length, getClass().getProtectionDomain());
+		} catch (LinkageError e) {
+			// 同一の定義が並行して行われた場合はそれを利用する
+			Class<?> loaded = findLoadedClass(name);
+			if (loaded != null && previous != null) {
+				return loaded;
+			}
+			if (loaded == null && previous == null) {
+				// 定義に失敗したため、同じ名前で改めて定義できるようにする
+				definitions.remove(name, digest);
+			}
+			throw e;
+		}
+	}
+	
+	private static byte[] digest(byte[] bytecode) {
+		assert bytecode != null;
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(bytecode); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-1 はすべての実行環境で利用できる
+			throw new AssertionError(e);
+		}
+	}
 }
@@ -27,11 +27,18 @@ import javassist.CtMethod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.jiemamy.utils.enhancer.DynamicPointcut;
 import org.jiemamy.utils.enhancer.Enhance;
 import org.jiemamy.utils.enhancer.InvocationHandler;
+import org.jiemamy.utils.enhancer.InvocationPointcut;
 
 /**
  * {@link Enhance}を管理する。
+ * <p>
+ * ポイントカット定義が{@link TypePrefixedPointcut}である場合、
+ * 対象のクラスの名前がその接頭辞を持たなければポイントカット定義の評価自体を省略する。
+ * また、それぞれのポイントカット定義は生成時に{@link PointcutOptimizer}によって最適化される。
+ * </p>
  * @version $Date$
  * @author Suguru ARAKAWA (Gluegent, Inc.)
  */
@@ -51,6 +58,27 @@ public class EnhanceManager {
 	
 	private final List<Enhance> enhanceList;
 	
+	/**
+	 * それぞれの拡張のポイントカット定義を{@link PointcutOptimizer 最適化}したもの。
+	 * <p>
+	 * {@link #enhanceList}と同じ順序で保持する。
+	 * </p>
+	 */
+	private final InvocationPointcut[] pointcuts;
+	
+	/**
+	 * それぞれの拡張が対象とするクラスの名前が持つ接頭辞。
+	 * <p>
+	 * {@link #enhanceList}と同じ順序で保持し、接頭辞が不明な場合は空の文字列を保持する。
+	 * </p>
+	 */
+	private final String[] typePrefixes;
+	
+	/**
+	 * それぞれの拡張のポイントカット定義に含まれる動的な判定、含まない場合は{@code null}。
+	 */
+	private final List<List<DynamicPointcut>> guards;
+	
 
 	/**
 	 * インスタンスを生成する。
@@ -68,6 +96,62 @@ public class EnhanceManager {
 			throw new NullPointerException("enhanceList contains null"); //$NON-NLS-1$
 		}
 		this.enhanceList = new ArrayList<Enhance>(enhanceList);
+		this.pointcuts = new InvocationPointcut[this.enhanceList.size()];
+		this.typePrefixes = new String[this.enhanceList.size()];
+		this.guards = new ArrayList<List<DynamicPointcut>>(this.enhanceList.size());
+		for (int i = 0; i < typePrefixes.length; i++) {
+			InvocationPointcut pointcut = PointcutOptimizer.optimize(this.enhanceList.get(i).getPointcut());
+			pointcuts[i] = pointcut;
+			typePrefixes[i] = pointcut instanceof TypePrefixedPointcut
+					? ((TypePrefixedPointcut) pointcut).getTypePrefix()
+					: ""; //$NON-NLS-1$
+			List<DynamicPointcut> dynamics = new ArrayList<DynamicPointcut>();
+			collectDynamicPointcuts(pointcut, dynamics);
+			guards.add(dynamics.isEmpty() ? null : dynamics);
+		}
+	}
+	
+	/**
+	 * 指定のポイントカット定義に論理積として含まれる動的な判定を収集する。
+	 * @param pointcut 対象のポイントカット定義
+	 * @param results 収集した判定を格納するリスト
+	 */
+	private static void collectDynamicPointcuts(InvocationPointcut pointcut, List<DynamicPointcut> results) {
+		assert pointcut != null;
+		assert results != null;
+		if (pointcut instanceof DynamicPointcut) {
+			results.add((DynamicPointcut) pointcut);
+		} else if (pointcut instanceof AndInvocationPointcut) {
+			for (InvocationPointcut term : ((AndInvocationPointcut) pointcut).getTerms()) {
+				collectDynamicPointcuts(term, results);
+			}
+		} else if (pointcut instanceof OrInvocationPointcut || pointcut instanceof NotInvocationPointcut) {
+			if (containsDynamicPointcut(pointcut)) {
+				LOG.warn("Dynamic pointcuts under or/not are evaluated only statically: {}", pointcut);
+			}
+		}
+	}
+	
+	private static boolean containsDynamicPointcut(InvocationPointcut pointcut) {
+		assert pointcut != null;
+		if (pointcut instanceof DynamicPointcut) {
+			return true;
+		} else if (pointcut instanceof AndInvocationPointcut) {
+			for (InvocationPointcut term : ((AndInvocationPointcut) pointcut).getTerms()) {
+				if (containsDynamicPointcut(term)) {
+					return true;
+				}
+			}
+		} else if (pointcut instanceof OrInvocationPointcut) {
+			for (InvocationPointcut term : ((OrInvocationPointcut) pointcut).getTerms()) {
+				if (containsDynamicPointcut(term)) {
+					return true;
+				}
+			}
+		} else if (pointcut instanceof NotInvocationPointcut) {
+			return containsDynamicPointcut(((NotInvocationPointcut) pointcut).getTerm());
+		}
+		return false;
 	}
 	
 	/**
@@ -81,6 +165,10 @@ public class EnhanceManager {
 	 * <p>
 	 * 適用可能なハンドラが一つも存在しない場合、この呼び出しは空のリストを返す。
 	 * </p>
+	 * <p>
+	 * 拡張のポイントカット定義が{@link DynamicPointcut}を含む場合、
+	 * 対応するハンドラは{@link DynamicGuardHandler}に包まれた状態で返される。
+	 * </p>
 	 * @param self このメソッドまたはコンストラクタを公開するクラス
 	 * @param behavior 対象のメソッドまたはコンストラクタ
 	 * @return 適用可能なハンドラの一覧
@@ -96,10 +184,13 @@ public class EnhanceManager {
 		
 		LOG.trace("Detecting applicable handlers: {}#{}", self.getName(), behavior.getName() + behavior.getSignature());
 		
+		String name = self.getName();
 		List<InvocationHandler> results = new ArrayList<InvocationHandler>();
-		for (Enhance e : enhanceList) {
-			if (e.getPointcut().isTarget(self, behavior)) {
-				results.add(e.getHandler());
+		for (int i = 0, n = enhanceList.size(); i < n; i++) {
+			if (name.startsWith(typePrefixes[i]) && pointcuts[i].isTarget(self, behavior)) {
+				InvocationHandler handler = enhanceList.get(i).getHandler();
+				List<DynamicPointcut> guard = guards.get(i);
+				results.add(guard == null ? handler : new DynamicGuardHandler(handler, guard));
 			}
 		}
 		return results;
@@ -122,9 +213,22 @@ public class EnhanceManager {
 		if (klass == null) {
 			throw new NullPointerException("klass"); //$NON-NLS-1$
 		}
-		for (CtMethod method : klass.getMethods()) {
-			for (Enhance enhance : enhanceList) {
-				if (isLegalJoinpoint(method) && enhance.getPointcut().isTarget(klass, method)) {
+		List<InvocationPointcut> candidates = new ArrayList<InvocationPointcut>();
+		String name = klass.getName();
+		for (int i = 0, n = enhanceList.size(); i < n; i++) {
+			if (name.startsWith(typePrefixes[i])) {
+				candidates.add(pointcuts[i]);
+			}
+		}
+		if (candidates.isEmpty()) {
+			return false;
+		}
+		for (CtMethod method : TypeHierarchyCache.of(klass.getClassPool()).getMethods(klass)) {
+			if (isLegalJoinpoint(method) == false) {
+				continue;
+			}
+			for (InvocationPointcut pointcut : candidates) {
+				if (pointcut.isTarget(klass, method)) {
 					return true;
 				}
 			}
@@ -132,6 +236,42 @@ public class EnhanceManager {
 		return false;
 	}
 	
+	/**
+	 * クラスファイルから直接読み出した情報を利用して、指定のクラスがプロダクトの候補となりうる場合のみ
+	 * {@code true}を返す。
+	 * <p>
+	 * この判定は{@link #canEnhanceProduct(CtConstructor)}と{@link #hasApplicableMethod(CtClass)}
+	 * の事前検査であり、この呼び出しが{@code false}を返すクラスは、それらのいずれかが必ず{@code false}を返す。
+	 * クラスが{@code public}でない場合や{@code final}である場合、
+	 * またはすべての拡張のポイントカット定義がそのクラスを{@link ClassMetadataPointcut 対象となりえない}と
+	 * 判定した場合に{@code false}を返す。
+	 * </p>
+	 * @param metadata 対象のクラスの情報
+	 * @return プロダクトの候補となりうる場合に{@code true}、そうでない場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public boolean isCandidateProduct(ClassMetadata metadata) {
+		if (metadata == null) {
+			throw new NullPointerException("metadata"); //$NON-NLS-1$
+		}
+		if (metadata.isPublic() == false || metadata.isFinal()) {
+			return false;
+		}
+		String name = metadata.getName();
+		for (int i = 0; i < pointcuts.length; i++) {
+			if (name.startsWith(typePrefixes[i]) == false) {
+				continue;
+			}
+			InvocationPointcut pointcut = pointcuts[i];
+			if ((pointcut instanceof ClassMetadataPointcut) == false
+					|| ((ClassMetadataPointcut) pointcut).isCandidate(metadata)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * 指定のコンストラクタを保持するクラスが、拡張の対象として適切である場合のみ
 	 * {@code true}を返す。
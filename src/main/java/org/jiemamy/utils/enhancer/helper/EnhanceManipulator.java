@@ -24,7 +24,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,6 +38,7 @@ import javassist.CtField;
 import javassist.CtMember;
 import javassist.CtMethod;
 import javassist.NotFoundException;
+import javassist.bytecode.CodeAttribute;
 import javassist.bytecode.Descriptor;
 import javassist.expr.NewExpr;
 
@@ -46,6 +46,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.jiemamy.utils.enhancer.EnhanceException;
+import org.jiemamy.utils.enhancer.GuardedInvocationHandler;
 import org.jiemamy.utils.enhancer.InvocationHandler;
 import org.jiemamy.utils.enhancer.InvocationPointcut;
 
@@ -68,12 +69,27 @@ public class EnhanceManipulator {
 	 */
 	private static final int SYNTHETIC = 0x00001000;
 	
+	/**
+	 * HotSpotが常にインライン展開の対象とするメソッドの、バイトコードの最大長 ({@code -XX:MaxInlineSize}の既定値)。
+	 * @since 0.2.1
+	 */
+	public static final int MAX_INLINE_SIZE = 35;
+	
+	/**
+	 * HotSpotが頻繁に起動されるメソッドをインライン展開の対象とする、バイトコードの最大長
+	 * ({@code -XX:FreqInlineSize}の既定値)。
+	 * @since 0.2.1
+	 */
+	public static final int FREQ_INLINE_SIZE = 325;
+	
 	private static final Pattern AVOID_NAME_PATTERN = Pattern.compile("(java\\.|javax\\.|sun\\.).*"); //$NON-NLS-1$
 	
 	private static final String ENHANCE_CLASS = "__ENHANCED__";
 	
 	private static final String BYPASS_METHOD = "__BYPASS__"; //$NON-NLS-1$
 	
+	private static final String NEW_INSTANCE_METHOD = "__NEW__"; //$NON-NLS-1$
+	
 	private static final String ADVICE_TABLE_FIELD = "__ADVICE_TABLE__"; //$NON-NLS-1$
 	
 	
@@ -99,7 +115,7 @@ public class EnhanceManipulator {
 		LOG.trace("Creating a copy: {}", klass);
 		String name = klass.getName();
 		try {
-			CtClass copy = klass.getClassPool().getAndRename(name, getEnhanceClassName(name));
+			CtClass copy = klass.getClassPool().getAndRename(name, getEnhanceClassName(klass.getClassPool(), name));
 			copy.setModifiers(klass.getModifiers() | Modifier.FINAL);
 			LOG.debug("Copy class: {} -> {}", klass.getName(), copy.getName());
 			return copy;
@@ -130,7 +146,7 @@ public class EnhanceManipulator {
 			throw new IllegalArgumentException();
 		}
 		LOG.trace("Creating an inherited class: {}", klass.getName());
-		CtClass copy = klass.getClassPool().makeClass(getEnhanceClassName(klass.getName()));
+		CtClass copy = klass.getClassPool().makeClass(getEnhanceClassName(klass.getClassPool(), klass.getName()));
 		copy.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
 		try {
 			copy.setSuperclass(klass);
@@ -173,7 +189,7 @@ public class EnhanceManipulator {
 		}
 		LOG.trace("Creating a factory implementation: {}", factoryInterface.getName());
 		ClassPool pool = factoryInterface.getClassPool();
-		CtClass implementation = pool.makeClass(getEnhanceClassName(factoryInterface.getName()));
+		CtClass implementation = pool.makeClass(getEnhanceClassName(pool, factoryInterface.getName()));
 		implementation.setModifiers(Modifier.PUBLIC);
 		implementation.setInterfaces(new CtClass[] {
 			factoryInterface
@@ -258,7 +274,7 @@ public class EnhanceManipulator {
 					factoryMethod.getParameterTypes(),
 					productImplementation);
 			constructor.setModifiers(Modifier.PUBLIC);
-			constructor.setBody(null);
+			BytecodeStubs.setSuperConstructorBody(constructor, false);
 			productImplementation.addConstructor(constructor);
 			LOG.debug("Product constructor: {}{}",
 					productImplementation.getName(), constructor.getSignature());
@@ -320,8 +336,7 @@ public class EnhanceManipulator {
 					factoryMethod.getParameterTypes(),
 					factoryImplementation);
 			factoryMethodImpl.setModifiers(Modifier.PUBLIC);
-			factoryMethodImpl.setBody(String.format("return new %s($$);", //$NON-NLS-1$
-					productImplementation.getName()));
+			BytecodeStubs.setFactoryMethodBody(factoryMethodImpl, productImplementation);
 			factoryImplementation.addMethod(factoryMethodImpl);
 			LOG.trace("Factory method: {}{}{} -> new {}", new Object[] {
 				factoryImplementation.getName(),
@@ -366,7 +381,6 @@ public class EnhanceManipulator {
 		}
 		LOG.trace("Creating bridge methods: {}", methodGroup);
 		CtMethod most = methodGroup.getMostSpecificMethod();
-		CtClass ownerOfMost = most.getDeclaringClass();
 		for (CtMethod source : less) {
 			try {
 				// すでに本体が定義されたメソッドについては何もしない
@@ -378,10 +392,7 @@ public class EnhanceManipulator {
 				// FIXME ちょっと怪しい。反例を探すこと
 				assert isStatic(most) == false;
 				assert bridge.getReturnType().equals(CtClass.voidType) == false;
-				bridge.setBody(String.format(
-						"return ((%s) this).%s($$);",
-						ownerOfMost.getName(),
-						bridge.getName()));
+				BytecodeStubs.setBridgeBody(bridge, most);
 				aClass.addMethod(bridge);
 			} catch (CannotCompileException e) {
 				throw new EnhanceException(MessageFormat.format(
@@ -462,7 +473,7 @@ public class EnhanceManipulator {
 				baseInterface.getName(), baseClass.getName());
 		
 		ClassPool pool = baseInterface.getClassPool();
-		CtClass implementation = pool.makeClass(getEnhanceClassName(baseInterface.getName()));
+		CtClass implementation = pool.makeClass(getEnhanceClassName(pool, baseInterface.getName()));
 		implementation.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
 		try {
 			implementation.setSuperclass(baseClass);
@@ -518,15 +529,19 @@ public class EnhanceManipulator {
 		assert anInterface.isInterface();
 		Map<NameAndParameter, MethodGroup> results = new HashMap<NameAndParameter, MethodGroup>();
 		
-		LinkedList<CtClass> work = new LinkedList<CtClass>();
-		work.addFirst(anInterface);
-		Set<String> saw = new HashSet<String>();
-		while (work.isEmpty() == false) {
-			CtClass targetInterface = work.removeFirst();
-			if (saw.contains(targetInterface.getName())) {
-				continue;
-			}
-			saw.add(targetInterface.getName());
+		// 親インターフェースの一覧は、型階層を共有する他のインターフェースとの間で再利用する
+		TypeHierarchyCache hierarchy = TypeHierarchyCache.of(anInterface.getClassPool());
+		List<CtClass> closure;
+		try {
+			closure = hierarchy.getInterfaceClosure(anInterface);
+		} catch (NotFoundException e) {
+			throw new EnhanceException(
+					MessageFormat.format(
+					"Cannot resolve super interfaces for {0}",
+					anInterface.getName()),
+					e);
+		}
+		for (CtClass targetInterface : closure) {
 			try {
 				for (CtMethod method : targetInterface.getDeclaredMethods()) {
 					NameAndParameter target = new NameAndParameter(method);
@@ -535,19 +550,16 @@ public class EnhanceManipulator {
 					MethodGroup group = results.get(target);
 					if (group == null) {
 						// 追加されていなければ、新しいグループを作成
-						results.put(target, new MethodGroup(method));
+						results.put(target, new MethodGroup(method, hierarchy));
 					} else {
 						// 追加されていれば、そのグループにメソッドの追加を試みる
 						group.add(method);
 					}
 				}
-				for (CtClass superInterface : targetInterface.getInterfaces()) {
-					work.addFirst(superInterface);
-				}
 			} catch (NotFoundException e) {
 				throw new EnhanceException(
 						MessageFormat.format(
-						"Cannot resolve super interfaces for {0}",
+						"Cannot resolve method types for {0}",
 						targetInterface.getName()),
 						e);
 			}
@@ -592,7 +604,7 @@ public class EnhanceManipulator {
 				CtConstructor delegate = new CtConstructor(constructor.getParameterTypes(), enhanced);
 				delegate.setExceptionTypes(constructor.getExceptionTypes());
 				delegate.setModifiers(Modifier.PUBLIC);
-				delegate.setBody("super($$);");
+				BytecodeStubs.setSuperConstructorBody(delegate, true);
 				enhanced.addConstructor(delegate);
 				
 				LOG.debug("Delegate constructor: {}{}", enhanced.getName(), delegate.getSignature());
@@ -690,27 +702,7 @@ public class EnhanceManipulator {
 				method.getSignature()
 			});
 			bypass.setModifiers(Modifier.PUBLIC);
-			if (isDeclaredInClass(method, enhance.getSuperclass()) == false) {
-				LOG.debug("Bypass target {}{} is not declared in {}; this throws {}", new Object[] {
-					method.getName(),
-					method.getSignature(),
-					enhance.getSuperclass().getName(),
-					AbstractMethodError.class.getName()
-				});
-				bypass.setBody(String.format("throw new %s(\"%s\");", AbstractMethodError.class.getName(), method
-					.getName()));
-			} else {
-				LOG.debug("Bypass target {}{} is in {}; this just invokes it", new Object[] {
-					method.getName(),
-					method.getSignature(),
-					enhance.getSuperclass().getName()
-				});
-				if (isVoid(method)) {
-					bypass.setBody(String.format("super.%s($$);", method.getName()));
-				} else {
-					bypass.setBody(String.format("return super.%s($$);", method.getName()));
-				}
-			}
+			BytecodeStubs.setSuperMethodBody(bypass, method);
 			enhance.addMethod(bypass);
 			return bypass;
 		} catch (NotFoundException e) {
@@ -722,35 +714,6 @@ public class EnhanceManipulator {
 		}
 	}
 	
-	/**
-	 * 指定のメソッドが指定のクラスで実際に宣言されている場合のみ{@code true}を返す。
-	 * @param method 対象のメソッド
-	 * @param aClass 対象のクラス
-	 * @return 実際に宣言されている場合に{@code true}
-	 */
-	private static boolean isDeclaredInClass(CtMethod method, CtClass aClass) {
-		assert method != null;
-		if (aClass == null) {
-			return false;
-		}
-		try {
-			aClass.getMethod(method.getName(), method.getSignature());
-			return true;
-		} catch (NotFoundException e) {
-			return false;
-		}
-	}
-	
-	private static boolean isVoid(CtMethod method) {
-		assert method != null;
-		try {
-			return method.getReturnType() == CtClass.voidType;
-		} catch (NotFoundException e) {
-			// 解決できない時点でプリミティブでない
-			return false;
-		}
-	}
-	
 	/**
 	 * {@code method}の動作をフックするポイントカットメソッドを拡張クラス上に作成して返す。
 	 * <p>
@@ -770,6 +733,41 @@ public class EnhanceManipulator {
 	 */
 	public static CtMethod createPointcutMethod(CtClass enhance, CtMethod method, CtField holder, int index)
 			throws EnhanceException {
+		return createPointcutMethod(enhance, method, holder, index, false);
+	}
+	
+	/**
+	 * {@code method}の動作をフックするポイントカットメソッドを拡張クラス上に作成して返す。
+	 * <p>
+	 * {@code guarded}に{@code true}が指定された場合、作成されるポイントカットメソッドはアドバイスを実行する前に
+	 * {@link AdviceApplier#prepare(Object, Object[])}でハンドラのチェインを作成し、
+	 * 適用するハンドラが存在しなければバイパスメソッドと同じ処理を直接実行する。
+	 * ハンドラの適用の判定は、呼び出しごとに一度だけ行われる。
+	 * つまり、次のようなメソッドを作成する。
+	 * </p>
+<pre><code>
+public int add(int a, int b) {
+  Invocation chain = __ADVICE_TABLE__[index].prepare(this, $args);
+  if (chain != null) {
+    return (int) __ADVICE_TABLE__[index].proceed(chain);
+  }
+  return super.add(a, b);
+}
+</code></pre>
+	 * <p>
+	 * その他については{@link #createPointcutMethod(CtClass, CtMethod, CtField, int)}と同様である。
+	 * </p>
+	 * @param enhance 拡張対象のクラス
+	 * @param method フックする対象のメソッド
+	 * @param holder アドバイスを保持するフィールド
+	 * @param index 拡張メソッドの番号
+	 * @param guarded 呼び出しごとにハンドラの適用を判定する場合に{@code true}
+	 * @return 作成したポイントカットメソッド
+	 * @throws EnhanceException ポイントカットメソッドの作成に失敗した場合
+	 * @since 0.2.1
+	 */
+	public static CtMethod createPointcutMethod(CtClass enhance, CtMethod method, CtField holder, int index,
+			boolean guarded) throws EnhanceException {
 		
 		assert enhance != null;
 		assert method != null;
@@ -793,12 +791,14 @@ public class EnhanceManipulator {
 			});
 			
 			pointcut.setModifiers(Modifier.PUBLIC);
-			if (isVoid(method)) {
-				pointcut.setBody(String.format("%s[%d].invoke(this, $args);", holder.getName(), index));
+			if (guarded) {
+				LOG.debug("Pointcut method[{}] is guarded", index);
+				BytecodeStubs.setPointcutBody(pointcut, holder, index, method);
 			} else {
-				pointcut.setBody(String.format("return ($r) %s[%d].invoke(this, $args);", holder.getName(), index));
+				BytecodeStubs.setPointcutBody(pointcut, holder, index, null);
 			}
 			enhance.addMethod(pointcut);
+			checkInlineSize(pointcut);
 			return pointcut;
 		} catch (NotFoundException e) {
 			throw new EnhanceException(MessageFormat.format("Cannot create pointcut method for {0}", method
@@ -809,6 +809,99 @@ public class EnhanceManipulator {
 		}
 	}
 	
+	/**
+	 * 指定のメソッドのバイトコードの長さを返す。
+	 * @param behavior 対象のメソッドまたはコンストラクタ
+	 * @return バイトコードの長さ、本体を持たない場合は{@code 0}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public static int getCodeLength(CtBehavior behavior) {
+		if (behavior == null) {
+			throw new NullPointerException("behavior"); //$NON-NLS-1$
+		}
+		CodeAttribute code = behavior.getMethodInfo2().getCodeAttribute();
+		if (code == null) {
+			return 0;
+		}
+		return code.getCodeLength();
+	}
+	
+	/**
+	 * 生成したポイントカットメソッドがインライン展開の閾値を超える場合、その旨を記録する。
+	 * @param pointcut 対象のポイントカットメソッド
+	 */
+	private static void checkInlineSize(CtMethod pointcut) {
+		assert pointcut != null;
+		int length = getCodeLength(pointcut);
+		if (length > FREQ_INLINE_SIZE) {
+			LOG.warn("Pointcut method {}#{}{} is {} bytes, exceeds FreqInlineSize ({}); it will not be inlined",
+					new Object[] {
+						pointcut.getDeclaringClass().getName(),
+						pointcut.getName(),
+						pointcut.getSignature(),
+						length,
+						FREQ_INLINE_SIZE
+					});
+		} else if (length > MAX_INLINE_SIZE) {
+			LOG.debug("Pointcut method {}#{}{} is {} bytes, exceeds MaxInlineSize ({})", new Object[] {
+				pointcut.getDeclaringClass().getName(),
+				pointcut.getName(),
+				pointcut.getSignature(),
+				length,
+				MAX_INLINE_SIZE
+			});
+		}
+	}
+	
+	/**
+	 * 拡張されたプロダクトクラスから、ファクトリが起動しない移譲コンストラクタを取り除く。
+	 * <p>
+	 * {@link #createInheritedClass(CtClass)}は親クラスのすべての公開コンストラクタに対して移譲コンストラクタを宣言するが、
+	 * 拡張されたプロダクトクラスのインスタンスはファクトリ内のインスタンス生成式からのみ作成される。
+	 * このメソッドは、{@code factoryAspects}が実際に起動するもの以外の移譲コンストラクタをすべて取り除き、
+	 * 生成されるクラスを小さくする。
+	 * </p>
+	 * @param productsToBeEnhanced
+	 *      拡張されるべきプロダクトクラスの一覧 ({@code base -> toBeEnhanced})
+	 * @param factoryAspects ファクトリに埋め込まれたアスペクトの一覧、ひとつも存在しない場合は{@code null}
+	 * @return 取り除いたコンストラクタの個数
+	 * @throws EnhanceException コンストラクタの除去に失敗した場合
+	 * @throws NullPointerException {@code productsToBeEnhanced}に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public static int pruneDelegateConstructors(
+			Map<? extends CtClass, ? extends CtClass> productsToBeEnhanced,
+			AspectList<CtConstructor> factoryAspects) throws EnhanceException {
+		if (productsToBeEnhanced == null) {
+			throw new NullPointerException("productsToBeEnhanced"); //$NON-NLS-1$
+		}
+		Set<String> used = new HashSet<String>();
+		if (factoryAspects != null) {
+			for (Aspect<CtConstructor> aspect : factoryAspects) {
+				CtConstructor actual = aspect.getActual();
+				used.add(actual.getDeclaringClass().getName() + actual.getSignature());
+			}
+		}
+		int count = 0;
+		for (CtClass enhanced : productsToBeEnhanced.values()) {
+			for (CtConstructor constructor : enhanced.getDeclaredConstructors()) {
+				if (used.contains(enhanced.getName() + constructor.getSignature())) {
+					continue;
+				}
+				LOG.debug("Prune delegate constructor: {}{}", enhanced.getName(), constructor.getSignature());
+				try {
+					enhanced.removeConstructor(constructor);
+				} catch (NotFoundException e) {
+					throw new EnhanceException(MessageFormat.format("Cannot remove constructor ({0})", constructor
+						.getLongName()), e);
+				}
+				count++;
+			}
+		}
+		return count;
+	}
+	
 	/**
 	 * ポイントカットメソッドが参照するアドバイステーブルを保持するフィールド拡張クラス上に作成して返す。
 	 * <p>
@@ -849,15 +942,28 @@ public class EnhanceManipulator {
 	
 	/**
 	 * 指定のクラス名に対する拡張クラスの名称を返す。
+	 * <p>
+	 * 指定のプールがクラスを定義するローダが{@link EmptyClassLoader}である場合、
+	 * 返す名称はそのローダ上で予約され、同じローダを共有する他の拡張が生成するクラスと衝突しない。
+	 * </p>
+	 * @param pool 拡張クラスを作成するプール
 	 * @param name 対象のクラス名
 	 * @return 拡張クラスの名称
 	 */
-	private static String getEnhanceClassName(String name) {
+	private static String getEnhanceClassName(ClassPool pool, String name) {
+		assert pool != null;
 		assert name != null;
+		String candidate;
 		if (AVOID_NAME_PATTERN.matcher(name).matches()) {
-			return ENHANCE_CLASS + name;
+			candidate = ENHANCE_CLASS + name;
+		} else {
+			candidate = name + ENHANCE_CLASS;
+		}
+		ClassLoader loader = pool.getClassLoader();
+		if (loader instanceof EmptyClassLoader) {
+			return ((EmptyClassLoader) loader).reserve(candidate);
 		}
-		return name + ENHANCE_CLASS;
+		return candidate;
 	}
 	
 	/**
@@ -903,16 +1009,23 @@ public class EnhanceManipulator {
 	 * ポイントカットメソッドが実行するアドバイスは、
 	 * {@link #createAdviceTableField(CtClass)}によって作成されるフィールドに含まれている。
 	 * </p>
+	 * <p>
+	 * インスタンス生成式は可能な限り{@link BytecodeStubs#patchNewExpr(NewExpr, CtClass, CtField, int, String)}
+	 * によって同じ長さの命令列に直接書き換えられ、その際に必要となる静的メソッドが返される。
+	 * 返されたメソッドは、インスタンス生成式の走査を終えたのちに{@code holder}の宣言クラスへ追加しなければならない。
+	 * 直接書き換えられない形のインスタンス生成式は、Javassistのコンパイラを利用して書き換え、{@code null}を返す。
+	 * </p>
 	 * @param target フックする対象のインスタンス生成式
 	 * @param resultType 生成するインスタンス型の上限境界
 	 * 		(本来実行するインスタンス生成式に対して、拡張前のプログラムが要求する型がインスタンス型のスーパータイプである可能性がある)
 	 * @param holder アドバイスを保持するフィールド
 	 * @param index 拡張番号
+	 * @return 書き換えた式が呼び出す、追加するべき静的メソッド、存在しない場合は{@code null}
 	 * @throws CannotCompileException コンパイルに失敗した場合
 	 * @throws NullPointerException 引数に{@code null}が指定された場合
 	 * @since 0.2.0
 	 */
-	public static void replaceToPointcut(
+	public static CtMethod replaceToPointcut(
 			NewExpr target,
 			CtClass resultType,
 			CtField holder,
@@ -926,6 +1039,11 @@ public class EnhanceManipulator {
 		if (holder == null) {
 			throw new NullPointerException("holder is null"); //$NON-NLS-1$
 		}
+		CtMethod helper = BytecodeStubs.patchNewExpr(target, resultType, holder, index,
+				String.format("%08d%s", index, NEW_INSTANCE_METHOD)); //$NON-NLS-1$
+		if (helper != null) {
+			return helper;
+		}
 		CtBehavior contextBehaviour = target.where();
 		if (isStatic(contextBehaviour)) {
 			target.replace(String.format("$_ = (%s) %s[%d].invoke(%s, $args);", //$NON-NLS-1$
@@ -939,6 +1057,7 @@ public class EnhanceManipulator {
 					holder.getName(),
 					index));
 		}
+		return null;
 	}
 	
 	/**
@@ -1005,7 +1124,7 @@ public class EnhanceManipulator {
 		CtField holder = null;
 		int enhanceIndex = 0;
 		// FIXME override check
-		for (CtMethod method : base.getMethods()) {
+		for (CtMethod method : TypeHierarchyCache.of(base.getClassPool()).getMethods(base)) {
 			if (enhanceManager.isLegalJoinpoint(method) == false) {
 				continue;
 			}
@@ -1020,7 +1139,7 @@ public class EnhanceManipulator {
 			}
 			assert holder != null;
 			CtMethod bypass = createBypassMethod(enhance, method, enhanceIndex);
-			createPointcutMethod(enhance, method, holder, enhanceIndex);
+			createPointcutMethod(enhance, method, holder, enhanceIndex, isGuarded(handlers));
 			results.add(new Aspect<CtMethod>(method, bypass, handlers));
 			enhanceIndex++;
 		}
@@ -1034,11 +1153,26 @@ public class EnhanceManipulator {
 		}
 	}
 	
+	/**
+	 * 指定のハンドラ一覧が、呼び出しごとに適用を判定するハンドラを含む場合のみ{@code true}を返す。
+	 * @param handlers 対象のハンドラ一覧
+	 * @return 判定を行うハンドラを含む場合に{@code true}
+	 */
+	private static boolean isGuarded(List<InvocationHandler> handlers) {
+		assert handlers != null;
+		for (InvocationHandler handler : handlers) {
+			if (handler instanceof GuardedInvocationHandler) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	private static boolean isSubtype(CtClass subtype, CtClass supertype) {
 		assert subtype != null;
 		assert supertype != null;
 		try {
-			return subtype.subtypeOf(supertype);
+			return TypeHierarchyCache.of(subtype.getClassPool()).isSubtype(subtype, supertype);
 		} catch (NotFoundException e) {
 			return false;
 		}
@@ -1058,6 +1192,9 @@ public class EnhanceManipulator {
 	
 	/**
 	 * 指定のファクトリクラスをVM上にインストールする。
+	 * <p>
+	 * この呼び出しは、インストールしたクラスが利用するハンドラの一覧を新しく作成したテーブルに保持する。
+	 * </p>
 	 * @param converter {@link java.lang.Class}と{@link javassist.CtClass}を相互に変換する
 	 * @param targetFactory ファクトリクラスの実装
 	 * @param targetProducts 拡張されるべきプロダクトクラスの一覧 ({@code base -> toBeEnhanced})
@@ -1073,9 +1210,38 @@ public class EnhanceManipulator {
 			Map<CtClass, CtClass> targetProducts,
 			AspectList<CtConstructor> factoryAspects, // can be null
 			Map<CtClass, AspectList<CtMethod>> allProductAspects) throws EnhanceException {
+		return install(converter, new HandlerTable(), targetFactory, targetProducts, factoryAspects,
+				allProductAspects);
+	}
+	
+	/**
+	 * 指定のファクトリクラスをVM上にインストールする。
+	 * <p>
+	 * インストールしたクラスが利用するハンドラの一覧は、すべて{@code handlerTable}に登録される。
+	 * </p>
+	 * @param converter {@link java.lang.Class}と{@link javassist.CtClass}を相互に変換する
+	 * @param handlerTable ハンドラの一覧を登録するテーブル
+	 * @param targetFactory ファクトリクラスの実装
+	 * @param targetProducts 拡張されるべきプロダクトクラスの一覧 ({@code base -> toBeEnhanced})
+	 * @param factoryAspects ファクトリに実際に埋め込まれるべきアスペクトの一覧、ひとつも存在しない場合は{@code null}
+	 * @param allProductAspects それぞれのプロダクトクラスに対するメソッドアスペクトの一覧 ({@code base -> aspect for each method})、
+	 * @return ロードしたファクトリクラス
+	 * @throws EnhanceException いずれかのロードに失敗した場合 
+	 * @since 0.2.1
+	 */
+	public static Class<?> install(
+			JavassistConverter converter,
+			HandlerTable handlerTable,
+			CtClass targetFactory,
+			Map<CtClass, CtClass> targetProducts,
+			AspectList<CtConstructor> factoryAspects, // can be null
+			Map<CtClass, AspectList<CtMethod>> allProductAspects) throws EnhanceException {
 		if (converter == null) {
 			throw new NullPointerException("converter is null"); //$NON-NLS-1$
 		}
+		if (handlerTable == null) {
+			throw new NullPointerException("handlerTable is null"); //$NON-NLS-1$
+		}
 		if (targetFactory == null) {
 			throw new NullPointerException("targetFactory is null"); //$NON-NLS-1$
 		}
@@ -1087,7 +1253,8 @@ public class EnhanceManipulator {
 		}
 		
 		LOG.trace("Installing: {}", targetFactory.getName());
-		Map<CtClass, CtClass> restProducts = loadAndInitializeProducts(converter, targetProducts, allProductAspects);
+		Map<CtClass, CtClass> restProducts =
+				loadAndInitializeProducts(converter, handlerTable, targetProducts, allProductAspects);
 		for (CtClass enhanced : restProducts.values()) {
 			LOG.debug("Installing an enhanced product: {}", enhanced.getName());
 			converter.toClass(enhanced);
@@ -1096,17 +1263,136 @@ public class EnhanceManipulator {
 		LOG.debug("Installing the enhanced factory: {}", targetFactory.getName());
 		Class<?> result = converter.toClass(targetFactory);
 		if (factoryAspects != null) {
-			registerAdviceTable(result, converter.toConstructorAspects(factoryAspects));
+			registerAdviceTable(result, converter.toConstructorAspects(factoryAspects, handlerTable));
+		}
+		return result;
+	}
+	
+	/**
+	 * 指定のファクトリクラスをVM上にインストールし、拡張されたプロダクトクラスのインストールを遅延させる。
+	 * <p>
+	 * このメソッドは、拡張されたプロダクトクラスへのポイントカットの織り込みと、それらのVM上への定義を行わない。
+	 * 代わりに、ファクトリ内のインスタンス生成式が最初に実行された時点で、
+	 * 生成するプロダクトに対応する{@link LazyProductInstaller}を利用してそれらを行う。
+	 * そのため、{@code factoryAspects}は拡張されたプロダクトクラスを生成するすべてのインスタンス生成式を含み、
+	 * かつ拡張されたプロダクトクラスにはポイントカットがまだ織り込まれていない必要がある。
+	 * </p>
+	 * <p>
+	 * その他については{@link #install(JavassistConverter, HandlerTable, CtClass, Map, AspectList, Map)}と同様である。
+	 * </p>
+	 * @param converter {@link java.lang.Class}と{@link javassist.CtClass}を相互に変換する
+	 * @param handlerTable ハンドラの一覧を登録するテーブル
+	 * @param enhanceManager 拡張の定義
+	 * @param targetFactory ファクトリクラスの実装
+	 * @param targetProducts 拡張されるべきプロダクトクラスの一覧 ({@code base -> toBeEnhanced})
+	 * @param factoryAspects ファクトリに実際に埋め込まれるべきアスペクトの一覧、ひとつも存在しない場合は{@code null}
+	 * @return ロードしたファクトリクラス
+	 * @throws EnhanceException ファクトリクラスのロードに失敗した場合
+	 * @since 0.2.1
+	 */
+	public static Class<?> installLazily(
+			JavassistConverter converter,
+			HandlerTable handlerTable,
+			EnhanceManager enhanceManager,
+			CtClass targetFactory,
+			Map<CtClass, CtClass> targetProducts,
+			AspectList<CtConstructor> factoryAspects) throws EnhanceException {
+		if (converter == null) {
+			throw new NullPointerException("converter is null"); //$NON-NLS-1$
+		}
+		if (handlerTable == null) {
+			throw new NullPointerException("handlerTable is null"); //$NON-NLS-1$
+		}
+		if (enhanceManager == null) {
+			throw new NullPointerException("enhanceManager is null"); //$NON-NLS-1$
+		}
+		if (targetFactory == null) {
+			throw new NullPointerException("targetFactory is null"); //$NON-NLS-1$
+		}
+		if (targetProducts == null) {
+			throw new NullPointerException("targetProducts is null"); //$NON-NLS-1$
+		}
+		
+		LOG.trace("Installing lazily: {}", targetFactory.getName());
+		Map<CtClass, LazyProductInstaller> installers = new HashMap<CtClass, LazyProductInstaller>();
+		for (Map.Entry<CtClass, CtClass> entry : targetProducts.entrySet()) {
+			CtClass enhanced = entry.getValue();
+			installers.put(enhanced, new LazyProductInstaller(converter, handlerTable, enhanceManager, entry.getKey(),
+					enhanced));
+		}
+		
+		LOG.debug("Installing the enhanced factory: {}", targetFactory.getName());
+		Class<?> result = converter.toClass(targetFactory);
+		if (factoryAspects != null) {
+			registerAdviceTable(result, converter.toConstructorAspects(factoryAspects, handlerTable, installers));
 		}
 		return result;
 	}
 	
+	/**
+	 * 拡張されたプロダクトクラスにポイントカットを織り込み、VM上にインストールする。
+	 * <p>
+	 * 織り込んだポイントカットが利用するハンドラの一覧は、すべて{@code handlerTable}に登録される。
+	 * インストールの成否にかかわらず、{@code base}と{@code enhanced}は{@code converter}のキャッシュから取り除かれる。
+	 * 織り込みは{@code enhanced}を直接変更するため、インストールに失敗した場合に同じクラスで再度試みてはならない。
+	 * </p>
+	 * @param converter {@link java.lang.Class}と{@link javassist.CtClass}を相互に変換する
+	 * @param handlerTable ハンドラの一覧を登録するテーブル
+	 * @param enhanceManager 拡張の定義
+	 * @param base 拡張される前のプロダクトクラス
+	 * @param enhanced 拡張されたプロダクトクラス
+	 * @return ロードしたプロダクトクラス
+	 * @throws EnhanceException 織り込みまたはロードに失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public static Class<?> installProduct(
+			JavassistConverter converter,
+			HandlerTable handlerTable,
+			EnhanceManager enhanceManager,
+			CtClass base,
+			CtClass enhanced) throws EnhanceException {
+		if (converter == null) {
+			throw new NullPointerException("converter is null"); //$NON-NLS-1$
+		}
+		if (handlerTable == null) {
+			throw new NullPointerException("handlerTable is null"); //$NON-NLS-1$
+		}
+		if (enhanceManager == null) {
+			throw new NullPointerException("enhanceManager is null"); //$NON-NLS-1$
+		}
+		if (base == null) {
+			throw new NullPointerException("base is null"); //$NON-NLS-1$
+		}
+		if (enhanced == null) {
+			throw new NullPointerException("enhanced is null"); //$NON-NLS-1$
+		}
+		try {
+			AspectList<CtMethod> aspects = weavePointcutIntoSingleProduct(enhanceManager, base, enhanced);
+			LOG.debug("Installing an enhanced product: {}", enhanced.getName());
+			Class<?> result;
+			if (aspects == null) {
+				result = converter.toClass(enhanced);
+			} else {
+				AdviceTable table = converter.toMethodAspects(aspects, handlerTable);
+				result = converter.toClass(enhanced);
+				registerAdviceTable(result, table);
+			}
+			return result;
+		} finally {
+			// 遅延されたプロダクトは他のクラスから参照されないため、インストール後ただちに解放する
+			converter.release(enhanced);
+			converter.release(base);
+		}
+	}
+	
 	/**
 	 * 拡張されるプロダクトの一覧をロードしたのち、それぞれを初期化する。
 	 * <p>
 	 * {@code productAspects.base IN productsToBeEnhanced.base}
 	 * </p>
 	 * @param converter Javassistを利用してCtClassとClassを相互に変換するオブジェクト
+	 * @param handlerTable ハンドラの一覧を登録するテーブル
 	 * @param productsToBeEnhanced
 	 *      拡張されるべきプロダクトクラスの一覧 ({@code base -> toBeEnhanced})
 	 * @param allProductAspects
@@ -1119,6 +1405,7 @@ public class EnhanceManipulator {
 	 */
 	private static Map<CtClass, CtClass> loadAndInitializeProducts(
 			JavassistConverter converter,
+			HandlerTable handlerTable,
 			Map<CtClass, CtClass> productsToBeEnhanced,
 			Map<CtClass, AspectList<CtMethod>> allProductAspects) throws EnhanceException {
 		assert productsToBeEnhanced != null;
@@ -1131,7 +1418,7 @@ public class EnhanceManipulator {
 			AspectList<CtMethod> aspects = entry.getValue();
 			CtClass enhanced = rest.remove(orig);
 			LOG.debug("Installing an enhanced product: {}", enhanced.getName());
-			AdviceTable table = converter.toMethodAspects(aspects);
+			AdviceTable table = converter.toMethodAspects(aspects, handlerTable);
 			registerAdviceTable(converter.toClass(enhanced), table);
 		}
 		return rest;
@@ -1181,6 +1468,8 @@ public class EnhanceManipulator {
 		
 		private final Set<CtClass> maximallySpecificTypes;
 		
+		private final TypeHierarchyCache hierarchy;
+		
 		final String name;
 		
 		final String parameters;
@@ -1189,10 +1478,13 @@ public class EnhanceManipulator {
 		/**
 		 * インスタンスを生成する。
 		 * @param method グループの最初のメンバとなるメソッド
+		 * @param hierarchy 戻り値型の比較に利用する型階層のキャッシュ
 		 * @throws NotFoundException 型の解決に失敗した場合
 		 */
-		public MethodGroup(CtMethod method) throws NotFoundException {
+		public MethodGroup(CtMethod method, TypeHierarchyCache hierarchy) throws NotFoundException {
 			assert method != null;
+			assert hierarchy != null;
+			this.hierarchy = hierarchy;
 			returnTypeAndMethods = new HashMap<CtClass, CtMethod>();
 			maximallySpecificTypes = new HashSet<CtClass>();
 			name = method.getName();
@@ -1299,7 +1591,7 @@ public class EnhanceManipulator {
 			for (Iterator<CtClass> iter = maximallySpecificTypes.iterator(); iter.hasNext();) {
 				CtClass currentSpecific = iter.next();
 				assert type.equals(currentSpecific) == false;
-				if (type.subtypeOf(currentSpecific)) {
+				if (hierarchy.isSubtype(type, currentSpecific)) {
 					iter.remove();
 					specific = true;
 				}
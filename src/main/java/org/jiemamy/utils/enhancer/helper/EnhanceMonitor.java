@@ -0,0 +1,339 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javassist.CtClass;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.MethodInfo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.EnhanceListener;
+import org.jiemamy.utils.enhancer.EnhancePhaseReport;
+import org.jiemamy.utils.enhancer.EnhanceReport;
+import org.jiemamy.utils.enhancer.GeneratedClassReport;
+
+/**
+ * ひとつのファクトリに対する拡張の各段階を計測し、{@link EnhanceListener}に通知する。
+ * <p>
+ * 各段階の情報は、登録されたリスナーに加えて{@link FlightRecorderSupport}にも記録される。
+ * 割り当てられたヒープの量は、{@code com.sun.management.ThreadMXBean}が利用可能な環境でのみ計測される。
+ * また、ヒープ使用量の最大値は、拡張の開始時と各段階の終了時にヒープ使用量を観測して求める。
+ * </p>
+ * <p>
+ * このクラスのインスタンスは、拡張を行うスレッドからのみ利用しなければならない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class EnhanceMonitor {
+	
+	/**
+	 * 書き込まれたバイト数のみを数える出力ストリーム。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		
+		int count;
+		
+
+		CountingOutputStream() {
+			super();
+		}
+		
+		@Override
+		public void write(int b) {
+			count++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+	
+
+	private static final Logger LOG = LoggerFactory.getLogger(EnhanceMonitor.class);
+	
+	private static final Object THREAD_BEAN;
+	
+	private static final Method GET_ALLOCATED_BYTES;
+	
+	static {
+		Object bean = null;
+		Method method = null;
+		try {
+			Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean"); //$NON-NLS-1$
+			bean = ManagementFactory.getThreadMXBean();
+			if (beanClass.isInstance(bean)
+					&& Boolean.TRUE.equals(beanClass.getMethod("isThreadAllocatedMemorySupported").invoke(bean)) //$NON-NLS-1$
+					&& Boolean.TRUE.equals(beanClass.getMethod("isThreadAllocatedMemoryEnabled").invoke(bean))) { //$NON-NLS-1$
+				method = beanClass.getMethod("getThreadAllocatedBytes", long.class); //$NON-NLS-1$
+			}
+		} catch (Exception e) {
+			LOG.debug("Thread allocation counter is not available", e);
+			method = null;
+		} catch (LinkageError e) {
+			LOG.debug("Thread allocation counter is not available", e);
+			method = null;
+		}
+		THREAD_BEAN = bean;
+		GET_ALLOCATED_BYTES = method;
+	}
+	
+	private final String factoryName;
+	
+	private final List<EnhanceListener> listeners;
+	
+	private final long startedAt;
+	
+	private final long startAllocated;
+	
+	private String currentPhase;
+	
+	private long phaseStartedAt;
+	
+	private long phaseStartAllocated;
+	
+	private long peakHeapUsage;
+	
+
+	/**
+	 * インスタンスを生成し、拡張全体の計測を開始する。
+	 * @param factoryName 拡張の対象となるファクトリの名前
+	 * @param listeners 通知先のリスナー一覧
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public EnhanceMonitor(String factoryName, List<? extends EnhanceListener> listeners) {
+		super();
+		if (factoryName == null) {
+			throw new NullPointerException("factoryName"); //$NON-NLS-1$
+		}
+		if (listeners == null) {
+			throw new NullPointerException("listeners"); //$NON-NLS-1$
+		}
+		this.factoryName = factoryName;
+		this.listeners = new ArrayList<EnhanceListener>(listeners);
+		this.peakHeapUsage = getHeapUsage();
+		this.startAllocated = getAllocatedBytes();
+		this.startedAt = System.nanoTime();
+	}
+	
+	/**
+	 * 拡張の段階の計測を開始する。
+	 * <p>
+	 * 段階の終了時には{@link #end(int)}を呼び出す。
+	 * 途中で例外が発生し、{@link #end(int)}が呼び出されなかった場合、その段階は通知されない。
+	 * </p>
+	 * @param phaseName 段階の名前
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public void begin(String phaseName) {
+		if (phaseName == null) {
+			throw new NullPointerException("phaseName"); //$NON-NLS-1$
+		}
+		currentPhase = phaseName;
+		phaseStartAllocated = getAllocatedBytes();
+		phaseStartedAt = System.nanoTime();
+	}
+	
+	/**
+	 * {@link #begin(String)}で開始した段階の計測を終了し、その情報を通知する。
+	 * @param count この段階で処理した要素の個数
+	 * @throws IllegalStateException 段階が開始されていない場合
+	 */
+	public void end(int count) {
+		long elapsed = System.nanoTime() - phaseStartedAt;
+		long allocated = allocatedSince(phaseStartAllocated);
+		if (currentPhase == null) {
+			throw new IllegalStateException("No phases are started"); //$NON-NLS-1$
+		}
+		EnhancePhaseReport report = new EnhancePhaseReport(factoryName, currentPhase, count, elapsed, allocated);
+		currentPhase = null;
+		sampleHeapUsage();
+		LOG.trace("Enhance phase completed: {}", report);
+		FlightRecorderSupport.phaseCompleted(report);
+		for (EnhanceListener listener : listeners) {
+			listener.phaseCompleted(report);
+		}
+	}
+	
+	/**
+	 * 拡張によって生成されたクラスの情報を通知する。
+	 * <p>
+	 * 通知先のリスナーが存在しない場合、この呼び出しはクラスファイルの大きさを計算しない。
+	 * </p>
+	 * @param generated 生成されたクラス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public void generated(CtClass generated) {
+		if (generated == null) {
+			throw new NullPointerException("generated"); //$NON-NLS-1$
+		}
+		if (listeners.isEmpty()) {
+			return;
+		}
+		ClassFile classFile = generated.getClassFile2();
+		int bytecodeSize = getBytecodeSize(classFile);
+		int maxMethodSize = 0;
+		List<String> oversizedMethods = new ArrayList<String>();
+		for (Object element : classFile.getMethods()) {
+			MethodInfo method = (MethodInfo) element;
+			CodeAttribute code = method.getCodeAttribute();
+			if (code == null) {
+				continue;
+			}
+			int length = code.getCodeLength();
+			maxMethodSize = Math.max(maxMethodSize, length);
+			if (length > EnhanceManipulator.MAX_INLINE_SIZE && method.isMethod()) {
+				oversizedMethods.add(method.getName() + method.getDescriptor());
+			}
+		}
+		GeneratedClassReport report = new GeneratedClassReport(
+				factoryName,
+				generated.getName(),
+				bytecodeSize,
+				classFile.getConstPool().getSize(),
+				maxMethodSize,
+				oversizedMethods);
+		for (EnhanceListener listener : listeners) {
+			listener.classGenerated(report);
+		}
+	}
+	
+	/**
+	 * 拡張全体の計測を終了し、その情報を通知する。
+	 * @param productCount 拡張したプロダクトクラスの個数
+	 * @param joinpointCount ハンドラが適用されるジョインポイントの個数
+	 * @param adviceTableSize 生成されたすべてのアドバイステーブルのエントリ数の合計
+	 */
+	public void completed(int productCount, int joinpointCount, int adviceTableSize) {
+		long elapsed = System.nanoTime() - startedAt;
+		long allocated = allocatedSince(startAllocated);
+		sampleHeapUsage();
+		EnhanceReport report =
+				new EnhanceReport(factoryName, productCount, joinpointCount, adviceTableSize, elapsed, allocated,
+						peakHeapUsage);
+		LOG.debug("Enhance completed: {}", report);
+		for (EnhanceListener listener : listeners) {
+			listener.enhanceCompleted(report);
+		}
+	}
+	
+	/**
+	 * アドバイステーブルのエントリ数の合計を返す。
+	 * @param factoryAspects ファクトリに埋め込まれたアスペクトの一覧、ひとつも存在しない場合は{@code null}
+	 * @param allProductAspects それぞれのプロダクトクラスに対するメソッドアスペクトの一覧
+	 * @return アドバイステーブルのエントリ数の合計
+	 * @throws NullPointerException {@code allProductAspects}に{@code null}が指定された場合
+	 */
+	public static int countAdvices(AspectList<?> factoryAspects,
+			Map<?, ? extends AspectList<?>> allProductAspects) {
+		if (allProductAspects == null) {
+			throw new NullPointerException("allProductAspects"); //$NON-NLS-1$
+		}
+		int count = factoryAspects == null ? 0 : factoryAspects.getAdviceTableSize();
+		for (AspectList<?> aspects : allProductAspects.values()) {
+			count += aspects.getAdviceTableSize();
+		}
+		return count;
+	}
+	
+	/**
+	 * 指定のクラスファイルを書き出した際の大きさを返す。
+	 * @param classFile 対象のクラスファイル
+	 * @return 書き出した際の大きさ (バイト)
+	 */
+	static int getBytecodeSize(ClassFile classFile) {
+		assert classFile != null;
+		CountingOutputStream counter = new CountingOutputStream();
+		try {
+			classFile.write(new DataOutputStream(counter));
+		} catch (IOException e) {
+			// may not occur
+			throw new AssertionError(e);
+		}
+		return counter.count;
+	}
+	
+	private void sampleHeapUsage() {
+		long current = getHeapUsage();
+		if (current > peakHeapUsage) {
+			peakHeapUsage = current;
+		}
+	}
+	
+	private static long getHeapUsage() {
+		try {
+			return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		} catch (RuntimeException e) {
+			LOG.debug("Failed to get heap usage", e);
+			return -1;
+		}
+	}
+	
+	private static long allocatedSince(long start) {
+		if (start < 0) {
+			return -1;
+		}
+		long current = getAllocatedBytes();
+		if (current < 0) {
+			return -1;
+		}
+		return current - start;
+	}
+	
+	private static long getAllocatedBytes() {
+		if (GET_ALLOCATED_BYTES == null) {
+			return -1;
+		}
+		try {
+			Object result = GET_ALLOCATED_BYTES.invoke(THREAD_BEAN, Thread.currentThread().getId());
+			return ((Long) result).longValue();
+		} catch (IllegalAccessException e) {
+			LOG.debug("Failed to get allocated bytes", e);
+			return -1;
+		} catch (InvocationTargetException e) {
+			LOG.debug("Failed to get allocated bytes", e.getCause());
+			return -1;
+		}
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("EnhanceMonitor({0})", //$NON-NLS-1$
+				factoryName);
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtMethod;
+import javassist.NotFoundException;
+import javassist.bytecode.Descriptor;
+import javassist.expr.ExprEditor;
+import javassist.expr.NewExpr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.EnhanceException;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+import org.jiemamy.utils.enhancer.ProductPlan;
+
+/**
+ * クラスのコンパイルや定義を行わずに、拡張の計画を作成する。
+ * <p>
+ * このクラスは{@link EnhanceManipulator}や{@link NewInstanceEnhancer}と同じ条件でジョインポイントを判定するが、
+ * 対象のクラスには何も織り込まない。
+ * クラスファイルの大きさは、生成されるメソッドやコンストラクタの個数から概算する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class EnhancePlanner extends ExprEditor {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(EnhancePlanner.class);
+	
+	/**
+	 * 拡張プロダクトクラスの、メソッドやコンストラクタを除いた大きさの概算 (バイト)。
+	 */
+	private static final int PRODUCT_CLASS_SIZE = 320;
+	
+	/**
+	 * 移譲コンストラクタひとつあたりの大きさの概算 (バイト)。
+	 */
+	private static final int CONSTRUCTOR_SIZE = 48;
+	
+	/**
+	 * ポイントカットメソッドと迂回メソッドの組ひとつあたりの大きさの概算 (バイト)。
+	 */
+	private static final int JOINPOINT_SIZE = 176;
+	
+	/**
+	 * ジョインポイントの仮引数ひとつあたりに追加される大きさの概算 (バイト)。
+	 */
+	private static final int PARAMETER_SIZE = 12;
+	
+	/**
+	 * 書き換えられるインスタンス生成ひとつあたりに追加される大きさの概算 (バイト)。
+	 */
+	private static final int NEW_SITE_SIZE = 72;
+	
+	/**
+	 * アドバイステーブルを保持するフィールドと、その初期化に必要な大きさの概算 (バイト)。
+	 */
+	private static final int ADVICE_TABLE_SIZE = 64;
+	
+
+	/**
+	 * 指定のプロダクトクラスに対する拡張の計画を作成する。
+	 * <p>
+	 * {@code base}がインターフェースである場合、そのインターフェースを実装するプロダクトクラスに対する計画を作成する。
+	 * </p>
+	 * @param enhanceManager 拡張の定義
+	 * @param base 拡張される前のプロダクトクラス、またはプロダクトインターフェース
+	 * @param constructorCount 拡張プロダクトクラスに生成されるコンストラクタの個数、
+	 *     ファクトリから起動されない移譲コンストラクタは取り除かれるため、それらを含めない
+	 * @return 作成した計画
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static ProductPlan planProduct(EnhanceManager enhanceManager, CtClass base, int constructorCount) {
+		if (enhanceManager == null) {
+			throw new NullPointerException("enhanceManager"); //$NON-NLS-1$
+		}
+		if (base == null) {
+			throw new NullPointerException("base"); //$NON-NLS-1$
+		}
+		List<String> joinpoints = new ArrayList<String>();
+		int size = PRODUCT_CLASS_SIZE + constructorCount * CONSTRUCTOR_SIZE;
+		for (CtMethod method : TypeHierarchyCache.of(base.getClassPool()).getMethods(base)) {
+			if (enhanceManager.isLegalJoinpoint(method) == false) {
+				continue;
+			}
+			List<InvocationHandler> handlers = enhanceManager.findApplicableHandlers(base, method);
+			if (handlers.isEmpty()) {
+				continue;
+			}
+			String descriptor = method.getSignature();
+			joinpoints.add(method.getName() + descriptor);
+			size += JOINPOINT_SIZE + Descriptor.numOfParameters(descriptor) * PARAMETER_SIZE;
+		}
+		if (joinpoints.isEmpty() == false) {
+			size += ADVICE_TABLE_SIZE;
+		}
+		ProductPlan plan = new ProductPlan(base.getName(), joinpoints, size);
+		LOG.trace("Product plan: {}", plan);
+		return plan;
+	}
+	
+	/**
+	 * 指定のファクトリクラスに含まれるインスタンス生成式のうち、拡張によって書き換えられるものの一覧を返す。
+	 * <p>
+	 * 返される一覧のそれぞれの要素は、生成されるクラスとコンストラクタのディスクリプタ、
+	 * およびインスタンス生成式が記述された位置を表す文字列である。
+	 * </p>
+	 * <p>
+	 * また、拡張されるプロダクトクラスのインスタンス生成式が起動するコンストラクタのディスクリプタを、
+	 * プロダクトクラスの名前ごとに{@code constructors}に追加する。
+	 * 拡張プロダクトクラスの移譲コンストラクタのうち、これらに含まれないものは
+	 * {@link EnhanceManipulator#pruneDelegateConstructors(Map, AspectList)}によって取り除かれるため、
+	 * {@link #planProduct(EnhanceManager, CtClass, int)}にはこの個数を指定する。
+	 * </p>
+	 * @param factory 対象のファクトリクラス
+	 * @param enhanceManager 拡張の定義
+	 * @param productNames 拡張されるプロダクトクラスの名前の一覧
+	 * @param constructors 起動されるコンストラクタのディスクリプタを格納するマップ
+	 *     ({@code product name -> constructor descriptors})
+	 * @return 書き換えられるインスタンス生成式の一覧
+	 * @throws EnhanceException インスタンス生成式の解析に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static List<String> collectNewSites(CtClass factory, EnhanceManager enhanceManager,
+			Set<String> productNames, Map<String, Set<String>> constructors) throws EnhanceException {
+		if (factory == null) {
+			throw new NullPointerException("factory"); //$NON-NLS-1$
+		}
+		if (enhanceManager == null) {
+			throw new NullPointerException("enhanceManager"); //$NON-NLS-1$
+		}
+		if (productNames == null) {
+			throw new NullPointerException("productNames"); //$NON-NLS-1$
+		}
+		if (constructors == null) {
+			throw new NullPointerException("constructors"); //$NON-NLS-1$
+		}
+		try {
+			EnhancePlanner planner = new EnhancePlanner(enhanceManager, productNames, constructors);
+			factory.instrument(planner);
+			return planner.newSites;
+		} catch (CannotCompileException e) {
+			throw new EnhanceException(MessageFormat.format(
+					"Cannot collect instance creations from {0}",
+					factory.getName()),
+					e);
+		}
+	}
+	
+	/**
+	 * 指定のファクトリインターフェースを実装する際に生成される、インスタンス生成の一覧を返す。
+	 * <p>
+	 * ファクトリインターフェースのそれぞれのメソッドは、対応するプロダクトクラスのインスタンスを生成する。
+	 * 返される一覧の要素は、{@link #collectNewSites(CtClass, EnhanceManager, Set)}と同様の形式であるが、
+	 * コンストラクタのディスクリプタと行番号を含まない。
+	 * </p>
+	 * @param factoryInterface 対象のファクトリインターフェース
+	 * @return 生成されるインスタンス生成の一覧
+	 * @throws EnhanceException ファクトリメソッドの解析に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static List<String> listFactoryMethods(CtClass factoryInterface) throws EnhanceException {
+		if (factoryInterface == null) {
+			throw new NullPointerException("factoryInterface"); //$NON-NLS-1$
+		}
+		List<String> results = new ArrayList<String>();
+		for (CtMethod method : factoryInterface.getMethods()) {
+			if (method.getDeclaringClass().getName().equals(Object.class.getName())) {
+				continue;
+			}
+			try {
+				results.add(MessageFormat.format("new {0} at {1}.{2}{3}", //$NON-NLS-1$
+						method.getReturnType().getName(),
+						factoryInterface.getName(),
+						method.getName(),
+						method.getSignature()));
+			} catch (NotFoundException e) {
+				throw new EnhanceException(MessageFormat.format(
+						"Cannot resolve the product of {0}",
+						method.getLongName()),
+						e);
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 拡張されたファクトリクラスのクラスファイルの大きさを概算する。
+	 * @param factory 拡張される前のファクトリクラス、またはファクトリインターフェース
+	 * @param newSiteCount 書き換えられるインスタンス生成の個数
+	 * @return クラスファイルの大きさの概算 (バイト)
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static int estimateFactorySize(CtClass factory, int newSiteCount) {
+		if (factory == null) {
+			throw new NullPointerException("factory"); //$NON-NLS-1$
+		}
+		int size = EnhanceMonitor.getBytecodeSize(factory.getClassFile2()) + newSiteCount * NEW_SITE_SIZE;
+		if (newSiteCount > 0) {
+			size += ADVICE_TABLE_SIZE;
+		}
+		return size;
+	}
+	
+
+	private final EnhanceManager enhanceManager;
+	
+	private final Set<String> productNames;
+	
+	private final Map<String, Set<String>> constructors;
+	
+	private final List<String> newSites;
+	
+
+	private EnhancePlanner(EnhanceManager enhanceManager, Set<String> productNames,
+			Map<String, Set<String>> constructors) {
+		super();
+		assert enhanceManager != null;
+		assert productNames != null;
+		assert constructors != null;
+		this.enhanceManager = enhanceManager;
+		this.productNames = productNames;
+		this.constructors = constructors;
+		this.newSites = new ArrayList<String>();
+	}
+	
+	/**
+	 * 書き換えの対象となるインスタンス生成式を記録する。
+	 */
+	@Override
+	public void edit(NewExpr expr) throws CannotCompileException {
+		try {
+			CtConstructor constructor = expr.getConstructor();
+			if (enhanceManager.isLegalJoinpoint(constructor) == false) {
+				return;
+			}
+			CtClass provider = constructor.getDeclaringClass();
+			if (productNames.contains(provider.getName())) {
+				Set<String> descriptors = constructors.get(provider.getName());
+				if (descriptors == null) {
+					descriptors = new HashSet<String>();
+					constructors.put(provider.getName(), descriptors);
+				}
+				descriptors.add(constructor.getSignature());
+			} else if (enhanceManager.findApplicableHandlers(provider, constructor).isEmpty()) {
+				return;
+			}
+			newSites.add(MessageFormat.format("new {0}{1} at {2}.{3}{4}:{5}", //$NON-NLS-1$
+					provider.getName(),
+					constructor.getSignature(),
+					expr.getEnclosingClass().getName(),
+					expr.where().getName(),
+					expr.where().getSignature(),
+					String.valueOf(expr.getLineNumber())));
+		} catch (NotFoundException e) {
+			throw new CannotCompileException(e);
+		}
+	}
+}
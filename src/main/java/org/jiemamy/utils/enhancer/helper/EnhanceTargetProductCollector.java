@@ -17,8 +17,10 @@ package org.jiemamy.utils.enhancer.helper;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javassist.CannotCompileException;
@@ -78,6 +80,14 @@ public class EnhanceTargetProductCollector extends ExprEditor {
 	
 	private Set<String> saw;
 	
+	/**
+	 * クラスファイルの情報による事前検査の結果。
+	 * <p>
+	 * クラスの名前と、そのクラスをプロダクトの候補から除外したかどうかの組を保持する。
+	 * </p>
+	 */
+	private Map<String, Boolean> rejected;
+	
 
 	/**
 	 * インスタンスを生成する。
@@ -92,6 +102,7 @@ public class EnhanceTargetProductCollector extends ExprEditor {
 		this.enhanceManager = enhanceManager;
 		results = new ArrayList<CtClass>();
 		saw = new HashSet<String>();
+		rejected = new HashMap<String, Boolean>();
 	}
 	
 	/**
@@ -100,6 +111,9 @@ public class EnhanceTargetProductCollector extends ExprEditor {
 	@Override
 	public void edit(NewExpr expr) throws CannotCompileException {
 		LOG.trace("Inspecting new: {}", expr.getClassName());
+		if (isRejected(expr)) {
+			return;
+		}
 		CtClass declaringClass;
 		try {
 			CtConstructor constructor = expr.getConstructor();
@@ -123,4 +137,30 @@ public class EnhanceTargetProductCollector extends ExprEditor {
 			throw new CannotCompileException(e);
 		}
 	}
+	
+	/**
+	 * 指定のインスタンス生成式で生成されるクラスを、クラスファイルの情報のみによってプロダクトの候補から除外できる場合に
+	 * {@code true}を返す。
+	 * <p>
+	 * この判定には{@link javassist.CtClass}を利用しないため、除外したクラスとその親クラスはロードされない。
+	 * クラスファイルを直接読み出せない場合は{@code false}を返す。
+	 * </p>
+	 * @param expr 対象のインスタンス生成式
+	 * @return 除外できる場合に{@code true}、そうでない場合は{@code false}
+	 */
+	private boolean isRejected(NewExpr expr) {
+		assert expr != null;
+		String className = expr.getClassName();
+		Boolean cached = rejected.get(className);
+		if (cached != null) {
+			return cached;
+		}
+		ClassMetadata metadata = ClassMetadata.find(expr.getEnclosingClass().getClassPool(), className);
+		boolean result = metadata != null && enhanceManager.isCandidateProduct(metadata) == false;
+		if (result) {
+			LOG.trace("Rejected by class file: {}", className);
+		}
+		rejected.put(className, result);
+		return result;
+	}
 }
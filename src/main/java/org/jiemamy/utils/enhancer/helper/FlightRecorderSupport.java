@@ -0,0 +1,277 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.EnhancePhaseReport;
+
+/**
+ * JDK Flight Recorder (JFR)にエンハンサのイベントを記録するためのヘルパ。
+ * <p>
+ * このクラスは{@code jdk.jfr.EventFactory}をリフレクションで利用して、次のイベントを動的に定義する。
+ * JFRが利用できない環境では、このクラスの操作はいずれも何も行わない。
+ * </p>
+ * <ul>
+ * <li> {@code org.jiemamy.enhancer.EnhancePhase} - 拡張の各段階の所要時間と割り当てられたヒープの量 </li>
+ * <li> {@code org.jiemamy.enhancer.SlowInvocation} - 閾値を超えて実行されたハンドラ適用済みの呼び出し </li>
+ * </ul>
+ * <p>
+ * それぞれのイベントは、JFRの設定で有効化されている場合のみ記録される。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public final class FlightRecorderSupport {
+	
+	/**
+	 * {@code jdk.jfr.EventFactory}で動的に定義したイベントの種類。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class EventType {
+		
+		private final Object factory;
+		
+
+		EventType(Object factory) {
+			this.factory = factory;
+		}
+		
+		Object newEvent() {
+			if (factory == null) {
+				return null;
+			}
+			Object event = invoke(NEW_EVENT, factory);
+			if (event == null || Boolean.TRUE.equals(invoke(IS_ENABLED, event)) == false) {
+				return null;
+			}
+			return event;
+		}
+		
+		void set(Object event, int index, Object value) {
+			invoke(SET, event, index, value);
+		}
+		
+		void commit(Object event) {
+			if (Boolean.TRUE.equals(invoke(SHOULD_COMMIT, event))) {
+				invoke(COMMIT, event);
+			}
+		}
+	}
+	
+
+	private static final Logger LOG = LoggerFactory.getLogger(FlightRecorderSupport.class);
+	
+	/**
+	 * イベントの分類。
+	 */
+	private static final String[] CATEGORY = {
+		"Jiemamy", //$NON-NLS-1$
+		"Factory Enhancer" //$NON-NLS-1$
+	};
+	
+	private static final String TIMESPAN = "jdk.jfr.Timespan"; //$NON-NLS-1$
+	
+	private static final String DATA_AMOUNT = "jdk.jfr.DataAmount"; //$NON-NLS-1$
+	
+	private static final Method NEW_EVENT;
+	
+	private static final Method IS_ENABLED;
+	
+	private static final Method SET;
+	
+	private static final Method SHOULD_COMMIT;
+	
+	private static final Method COMMIT;
+	
+	static final EventType PHASE;
+	
+	static final EventType SLOW_INVOCATION;
+	
+	static {
+		Method newEvent = null;
+		Method isEnabled = null;
+		Method set = null;
+		Method shouldCommit = null;
+		Method commit = null;
+		Object phase = null;
+		Object slowInvocation = null;
+		try {
+			Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory"); //$NON-NLS-1$
+			Class<?> eventClass = Class.forName("jdk.jfr.Event"); //$NON-NLS-1$
+			newEvent = factoryClass.getMethod("newEvent"); //$NON-NLS-1$
+			isEnabled = eventClass.getMethod("isEnabled"); //$NON-NLS-1$
+			set = eventClass.getMethod("set", int.class, Object.class); //$NON-NLS-1$
+			shouldCommit = eventClass.getMethod("shouldCommit"); //$NON-NLS-1$
+			commit = eventClass.getMethod("commit"); //$NON-NLS-1$
+			phase = createEventType(
+					"org.jiemamy.enhancer.EnhancePhase", //$NON-NLS-1$
+					"Enhance Phase", //$NON-NLS-1$
+					"A phase of enhancing a factory class", //$NON-NLS-1$
+					field(String.class, "phase", "Phase", null, null), //$NON-NLS-1$ //$NON-NLS-2$
+					field(String.class, "factory", "Factory", null, null), //$NON-NLS-1$ //$NON-NLS-2$
+					field(int.class, "count", "Count", null, null), //$NON-NLS-1$ //$NON-NLS-2$
+					field(long.class, "elapsed", "Elapsed", TIMESPAN, "NANOSECONDS"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					field(long.class, "allocated", "Allocated", DATA_AMOUNT, "BYTES")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			slowInvocation = createEventType(
+					"org.jiemamy.enhancer.SlowInvocation", //$NON-NLS-1$
+					"Slow Invocation", //$NON-NLS-1$
+					"An advised invocation which took longer than the threshold", //$NON-NLS-1$
+					field(String.class, "target", "Target", null, null), //$NON-NLS-1$ //$NON-NLS-2$
+					field(String.class, "invoker", "Invoker", null, null), //$NON-NLS-1$ //$NON-NLS-2$
+					field(long.class, "elapsed", "Elapsed", TIMESPAN, "NANOSECONDS")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		} catch (ClassNotFoundException e) {
+			LOG.debug("JDK Flight Recorder is not available", e);
+			phase = null;
+			slowInvocation = null;
+		} catch (Exception e) {
+			LOG.debug("Failed to define JDK Flight Recorder events", e);
+			phase = null;
+			slowInvocation = null;
+		} catch (LinkageError e) {
+			LOG.debug("Failed to define JDK Flight Recorder events", e);
+			phase = null;
+			slowInvocation = null;
+		}
+		NEW_EVENT = newEvent;
+		IS_ENABLED = isEnabled;
+		SET = set;
+		SHOULD_COMMIT = shouldCommit;
+		COMMIT = commit;
+		PHASE = new EventType(phase);
+		SLOW_INVOCATION = new EventType(slowInvocation);
+	}
+	
+
+	/**
+	 * JDK Flight Recorderが利用可能である場合のみ{@code true}を返す。
+	 * @return JDK Flight Recorderが利用可能である場合に{@code true}
+	 */
+	public static boolean isAvailable() {
+		return PHASE.factory != null;
+	}
+	
+	/**
+	 * 完了した拡張の段階を記録する。
+	 * @param report 完了した段階の情報
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static void phaseCompleted(EnhancePhaseReport report) {
+		if (report == null) {
+			throw new NullPointerException("report"); //$NON-NLS-1$
+		}
+		Object event = PHASE.newEvent();
+		if (event == null) {
+			return;
+		}
+		PHASE.set(event, 0, report.getPhaseName());
+		PHASE.set(event, 1, report.getFactoryName());
+		PHASE.set(event, 2, report.getCount());
+		PHASE.set(event, 3, report.getElapsedNanos());
+		PHASE.set(event, 4, report.getAllocatedBytes());
+		PHASE.commit(event);
+	}
+	
+	/**
+	 * 閾値を超えて実行された呼び出しを記録する。
+	 * @param target 呼び出し対象のメソッドまたはコンストラクタ
+	 * @param invoker 呼び出しを行ったオブジェクト、存在しない場合は{@code null}
+	 * @param elapsedNanos 呼び出しの所要時間 (ナノ秒)
+	 * @throws NullPointerException 呼び出し対象に{@code null}が指定された場合
+	 */
+	public static void slowInvocation(Member target, Object invoker, long elapsedNanos) {
+		if (target == null) {
+			throw new NullPointerException("target"); //$NON-NLS-1$
+		}
+		Object event = SLOW_INVOCATION.newEvent();
+		if (event == null) {
+			return;
+		}
+		SLOW_INVOCATION.set(event, 0, target.toString());
+		SLOW_INVOCATION.set(event, 1, invoker == null ? null : invoker.getClass().getName());
+		SLOW_INVOCATION.set(event, 2, elapsedNanos);
+		SLOW_INVOCATION.commit(event);
+	}
+	
+	private static Object createEventType(String name, String label, String description, Object... fields)
+			throws Exception {
+		assert name != null;
+		assert label != null;
+		assert description != null;
+		assert fields != null;
+		List<Object> annotations = new ArrayList<Object>();
+		annotations.add(annotation("jdk.jfr.Name", name)); //$NON-NLS-1$
+		annotations.add(annotation("jdk.jfr.Label", label)); //$NON-NLS-1$
+		annotations.add(annotation("jdk.jfr.Description", description)); //$NON-NLS-1$
+		annotations.add(annotation("jdk.jfr.Category", CATEGORY.clone())); //$NON-NLS-1$
+		Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory"); //$NON-NLS-1$
+		Method create = factoryClass.getMethod("create", List.class, List.class); //$NON-NLS-1$
+		return create.invoke(null, annotations, Arrays.asList(fields));
+	}
+	
+	private static Object field(Class<?> type, String name, String label, String unitType, String unit)
+			throws Exception {
+		assert type != null;
+		assert name != null;
+		assert label != null;
+		List<Object> annotations = new ArrayList<Object>();
+		annotations.add(annotation("jdk.jfr.Label", label)); //$NON-NLS-1$
+		if (unitType != null) {
+			annotations.add(annotation(unitType, unit));
+		}
+		Class<?> descriptorClass = Class.forName("jdk.jfr.ValueDescriptor"); //$NON-NLS-1$
+		Constructor<?> ctor = descriptorClass.getConstructor(Class.class, String.class, List.class);
+		return ctor.newInstance(type, name, Collections.unmodifiableList(annotations));
+	}
+	
+	private static Object annotation(String typeName, Object value) throws Exception {
+		assert typeName != null;
+		assert value != null;
+		Class<?> elementClass = Class.forName("jdk.jfr.AnnotationElement"); //$NON-NLS-1$
+		Constructor<?> ctor = elementClass.getConstructor(Class.class, Object.class);
+		return ctor.newInstance(Class.forName(typeName), value);
+	}
+	
+	private static Object invoke(Method method, Object target, Object... arguments) {
+		assert method != null;
+		assert target != null;
+		try {
+			return method.invoke(target, arguments);
+		} catch (IllegalAccessException e) {
+			LOG.debug("Failed to record a flight recorder event", e);
+			return null;
+		} catch (InvocationTargetException e) {
+			LOG.debug("Failed to record a flight recorder event", e.getCause());
+			return null;
+		}
+	}
+	
+	private FlightRecorderSupport() {
+		throw new AssertionError();
+	}
+}
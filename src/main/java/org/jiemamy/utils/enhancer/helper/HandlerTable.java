@@ -0,0 +1,246 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.InvocationHandler;
+import org.jiemamy.utils.enhancer.Joinpoint;
+
+/**
+ * それぞれのジョインポイントに適用されるハンドラの一覧を保持するテーブル。
+ * <p>
+ * このテーブルは、ひとつのエンハンサが生成したすべての{@link AdviceApplier}に共有される。
+ * ハンドラの一覧は配列のスナップショットとして保持され、書き換えの際には
+ * 全体を複製したのちに差し替えられる。
+ * そのため、複数のジョインポイントに対するハンドラの書き換えを同時に行った場合でも、
+ * 実行中の呼び出しは書き換え前と書き換え後のいずれか一方のみを観測する。
+ * </p>
+ * <p>
+ * このクラスのインスタンスはスレッドセーフである。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class HandlerTable {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(HandlerTable.class);
+	
+	private static final InvocationHandler[][] EMPTY = new InvocationHandler[0][];
+	
+	/**
+	 * ジョインポイントごとのハンドラ一覧。
+	 * <p>
+	 * 配列の内容は一度公開したら変更せず、書き換えの際には常に新しい配列を作成する。
+	 * </p>
+	 */
+	private volatile InvocationHandler[][] snapshot = EMPTY;
+	
+	private final List<Joinpoint> joinpoints = new ArrayList<Joinpoint>();
+	
+	private final Map<Joinpoint, Integer> indices = new IdentityHashMap<Joinpoint, Integer>();
+	
+
+	/**
+	 * 指定のハンドラ一覧をこのテーブルに新しく登録し、そのインデックスを返す。
+	 * <p>
+	 * 返されるインデックスは、以後{@link #get(int)}でハンドラ一覧を取得する際に利用する。
+	 * 対応するジョインポイントは、{@link #bind(int, Joinpoint)}で別途登録する必要がある。
+	 * </p>
+	 * @param handlers 登録するハンドラの一覧
+	 * @return 登録したハンドラ一覧のインデックス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public synchronized int register(List<? extends InvocationHandler> handlers) {
+		if (handlers == null) {
+			throw new NullPointerException("handlers"); //$NON-NLS-1$
+		}
+		InvocationHandler[][] current = snapshot;
+		InvocationHandler[][] next = new InvocationHandler[current.length + 1][];
+		System.arraycopy(current, 0, next, 0, current.length);
+		next[current.length] = toArray(handlers);
+		snapshot = next;
+		return current.length;
+	}
+	
+	/**
+	 * {@link #register(List)}によって登録したハンドラ一覧に、対応するジョインポイントを関連付ける。
+	 * @param index 対象のインデックス
+	 * @param joinpoint 関連付けるジョインポイント
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IndexOutOfBoundsException インデックスが登録されていない場合
+	 * @throws IllegalStateException 対象のインデックスにすでにジョインポイントが関連付けられている場合
+	 */
+	public synchronized void bind(int index, Joinpoint joinpoint) {
+		if (joinpoint == null) {
+			throw new NullPointerException("joinpoint"); //$NON-NLS-1$
+		}
+		if (index < 0 || index >= snapshot.length) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		if (index != joinpoints.size()) {
+			throw new IllegalStateException(MessageFormat.format(
+					"Joinpoints must be bound in the order of registration (expected {0} but was {1})",
+					joinpoints.size(),
+					index));
+		}
+		joinpoints.add(joinpoint);
+		indices.put(joinpoint, index);
+	}
+	
+	/**
+	 * 指定のインデックスに対応する現在のハンドラ一覧を返す。
+	 * <p>
+	 * 返される配列を変更してはならない。
+	 * </p>
+	 * @param index 対象のインデックス
+	 * @return 対応するハンドラ一覧
+	 * @throws IndexOutOfBoundsException インデックスが登録されていない場合
+	 */
+	public InvocationHandler[] get(int index) {
+		return snapshot[index];
+	}
+	
+	/**
+	 * このテーブルに関連付けられたジョインポイントの一覧を返す。
+	 * <p>
+	 * 返されるリストは、呼び出し時点でのジョインポイントの一覧を複製したものである。
+	 * </p>
+	 * @return ジョインポイントの一覧
+	 */
+	public synchronized List<Joinpoint> getJoinpoints() {
+		return Collections.unmodifiableList(new ArrayList<Joinpoint>(joinpoints));
+	}
+	
+	/**
+	 * 指定のジョインポイントに適用されるハンドラの一覧をまとめて置き換える。
+	 * <p>
+	 * 引数に指定したすべての置き換えは単一の操作として公開される。
+	 * つまり、この呼び出しと並行して実行される呼び出しは、
+	 * いずれも置き換え前または置き換え後のいずれか一方のハンドラのみを利用する。
+	 * </p>
+	 * @param replacements ジョインポイントと、新しく適用するハンドラ一覧のペア
+	 * @throws NullPointerException 引数に{@code null}が含まれる場合
+	 * @throws IllegalArgumentException このテーブルに関連付けられていないジョインポイントが含まれる場合
+	 */
+	public synchronized void replace(Map<? extends Joinpoint, ? extends List<? extends InvocationHandler>> replacements) {
+		if (replacements == null) {
+			throw new NullPointerException("replacements"); //$NON-NLS-1$
+		}
+		InvocationHandler[][] next = snapshot.clone();
+		for (Map.Entry<? extends Joinpoint, ? extends List<? extends InvocationHandler>> entry : replacements
+			.entrySet()) {
+			Joinpoint joinpoint = entry.getKey();
+			List<? extends InvocationHandler> handlers = entry.getValue();
+			if (joinpoint == null) {
+				throw new NullPointerException("replacements.key"); //$NON-NLS-1$
+			}
+			if (handlers == null) {
+				throw new NullPointerException("replacements.value"); //$NON-NLS-1$
+			}
+			Integer index = indices.get(joinpoint);
+			if (index == null) {
+				throw new IllegalArgumentException(MessageFormat.format(
+						"{0} is not a joinpoint of this table",
+						joinpoint));
+			}
+			next[index] = toArray(handlers);
+		}
+		LOG.debug("Replacing handlers: {}", replacements);
+		snapshot = next;
+	}
+	
+	/**
+	 * このテーブル上のすべてのジョインポイントについて、指定のハンドラを別のハンドラに置き換える。
+	 * <p>
+	 * {@link #replace(Map)}と同様に、すべての置き換えは単一の操作として公開される。
+	 * {@link DynamicGuardHandler}が指定のハンドラを包んでいる場合、同じ適用条件を保ったまま中身のみを置き換える。
+	 * </p>
+	 * @param oldHandler 置き換えられるハンドラ
+	 * @param newHandler 新しく適用するハンドラ
+	 * @return 置き換えが行われたジョインポイントの個数
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public synchronized int replace(InvocationHandler oldHandler, InvocationHandler newHandler) {
+		if (oldHandler == null) {
+			throw new NullPointerException("oldHandler"); //$NON-NLS-1$
+		}
+		if (newHandler == null) {
+			throw new NullPointerException("newHandler"); //$NON-NLS-1$
+		}
+		InvocationHandler[][] next = snapshot.clone();
+		int count = 0;
+		for (int i = 0; i < next.length; i++) {
+			InvocationHandler[] handlers = next[i];
+			InvocationHandler[] replaced = null;
+			for (int j = 0; j < handlers.length; j++) {
+				if (handlers[j] == oldHandler) {
+					if (replaced == null) {
+						replaced = handlers.clone();
+					}
+					replaced[j] = newHandler;
+				} else if (handlers[j] instanceof DynamicGuardHandler
+						&& ((DynamicGuardHandler) handlers[j]).getDelegate() == oldHandler) {
+					if (replaced == null) {
+						replaced = handlers.clone();
+					}
+					replaced[j] = ((DynamicGuardHandler) handlers[j]).rebind(newHandler);
+				}
+			}
+			if (replaced != null) {
+				next[i] = replaced;
+				count++;
+			}
+		}
+		LOG.debug("Replacing handler: {} -> {} ({} joinpoints)", new Object[] {
+			oldHandler,
+			newHandler,
+			count
+		});
+		snapshot = next;
+		return count;
+	}
+	
+	private static InvocationHandler[] toArray(List<? extends InvocationHandler> handlers) {
+		assert handlers != null;
+		InvocationHandler[] results = handlers.toArray(new InvocationHandler[handlers.size()]);
+		for (InvocationHandler handler : results) {
+			if (handler == null) {
+				throw new NullPointerException("handlers must not contain null"); //$NON-NLS-1$
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public synchronized String toString() {
+		return MessageFormat.format("HandlerTable{0}", //$NON-NLS-1$
+				joinpoints);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.lang.reflect.Modifier;
+import java.text.MessageFormat;
+
+import javassist.CtBehavior;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.NotFoundException;
+
+/**
+ * 指定の型、またはそのサブタイプのインスタンス生成のみを対象とするポイントカット定義。
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class InstantiationPointcut implements CostedPointcut, ClassMetadataPointcut {
+	
+	private final String typeName;
+	
+	/**
+	 * 対象の型がサブタイプを持たない場合に{@code true}。
+	 */
+	private final boolean exact;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param type 対象とするインスタンスの型
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public InstantiationPointcut(Class<?> type) {
+		super();
+		if (type == null) {
+			throw new NullPointerException("type"); //$NON-NLS-1$
+		}
+		this.typeName = type.getName();
+		this.exact = Modifier.isFinal(type.getModifiers());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、対象がコンストラクタであり、かつそれを宣言するクラスが
+	 * コンストラクタに指定された型のサブタイプである場合のみ{@code true}を返す。
+	 * </p>
+	 */
+	public boolean isTarget(CtClass self, CtBehavior behavior) {
+		if ((behavior instanceof CtConstructor) == false) {
+			return false;
+		}
+		CtClass declaring = behavior.getDeclaringClass();
+		if (declaring.getName().equals(typeName)) {
+			return true;
+		}
+		if (exact) {
+			return false;
+		}
+		try {
+			return declaring.subtypeOf(declaring.getClassPool().get(typeName));
+		} catch (NotFoundException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、対象の型がサブタイプを持たない場合に{@link #COST_NAME}を、そうでない場合に{@link #COST_HIERARCHY}を返す。
+	 * </p>
+	 */
+	public int getCost() {
+		return exact ? COST_NAME : COST_HIERARCHY;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * このポイントカット定義はメソッドを対象としないため、この実装では常に{@code false}を返す。
+	 * </p>
+	 */
+	public boolean isCandidate(ClassMetadata metadata) {
+		return false;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + typeName.hashCode();
+		result = prime * result + (exact ? 1231 : 1237);
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		InstantiationPointcut other = (InstantiationPointcut) obj;
+		if (typeName.equals(other.typeName) == false) {
+			return false;
+		}
+		if (exact != other.exact) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("new {0}(..)", typeName); //$NON-NLS-1$
+	}
+}
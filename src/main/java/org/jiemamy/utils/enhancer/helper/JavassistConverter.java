@@ -15,9 +15,11 @@
  */
 package org.jiemamy.utils.enhancer.helper;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,64 @@ import org.jiemamy.utils.enhancer.EnhanceException;
  */
 public class JavassistConverter {
 	
+	/**
+	 * 生成したクラスをロードするクラスローダと型階層のキャッシュを公開し、キャッシュの解放を行う{@link ClassPool}。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private static class ReleasablePool extends ClassPool {
+		
+		private final EmptyClassLoader loader;
+		
+		final TypeHierarchyCache hierarchy = new TypeHierarchyCache();
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param loader このプールのクラスを定義するクラスローダ
+		 */
+		ReleasablePool(EmptyClassLoader loader) {
+			super();
+			assert loader != null;
+			this.loader = loader;
+		}
+		
+		/**
+		 * このプールのクラスを定義するクラスローダを返す。
+		 * <p>
+		 * {@link EnhanceManipulator}はこれを利用して、生成するクラスの名前をローダ上で予約する。
+		 * </p>
+		 */
+		@Override
+		public ClassLoader getClassLoader() {
+			return loader;
+		}
+		
+		/**
+		 * 指定のクラスがこのプールにキャッシュされている場合、キャッシュから取り除く。
+		 * @param klass 対象のクラス
+		 * @return キャッシュから取り除いた場合は{@code true}、キャッシュされていない場合は{@code false}
+		 */
+		synchronized boolean release(CtClass klass) {
+			assert klass != null;
+			String name = klass.getName();
+			if (getCached(name) != klass) {
+				return false;
+			}
+			removeCached(name);
+			return true;
+		}
+		
+		/**
+		 * このプールにキャッシュされているクラスの個数を返す。
+		 * @return キャッシュされているクラスの個数
+		 */
+		synchronized int getCachedCount() {
+			return classes.size();
+		}
+	}
+	
+
 	private static final Logger LOG = LoggerFactory.getLogger(JavassistConverter.class);
 	
 	/**
@@ -67,9 +127,9 @@ public class JavassistConverter {
 		PRIMITIVES = Collections.unmodifiableMap(map);
 	}
 	
-	private final ClassPool pool;
+	private final ReleasablePool pool;
 	
-	private final ClassLoader loader;
+	private final EmptyClassLoader loader;
 	
 
 	/**
@@ -86,22 +146,53 @@ public class JavassistConverter {
 	 * @throws NullPointerException 引数に{@code null}が指定された場合
 	 */
 	public JavassistConverter(Class<?> targetClass) {
+		this(targetClass, false);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * <p>
+	 * {@code shareLoader}に{@code true}を指定した場合、このインスタンスを利用してロードされるクラスは、
+	 * {@code targetClass}の定義ローダを親ローダに持つ、共有されたクラスローダによって定義またはロードされる。
+	 * 共有されたクラスローダは、同じ定義ローダを持つクラスを基点とする他のインスタンスとも共有される。
+	 * この場合、{@link EnhanceManipulator}が生成するクラスの名前はクラスローダ上で予約され、
+	 * 他のインスタンスが生成するクラスと衝突しないように調整される。
+	 * </p>
+	 * <p>
+	 * {@code shareLoader}に{@code false}を指定した場合、{@link #JavassistConverter(Class)}と同様である。
+	 * </p>
+	 * @param targetClass 基点とするクラス
+	 * @param shareLoader 共有されたクラスローダを利用する場合は{@code true}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 * @see EmptyClassLoader#getShared(ClassLoader)
+	 */
+	public JavassistConverter(Class<?> targetClass, boolean shareLoader) {
 		super();
 		if (targetClass == null) {
 			throw new NullPointerException("targetClass"); //$NON-NLS-1$
 		}
-		pool = new ClassPool();
-		pool.appendClassPath(new ClassClassPath(targetClass));
 		// targetClass.getClassLoader() をそのまま利用すると、
 		// targetClassのリアルローダ上にエンハンスされたクラスが定義されてしまう。
 		// これは、名前空間の衝突やクラスオブジェクトのリークの原因となる。
 		// これを回避するため、エンハンサは自身ではクラスをロードしないEmptyClassLoaderを定義し、
 		// その親ローダをtargetClassのリアルローダとする。
-		// JavassistはEmptyClassLoader上のdefineClass(*)を呼び出すため、
+		// 生成したバイトコードはEmptyClassLoader.define(*)で直接定義するため、
 		// エンハンスされたクラスはtargetClassのリアルローダ上ではなくEmptyClassLoader上で
 		// 定義されることになる。
-		// @see javassist.ClassPool#toClass(ClassLoader, ProtectionDomain)
-		loader = new EmptyClassLoader(targetClass.getClassLoader());
+		// なお、MethodHandles.Lookup.defineClass(*) (Java SE 9) はtargetClassのリアルローダ上に定義するため
+		// 上記の問題を回避できず、Lookup.defineHiddenClass(*) (Java SE 15) で定義した隠しクラスは
+		// 名前で参照できないため、拡張されたファクトリから拡張されたプロダクトを生成できない。
+		// また、現在利用しているJavassistは隠しクラスを提供する実行環境のクラスファイルを解析できない。
+		// そのため、いずれの実行環境でもEmptyClassLoaderを利用し、
+		// エンハンサごとのクラスローダが不要な場合は共有されたクラスローダを利用する。
+		if (shareLoader) {
+			loader = EmptyClassLoader.getShared(targetClass.getClassLoader());
+		} else {
+			loader = new EmptyClassLoader(targetClass.getClassLoader());
+		}
+		pool = new ReleasablePool(loader);
+		pool.appendClassPath(new ClassClassPath(targetClass));
 	}
 	
 	/**
@@ -116,6 +207,30 @@ public class JavassistConverter {
 		return pool;
 	}
 	
+	/**
+	 * このインスタンスが利用する{@link ClassPool}に関連付けられた、型階層のキャッシュを返す。
+	 * @return 型階層のキャッシュ
+	 * @since 0.2.1
+	 * @see TypeHierarchyCache#of(ClassPool)
+	 */
+	public TypeHierarchyCache getTypeHierarchyCache() {
+		return pool.hierarchy;
+	}
+	
+	/**
+	 * 指定の{@link ClassPool}がこのクラスのインスタンスによって提供されたものであれば、
+	 * 関連付けられた型階層のキャッシュを返す。
+	 * @param pool 対象のプール
+	 * @return 関連付けられた型階層のキャッシュ、存在しない場合は{@code null}
+	 */
+	static TypeHierarchyCache findTypeHierarchyCache(ClassPool pool) {
+		assert pool != null;
+		if (pool instanceof ReleasablePool) {
+			return ((ReleasablePool) pool).hierarchy;
+		}
+		return null;
+	}
+	
 	/**
 	 * 指定の{@link java.lang.Class}オブジェクトに対応する{@link CtClass}をロードする。
 	 * <p>
@@ -157,7 +272,8 @@ public class JavassistConverter {
 	 * @param klass 対象の{@link CtClass}オブジェクト
 	 * @return 対応する{@link java.lang.Class}オブジェクト
 	 * @throws NullPointerException 引数に{@code null}が指定された場合
-	 * @throws EnhanceException 変換に失敗した場合
+	 * @throws EnhanceException 変換に失敗した場合、
+	 *     または同名のクラスが異なる定義ですでにクラスローダ上に定義されている場合
 	 */
 	public Class<?> toClass(CtClass klass) throws EnhanceException {
 		if (klass == null) {
@@ -193,8 +309,12 @@ public class JavassistConverter {
 					return loaded;
 				} else {
 					// なければローダ上に定義する
+					// CtClass.toClass(*)はClassLoader.defineClass(*)をリフレクションで呼び出すため、
+					// バイトコードを取り出してローダ上に直接定義する
 					LOG.debug("Register to JVM: {}", klass.getName());
-					return klass.toClass(loader, loader.getClass().getProtectionDomain());
+					byte[] bytecode = klass.toBytecode();
+					klass.freeze();
+					return loader.define(klass.getName(), bytecode);
 				}
 			}
 		} catch (CannotCompileException e) {
@@ -202,6 +322,14 @@ public class JavassistConverter {
 					e);
 		} catch (NotFoundException e) {
 			throw new EnhanceException(MessageFormat.format("Cannot convert class (not found):{0}", klass.getName()), e);
+		} catch (IOException e) {
+			throw new EnhanceException(MessageFormat.format("Cannot load class (I/O error):{0}", klass.getName()), e);
+		} catch (ClassFormatError e) {
+			throw new EnhanceException(MessageFormat.format("Cannot load class (format error):{0}", klass.getName()),
+					e);
+		} catch (LinkageError e) {
+			throw new EnhanceException(MessageFormat.format("Cannot load class (linkage error):{0}", klass.getName()),
+					e);
 		}
 	}
 	
@@ -227,6 +355,75 @@ public class JavassistConverter {
 		return results;
 	}
 	
+	/**
+	 * 指定の{@link CtClass}を、このインスタンスが利用する{@link ClassPool}のキャッシュから取り除く。
+	 * <p>
+	 * 対象のクラスが凍結されている場合、取り除く前に実行時に不要な属性を刈り込む({@link CtClass#prune()})。
+	 * このとき、{@link #getTypeHierarchyCache()}が保持する結果のうち、対象のクラスに関するものも破棄される。
+	 * 取り除かれた{@link CtClass}は、このインスタンスから到達できなくなり、
+	 * 他に参照されていなければガベージコレクションの対象となる。
+	 * 以後同じ名前のクラスを{@link ClassPool}から取得した場合、必要であれば改めてロードされる。
+	 * そのため、取り除いたクラスを変更したり、他のクラスのコンパイル時に参照させたりしてはならない。
+	 * </p>
+	 * <p>
+	 * プリミティブ型や配列型、およびこのインスタンスのキャッシュに含まれないクラスを指定した場合、
+	 * この呼び出しは何も行わない。
+	 * </p>
+	 * @param klass 対象のクラス
+	 * @return キャッシュから取り除いた場合は{@code true}、そうでない場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public boolean release(CtClass klass) {
+		if (klass == null) {
+			throw new NullPointerException("klass"); //$NON-NLS-1$
+		}
+		if (klass.isPrimitive() || klass.isArray()) {
+			return false;
+		}
+		if (pool.release(klass) == false) {
+			return false;
+		}
+		pool.hierarchy.evict(klass);
+		if (klass.isFrozen()) {
+			klass.prune();
+		}
+		LOG.trace("Released from class pool: {}", klass.getName());
+		return true;
+	}
+	
+	/**
+	 * {@link #release(CtClass)}を一覧に対して一斉適用する。
+	 * @param classes 対象のクラス一覧
+	 * @return キャッシュから取り除いたクラスの個数
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @since 0.2.1
+	 */
+	public int releaseAll(Collection<? extends CtClass> classes) {
+		if (classes == null) {
+			throw new NullPointerException("classes"); //$NON-NLS-1$
+		}
+		int count = 0;
+		for (CtClass klass : classes) {
+			if (release(klass)) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * このインスタンスが利用する{@link ClassPool}に、現在キャッシュされているクラスの個数を返す。
+	 * <p>
+	 * 返される個数には、プリミティブ型を表現するクラスも含まれる。
+	 * </p>
+	 * @return キャッシュされているクラスの個数
+	 * @since 0.2.1
+	 */
+	public int getCachedClassCount() {
+		return pool.getCachedCount();
+	}
+	
 	/**
 	 * プリミティブ型を表現する指定の{@link CtClass}オブジェクトを
 	 * 対応する{@link java.lang.Class}オブジェクトへと変換して返す。
@@ -281,8 +478,27 @@ public class JavassistConverter {
 	 * @throws EnhanceException 変換に失敗した場合
 	 */
 	public AdviceTable toMethodAspects(AspectList<CtMethod> aspectList) throws EnhanceException {
+		return toMethodAspects(aspectList, new HandlerTable());
+	}
+	
+	/**
+	 * メソッドに対するアスペクトの一覧を対応するアドバイステーブルに変換する。
+	 * <p>
+	 * 返される配列に含まれる各要素は、引数に渡したアスペクトと同じ順序で、
+	 * それらの実行形式が格納される。
+	 * また、それぞれの要素が利用するハンドラの一覧は{@code handlerTable}に登録される。
+	 * </p>
+	 * @param aspectList 変換するアスペクトの一覧
+	 * @param handlerTable ハンドラの一覧を登録するテーブル
+	 * @return 対応するアドバイステーブル
+	 * @throws EnhanceException 変換に失敗した場合
+	 * @since 0.2.1
+	 */
+	public AdviceTable toMethodAspects(AspectList<CtMethod> aspectList, HandlerTable handlerTable)
+			throws EnhanceException {
 		
 		assert aspectList != null;
+		assert handlerTable != null;
 		LOG.trace("Creating advice table entries: {}", aspectList);
 		
 		List<AdviceApplier> results = new ArrayList<AdviceApplier>();
@@ -297,8 +513,8 @@ public class JavassistConverter {
 						e);
 			}
 			AdviceApplier helper =
-					AdviceApplier.method(aspect.getHandlers(), toClass(original.getDeclaringClass()), original
-						.getName(), toClass(actual.getDeclaringClass()), actual.getName(), toClasses(params));
+					AdviceApplier.method(handlerTable, aspect.getHandlers(), toClass(original.getDeclaringClass()),
+							original.getName(), toClass(actual.getDeclaringClass()), actual.getName(), toClasses(params));
 			results.add(helper);
 		}
 		return new AdviceTable(aspectList, results);
@@ -315,8 +531,48 @@ public class JavassistConverter {
 	 * @throws EnhanceException 変換に失敗した場合
 	 */
 	public AdviceTable toConstructorAspects(AspectList<CtConstructor> aspectList) throws EnhanceException {
+		return toConstructorAspects(aspectList, new HandlerTable());
+	}
+	
+	/**
+	 * インスタンス生成に対するアスペクトの一覧を対応するアドバイステーブルに変換する。
+	 * <p>
+	 * 返される配列に含まれる各要素は、引数に渡したアスペクトと同じ順序で、
+	 * それらの実行形式が格納される。
+	 * また、それぞれの要素が利用するハンドラの一覧は{@code handlerTable}に登録される。
+	 * </p>
+	 * @param aspectList 変換するアスペクトの一覧
+	 * @param handlerTable ハンドラの一覧を登録するテーブル
+	 * @return 対応するアドバイステーブル
+	 * @throws EnhanceException 変換に失敗した場合
+	 * @since 0.2.1
+	 */
+	public AdviceTable toConstructorAspects(AspectList<CtConstructor> aspectList, HandlerTable handlerTable)
+			throws EnhanceException {
+		return toConstructorAspects(aspectList, handlerTable, Collections.<CtClass, LazyProductInstaller> emptyMap());
+	}
+	
+	/**
+	 * インスタンス生成に対するアスペクトの一覧を対応するアドバイステーブルに変換する。
+	 * <p>
+	 * 実際に起動するコンストラクタを宣言するクラスが{@code installers}に含まれる場合、
+	 * そのクラスはこの呼び出しではロードされず、対応するアドバイスが最初に実行された時点で
+	 * {@link LazyProductInstaller#install()}によってインストールされる。
+	 * その他については{@link #toConstructorAspects(AspectList, HandlerTable)}と同様である。
+	 * </p>
+	 * @param aspectList 変換するアスペクトの一覧
+	 * @param handlerTable ハンドラの一覧を登録するテーブル
+	 * @param installers インストールを遅延させるクラスと、それをインストールするオブジェクトの対応表
+	 * @return 対応するアドバイステーブル
+	 * @throws EnhanceException 変換に失敗した場合
+	 * @since 0.2.1
+	 */
+	public AdviceTable toConstructorAspects(AspectList<CtConstructor> aspectList, HandlerTable handlerTable,
+			Map<CtClass, LazyProductInstaller> installers) throws EnhanceException {
 		
 		assert aspectList != null;
+		assert handlerTable != null;
+		assert installers != null;
 		LOG.trace("Creating advice table entries: {}", aspectList);
 		
 		List<AdviceApplier> results = new ArrayList<AdviceApplier>();
@@ -330,9 +586,15 @@ public class JavassistConverter {
 				throw new EnhanceException(MessageFormat.format("Cannot resolve constructor {0}", original.getName()),
 						e);
 			}
-			AdviceApplier helper =
-					AdviceApplier.constructor(aspect.getHandlers(), toClass(original.getDeclaringClass()),
-							toClass(actual.getDeclaringClass()), toClasses(params));
+			LazyProductInstaller installer = installers.get(actual.getDeclaringClass());
+			AdviceApplier helper;
+			if (installer == null) {
+				helper = AdviceApplier.constructor(handlerTable, aspect.getHandlers(), toClass(original
+					.getDeclaringClass()), toClass(actual.getDeclaringClass()), toClasses(params));
+			} else {
+				helper = AdviceApplier.constructor(handlerTable, aspect.getHandlers(), toClass(original
+					.getDeclaringClass()), installer, toClasses(params));
+			}
 			results.add(helper);
 		}
 		return new AdviceTable(aspectList, results);
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.text.MessageFormat;
+
+import org.jiemamy.utils.enhancer.Invocation;
+
+/**
+ * 遅延生成されるプロダクトの、本来のインスタンスを保持する。
+ * <p>
+ * {@link LazyProductFactory}が生成したクラスのインスタンスは、それぞれこのクラスのインスタンスを保持し、
+ * メソッドが起動されるたびに{@link #get()}で取得した本来のインスタンスに処理を移譲する。
+ * </p>
+ * <p>
+ * このクラスのインスタンスはスレッドセーフである。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public final class LazyInitializer {
+	
+	private Invocation invocation;
+	
+	private volatile Object instance;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param invocation 本来のインスタンス生成を表す呼び出し
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public LazyInitializer(Invocation invocation) {
+		super();
+		if (invocation == null) {
+			throw new NullPointerException("invocation"); //$NON-NLS-1$
+		}
+		this.invocation = invocation;
+	}
+	
+	/**
+	 * 本来のインスタンスを返す。
+	 * <p>
+	 * 初回の呼び出しでは本来のインスタンス生成を実行し、その結果を以後の呼び出しで再利用する。
+	 * インスタンス生成に失敗した場合、その原因となった例外をスローする。
+	 * ただし、その例外が検査例外である場合には{@link UndeclaredThrowableException}でラップしてスローする。
+	 * この場合、次回の呼び出しで再度インスタンス生成が試みられる。
+	 * </p>
+	 * @return 本来のインスタンス
+	 */
+	public Object get() {
+		Object result = instance;
+		if (result != null) {
+			return result;
+		}
+		synchronized (this) {
+			if (instance == null) {
+				try {
+					Object created = invocation.proceed();
+					if (created == null) {
+						throw new NullPointerException(MessageFormat.format(
+								"Instantiation returned null: {0}",
+								invocation));
+					}
+					instance = created;
+					invocation = null;
+				} catch (InvocationTargetException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new UndeclaredThrowableException(cause);
+				}
+			}
+			return instance;
+		}
+	}
+	
+	/**
+	 * 本来のインスタンスがすでに生成されている場合のみ{@code true}を返す。
+	 * @return 本来のインスタンスがすでに生成されている場合に{@code true}
+	 */
+	public boolean isInitialized() {
+		return instance != null;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public synchronized String toString() {
+		if (instance == null) {
+			return MessageFormat.format("Lazy({0})", invocation); //$NON-NLS-1$
+		}
+		return "Lazy(initialized)"; //$NON-NLS-1$
+	}
+}
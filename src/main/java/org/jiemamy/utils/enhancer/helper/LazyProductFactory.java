@@ -0,0 +1,308 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.text.MessageFormat;
+
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.Modifier;
+import javassist.NotFoundException;
+import javassist.bytecode.AccessFlag;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.EnhanceException;
+import org.jiemamy.utils.enhancer.Invocation;
+
+/**
+ * プロダクトのインスタンス生成を、最初のメソッド起動まで遅延させるためのクラスを生成する。
+ * <p>
+ * 生成されるクラスは対象のプロダクトクラスを継承し、
+ * 公開されたすべてのインスタンスメソッドを、{@link LazyInitializer}から取得した本来のインスタンスに移譲する。
+ * 生成されたクラスのインスタンスはコンストラクタを起動せずに作成されるため、
+ * その時点では本来のコンストラクタの処理は一切実行されない。
+ * </p>
+ * <p>
+ * 次のいずれかに該当するプロダクトクラスは、遅延生成の対象とすることができない。
+ * </p>
+ * <ul>
+ * <li> 公開されていない、{@code final}である、またはトップレベルのクラスでない </li>
+ * <li> {@link Object}以外で宣言された、公開された{@code final}のインスタンスメソッドを持つ </li>
+ * <li> 実行環境がコンストラクタを起動せずにインスタンスを作成する手段を提供しない </li>
+ * </ul>
+ * <p>
+ * なお、生成されたクラスのインスタンスに対するフィールドの参照や、公開されていないメソッドの起動は、
+ * 本来のインスタンスには移譲されない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class LazyProductFactory {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(LazyProductFactory.class);
+	
+	private static final String LAZY_CLASS = "__LAZY__"; //$NON-NLS-1$
+	
+	private static final String INITIALIZER_FIELD = "__INITIALIZER__"; //$NON-NLS-1$
+	
+	/**
+	 * {@code sun.misc.Unsafe}のインスタンス、利用できない場合は{@code null}。
+	 */
+	private static final Object UNSAFE;
+	
+	/**
+	 * {@code sun.misc.Unsafe#allocateInstance(Class)}、利用できない場合は{@code null}。
+	 */
+	private static final Method ALLOCATE_INSTANCE;
+	
+	static {
+		Object unsafe = null;
+		Method allocateInstance = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe"); //$NON-NLS-1$
+			Field field = unsafeClass.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class); //$NON-NLS-1$
+		} catch (Exception e) {
+			LOG.debug("Cannot allocate instances without constructors", e);
+			unsafe = null;
+			allocateInstance = null;
+		}
+		UNSAFE = unsafe;
+		ALLOCATE_INSTANCE = allocateInstance;
+	}
+	
+	private final Class<?> productClass;
+	
+	private final Class<?> lazyClass;
+	
+	private final Field initializerField;
+	
+
+	/**
+	 * 指定のプロダクトクラスに対するインスタンスを生成する。
+	 * @param productClass 遅延生成するプロダクトクラス
+	 * @return 生成したインスタンス
+	 * @throws EnhanceException 遅延生成のためのクラスの生成に失敗した場合
+	 * @throws IllegalArgumentException 指定のクラスが遅延生成の対象とすることができない場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static LazyProductFactory create(Class<?> productClass) throws EnhanceException {
+		if (productClass == null) {
+			throw new NullPointerException("productClass"); //$NON-NLS-1$
+		}
+		if (ALLOCATE_INSTANCE == null) {
+			throw new IllegalArgumentException(MessageFormat.format(
+					"Lazy instantiation is not supported in this environment ({0})",
+					productClass.getName()));
+		}
+		int modifiers = productClass.getModifiers();
+		if (java.lang.reflect.Modifier.isPublic(modifiers) == false
+				|| java.lang.reflect.Modifier.isFinal(modifiers)
+				|| java.lang.reflect.Modifier.isAbstract(modifiers)
+				|| productClass.isInterface()
+				|| productClass.isMemberClass()
+				|| productClass.isLocalClass()
+				|| productClass.isAnonymousClass()) {
+			throw new IllegalArgumentException(MessageFormat.format(
+					"{0} must be a public, non-final and top-level class",
+					productClass.getName()));
+		}
+		JavassistConverter converter = new JavassistConverter(productClass);
+		CtClass base = converter.loadCtClass(productClass);
+		CtClass lazy = createLazyClass(base);
+		Class<?> lazyClass = converter.toClass(lazy);
+		try {
+			return new LazyProductFactory(productClass, lazyClass, findInitializerField(lazyClass));
+		} catch (NoSuchFieldException e) {
+			// may not occur
+			throw new EnhanceException(MessageFormat.format("Cannot find {0}", INITIALIZER_FIELD), e);
+		}
+	}
+	
+	/**
+	 * 生成したクラスに宣言された、{@link LazyInitializer}を保持するフィールドを返す。
+	 * <p>
+	 * このフィールドは{@code private}として宣言されるため、アクセス制限を解除した上で返す。
+	 * </p>
+	 */
+	private static Field findInitializerField(Class<?> lazyClass) throws NoSuchFieldException {
+		assert lazyClass != null;
+		Field field = lazyClass.getDeclaredField(INITIALIZER_FIELD);
+		field.setAccessible(true);
+		return field;
+	}
+	
+	private static CtClass createLazyClass(CtClass base) throws EnhanceException {
+		assert base != null;
+		LOG.trace("Creating a lazy class: {}", base.getName());
+		CtClass lazy = base.getClassPool().makeClass(base.getName() + LAZY_CLASS);
+		lazy.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
+		try {
+			lazy.setSuperclass(base);
+			CtField initializer =
+					new CtField(base.getClassPool().get(LazyInitializer.class.getName()), INITIALIZER_FIELD, lazy);
+			initializer.setModifiers(Modifier.PRIVATE);
+			lazy.addField(initializer);
+			createDummyConstructor(lazy, base);
+			String template = "((%s) " + INITIALIZER_FIELD + ".get()).%s($$);"; //$NON-NLS-1$ //$NON-NLS-2$
+			for (CtMethod method : TypeHierarchyCache.of(base.getClassPool()).getMethods(base)) {
+				int modifiers = method.getModifiers();
+				if (Modifier.isPublic(modifiers) == false || Modifier.isStatic(modifiers)
+						|| (method.getMethodInfo2().getAccessFlags() & AccessFlag.BRIDGE) != 0) {
+					continue;
+				}
+				if (Modifier.isFinal(modifiers)) {
+					if (method.getDeclaringClass().getName().equals(Object.class.getName())) {
+						continue;
+					}
+					throw new IllegalArgumentException(MessageFormat.format(
+							"{0} has a final method ({1})",
+							base.getName(),
+							method.getLongName()));
+				}
+				CtMethod forward =
+						new CtMethod(method.getReturnType(), method.getName(), method.getParameterTypes(), lazy);
+				forward.setModifiers(Modifier.PUBLIC);
+				forward.setExceptionTypes(method.getExceptionTypes());
+				String call = String.format(template, base.getName(), method.getName());
+				if (method.getReturnType() == CtClass.voidType) {
+					forward.setBody(call);
+				} else {
+					forward.setBody("return " + call); //$NON-NLS-1$
+				}
+				lazy.addMethod(forward);
+				LOG.debug("Lazy method: {}#{}{}", new Object[] {
+					lazy.getName(),
+					forward.getName(),
+					forward.getSignature()
+				});
+			}
+			return lazy;
+		} catch (NotFoundException e) {
+			throw new EnhanceException(MessageFormat.format("Cannot create lazy class for {0}", base.getName()), e);
+		} catch (CannotCompileException e) {
+			throw new EnhanceException(MessageFormat.format("Cannot create lazy class for {0}", base.getName()), e);
+		}
+	}
+	
+	/**
+	 * 親クラスのいずれかのコンストラクタを起動するコンストラクタを宣言する。
+	 * <p>
+	 * このコンストラクタはクラスの定義を満たすためだけのもので、実際に起動されることはない。
+	 * </p>
+	 */
+	private static void createDummyConstructor(CtClass lazy, CtClass base) throws NotFoundException,
+			CannotCompileException {
+		assert lazy != null;
+		assert base != null;
+		for (CtConstructor constructor : base.getDeclaredConstructors()) {
+			int modifiers = constructor.getModifiers();
+			if (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers)) {
+				CtConstructor dummy = new CtConstructor(constructor.getParameterTypes(), lazy);
+				dummy.setModifiers(Modifier.PRIVATE);
+				dummy.setExceptionTypes(constructor.getExceptionTypes());
+				dummy.setBody("super($$);"); //$NON-NLS-1$
+				lazy.addConstructor(dummy);
+				return;
+			}
+		}
+		throw new IllegalArgumentException(MessageFormat.format(
+				"{0} must have a public or protected constructor",
+				base.getName()));
+	}
+	
+	private LazyProductFactory(Class<?> productClass, Class<?> lazyClass, Field initializerField) {
+		assert productClass != null;
+		assert lazyClass != null;
+		assert initializerField != null;
+		this.productClass = productClass;
+		this.lazyClass = lazyClass;
+		this.initializerField = initializerField;
+	}
+	
+	/**
+	 * 本来のインスタンス生成を、最初のメソッド起動まで遅延させたプロダクトを返す。
+	 * @param invocation 本来のインスタンス生成を表す呼び出し
+	 * @return 遅延生成されるプロダクト
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Object newInstance(Invocation invocation) {
+		if (invocation == null) {
+			throw new NullPointerException("invocation"); //$NON-NLS-1$
+		}
+		try {
+			Object product = ALLOCATE_INSTANCE.invoke(UNSAFE, lazyClass);
+			initializerField.set(product, new LazyInitializer(invocation));
+			return product;
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+	
+	/**
+	 * 指定のオブジェクトが遅延生成されるプロダクトであり、かつ本来のインスタンスがまだ生成されていない場合のみ
+	 * {@code true}を返す。
+	 * @param product 対象のオブジェクト
+	 * @return 本来のインスタンスがまだ生成されていない場合に{@code true}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static boolean isPending(Object product) {
+		if (product == null) {
+			throw new NullPointerException("product"); //$NON-NLS-1$
+		}
+		if (product.getClass().getName().endsWith(LAZY_CLASS) == false) {
+			return false;
+		}
+		try {
+			Object initializer = findInitializerField(product.getClass()).get(product);
+			return initializer instanceof LazyInitializer && ((LazyInitializer) initializer).isInitialized() == false;
+		} catch (NoSuchFieldException e) {
+			return false;
+		} catch (IllegalAccessException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * このオブジェクトが生成する、遅延生成されるプロダクトのクラスを返す。
+	 * @return 遅延生成されるプロダクトのクラス
+	 */
+	public Class<?> getLazyClass() {
+		return lazyClass;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("LazyProductFactory({0})", productClass.getName()); //$NON-NLS-1$
+	}
+}
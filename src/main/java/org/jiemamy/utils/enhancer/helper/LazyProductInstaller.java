@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+
+import javassist.CtClass;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.EnhanceException;
+
+/**
+ * 拡張されたプロダクトクラスを、最初に必要となった時点でVM上にインストールする。
+ * <p>
+ * このクラスのインスタンスは拡張されたプロダクトクラスごとに作成され、
+ * 最初に{@link #install()}が呼び出された際に、プロダクトクラスへのポイントカットの織り込み、
+ * VM上へのクラスの定義、およびアドバイステーブルの初期化を行う。
+ * 以後の呼び出しでは、最初の呼び出しでインストールしたクラスをそのまま返す。
+ * 最初の呼び出しでインストールに失敗した場合、以後の呼び出しでも同じ原因で失敗する。
+ * </p>
+ * <p>
+ * 同一の{@link JavassistConverter}を共有するインスタンスは、互いに排他的にインストールを行う。
+ * このクラスのインスタンスはスレッドセーフである。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ * @see EnhanceManipulator#installLazily(JavassistConverter, HandlerTable, EnhanceManager, CtClass, java.util.Map, AspectList)
+ */
+public class LazyProductInstaller {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(LazyProductInstaller.class);
+	
+	private final JavassistConverter converter;
+	
+	private final String name;
+	
+	private HandlerTable handlerTable;
+	
+	private EnhanceManager enhanceManager;
+	
+	private CtClass base;
+	
+	private CtClass enhanced;
+	
+	private volatile Class<?> installed;
+	
+	private EnhanceException failure;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param converter {@link java.lang.Class}と{@link javassist.CtClass}を相互に変換する
+	 * @param handlerTable ハンドラの一覧を登録するテーブル
+	 * @param enhanceManager 拡張の定義
+	 * @param base 拡張される前のプロダクトクラス
+	 * @param enhanced 拡張されたプロダクトクラス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public LazyProductInstaller(JavassistConverter converter, HandlerTable handlerTable,
+			EnhanceManager enhanceManager, CtClass base, CtClass enhanced) {
+		super();
+		if (converter == null) {
+			throw new NullPointerException("converter"); //$NON-NLS-1$
+		}
+		if (handlerTable == null) {
+			throw new NullPointerException("handlerTable"); //$NON-NLS-1$
+		}
+		if (enhanceManager == null) {
+			throw new NullPointerException("enhanceManager"); //$NON-NLS-1$
+		}
+		if (base == null) {
+			throw new NullPointerException("base"); //$NON-NLS-1$
+		}
+		if (enhanced == null) {
+			throw new NullPointerException("enhanced"); //$NON-NLS-1$
+		}
+		this.converter = converter;
+		this.name = enhanced.getName();
+		this.handlerTable = handlerTable;
+		this.enhanceManager = enhanceManager;
+		this.base = base;
+		this.enhanced = enhanced;
+	}
+	
+	/**
+	 * 拡張されたプロダクトクラスをインストールし、その{@link java.lang.Class}オブジェクトを返す。
+	 * <p>
+	 * すでにインストール済みである場合、以前にインストールしたクラスを返す。
+	 * インストールは拡張されたプロダクトクラスを直接変更するため、失敗した場合でも再度試みることはない。
+	 * 以前にインストールに失敗していた場合、その失敗を原因とする{@link EnhanceException}をスローする。
+	 * </p>
+	 * @return インストールしたクラス
+	 * @throws EnhanceException インストールに失敗した場合、または以前にインストールに失敗していた場合
+	 */
+	public Class<?> install() throws EnhanceException {
+		Class<?> result = installed;
+		if (result != null) {
+			return result;
+		}
+		synchronized (converter) {
+			if (installed != null) {
+				return installed;
+			}
+			if (failure != null) {
+				throw new EnhanceException(MessageFormat.format(
+						"Cannot install {0} (previously failed)",
+						name), failure);
+			}
+			LOG.debug("Installing a lazy product: {}", name);
+			try {
+				installed = EnhanceManipulator.installProduct(converter, handlerTable, enhanceManager, base, enhanced);
+				return installed;
+			} catch (EnhanceException e) {
+				failure = e;
+				throw e;
+			} catch (RuntimeException e) {
+				failure = new EnhanceException(MessageFormat.format(
+						"Cannot install {0}",
+						name), e);
+				throw failure;
+			} finally {
+				// 成否にかかわらず再度インストールすることはないため、拡張に必要な情報を解放する
+				handlerTable = null;
+				enhanceManager = null;
+				base = null;
+				enhanced = null;
+			}
+		}
+	}
+	
+	/**
+	 * 対象のプロダクトクラスがすでにインストールされている場合のみ{@code true}を返す。
+	 * @return インストール済みであれば{@code true}
+	 */
+	public boolean isInstalled() {
+		return installed != null;
+	}
+	
+	/**
+	 * インストールする拡張されたプロダクトクラスの名前を返す。
+	 * @return 拡張されたプロダクトクラスの名前
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("LazyProduct({0}, installed={1})", //$NON-NLS-1$
+				name, String.valueOf(isInstalled()));
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+import java.util.regex.Pattern;
+
+/**
+ * 型やメソッドの名前に対する、コンパイル済みのパターン。
+ * <p>
+ * パターンには次のワイルドカードを含めることができる。
+ * </p>
+ * <ul>
+ * <li> {@code *} - ピリオドを含まない任意の文字列。パターン全体が{@code *}の場合は任意の名前 </li>
+ * <li> {@code ..} - ピリオドで区切られた任意個のパッケージ名 </li>
+ * </ul>
+ * <p>
+ * パターンは生成時に一度だけ解析され、ワイルドカードを含まないパターンは文字列の比較、
+ * 末尾のみにワイルドカードを含むパターンは前方一致、それ以外は正規表現によって照合される。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public final class NamePattern {
+	
+	/**
+	 * 照合の方法。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	private enum Kind {
+		
+		/**
+		 * 任意の名前。
+		 */
+		ANY,
+		
+		/**
+		 * 文字列の比較。
+		 */
+		EXACT,
+		
+		/**
+		 * 前方一致。
+		 */
+		PREFIX,
+		
+		/**
+		 * 正規表現。
+		 */
+		REGEX,
+	}
+	
+
+	/**
+	 * 任意の名前に一致するパターン。
+	 */
+	public static final NamePattern ANY = new NamePattern("*", Kind.ANY, "", null); //$NON-NLS-1$ //$NON-NLS-2$
+	
+	private final String image;
+	
+	private final Kind kind;
+	
+	private final String literal;
+	
+	private final Pattern regex;
+	
+
+	private NamePattern(String image, Kind kind, String literal, Pattern regex) {
+		assert image != null;
+		assert kind != null;
+		assert literal != null;
+		this.image = image;
+		this.kind = kind;
+		this.literal = literal;
+		this.regex = regex;
+	}
+	
+	/**
+	 * 指定の文字列をパターンとして解析する。
+	 * @param pattern 対象の文字列
+	 * @return 解析したパターン
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException パターンが空である場合
+	 */
+	public static NamePattern compile(String pattern) {
+		if (pattern == null) {
+			throw new NullPointerException("pattern"); //$NON-NLS-1$
+		}
+		if (pattern.length() == 0) {
+			throw new IllegalArgumentException("pattern is empty"); //$NON-NLS-1$
+		}
+		if (pattern.equals("*")) { //$NON-NLS-1$
+			return ANY;
+		}
+		int star = pattern.indexOf('*');
+		int dots = pattern.indexOf(".."); //$NON-NLS-1$
+		if (star < 0 && dots < 0) {
+			return new NamePattern(pattern, Kind.EXACT, pattern, null);
+		}
+		int prefixLength = dots < 0 ? star : star < 0 ? dots : Math.min(star, dots);
+		String prefix = pattern.substring(0, prefixLength);
+		if (dots < 0 && star == pattern.length() - 1) {
+			return new NamePattern(pattern, Kind.PREFIX, prefix, null);
+		}
+		return new NamePattern(pattern, Kind.REGEX, prefix, toRegex(pattern));
+	}
+	
+	private static Pattern toRegex(String pattern) {
+		assert pattern != null;
+		StringBuilder buf = new StringBuilder();
+		int start = 0;
+		for (int i = 0, n = pattern.length(); i < n; i++) {
+			char c = pattern.charAt(i);
+			if (c == '*') {
+				buf.append(Pattern.quote(pattern.substring(start, i)));
+				buf.append("[^.]*"); //$NON-NLS-1$
+				start = i + 1;
+			} else if (c == '.' && i + 1 < n && pattern.charAt(i + 1) == '.') {
+				buf.append(Pattern.quote(pattern.substring(start, i)));
+				buf.append("(?:\\.|\\..*\\.)"); //$NON-NLS-1$
+				i++;
+				start = i + 1;
+			}
+		}
+		buf.append(Pattern.quote(pattern.substring(start)));
+		return Pattern.compile(buf.toString());
+	}
+	
+	/**
+	 * 指定の名前がこのパターンに一致する場合のみ{@code true}を返す。
+	 * @param name 対象の名前
+	 * @return 一致する場合に{@code true}、そうでない場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public boolean matches(String name) {
+		if (name == null) {
+			throw new NullPointerException("name"); //$NON-NLS-1$
+		}
+		switch (kind) {
+			case ANY:
+				return true;
+			case EXACT:
+				return name.equals(literal);
+			case PREFIX:
+				return name.startsWith(literal) && name.indexOf('.', literal.length()) < 0;
+			case REGEX:
+				return name.startsWith(literal) && regex.matcher(name).matches();
+			default:
+				throw new AssertionError(kind);
+		}
+	}
+	
+	/**
+	 * このパターンに一致するすべての名前が共通して持つ接頭辞を返す。
+	 * @return 共通の接頭辞、存在しない場合は空の文字列
+	 */
+	public String getLiteralPrefix() {
+		return literal;
+	}
+	
+	/**
+	 * このパターンがワイルドカードを含まない場合のみ{@code true}を返す。
+	 * @return ワイルドカードを含まない場合に{@code true}
+	 */
+	public boolean isLiteral() {
+		return kind == Kind.EXACT;
+	}
+	
+	@Override
+	public int hashCode() {
+		return image.hashCode();
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		return image.equals(((NamePattern) obj).image);
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0}", image); //$NON-NLS-1$
+	}
+}
@@ -91,6 +91,9 @@ public class NewInstanceEnhancer extends ExprEditor {
 			NewInstanceEnhancer enhancer =
 					new NewInstanceEnhancer(target, enhanceManager, productsToBeEnhanced, allProductAspects);
 			target.instrument(enhancer);
+			for (CtMethod helper : enhancer.helpers) {
+				target.addMethod(helper);
+			}
 			if (enhancer.aspects.isEmpty()) {
 				assert enhancer.holder == null;
 				return null;
@@ -116,6 +119,8 @@ public class NewInstanceEnhancer extends ExprEditor {
 	
 	private final List<Aspect<CtConstructor>> aspects;
 	
+	private final List<CtMethod> helpers;
+	
 	private int enhanceIndex;
 	
 	private CtField holder;
@@ -135,6 +140,7 @@ public class NewInstanceEnhancer extends ExprEditor {
 		reverseProductEnhanceMap = reverse(productsToBeEnhanced);
 		this.allProductAspects = allProductAspects;
 		aspects = new ArrayList<Aspect<CtConstructor>>();
+		helpers = new ArrayList<CtMethod>();
 		enhanceIndex = 0;
 		holder = null;
 	}
@@ -189,7 +195,11 @@ public class NewInstanceEnhancer extends ExprEditor {
 			});
 			
 			// new Hoge(...)の部分を、アドバイスの実行に置き換える
-			EnhanceManipulator.replaceToPointcut(expr, provider, holder, enhanceIndex);
+			CtMethod helper = EnhanceManipulator.replaceToPointcut(expr, provider, holder, enhanceIndex);
+			if (helper != null) {
+				// 走査中にメソッドを追加すると走査対象が変化するため、追加は走査の終了後に行う
+				helpers.add(helper);
+			}
 			
 			if (productEnhanceMap.containsKey(provider)) {
 				// newする対象のクラス自体がエンハンスされて別クラスになっている場合、
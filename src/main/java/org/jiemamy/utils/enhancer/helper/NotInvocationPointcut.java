@@ -27,7 +27,7 @@ import org.jiemamy.utils.enhancer.InvocationPointcut;
  * @version $Date$
  * @author Suguru ARAKAWA (Gluegent, Inc.)
  */
-public class NotInvocationPointcut implements InvocationPointcut {
+public class NotInvocationPointcut implements CostedPointcut {
 	
 	private final InvocationPointcut term;
 	
@@ -57,6 +57,26 @@ public class NotInvocationPointcut implements InvocationPointcut {
 		return term.isTarget(self, klass) == false;
 	}
 	
+	/**
+	 * 項にとるポイントカット定義を返す。
+	 * @return 項にとるポイントカット定義
+	 * @since 0.2.1
+	 */
+	public InvocationPointcut getTerm() {
+		return term;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、項にとるポイントカット定義のコストを返す。
+	 * </p>
+	 * @since 0.2.1
+	 */
+	public int getCost() {
+		return PointcutOptimizer.costOf(term);
+	}
+	
 	/**
 	 * このオブジェクトの文字列表現を返す。
 	 * <p>
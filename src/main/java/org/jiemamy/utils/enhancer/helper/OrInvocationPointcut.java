@@ -17,6 +17,7 @@ package org.jiemamy.utils.enhancer.helper;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javassist.CtBehavior;
@@ -29,7 +30,7 @@ import org.jiemamy.utils.enhancer.InvocationPointcut;
  * @version $Date$
  * @author Suguru ARAKAWA (Gluegent, Inc.)
  */
-public class OrInvocationPointcut implements InvocationPointcut {
+public class OrInvocationPointcut implements TypePrefixedPointcut, CostedPointcut, ClassMetadataPointcut {
 	
 	private final List<InvocationPointcut> terms;
 	
@@ -69,6 +70,71 @@ public class OrInvocationPointcut implements InvocationPointcut {
 		return false;
 	}
 	
+	/**
+	 * 項にとるポイントカット定義の一覧を返す。
+	 * @return 項にとるポイントカット定義の一覧
+	 * @since 0.2.1
+	 */
+	public List<InvocationPointcut> getTerms() {
+		return Collections.unmodifiableList(terms);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、項にとるポイントカット定義のコストの合計を返す。
+	 * </p>
+	 * @since 0.2.1
+	 */
+	public int getCost() {
+		return PointcutOptimizer.costOf(terms);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、項にとるすべてのポイントカット定義が持つ接頭辞の、共通の接頭辞を返す。
+	 * </p>
+	 * @since 0.2.1
+	 */
+	public String getTypePrefix() {
+		String result = null;
+		for (InvocationPointcut term : terms) {
+			if ((term instanceof TypePrefixedPointcut) == false) {
+				return ""; //$NON-NLS-1$
+			}
+			String prefix = ((TypePrefixedPointcut) term).getTypePrefix();
+			if (result == null) {
+				result = prefix;
+			} else {
+				int length = 0;
+				int limit = Math.min(result.length(), prefix.length());
+				while (length < limit && result.charAt(length) == prefix.charAt(length)) {
+					length++;
+				}
+				result = result.substring(0, length);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、項にとるすべてのポイントカット定義が対象となりえないと判定した場合に{@code false}を返す。
+	 * </p>
+	 * @since 0.2.1
+	 */
+	public boolean isCandidate(ClassMetadata metadata) {
+		for (InvocationPointcut term : terms) {
+			if ((term instanceof ClassMetadataPointcut) == false
+					|| ((ClassMetadataPointcut) term).isCandidate(metadata)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * このオブジェクトの文字列表現を返す。
 	 * <p>
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.enhancer.InvocationPointcut;
+import org.jiemamy.utils.enhancer.Pointcuts;
+
+/**
+ * 論理積、論理和、論理否定からなるポイントカット定義の木を、等価でより評価の安価な木に変換する。
+ * <p>
+ * この変換では、次の操作を行う。
+ * </p>
+ * <ul>
+ * <li> 入れ子になった論理積や論理和の平坦化 </li>
+ * <li> {@link Pointcuts#TRUE}, {@link Pointcuts#FALSE}の畳み込み </li>
+ * <li> 二重否定の除去 </li>
+ * <li> 等価な項の除去 </li>
+ * <li> {@link CostedPointcut#getCost() コスト}の昇順への項の並べ替え </li>
+ * </ul>
+ * <p>
+ * 並べ替えは安定であり、同じコストを持つ項の順序は変更されない。
+ * また、コストを宣言しない項は、後続の項に対する前提条件の検査を兼ねている場合があるため、
+ * 並べ替えの境界として扱われる。つまり、コストを宣言する項は、
+ * コストを宣言しない項を越えて前後に移動することはない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public final class PointcutOptimizer {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(PointcutOptimizer.class);
+	
+	/**
+	 * コストの昇順に並べる比較器。
+	 */
+	private static final Comparator<InvocationPointcut> BY_COST = new Comparator<InvocationPointcut>() {
+		
+		public int compare(InvocationPointcut o1, InvocationPointcut o2) {
+			int c1 = costOf(o1);
+			int c2 = costOf(o2);
+			return c1 < c2 ? -1 : c1 == c2 ? 0 : 1;
+		}
+	};
+	
+
+	/**
+	 * 指定のポイントカット定義を最適化した結果を返す。
+	 * <p>
+	 * 返されるポイントカット定義は、引数に指定したポイントカット定義と常に同じ判定結果を返す。
+	 * ただし、項の評価順序が変更されるため、それぞれの項の判定は副作用を持たないことが前提となる。
+	 * </p>
+	 * @param pointcut 対象のポイントカット定義
+	 * @return 最適化したポイントカット定義
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static InvocationPointcut optimize(InvocationPointcut pointcut) {
+		if (pointcut == null) {
+			throw new NullPointerException("pointcut"); //$NON-NLS-1$
+		}
+		InvocationPointcut result = rewrite(pointcut);
+		if (result != pointcut) {
+			LOG.debug("Optimized pointcut: {} -> {}", pointcut, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * 指定のポイントカット定義のコストを返す。
+	 * @param pointcut 対象のポイントカット定義
+	 * @return 対応するコスト
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static int costOf(InvocationPointcut pointcut) {
+		if (pointcut == null) {
+			throw new NullPointerException("pointcut"); //$NON-NLS-1$
+		}
+		if (pointcut instanceof CostedPointcut) {
+			return ((CostedPointcut) pointcut).getCost();
+		}
+		return CostedPointcut.COST_UNKNOWN;
+	}
+	
+	/**
+	 * 指定のポイントカット定義の一覧について、コストの合計を返す。
+	 * @param pointcuts 対象のポイントカット定義の一覧
+	 * @return コストの合計
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static int costOf(List<? extends InvocationPointcut> pointcuts) {
+		if (pointcuts == null) {
+			throw new NullPointerException("pointcuts"); //$NON-NLS-1$
+		}
+		long total = 0;
+		for (InvocationPointcut pointcut : pointcuts) {
+			total += costOf(pointcut);
+		}
+		return (int) Math.min(total, Integer.MAX_VALUE);
+	}
+	
+	private static InvocationPointcut rewrite(InvocationPointcut pointcut) {
+		assert pointcut != null;
+		if (pointcut instanceof NotInvocationPointcut) {
+			return rewriteNot((NotInvocationPointcut) pointcut);
+		} else if (pointcut instanceof AndInvocationPointcut) {
+			return rewriteJunction(((AndInvocationPointcut) pointcut).getTerms(), true, pointcut);
+		} else if (pointcut instanceof OrInvocationPointcut) {
+			return rewriteJunction(((OrInvocationPointcut) pointcut).getTerms(), false, pointcut);
+		}
+		return pointcut;
+	}
+	
+	private static InvocationPointcut rewriteNot(NotInvocationPointcut pointcut) {
+		assert pointcut != null;
+		InvocationPointcut term = rewrite(pointcut.getTerm());
+		if (term == Pointcuts.TRUE) {
+			return Pointcuts.FALSE;
+		} else if (term == Pointcuts.FALSE) {
+			return Pointcuts.TRUE;
+		} else if (term instanceof NotInvocationPointcut) {
+			return ((NotInvocationPointcut) term).getTerm();
+		} else if (term == pointcut.getTerm()) {
+			return pointcut;
+		}
+		return new NotInvocationPointcut(term);
+	}
+	
+	/**
+	 * 論理積または論理和を最適化する。
+	 * @param terms 項の一覧
+	 * @param conjunction 論理積の場合に{@code true}、論理和の場合に{@code false}
+	 * @param original 最適化前のポイントカット定義
+	 * @return 最適化したポイントカット定義
+	 */
+	private static InvocationPointcut rewriteJunction(List<InvocationPointcut> terms, boolean conjunction,
+			InvocationPointcut original) {
+		assert terms != null;
+		assert original != null;
+		InvocationPointcut identity = conjunction ? Pointcuts.TRUE : Pointcuts.FALSE;
+		InvocationPointcut absorbing = conjunction ? Pointcuts.FALSE : Pointcuts.TRUE;
+		Set<InvocationPointcut> flat = new LinkedHashSet<InvocationPointcut>();
+		if (flatten(terms, conjunction, flat)) {
+			return absorbing;
+		}
+		flat.remove(identity);
+		if (flat.isEmpty()) {
+			return identity;
+		}
+		if (flat.size() == 1) {
+			return flat.iterator().next();
+		}
+		List<InvocationPointcut> results = new ArrayList<InvocationPointcut>(flat);
+		sort(results);
+		if (results.equals(terms)) {
+			return original;
+		}
+		return conjunction ? new AndInvocationPointcut(results) : new OrInvocationPointcut(results);
+	}
+	
+	/**
+	 * コストを宣言しない項を境界として、その間の項をコストの昇順に並べ替える。
+	 * @param terms 対象の項の一覧
+	 */
+	private static void sort(List<InvocationPointcut> terms) {
+		assert terms != null;
+		int start = 0;
+		for (int i = 0, n = terms.size(); i <= n; i++) {
+			if (i == n || (terms.get(i) instanceof CostedPointcut) == false) {
+				Collections.sort(terms.subList(start, i), BY_COST);
+				start = i + 1;
+			}
+		}
+	}
+	
+	/**
+	 * 同種の演算子を平坦化して項を収集する。
+	 * @param terms 項の一覧
+	 * @param conjunction 論理積の場合に{@code true}、論理和の場合に{@code false}
+	 * @param results 収集した項を格納する集合
+	 * @return 演算子に対する吸収元 (論理積における{@code FALSE}など) が出現した場合に{@code true}
+	 */
+	private static boolean flatten(List<InvocationPointcut> terms, boolean conjunction,
+			Set<InvocationPointcut> results) {
+		assert terms != null;
+		assert results != null;
+		InvocationPointcut absorbing = conjunction ? Pointcuts.FALSE : Pointcuts.TRUE;
+		for (InvocationPointcut term : terms) {
+			InvocationPointcut rewritten = rewrite(term);
+			if (rewritten == absorbing) {
+				return true;
+			}
+			if (conjunction && rewritten instanceof AndInvocationPointcut) {
+				if (flatten(((AndInvocationPointcut) rewritten).getTerms(), true, results)) {
+					return true;
+				}
+			} else if (conjunction == false && rewritten instanceof OrInvocationPointcut) {
+				if (flatten(((OrInvocationPointcut) rewritten).getTerms(), false, results)) {
+					return true;
+				}
+			} else {
+				results.add(rewritten);
+			}
+		}
+		return false;
+	}
+	
+	private PointcutOptimizer() {
+		throw new AssertionError();
+	}
+}
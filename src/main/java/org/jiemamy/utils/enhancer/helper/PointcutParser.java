@@ -0,0 +1,286 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.lang.reflect.Modifier;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jiemamy.utils.enhancer.InvocationPointcut;
+import org.jiemamy.utils.enhancer.Pointcuts;
+
+/**
+ * ポイントカット式を解析し、対応する{@link InvocationPointcut}を構築する。
+ * <p>
+ * ポイントカット式は次の構文を持つ。
+ * </p>
+<pre><code>
+Expression:
+    Expression "||" Expression
+    Expression "&amp;&amp;" Expression
+    "!" Expression
+    "(" Expression ")"
+    "true"
+    "false"
+    "execution" "(" Modifier* TypePattern NamePattern "(" ParameterPatterns? ")" ")"
+    "new" "(" TypePattern ( "(" ParameterPatterns? ")" )? ")"
+    "within" "(" TypePattern ")"
+    "within" "(" "@" TypePattern ")"
+    "annotated" "(" "@" TypePattern ")"
+ParameterPatterns:
+    ParameterPattern ( "," ParameterPattern )*
+ParameterPattern:
+    TypePattern
+    ".."
+</code></pre>
+ * <p>
+ * {@code execution}の{@code NamePattern}は、最後のピリオドより前がメソッドを公開する型のパターン、
+ * それ以降がメソッド名のパターンとして扱われる。
+ * それぞれのパターンの形式は{@link NamePattern}を参照。
+ * </p>
+ * <p>
+ * 演算子の優先順位は{@code !}, {@code &&}, {@code ||}の順に高い。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class PointcutParser {
+	
+	private static final Map<String, Integer> MODIFIERS;
+	static {
+		Map<String, Integer> map = new HashMap<String, Integer>();
+		map.put("public", Modifier.PUBLIC); //$NON-NLS-1$
+		map.put("protected", Modifier.PROTECTED); //$NON-NLS-1$
+		map.put("private", Modifier.PRIVATE); //$NON-NLS-1$
+		map.put("static", Modifier.STATIC); //$NON-NLS-1$
+		map.put("final", Modifier.FINAL); //$NON-NLS-1$
+		map.put("synchronized", Modifier.SYNCHRONIZED); //$NON-NLS-1$
+		map.put("native", Modifier.NATIVE); //$NON-NLS-1$
+		map.put("abstract", Modifier.ABSTRACT); //$NON-NLS-1$
+		MODIFIERS = map;
+	}
+	
+	private final String text;
+	
+	private int position;
+	
+
+	private PointcutParser(String text) {
+		assert text != null;
+		this.text = text;
+		this.position = 0;
+	}
+	
+	/**
+	 * 指定のポイントカット式を解析し、対応するポイントカット定義を返す。
+	 * @param expression 対象のポイントカット式
+	 * @return 対応するポイントカット定義
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException ポイントカット式の構文が正しくない場合
+	 */
+	public static InvocationPointcut parse(String expression) {
+		if (expression == null) {
+			throw new NullPointerException("expression"); //$NON-NLS-1$
+		}
+		PointcutParser parser = new PointcutParser(expression);
+		InvocationPointcut result = parser.parseOr();
+		parser.skipWhitespace();
+		if (parser.position < expression.length()) {
+			throw parser.error("end of expression"); //$NON-NLS-1$
+		}
+		return result;
+	}
+	
+	private InvocationPointcut parseOr() {
+		List<InvocationPointcut> terms = new ArrayList<InvocationPointcut>();
+		terms.add(parseAnd());
+		while (consume("||")) { //$NON-NLS-1$
+			terms.add(parseAnd());
+		}
+		return terms.size() == 1 ? terms.get(0) : new OrInvocationPointcut(terms);
+	}
+	
+	private InvocationPointcut parseAnd() {
+		List<InvocationPointcut> terms = new ArrayList<InvocationPointcut>();
+		terms.add(parseUnary());
+		while (consume("&&")) { //$NON-NLS-1$
+			terms.add(parseUnary());
+		}
+		return terms.size() == 1 ? terms.get(0) : new AndInvocationPointcut(terms);
+	}
+	
+	private InvocationPointcut parseUnary() {
+		if (consume("!")) { //$NON-NLS-1$
+			return new NotInvocationPointcut(parseUnary());
+		}
+		if (consume("(")) { //$NON-NLS-1$
+			InvocationPointcut result = parseOr();
+			expect(")"); //$NON-NLS-1$
+			return result;
+		}
+		int start = position;
+		String keyword = nextWord();
+		if (keyword.equals("true")) { //$NON-NLS-1$
+			return Pointcuts.TRUE;
+		} else if (keyword.equals("false")) { //$NON-NLS-1$
+			return Pointcuts.FALSE;
+		} else if (keyword.equals("execution")) { //$NON-NLS-1$
+			expect("("); //$NON-NLS-1$
+			InvocationPointcut result = parseExecution();
+			expect(")"); //$NON-NLS-1$
+			return result;
+		} else if (keyword.equals("new")) { //$NON-NLS-1$
+			expect("("); //$NON-NLS-1$
+			NamePattern type = parsePattern(nextWord());
+			List<NamePattern> parameters = null;
+			if (consume("(")) { //$NON-NLS-1$
+				parameters = parseParameters();
+			}
+			expect(")"); //$NON-NLS-1$
+			return SignaturePointcut.instantiation(type, parameters);
+		} else if (keyword.equals("within")) { //$NON-NLS-1$
+			expect("("); //$NON-NLS-1$
+			InvocationPointcut result;
+			if (consume("@")) { //$NON-NLS-1$
+				result = new AnnotationPatternPointcut(parsePattern(nextWord()), true);
+			} else {
+				result = new TypePatternPointcut(parsePattern(nextWord()));
+			}
+			expect(")"); //$NON-NLS-1$
+			return result;
+		} else if (keyword.equals("annotated")) { //$NON-NLS-1$
+			expect("("); //$NON-NLS-1$
+			expect("@"); //$NON-NLS-1$
+			InvocationPointcut result = new AnnotationPatternPointcut(parsePattern(nextWord()), false);
+			expect(")"); //$NON-NLS-1$
+			return result;
+		}
+		position = start;
+		throw error("pointcut designator"); //$NON-NLS-1$
+	}
+	
+	private InvocationPointcut parseExecution() {
+		List<String> words = new ArrayList<String>();
+		while (true) {
+			skipWhitespace();
+			if (position < text.length() && text.charAt(position) == '(') {
+				break;
+			}
+			words.add(nextWord());
+		}
+		expect("("); //$NON-NLS-1$
+		List<NamePattern> parameters = parseParameters();
+		if (words.size() < 2) {
+			throw error("return type and method name"); //$NON-NLS-1$
+		}
+		int modifiers = 0;
+		for (String modifier : words.subList(0, words.size() - 2)) {
+			Integer flag = MODIFIERS.get(modifier);
+			if (flag == null) {
+				throw error(MessageFormat.format("modifier (but was \"{0}\")", modifier)); //$NON-NLS-1$
+			}
+			modifiers |= flag;
+		}
+		NamePattern returnType = parsePattern(words.get(words.size() - 2));
+		String qualified = words.get(words.size() - 1);
+		int lastDot = qualified.lastIndexOf('.');
+		NamePattern type;
+		NamePattern name;
+		if (lastDot < 0) {
+			type = NamePattern.ANY;
+			name = parsePattern(qualified);
+		} else if (lastDot > 0 && qualified.charAt(lastDot - 1) == '.') {
+			type = parsePattern(qualified.substring(0, lastDot + 1) + "*"); //$NON-NLS-1$
+			name = parsePattern(qualified.substring(lastDot + 1));
+		} else {
+			type = parsePattern(qualified.substring(0, lastDot));
+			name = parsePattern(qualified.substring(lastDot + 1));
+		}
+		return SignaturePointcut.execution(modifiers, returnType, type, name, parameters);
+	}
+	
+	private List<NamePattern> parseParameters() {
+		List<NamePattern> results = new ArrayList<NamePattern>();
+		if (consume(")")) { //$NON-NLS-1$
+			return results;
+		}
+		do {
+			results.add(parsePattern(nextWord()));
+		} while (consume(",")); //$NON-NLS-1$
+		expect(")"); //$NON-NLS-1$
+		return results;
+	}
+	
+	private NamePattern parsePattern(String pattern) {
+		assert pattern != null;
+		if (pattern.length() == 0 || pattern.endsWith(".") && pattern.equals("..") == false) { //$NON-NLS-1$
+			throw error(MessageFormat.format("name pattern (but was \"{0}\")", pattern)); //$NON-NLS-1$
+		}
+		return NamePattern.compile(pattern);
+	}
+	
+	private String nextWord() {
+		skipWhitespace();
+		int start = position;
+		while (position < text.length() && isWordPart(text.charAt(position))) {
+			position++;
+		}
+		if (start == position) {
+			throw error("name"); //$NON-NLS-1$
+		}
+		return text.substring(start, position);
+	}
+	
+	private static boolean isWordPart(char c) {
+		return Character.isJavaIdentifierPart(c) || c == '.' || c == '*' || c == '[' || c == ']';
+	}
+	
+	private boolean consume(String token) {
+		assert token != null;
+		skipWhitespace();
+		if (text.startsWith(token, position)) {
+			position += token.length();
+			return true;
+		}
+		return false;
+	}
+	
+	private void expect(String token) {
+		assert token != null;
+		if (consume(token) == false) {
+			throw error(MessageFormat.format("\"{0}\"", token)); //$NON-NLS-1$
+		}
+	}
+	
+	private void skipWhitespace() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+	}
+	
+	private IllegalArgumentException error(String expected) {
+		assert expected != null;
+		return new IllegalArgumentException(MessageFormat.format(
+				"Expected {0} at position {1}: {2}",
+				expected,
+				String.valueOf(position),
+				text));
+	}
+}
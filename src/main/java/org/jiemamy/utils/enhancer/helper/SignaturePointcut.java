@@ -0,0 +1,369 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javassist.CtBehavior;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtMethod;
+
+/**
+ * メソッドやコンストラクタのシグネチャに対するパターンによって対象を決定するポイントカット定義。
+ * <p>
+ * 名前や型に対するパターンは生成時にすべて{@link NamePattern}として解析され、
+ * 引数や戻り値の型はメソッド記述子から直接計算されるため、判定の際にクラスはロードされない。
+ * 型の名前は、配列型であれば{@code java.lang.String[]}、入れ子の型であれば{@code com.example.Outer$Inner}のように、
+ * 完全限定名で照合される。
+ * </p>
+ * <p>
+ * 引数型のパターンの一覧には、任意個の引数に一致する{@code ..}を含めることができる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class SignaturePointcut implements TypePrefixedPointcut, CostedPointcut, ClassMetadataPointcut {
+	
+	/**
+	 * 任意個の引数に一致するパターン。
+	 */
+	private static final NamePattern REST = NamePattern.compile(".."); //$NON-NLS-1$
+	
+	/**
+	 * メソッドを対象とする場合に{@code true}、コンストラクタを対象とする場合に{@code false}。
+	 */
+	private final boolean method;
+	
+	private final int modifiers;
+	
+	private final NamePattern returnType;
+	
+	private final NamePattern type;
+	
+	private final NamePattern name;
+	
+	/**
+	 * 引数型のパターン、任意の引数を対象とする場合は{@code null}。
+	 */
+	private final NamePattern[] parameterTypes;
+	
+
+	private SignaturePointcut(boolean method, int modifiers, NamePattern returnType, NamePattern type,
+			NamePattern name, List<NamePattern> parameterTypes) {
+		assert returnType != null;
+		assert type != null;
+		assert name != null;
+		this.method = method;
+		this.modifiers = modifiers;
+		this.returnType = returnType;
+		this.type = type;
+		this.name = name;
+		if (parameterTypes == null || parameterTypes.equals(Arrays.asList(REST))) {
+			this.parameterTypes = null;
+		} else {
+			this.parameterTypes = parameterTypes.toArray(new NamePattern[parameterTypes.size()]);
+		}
+	}
+	
+	/**
+	 * メソッドの実行を対象とするポイントカット定義を返す。
+	 * @param modifiers 対象のメソッドが必ず持つ修飾子のビットマスク
+	 * @param returnType 戻り値型のパターン
+	 * @param type メソッドを公開する型のパターン
+	 * @param name メソッド名のパターン
+	 * @param parameterTypes 引数型のパターンの一覧、任意の引数を対象とする場合は{@code null}
+	 * @return 対応するポイントカット定義
+	 * @throws NullPointerException 引数{@code parameterTypes}以外に{@code null}が指定された場合
+	 */
+	public static SignaturePointcut execution(int modifiers, NamePattern returnType, NamePattern type,
+			NamePattern name, List<NamePattern> parameterTypes) {
+		if (returnType == null) {
+			throw new NullPointerException("returnType"); //$NON-NLS-1$
+		}
+		if (type == null) {
+			throw new NullPointerException("type"); //$NON-NLS-1$
+		}
+		if (name == null) {
+			throw new NullPointerException("name"); //$NON-NLS-1$
+		}
+		return new SignaturePointcut(true, modifiers, returnType, type, name, parameterTypes);
+	}
+	
+	/**
+	 * インスタンスの生成を対象とするポイントカット定義を返す。
+	 * @param type 生成するインスタンスの型のパターン
+	 * @param parameterTypes 引数型のパターンの一覧、任意の引数を対象とする場合は{@code null}
+	 * @return 対応するポイントカット定義
+	 * @throws NullPointerException 引数{@code type}に{@code null}が指定された場合
+	 */
+	public static SignaturePointcut instantiation(NamePattern type, List<NamePattern> parameterTypes) {
+		if (type == null) {
+			throw new NullPointerException("type"); //$NON-NLS-1$
+		}
+		return new SignaturePointcut(false, 0, NamePattern.ANY, type, NamePattern.ANY, parameterTypes);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、種類、修飾子、名前、型、引数型の順に、計算量の小さいものから順に検査する。
+	 * </p>
+	 */
+	public boolean isTarget(CtClass self, CtBehavior behavior) {
+		if (method) {
+			if ((behavior instanceof CtMethod) == false) {
+				return false;
+			}
+		} else if ((behavior instanceof CtConstructor) == false) {
+			return false;
+		}
+		if ((behavior.getModifiers() & modifiers) != modifiers) {
+			return false;
+		}
+		if (name.matches(behavior.getName()) == false) {
+			return false;
+		}
+		if (type.matches(self.getName()) == false) {
+			return false;
+		}
+		if (parameterTypes == null && returnType == NamePattern.ANY) {
+			return true;
+		}
+		String descriptor = behavior.getMethodInfo2().getDescriptor();
+		int end = descriptor.indexOf(')');
+		if (method && returnType.matches(toTypeName(descriptor, end + 1, descriptor.length())) == false) {
+			return false;
+		}
+		if (parameterTypes == null) {
+			return true;
+		}
+		return matchParameters(0, parseParameters(descriptor, end), 0);
+	}
+	
+	private boolean matchParameters(int patternIndex, List<String> parameters, int parameterIndex) {
+		assert parameters != null;
+		if (patternIndex == parameterTypes.length) {
+			return parameterIndex == parameters.size();
+		}
+		NamePattern pattern = parameterTypes[patternIndex];
+		if (pattern.equals(REST)) {
+			for (int i = parameterIndex, n = parameters.size(); i <= n; i++) {
+				if (matchParameters(patternIndex + 1, parameters, i)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (parameterIndex == parameters.size()) {
+			return false;
+		}
+		if (pattern.matches(parameters.get(parameterIndex)) == false) {
+			return false;
+		}
+		return matchParameters(patternIndex + 1, parameters, parameterIndex + 1);
+	}
+	
+	private static List<String> parseParameters(String descriptor, int end) {
+		assert descriptor != null;
+		assert descriptor.charAt(0) == '(';
+		List<String> results = new ArrayList<String>();
+		int index = 1;
+		while (index < end) {
+			int next = index;
+			while (descriptor.charAt(next) == '[') {
+				next++;
+			}
+			if (descriptor.charAt(next) == 'L') {
+				next = descriptor.indexOf(';', next);
+			}
+			results.add(toTypeName(descriptor, index, next + 1));
+			index = next + 1;
+		}
+		return results;
+	}
+	
+	/**
+	 * 型記述子を型の完全限定名に変換する。
+	 * @param descriptor 型記述子を含む文字列
+	 * @param start 型記述子の開始位置
+	 * @param end 型記述子の終了位置 (この位置の文字を含まない)
+	 * @return 対応する型の名前
+	 */
+	private static String toTypeName(String descriptor, int start, int end) {
+		assert descriptor != null;
+		int dimensions = 0;
+		while (descriptor.charAt(start + dimensions) == '[') {
+			dimensions++;
+		}
+		String component;
+		char tag = descriptor.charAt(start + dimensions);
+		switch (tag) {
+			case 'L':
+				component = descriptor.substring(start + dimensions + 1, end - 1).replace('/', '.');
+				break;
+			case 'Z':
+				component = "boolean"; //$NON-NLS-1$
+				break;
+			case 'B':
+				component = "byte"; //$NON-NLS-1$
+				break;
+			case 'C':
+				component = "char"; //$NON-NLS-1$
+				break;
+			case 'S':
+				component = "short"; //$NON-NLS-1$
+				break;
+			case 'I':
+				component = "int"; //$NON-NLS-1$
+				break;
+			case 'J':
+				component = "long"; //$NON-NLS-1$
+				break;
+			case 'F':
+				component = "float"; //$NON-NLS-1$
+				break;
+			case 'D':
+				component = "double"; //$NON-NLS-1$
+				break;
+			case 'V':
+				component = "void"; //$NON-NLS-1$
+				break;
+			default:
+				throw new IllegalArgumentException(descriptor);
+		}
+		if (dimensions == 0) {
+			return component;
+		}
+		StringBuilder buf = new StringBuilder(component);
+		for (int i = 0; i < dimensions; i++) {
+			buf.append("[]"); //$NON-NLS-1$
+		}
+		return buf.toString();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、対象の型のパターンがワイルドカードの手前に持つ文字列を返す。
+	 * </p>
+	 */
+	public String getTypePrefix() {
+		return type.getLiteralPrefix();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、{@link #COST_NAME}を返す。
+	 * </p>
+	 */
+	public int getCost() {
+		return COST_NAME;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、メソッドを対象とし、かつクラスの名前が型のパターンに一致する場合のみ{@code true}を返す。
+	 * </p>
+	 */
+	public boolean isCandidate(ClassMetadata metadata) {
+		return method && type.matches(metadata.getName());
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (method ? 1231 : 1237);
+		result = prime * result + modifiers;
+		result = prime * result + returnType.hashCode();
+		result = prime * result + type.hashCode();
+		result = prime * result + name.hashCode();
+		result = prime * result + Arrays.hashCode(parameterTypes);
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		SignaturePointcut other = (SignaturePointcut) obj;
+		if (method != other.method) {
+			return false;
+		}
+		if (modifiers != other.modifiers) {
+			return false;
+		}
+		if (returnType.equals(other.returnType) == false) {
+			return false;
+		}
+		if (type.equals(other.type) == false) {
+			return false;
+		}
+		if (name.equals(other.name) == false) {
+			return false;
+		}
+		if (Arrays.equals(parameterTypes, other.parameterTypes) == false) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		String parameters = parameterTypes == null ? ".." : join(parameterTypes); //$NON-NLS-1$
+		if (method) {
+			return MessageFormat.format("execution({0}{1} {2}.{3}({4}))", //$NON-NLS-1$
+					modifiers == 0 ? "" : javassist.Modifier.toString(modifiers) + " ", //$NON-NLS-1$ //$NON-NLS-2$
+					returnType,
+					type,
+					name,
+					parameters);
+		}
+		return MessageFormat.format("new({0}({1}))", //$NON-NLS-1$
+				type,
+				parameters);
+	}
+	
+	private static String join(NamePattern[] patterns) {
+		assert patterns != null;
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < patterns.length; i++) {
+			if (i > 0) {
+				buf.append(", "); //$NON-NLS-1$
+			}
+			buf.append(patterns[i]);
+		}
+		return buf.toString();
+	}
+}
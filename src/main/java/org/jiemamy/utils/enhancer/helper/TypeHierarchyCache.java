@@ -0,0 +1,326 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.NotFoundException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 型階層に関する問い合わせの結果を保持するキャッシュ。
+ * <p>
+ * {@link CtClass#getMethods()}や{@link CtClass#subtypeOf(CtClass)}は、呼び出しのたびに
+ * 親クラスや親インターフェースをたどって結果を計算する。
+ * 多数のプロダクトが共通の深い型階層を持つ場合、同じ階層が何度もたどられることになるため、
+ * このキャッシュはそれらの結果を{@link ClassPool}ごとに保持して再利用する。
+ * </p>
+ * <p>
+ * ロードされた後に変更されていない型({@link CtClass#isModified()}が{@code false}である型)のみが
+ * キャッシュの対象となる。
+ * 拡張の過程で生成、または変更される型については、毎回結果を計算する。
+ * </p>
+ * <p>
+ * このクラスのインスタンスはスレッドセーフである。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class TypeHierarchyCache {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(TypeHierarchyCache.class);
+	
+	private final Map<CtClass, List<CtMethod>> methods = new HashMap<CtClass, List<CtMethod>>();
+	
+	private final Map<CtClass, List<CtClass>> interfaceClosures = new HashMap<CtClass, List<CtClass>>();
+	
+	private final Map<String, Boolean> subtypes = new HashMap<String, Boolean>();
+	
+	private final Map<String, Boolean> members = new HashMap<String, Boolean>();
+	
+
+	/**
+	 * 指定の{@link ClassPool}に対応するキャッシュを返す。
+	 * <p>
+	 * {@link JavassistConverter}が提供する{@link ClassPool}を指定した場合、
+	 * そのプールに関連付けられたキャッシュを返す。
+	 * そうでない場合、結果を共有しない新しいキャッシュを返す。
+	 * </p>
+	 * @param pool 対象のプール
+	 * @return 対応するキャッシュ
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static TypeHierarchyCache of(ClassPool pool) {
+		if (pool == null) {
+			throw new NullPointerException("pool"); //$NON-NLS-1$
+		}
+		TypeHierarchyCache cache = JavassistConverter.findTypeHierarchyCache(pool);
+		if (cache != null) {
+			return cache;
+		}
+		return new TypeHierarchyCache();
+	}
+	
+	/**
+	 * 指定の型が公開するすべてのメソッドを返す。
+	 * <p>
+	 * 返されるリストは{@link CtClass#getMethods()}と同じ要素を含み、変更できない。
+	 * </p>
+	 * @param klass 対象の型
+	 * @return 対象の型が公開するメソッドの一覧
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public synchronized List<CtMethod> getMethods(CtClass klass) {
+		if (klass == null) {
+			throw new NullPointerException("klass"); //$NON-NLS-1$
+		}
+		List<CtMethod> results = methods.get(klass);
+		if (results != null) {
+			return results;
+		}
+		results = Collections.unmodifiableList(Arrays.asList(klass.getMethods()));
+		if (isCacheable(klass)) {
+			methods.put(klass, results);
+		}
+		return results;
+	}
+	
+	/**
+	 * 指定のインターフェースと、そのすべての親インターフェースの一覧を返す。
+	 * <p>
+	 * 返されるリストの先頭は指定のインターフェース自身であり、
+	 * それぞれのインターフェースは一度だけ含まれる。
+	 * 返されるリストは変更できない。
+	 * </p>
+	 * @param anInterface 対象のインターフェース
+	 * @return 対象のインターフェースと、そのすべての親インターフェースの一覧
+	 * @throws NotFoundException 親インターフェースの解決に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public synchronized List<CtClass> getInterfaceClosure(CtClass anInterface) throws NotFoundException {
+		if (anInterface == null) {
+			throw new NullPointerException("anInterface"); //$NON-NLS-1$
+		}
+		List<CtClass> results = interfaceClosures.get(anInterface);
+		if (results != null) {
+			return results;
+		}
+		Set<CtClass> closure = new LinkedHashSet<CtClass>();
+		closure.add(anInterface);
+		for (CtClass superInterface : anInterface.getInterfaces()) {
+			closure.addAll(getInterfaceClosure(superInterface));
+		}
+		results = Collections.unmodifiableList(new ArrayList<CtClass>(closure));
+		if (isCacheable(anInterface)) {
+			interfaceClosures.put(anInterface, results);
+		}
+		return results;
+	}
+	
+	/**
+	 * {@code subtype}が{@code supertype}のサブタイプである場合のみ{@code true}を返す。
+	 * <p>
+	 * 判定は{@link CtClass#subtypeOf(CtClass)}と同様に行う。
+	 * </p>
+	 * @param subtype 検査対象の型
+	 * @param supertype 親となる型
+	 * @return サブタイプである場合に{@code true}
+	 * @throws NotFoundException 型階層の解決に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public synchronized boolean isSubtype(CtClass subtype, CtClass supertype) throws NotFoundException {
+		if (subtype == null) {
+			throw new NullPointerException("subtype"); //$NON-NLS-1$
+		}
+		if (supertype == null) {
+			throw new NullPointerException("supertype"); //$NON-NLS-1$
+		}
+		if (subtype == supertype) {
+			return true;
+		}
+		if (isCacheable(subtype) == false || isCacheable(supertype) == false) {
+			return subtype.subtypeOf(supertype);
+		}
+		String key = MessageFormat.format("{0}<:{1}", subtype.getName(), supertype.getName()); //$NON-NLS-1$
+		Boolean result = subtypes.get(key);
+		if (result == null) {
+			result = subtype.subtypeOf(supertype);
+			subtypes.put(key, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * 指定の型、またはその親の型が、指定の名前とデスクリプタを持つメソッドを宣言している場合のみ{@code true}を返す。
+	 * <p>
+	 * 判定は{@link CtClass#getMethod(String, String)}と同様に行うため、公開されていないメソッドも対象となる。
+	 * </p>
+	 * @param klass 対象の型
+	 * @param name メソッドの名前
+	 * @param descriptor メソッドのデスクリプタ
+	 * @return 対象のメソッドを宣言している場合に{@code true}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public synchronized boolean hasMethod(CtClass klass, String name, String descriptor) {
+		if (klass == null) {
+			throw new NullPointerException("klass"); //$NON-NLS-1$
+		}
+		if (name == null) {
+			throw new NullPointerException("name"); //$NON-NLS-1$
+		}
+		if (descriptor == null) {
+			throw new NullPointerException("descriptor"); //$NON-NLS-1$
+		}
+		String key = null;
+		if (isCacheable(klass)) {
+			key = klass.getName() + '#' + name + descriptor;
+			Boolean cached = members.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		boolean result;
+		try {
+			klass.getMethod(name, descriptor);
+			result = true;
+		} catch (NotFoundException e) {
+			result = false;
+		}
+		if (key != null) {
+			members.put(key, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * このキャッシュが保持する結果のうち、指定の型に関するものを破棄する。
+	 * <p>
+	 * 指定の型に対する問い合わせの結果に加え、指定の型を含む結果や、
+	 * 指定の型で宣言されたメソッドを含む結果も破棄する。
+	 * {@link JavassistConverter#release(CtClass)}によってクラスがプールから取り除かれた場合に、
+	 * 取り除かれたクラスへの参照を残さないよう、この呼び出しが行われる。
+	 * </p>
+	 * @param klass 対象の型
+	 * @return 破棄した結果の個数
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public synchronized int evict(CtClass klass) {
+		if (klass == null) {
+			throw new NullPointerException("klass"); //$NON-NLS-1$
+		}
+		int count = 0;
+		for (Iterator<Map.Entry<CtClass, List<CtMethod>>> iter = methods.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<CtClass, List<CtMethod>> entry = iter.next();
+			if (entry.getKey() == klass || declares(entry.getValue(), klass)) {
+				iter.remove();
+				count++;
+			}
+		}
+		Iterator<Map.Entry<CtClass, List<CtClass>>> closures = interfaceClosures.entrySet().iterator();
+		while (closures.hasNext()) {
+			Map.Entry<CtClass, List<CtClass>> entry = closures.next();
+			if (entry.getKey() == klass || entry.getValue().contains(klass)) {
+				closures.remove();
+				count++;
+			}
+		}
+		String name = klass.getName();
+		for (Iterator<String> iter = subtypes.keySet().iterator(); iter.hasNext();) {
+			String key = iter.next();
+			int separator = key.indexOf("<:"); //$NON-NLS-1$
+			assert separator >= 0;
+			if (key.substring(0, separator).equals(name) || key.substring(separator + 2).equals(name)) {
+				iter.remove();
+				count++;
+			}
+		}
+		String memberPrefix = name + '#';
+		for (Iterator<String> iter = members.keySet().iterator(); iter.hasNext();) {
+			if (iter.next().startsWith(memberPrefix)) {
+				iter.remove();
+				count++;
+			}
+		}
+		if (count > 0) {
+			LOG.trace("Evicted {} entries of {}", count, name);
+		}
+		return count;
+	}
+	
+	private static boolean declares(List<CtMethod> methodList, CtClass klass) {
+		assert methodList != null;
+		assert klass != null;
+		for (CtMethod method : methodList) {
+			if (method.getDeclaringClass() == klass) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * このキャッシュが保持するすべての結果を破棄する。
+	 */
+	public synchronized void clear() {
+		if (methods.isEmpty() && interfaceClosures.isEmpty() && subtypes.isEmpty() && members.isEmpty()) {
+			return;
+		}
+		LOG.trace("Clearing type hierarchy cache: {}", this);
+		methods.clear();
+		interfaceClosures.clear();
+		subtypes.clear();
+		members.clear();
+	}
+	
+	/**
+	 * このキャッシュが保持している結果の個数を返す。
+	 * @return 保持している結果の個数
+	 */
+	public synchronized int size() {
+		return methods.size() + interfaceClosures.size() + subtypes.size() + members.size();
+	}
+	
+	private static boolean isCacheable(CtClass klass) {
+		assert klass != null;
+		return klass.isModified() == false;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public synchronized String toString() {
+		return MessageFormat.format("TypeHierarchyCache(methods={0}, interfaces={1}, subtypes={2}, members={3})", //$NON-NLS-1$
+				String.valueOf(methods.size()), String.valueOf(interfaceClosures.size()),
+				String.valueOf(subtypes.size()), String.valueOf(members.size()));
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import java.text.MessageFormat;
+
+import javassist.CtBehavior;
+import javassist.CtClass;
+
+/**
+ * メソッドやコンストラクタを公開する型の名前に対するパターンによって対象を決定するポイントカット定義。
+ * <p>
+ * 照合の対象は{@link #isTarget(CtClass, CtBehavior) isTarget(self, behavior)}の{@code self}であり、
+ * メソッドを実際に宣言するクラスではない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public class TypePatternPointcut implements TypePrefixedPointcut, CostedPointcut, ClassMetadataPointcut {
+	
+	private final NamePattern type;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param type 対象の型の名前に対するパターン
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public TypePatternPointcut(NamePattern type) {
+		super();
+		if (type == null) {
+			throw new NullPointerException("type"); //$NON-NLS-1$
+		}
+		this.type = type;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、{@code self}の名前がコンストラクタに指定されたパターンに一致する場合のみ{@code true}を返す。
+	 * </p>
+	 */
+	public boolean isTarget(CtClass self, CtBehavior behavior) {
+		return type.matches(self.getName());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、パターンがワイルドカードの手前に持つ文字列を返す。
+	 * </p>
+	 */
+	public String getTypePrefix() {
+		return type.getLiteralPrefix();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、{@link #COST_NAME}を返す。
+	 * </p>
+	 */
+	public int getCost() {
+		return COST_NAME;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * この実装では、クラスの名前がパターンに一致する場合のみ{@code true}を返す。
+	 * </p>
+	 */
+	public boolean isCandidate(ClassMetadata metadata) {
+		return type.matches(metadata.getName());
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + type.hashCode();
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		TypePatternPointcut other = (TypePatternPointcut) obj;
+		if (type.equals(other.type) == false) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトのデバッグ用の文字列表現
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("within({0})", type); //$NON-NLS-1$
+	}
+}
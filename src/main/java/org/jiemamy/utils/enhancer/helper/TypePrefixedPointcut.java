@@ -0,0 +1,41 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import org.jiemamy.utils.enhancer.InvocationPointcut;
+
+/**
+ * 対象とするクラスの名前が、特定の接頭辞を持つことが事前にわかっているポイントカット定義。
+ * <p>
+ * {@link EnhanceManager}は、この接頭辞を持たないクラスに対して
+ * {@link #isTarget(javassist.CtClass, javassist.CtBehavior) isTarget}の呼び出し自体を省略する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ * @since 0.2.1
+ */
+public interface TypePrefixedPointcut extends InvocationPointcut {
+	
+	/**
+	 * このポイントカット定義が対象とするクラスの名前が、共通して持つ接頭辞を返す。
+	 * <p>
+	 * {@link #isTarget(javassist.CtClass, javassist.CtBehavior) isTarget(self, behavior)}は、
+	 * {@code self}の名前がこの接頭辞で始まらない場合に必ず{@code false}を返さなければならない。
+	 * </p>
+	 * @return 共通の接頭辞、存在しない場合は空の文字列
+	 */
+	String getTypePrefix();
+}
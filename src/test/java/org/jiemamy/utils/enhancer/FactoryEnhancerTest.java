@@ -15,17 +15,34 @@
  */
 package org.jiemamy.utils.enhancer;
 
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.jiemamy.utils.enhancer.Pointcuts.and;
 import static org.jiemamy.utils.enhancer.Pointcuts.or;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
@@ -38,6 +55,9 @@ import org.jiemamy.utils.enhancer.aspect.IntResultPointcut;
 import org.jiemamy.utils.enhancer.aspect.StringParameterPointcut;
 import org.jiemamy.utils.enhancer.aspect.StringResultPointcut;
 import org.jiemamy.utils.enhancer.aspect.ThroughHandler;
+import org.jiemamy.utils.enhancer.handler.LazyInstantiationHandler;
+import org.jiemamy.utils.enhancer.handler.PoolingHandler;
+import org.jiemamy.utils.enhancer.handler.ProductResetter;
 
 /**
  * Test for {@link FactoryEnhancer}.
@@ -303,6 +323,92 @@ public class FactoryEnhancerTest {
 		assertThat(SingularFactory.class.isAssignableFrom(enhanced), is(true));
 	}
 	
+	/**
+	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
+	 * 同じファクトリを拡張する複数のエンハンサは、クラスローダを共有しつつ異なるクラスを生成する。
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetEnhanced_SharedLoader() throws Exception {
+		FactoryEnhancer<TargetFactory> enhancer1 =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, new Enhance(
+						new StringResultPointcut(), new AfterStringAppendHandler("!")));
+		FactoryEnhancer<TargetFactory> enhancer2 =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, new Enhance(
+						new StringResultPointcut(), new AfterStringAppendHandler("?")));
+		enhancer1.setSharedClassLoader(true);
+		enhancer2.setSharedClassLoader(true);
+		Class<? extends TargetFactory> enhanced1 = enhancer1.getEnhanced();
+		Class<? extends TargetFactory> enhanced2 = enhancer2.getEnhanced();
+		assertThat(enhanced1, is(not((Object) enhanced2)));
+		assertThat(enhanced1.getClassLoader(), sameInstance(enhanced2.getClassLoader()));
+		
+		assertThat(enhanced1.newInstance().newProduct1("a").getValue(), is("a1!"));
+		assertThat(enhanced2.newInstance().newProduct1("a").getValue(), is("a1?"));
+	}
+	
+	/**
+	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
+	 * 既定では、それぞれのエンハンサは専用のクラスローダを利用する。
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetEnhanced_DedicatedLoader() throws Exception {
+		FactoryEnhancer<TargetFactory> enhancer1 =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, enhances());
+		FactoryEnhancer<TargetFactory> enhancer2 =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, enhances());
+		Class<? extends TargetFactory> enhanced1 = enhancer1.getEnhanced();
+		Class<? extends TargetFactory> enhanced2 = enhancer2.getEnhanced();
+		assertThat(enhanced1.getClassLoader(), not(sameInstance(enhanced2.getClassLoader())));
+		try {
+			enhancer1.setSharedClassLoader(true);
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+	}
+	
+	/**
+	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
+	 * クラスローダを共有する複数のエンハンサは、並行してクラスを定義できる。
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetEnhanced_SharedLoaderConcurrent() throws Exception {
+		final int count = 8;
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Class<? extends TargetFactory>>> futures = new ArrayList<Future<Class<? extends TargetFactory>>>();
+		ExecutorService executor = Executors.newFixedThreadPool(count);
+		try {
+			for (int i = 0; i < count; i++) {
+				final String suffix = String.valueOf(i);
+				futures.add(executor.submit(new Callable<Class<? extends TargetFactory>>() {
+					
+					public Class<? extends TargetFactory> call() throws Exception {
+						FactoryEnhancer<TargetFactory> enhancer =
+								new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class,
+										new Enhance(new StringResultPointcut(), new AfterStringAppendHandler(suffix)));
+						enhancer.setSharedClassLoader(true);
+						start.await();
+						return enhancer.getEnhanced();
+					}
+				}));
+			}
+			start.countDown();
+			Set<Class<?>> classes = new HashSet<Class<?>>();
+			for (int i = 0; i < count; i++) {
+				Class<? extends TargetFactory> enhanced = futures.get(i).get(30, TimeUnit.SECONDS);
+				classes.add(enhanced);
+				assertThat(enhanced.getClassLoader(), sameInstance(futures.get(0).get().getClassLoader()));
+				assertThat(enhanced.newInstance().newProduct1("a").getValue(), is("a1" + i));
+			}
+			assertThat(classes.size(), is(count));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
 	/**
 	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
 	 * @throws Exception if occur
@@ -406,6 +512,28 @@ public class FactoryEnhancerTest {
 		assertThat(p1.getBasePackage(), is("base"));
 	}
 	
+	/**
+	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetEnhanced_LazyInstantiation() throws Exception {
+		Enhance lazy =
+				new Enhance(and(new ClassSuffixPointcut("Product2"), Pointcuts.newInstanceOf(TargetProduct2.class)),
+						new LazyInstantiationHandler());
+		Enhance append =
+				new Enhance(and(new ClassSuffixPointcut("Product2"), new StringResultPointcut()),
+						new AfterStringAppendHandler("!"));
+		FactoryEnhancer<TargetFactory> enhancer =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, lazy, append);
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		
+		TargetProduct2 product = factory.newProduct2("a");
+		assertThat(LazyInstantiationHandler.isPending(product), is(true));
+		assertThat(product.getValue(), is("a2!"));
+		assertThat(LazyInstantiationHandler.isPending(product), is(false));
+	}
+	
 	/**
 	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
 	 * プロダクトクラスに含まれる拡張する対象のメソッドは、publicの公開性を持たなければならない。
@@ -478,6 +606,227 @@ public class FactoryEnhancerTest {
 		assertThat(holder.get(), is((Object) p1));
 	}
 	
+	/**
+	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetEnhanced_Pooling() throws Exception {
+		final List<Object> resets = new ArrayList<Object>();
+		PoolingHandler pool = new PoolingHandler(1, new ProductResetter() {
+			
+			public void reset(Object product, Object[] arguments) {
+				resets.add(arguments[0]);
+			}
+		});
+		Enhance enhance =
+				new Enhance(and(new ClassSuffixPointcut("Product1"), Pointcuts.newInstanceOf(TargetProduct1.class)), pool);
+		FactoryEnhancer<TargetFactory> enhancer =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, enhance);
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		
+		TargetProduct1 first = factory.newProduct1("a");
+		assertThat(first.getValue(), is("a1"));
+		assertThat(pool.release(first), is(true));
+		
+		TargetProduct1 second = factory.newProduct1("b");
+		assertThat(second, sameInstance(first));
+		assertThat(resets, is(Arrays.asList(new Object[] {
+			"b"
+		})));
+		
+		TargetProduct1 third = factory.newProduct1("c");
+		assertThat(third, not(sameInstance(first)));
+		assertThat(third.getValue(), is("c1"));
+		
+		assertThat(pool.release(factory.newProduct2()), is(false));
+	}
+	
+	/**
+	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetEnhanced_DynamicPointcut() throws Exception {
+		final AtomicInteger count = new AtomicInteger();
+		FactoryEnhancer<TargetFactory> enhancer =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, new Enhance(
+						Pointcuts.and(Pointcuts.parse("execution(boolean *..TargetProduct1.equals(java.lang.Object))"),
+								Pointcuts.argumentEquals(0, "hit")), new InvocationHandler() {
+							
+							public Object handle(Invocation invocation) throws Throwable {
+								count.incrementAndGet();
+								return true;
+							}
+						}));
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		TargetProduct1 product = factory.newProduct1("a");
+		assertThat(product.equals("hit"), is(true));
+		assertThat(count.get(), is(1));
+		assertThat(product.equals("miss"), is(false));
+		assertThat(product.equals(factory.newProduct1("a")), is(true));
+		assertThat(count.get(), is(1));
+		
+		for (Joinpoint joinpoint : enhancer.getJoinpoints()) {
+			if (joinpoint.getTarget().getName().equals("equals")) {
+				List<InvocationHandler> handlers = joinpoint.getHandlers();
+				assertThat(handlers.size(), is(1));
+				assertThat(handlers.get(0), instanceOf(GuardedInvocationHandler.class));
+			}
+		}
+	}
+	
+	/**
+	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
+	 * 適用を判定するハンドラの判定は、呼び出しごとに一度だけ行われる。
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetEnhanced_GuardEvaluatedOnce() throws Exception {
+		final AtomicInteger guards = new AtomicInteger();
+		final AtomicInteger handles = new AtomicInteger();
+		FactoryEnhancer<TargetFactory> enhancer =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, new Enhance(
+						Pointcuts.parse("execution(java.lang.String *..TargetProduct1.getValue())"),
+						new GuardedInvocationHandler() {
+							
+							public boolean isApplicable(Object invoker, Object[] arguments) {
+								return guards.incrementAndGet() % 2 == 0;
+							}
+							
+							public Object handle(Invocation invocation) throws Throwable {
+								handles.incrementAndGet();
+								return invocation.proceed() + "!";
+							}
+						}));
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		TargetProduct1 product = factory.newProduct1("a");
+		List<String> values = new ArrayList<String>();
+		for (int i = 0; i < 10; i++) {
+			values.add(product.getValue());
+		}
+		assertThat(guards.get(), is(10));
+		assertThat(handles.get(), is(5));
+		assertThat(values.get(0), is("a1"));
+		assertThat(values.get(1), is("a1!"));
+	}
+	
+	/**
+	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetEnhanced_Listener() throws Exception {
+		final List<String> phases = new ArrayList<String>();
+		final List<GeneratedClassReport> classes = new ArrayList<GeneratedClassReport>();
+		final AtomicReference<EnhanceReport> completed = new AtomicReference<EnhanceReport>();
+		FactoryEnhancer<TargetFactory> enhancer =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, new Enhance(
+						new StringResultPointcut(), new AfterStringAppendHandler("!")));
+		enhancer.addListener(new EnhanceListener() {
+			
+			public void phaseCompleted(EnhancePhaseReport report) {
+				assertThat(report.getFactoryName(), is(TargetFactoryImpl.class.getName()));
+				phases.add(report.getPhaseName());
+			}
+			
+			public void classGenerated(GeneratedClassReport report) {
+				classes.add(report);
+			}
+			
+			public void enhanceCompleted(EnhanceReport report) {
+				completed.set(report);
+			}
+		});
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		assertThat(factory.newProduct1("a").getValue(), is("a1!"));
+		
+		assertThat(phases, is(Arrays.asList(new String[] {
+			"createCopyClass",
+			"validate",
+			"collect",
+			"weavePointcutIntoAllProducts",
+			"weavePointcutIntoFactory",
+			"pruneDelegateConstructors",
+			"install",
+			"release"
+		})));
+		EnhanceReport report = completed.get();
+		assertThat(report.getFactoryName(), is(TargetFactoryImpl.class.getName()));
+		assertThat(report.getJoinpointCount(), is(enhancer.getJoinpoints().size()));
+		assertThat(report.getPeakHeapUsage() > 0, is(true));
+		assertThat(classes.size(), is(report.getProductCount() + 1));
+		for (GeneratedClassReport generated : classes) {
+			assertThat(generated.getClassName(), generated.getBytecodeSize() > 0, is(true));
+			assertThat(generated.getClassName(), generated.getConstantPoolSize() > 0, is(true));
+			assertThat(generated.getClassName(), generated.getMaxMethodSize() > 0, is(true));
+		}
+	}
+	
+	/**
+	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
+	 * ファクトリから起動されない移譲コンストラクタは、拡張されたプロダクトクラスに含まれない。
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetEnhanced_PruneDelegateConstructors() throws Exception {
+		FactoryEnhancer<SingularFactory> enhancer =
+				new FactoryEnhancer<SingularFactory>(SingularFactory.class, PartialConstructorFactoryImpl.class,
+						new Enhance(new StringResultPointcut(), new AfterStringAppendHandler("!")));
+		SingularFactory factory = enhancer.getEnhanced().newInstance();
+		TargetProduct1 product = (TargetProduct1) factory.newInstance();
+		assertThat(product.getClass(), is(not((Object) TargetProduct1.class)));
+		assertThat(product.getValue(), is("partial1!"));
+		
+		Constructor<?>[] constructors = product.getClass().getDeclaredConstructors();
+		assertThat(constructors.length, is(1));
+		assertThat(constructors[0].getParameterTypes(), is(new Class<?>[] {
+			String.class
+		}));
+	}
+	
+	/**
+	 * Test method for {@link FactoryEnhancer#setLazyProducts(boolean)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testSetLazyProducts() throws Exception {
+		FactoryEnhancer<TargetFactory> enhancer =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, new Enhance(
+						new StringResultPointcut(), new AfterStringAppendHandler("!")));
+		enhancer.setLazyProducts(true);
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		assertThat(countMethodJoinpoints(enhancer, TargetProduct1.class), is(0));
+		assertThat(countMethodJoinpoints(enhancer, TargetProduct2.class), is(0));
+		
+		TargetProduct1 p1 = factory.newProduct1("a");
+		assertThat(p1.getClass(), is(not((Object) TargetProduct1.class)));
+		assertThat(p1.getValue(), is("a1!"));
+		assertThat(countMethodJoinpoints(enhancer, TargetProduct1.class) > 0, is(true));
+		assertThat(countMethodJoinpoints(enhancer, TargetProduct2.class), is(0));
+		
+		assertThat(factory.newProduct1().getClass(), sameInstance((Object) p1.getClass()));
+		assertThat(factory.newProduct2("b").getValue(), is("b2!"));
+		assertThat(countMethodJoinpoints(enhancer, TargetProduct2.class) > 0, is(true));
+		
+		try {
+			enhancer.setLazyProducts(false);
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+	}
+	
+	private static int countMethodJoinpoints(AbstractEnhancer<?> enhancer, Class<?> declaring) throws Exception {
+		int count = 0;
+		for (Joinpoint joinpoint : enhancer.getJoinpoints()) {
+			if (joinpoint.getTarget() instanceof Method && joinpoint.getTarget().getDeclaringClass() == declaring) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
 	/**
 	 * Test method for {@link FactoryEnhancer#getEnhanced()}.
 	 * @throws Exception if occur
@@ -641,6 +990,141 @@ public class FactoryEnhancerTest {
 		assertThat(p1.getClass().getMethod("getStatic").invoke(null), is((Object) "1"));
 	}
 	
+	/**
+	 * Test method for {@link AbstractEnhancer#getJoinpoints()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetJoinpoints() throws Exception {
+		InvocationHandler handler = new AfterStringAppendHandler("!");
+		FactoryEnhancer<TargetFactory> enhancer = product1Enhancer(handler);
+		List<Joinpoint> joinpoints = enhancer.getJoinpoints();
+		Joinpoint getValue = find(joinpoints, TargetProduct1.class.getMethod("getValue"));
+		assertThat(getValue, not(nullValue()));
+		assertThat(getValue.getHandlers(), is(Collections.singletonList(handler)));
+	}
+	
+	/**
+	 * Test method for {@link FactoryEnhancer#plan()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testPlan() throws Exception {
+		final List<GeneratedClassReport> classes = new ArrayList<GeneratedClassReport>();
+		final AtomicReference<EnhanceReport> completed = new AtomicReference<EnhanceReport>();
+		FactoryEnhancer<TargetFactory> enhancer =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, new Enhance(
+						new StringResultPointcut(), new AfterStringAppendHandler("!")));
+		enhancer.addListener(new EnhanceListener() {
+			
+			public void phaseCompleted(EnhancePhaseReport report) {
+				return;
+			}
+			
+			public void classGenerated(GeneratedClassReport report) {
+				classes.add(report);
+			}
+			
+			public void enhanceCompleted(EnhanceReport report) {
+				completed.set(report);
+			}
+		});
+		EnhancePlan plan = enhancer.plan();
+		assertThat(plan.getFactoryName(), is(TargetFactoryImpl.class.getName()));
+		assertThat(completed.get(), is(nullValue()));
+		
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		assertThat(factory.newProduct1("a").getValue(), is("a1!"));
+		
+		EnhanceReport report = completed.get();
+		assertThat(plan.getProducts().size(), is(report.getProductCount()));
+		assertThat(plan.getJoinpointCount() + plan.getNewSites().size(), is(report.getJoinpointCount()));
+		int actualSize = 0;
+		for (GeneratedClassReport generated : classes) {
+			actualSize += generated.getBytecodeSize();
+		}
+		int estimatedSize = plan.getEstimatedBytecodeSize();
+		assertThat(plan.toString(), estimatedSize > actualSize / 2 && estimatedSize < actualSize * 2, is(true));
+		
+		try {
+			enhancer.plan();
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+	}
+	
+	/**
+	 * Test method for {@link AbstractEnhancer#replaceHandler(InvocationHandler, InvocationHandler)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testReplaceHandler() throws Exception {
+		InvocationHandler handler = new AfterStringAppendHandler("!");
+		FactoryEnhancer<TargetFactory> enhancer = product1Enhancer(handler);
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		TargetProduct1 p1 = factory.newProduct1("a");
+		assertThat(p1.getValue(), is("a1!"));
+		
+		int count = enhancer.replaceHandler(handler, new AfterStringAppendHandler("?"));
+		assertThat(count > 0, is(true));
+		assertThat(p1.getValue(), is("a1?"));
+		assertThat(factory.newProduct1("b").getValue(), is("b1?"));
+		assertThat(enhancer.getEnhanced().newInstance().newProduct1("c").getValue(), is("c1?"));
+	}
+	
+	/**
+	 * Test method for {@link AbstractEnhancer#replaceHandlers(Map)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testReplaceHandlers() throws Exception {
+		InvocationHandler handler = new AfterStringAppendHandler("!");
+		FactoryEnhancer<TargetFactory> enhancer = product1Enhancer(handler);
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		TargetProduct1 p1 = factory.newProduct1("a");
+		Joinpoint getValue = find(enhancer.getJoinpoints(), TargetProduct1.class.getMethod("getValue"));
+		
+		Map<Joinpoint, List<InvocationHandler>> replacements = new HashMap<Joinpoint, List<InvocationHandler>>();
+		replacements.put(getValue, Arrays.<InvocationHandler> asList(
+				new AfterStringAppendHandler("?"),
+				new AfterStringAppendHandler("!")));
+		enhancer.replaceHandlers(replacements);
+		assertThat(p1.getValue(), is("a1?!"));
+		
+		enhancer.replaceHandlers(getValue, Collections.<InvocationHandler> emptyList());
+		assertThat(p1.getValue(), is("a1"));
+		assertThat(getValue.getHandlers().isEmpty(), is(true));
+	}
+	
+	/**
+	 * Test method for {@link AbstractEnhancer#replaceHandlers(Joinpoint, List)}.
+	 * @throws Exception if occur
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testReplaceHandlers_Foreign() throws Exception {
+		InvocationHandler handler = new AfterStringAppendHandler("!");
+		FactoryEnhancer<TargetFactory> enhancer = product1Enhancer(handler);
+		FactoryEnhancer<TargetFactory> other = product1Enhancer(handler);
+		Joinpoint foreign = find(other.getJoinpoints(), TargetProduct1.class.getMethod("getValue"));
+		enhancer.getEnhanced();
+		enhancer.replaceHandlers(foreign, Collections.<InvocationHandler> emptyList());
+	}
+	
+	private static Joinpoint find(List<Joinpoint> joinpoints, Method method) {
+		for (Joinpoint joinpoint : joinpoints) {
+			if (joinpoint.getTarget().equals(method)) {
+				return joinpoint;
+			}
+		}
+		return null;
+	}
+	
+	private FactoryEnhancer<TargetFactory> product1Enhancer(InvocationHandler handler) {
+		Enhance enhance = new Enhance(and(new ClassSuffixPointcut("Product1"), new StringResultPointcut()), handler);
+		return new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, enhance);
+	}
+	
 	private TargetFactory enhancedProduct1() throws Exception {
 		Enhance enhance =
 				new Enhance(and(new ClassSuffixPointcut("Product1"), new StringResultPointcut()),
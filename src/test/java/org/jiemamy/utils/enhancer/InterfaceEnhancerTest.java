@@ -493,4 +493,40 @@ public class InterfaceEnhancerTest {
 	public void testInterfaceEnhancer_ProductNotPublic() {
 		new InterfaceEnhancer<SimpleInterfaceFactory>(SimpleInterfaceFactory.class, ClassNotPublic.class, enhances());
 	}
+	
+	/**
+	 * Test method for {@link InterfaceEnhancer#plan()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testPlan() throws Exception {
+		Enhance enhance = new Enhance(new StringResultPointcut(), new InvocationHandler() {
+			
+			public Object handle(Invocation invocation) {
+				return "Hello";
+			}
+		});
+		InterfaceEnhancer<SimpleInterfaceFactory> enhancer =
+				new InterfaceEnhancer<SimpleInterfaceFactory>(SimpleInterfaceFactory.class, Object.class,
+						enhances(enhance));
+		EnhancePlan plan = enhancer.plan();
+		assertThat(plan.getFactoryName(), is(SimpleInterfaceFactory.class.getName()));
+		assertThat(plan.getProducts().size(), is(1));
+		ProductPlan product = plan.getProducts().get(0);
+		assertThat(product.getClassName(), is(InterfaceProduct.class.getName()));
+		assertThat(product.getJoinpoints().contains("getMessage()Ljava/lang/String;"), is(true));
+		assertThat(plan.getNewSites().size(), is(1));
+		assertThat(plan.getEstimatedBytecodeSize() > 0, is(true));
+		
+		SimpleInterfaceFactory factory = enhancer.getFactory().newInstance();
+		assertThat(factory.newProduct().getMessage(), is("Hello"));
+		assertThat(plan.getJoinpointCount() + plan.getNewSites().size(), is(enhancer.getJoinpoints().size()));
+		
+		try {
+			enhancer.plan();
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+	}
 }
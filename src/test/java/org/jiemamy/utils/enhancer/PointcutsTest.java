@@ -22,6 +22,14 @@ import static org.jiemamy.utils.enhancer.Pointcuts.and;
 import static org.jiemamy.utils.enhancer.Pointcuts.not;
 import static org.jiemamy.utils.enhancer.Pointcuts.or;
 import static org.junit.Assert.assertThat;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
 import javassist.ClassClassPath;
 import javassist.ClassPool;
 import javassist.CtBehavior;
@@ -75,6 +83,149 @@ public class PointcutsTest {
 		assertThat(Pointcuts.CONSTRUCTORS.isTarget(object(), constructor()), is(true));
 	}
 	
+	/**
+	 * Test method for {@link Pointcuts#PURE}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testPure() throws Exception {
+		CtClass target = load(PureMethods.class);
+		assertThat(Pointcuts.PURE.isTarget(target, target.getDeclaredMethod("pure")), is(true));
+		assertThat(Pointcuts.PURE.isTarget(target, target.getDeclaredMethod("impure")), is(false));
+		assertThat(Pointcuts.PURE.isTarget(object(), tostring()), is(false));
+		assertThat(Pointcuts.PURE.isTarget(object(), constructor()), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Pointcuts#annotatedWith(Class)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testAnnotatedWith() throws Exception {
+		CtClass target = load(PureMethods.class);
+		InvocationPointcut pointcut = Pointcuts.annotatedWith(Pure.class);
+		assertThat(pointcut.isTarget(target, target.getDeclaredMethod("pure")), is(true));
+		assertThat(pointcut.isTarget(target, target.getDeclaredMethod("impure")), is(false));
+		assertThat(pointcut.isTarget(object(), tostring()), is(false));
+		assertThat(pointcut.isTarget(object(), constructor()), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Pointcuts#declaredIn(Class)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testDeclaredIn() throws Exception {
+		CtClass target = load(PureMethods.class);
+		InvocationPointcut pointcut = Pointcuts.declaredIn(PureMethods.class);
+		assertThat(pointcut.isTarget(target, target.getDeclaredMethod("pure")), is(true));
+		assertThat(pointcut.isTarget(target, target.getDeclaredConstructor(new CtClass[0])), is(true));
+		assertThat(pointcut.isTarget(target, tostring()), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Pointcuts#declaredIn(Class)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testDeclaredIn_Annotation() throws Exception {
+		CtClass target = load(Retention.class);
+		InvocationPointcut pointcut = Pointcuts.declaredIn(Documented.class);
+		assertThat(pointcut.isTarget(target, target.getDeclaredMethod("value")), is(true));
+		assertThat(pointcut.isTarget(object(), tostring()), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Pointcuts#newInstanceOf(Class)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testNewInstanceOf() throws Exception {
+		CtClass target = load(ArrayList.class);
+		CtBehavior arrayList = target.getDeclaredConstructor(new CtClass[0]);
+		assertThat(Pointcuts.newInstanceOf(ArrayList.class).isTarget(target, arrayList), is(true));
+		assertThat(Pointcuts.newInstanceOf(AbstractList.class).isTarget(target, arrayList), is(true));
+		assertThat(Pointcuts.newInstanceOf(List.class).isTarget(target, arrayList), is(true));
+		assertThat(Pointcuts.newInstanceOf(LinkedList.class).isTarget(target, arrayList), is(false));
+		assertThat(Pointcuts.newInstanceOf(Object.class).isTarget(object(), tostring()), is(false));
+		assertThat(Pointcuts.newInstanceOf(ArrayList.class).isTarget(object(), constructor()), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Pointcuts#parse(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse() throws Exception {
+		CtClass target = load(PureMethods.class);
+		CtBehavior pure = target.getDeclaredMethod("pure");
+		CtBehavior impure = target.getDeclaredMethod("impure");
+		
+		InvocationPointcut pointcut = Pointcuts.parse("execution(public * org.jiemamy..*Methods.*pure(..)) && !annotated(@Pure)");
+		assertThat(pointcut.isTarget(target, pure), is(false));
+		assertThat(pointcut.isTarget(target, impure), is(true));
+		assertThat(pointcut.isTarget(object(), tostring()), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Pointcuts#parse(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Signature() throws Exception {
+		CtClass target = load(PureMethods.class);
+		CtBehavior pure = target.getDeclaredMethod("pure");
+		assertThat(Pointcuts.parse("execution(java.lang.String *(java.lang.String))").isTarget(target, pure), is(true));
+		assertThat(Pointcuts.parse("execution(void *(java.lang.String))").isTarget(target, pure), is(false));
+		assertThat(Pointcuts.parse("execution(* *())").isTarget(target, pure), is(false));
+		assertThat(Pointcuts.parse("execution(* *(.., java.lang.String))").isTarget(target, pure), is(true));
+		assertThat(Pointcuts.parse("execution(static * *(..))").isTarget(target, pure), is(false));
+		assertThat(Pointcuts.parse("execution(* java.lang.Object.*(..))").isTarget(target, pure), is(false));
+		assertThat(Pointcuts.parse("new(java.lang.Object())").isTarget(object(), constructor()), is(true));
+		assertThat(Pointcuts.parse("new(java.lang.Object(int))").isTarget(object(), constructor()), is(false));
+		assertThat(Pointcuts.parse("new(java.util.*)").isTarget(object(), constructor()), is(false));
+		assertThat(Pointcuts.parse("new(*)").isTarget(object(), tostring()), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Pointcuts#parse(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Within() throws Exception {
+		CtClass target = load(Retention.class);
+		CtBehavior value = target.getDeclaredMethod("value");
+		assertThat(Pointcuts.parse("within(java.lang..*)").isTarget(target, value), is(true));
+		assertThat(Pointcuts.parse("within(java.util..*)").isTarget(target, value), is(false));
+		assertThat(Pointcuts.parse("within(@Documented)").isTarget(target, value), is(true));
+		assertThat(Pointcuts.parse("within(@java.lang.annotation.Documented)").isTarget(target, value), is(true));
+		assertThat(Pointcuts.parse("within(@Pure)").isTarget(target, value), is(false));
+		assertThat(Pointcuts.parse("(true || false) && !false").isTarget(target, value), is(true));
+	}
+	
+	/**
+	 * Test method for {@link Pointcuts#parse(String)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testParse_Invalid() {
+		Pointcuts.parse("execution(* *(..)) &&");
+	}
+	
+	/**
+	 * Test method for {@link Pointcuts#optimize(InvocationPointcut)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testOptimize() throws Exception {
+		CtClass target = load(PureMethods.class);
+		InvocationPointcut pointcut = and(or(FALSE, and(TRUE, Pointcuts.PURE)), not(not(Pointcuts.METHODS)));
+		InvocationPointcut optimized = Pointcuts.optimize(pointcut);
+		assertThat(optimized.toString(), is("And[methods, pure]"));
+		assertThat(optimized.isTarget(target, target.getDeclaredMethod("pure")), is(true));
+		assertThat(optimized.isTarget(target, target.getDeclaredMethod("impure")), is(false));
+		assertThat(optimized.isTarget(object(), constructor()), is(false));
+	}
+	
 	/**
 	 * Test method for {@link Pointcuts#and(InvocationPointcut, InvocationPointcut)}.
 	 */
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link AsyncHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class AsyncHandlerTest {
+	
+	/**
+	 * Test method for {@link AsyncHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Void() throws Throwable {
+		Deferred executor = new Deferred();
+		AsyncHandler handler = new AsyncHandler(executor);
+		Call call = new Call(List.class.getMethod("clear"), null);
+		assertThat(handler.handle(call), is(nullValue()));
+		assertThat(call.count, is(0));
+		executor.runAll();
+		assertThat(call.count, is(1));
+	}
+	
+	/**
+	 * Test method for {@link AsyncHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_VoidFailure() throws Throwable {
+		Deferred executor = new Deferred();
+		AsyncHandler handler = new AsyncHandler(executor);
+		Call call = new Call(List.class.getMethod("clear"), new IOException());
+		assertThat(handler.handle(call), is(nullValue()));
+		executor.runAll();
+		assertThat(call.count, is(1));
+	}
+	
+	/**
+	 * Test method for {@link AsyncHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_VoidUnchecked() throws Throwable {
+		Deferred executor = new Deferred();
+		AsyncHandler handler = new AsyncHandler(executor);
+		Call call = new Call(List.class.getMethod("clear"), null) {
+			
+			@Override
+			public Object proceed() throws InvocationTargetException {
+				super.proceed();
+				throw new IllegalStateException();
+			}
+		};
+		assertThat(handler.handle(call), is(nullValue()));
+		executor.runAll();
+		assertThat(call.count, is(1));
+	}
+	
+	/**
+	 * Test method for {@link AsyncHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Future() throws Throwable {
+		Deferred executor = new Deferred();
+		AsyncHandler handler = new AsyncHandler(executor);
+		Call call = new Call(ExecutorService.class.getMethod("submit", Callable.class), "OK");
+		Object result = handler.handle(call);
+		assertThat(result, instanceOf(Future.class));
+		Future<?> future = (Future<?>) result;
+		assertThat(future.isDone(), is(false));
+		executor.runAll();
+		assertThat(future.get(), is((Object) "OK"));
+	}
+	
+	/**
+	 * Test method for {@link AsyncHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_FutureFailure() throws Throwable {
+		Deferred executor = new Deferred();
+		AsyncHandler handler = new AsyncHandler(executor);
+		IOException exception = new IOException();
+		Call call = new Call(ExecutorService.class.getMethod("submit", Callable.class), exception);
+		Future<?> future = (Future<?>) handler.handle(call);
+		executor.runAll();
+		try {
+			future.get();
+			fail();
+		} catch (ExecutionException e) {
+			assertThat(e.getCause(), is((Throwable) exception));
+		}
+	}
+	
+	/**
+	 * Test method for {@link AsyncHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_CompletionStage() throws Throwable {
+		Class<?> stage;
+		try {
+			stage = Class.forName("java.util.concurrent.CompletionStage");
+		} catch (ClassNotFoundException e) {
+			assumeTrue(false);
+			return;
+		}
+		Object completed =
+				Class.forName("java.util.concurrent.CompletableFuture").getMethod("completedFuture", Object.class)
+					.invoke(null, "OK");
+		Deferred executor = new Deferred();
+		AsyncHandler handler = new AsyncHandler(executor);
+		Call call = new Call(stage.getMethod("toCompletableFuture"), completed);
+		Object result = handler.handle(call);
+		assertThat(stage.isInstance(result), is(true));
+		Future<?> future = (Future<?>) result;
+		assertThat(future.isDone(), is(false));
+		executor.runAll();
+		assertThat(future.get(), is((Object) "OK"));
+	}
+	
+	/**
+	 * Test method for {@link AsyncHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Other() throws Throwable {
+		Deferred executor = new Deferred();
+		AsyncHandler handler = new AsyncHandler(executor);
+		Call call = new Call(Object.class.getMethod("toString"), "OK");
+		assertThat(handler.handle(call), is((Object) "OK"));
+		assertThat(executor.tasks.size(), is(0));
+	}
+	
+	/**
+	 * Test method for {@link AsyncHandler#newBoundedExecutor(int, int, java.util.concurrent.RejectedExecutionHandler)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testNewBoundedExecutor() throws Throwable {
+		ExecutorService executor = AsyncHandler.newBoundedExecutor(1, 1, new ThreadPoolExecutor.AbortPolicy());
+		final CountDownLatch latch = new CountDownLatch(1);
+		try {
+			AsyncHandler handler = new AsyncHandler(executor);
+			Method clear = List.class.getMethod("clear");
+			handler.handle(new Call(clear, null) {
+				
+				@Override
+				public Object proceed() throws InvocationTargetException {
+					try {
+						latch.await();
+					} catch (InterruptedException e) {
+						throw new InvocationTargetException(e);
+					}
+					return null;
+				}
+			});
+			handler.handle(new Call(clear, null));
+			try {
+				handler.handle(new Call(clear, null));
+				fail();
+			} catch (RejectedExecutionException e) {
+				// ok.
+			}
+		} finally {
+			latch.countDown();
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Test method for {@link AsyncHandler#newVirtualThreadPerTaskExecutor()}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testNewVirtualThreadPerTaskExecutor() throws Throwable {
+		ExecutorService executor = AsyncHandler.newVirtualThreadPerTaskExecutor();
+		try {
+			AsyncHandler handler = new AsyncHandler(executor);
+			Call call = new Call(ExecutorService.class.getMethod("submit", Callable.class), "OK");
+			Future<?> future = (Future<?>) handler.handle(call);
+			assertThat(future.get(10, TimeUnit.SECONDS), is((Object) "OK"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * 実行を依頼されたタスクを保持し、明示的に実行する。
+	 */
+	static class Deferred implements Executor {
+		
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		
+
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+		
+		void runAll() {
+			for (Runnable task : tasks) {
+				task.run();
+			}
+			tasks.clear();
+		}
+	}
+	
+	/**
+	 * 指定のメソッドの呼び出しを表す。
+	 */
+	static class Call extends MockInvocation {
+		
+		final Method target;
+		
+		final Object result;
+		
+		int count;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param target 対象のメソッド
+		 * @param result 本来の処理の結果、例外の場合はその例外をスローする
+		 */
+		Call(Method target, Object result) {
+			this.target = target;
+			this.result = result;
+		}
+		
+		@Override
+		public Member getTarget() {
+			return target;
+		}
+		
+		@Override
+		public Object proceed() throws InvocationTargetException {
+			count++;
+			if (result instanceof Throwable) {
+				throw new InvocationTargetException((Throwable) result);
+			}
+			if (target.getReturnType() == Future.class) {
+				return new Completed(result);
+			}
+			return result;
+		}
+	}
+	
+	/**
+	 * 完了済みの{@link Future}。
+	 */
+	static class Completed extends FutureTask<Object> {
+		
+		Completed(Object value) {
+			super(new Runnable() {
+				
+				public void run() {
+					return;
+				}
+			}, value);
+			run();
+		}
+	}
+}
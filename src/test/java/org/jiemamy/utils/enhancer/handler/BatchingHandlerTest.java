@@ -0,0 +1,271 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link BatchingHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class BatchingHandlerTest {
+	
+	/**
+	 * Test method for {@link BatchingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle() throws Throwable {
+		Sink sink = new Sink();
+		BatchingHandler handler = new BatchingHandler(sink, 3, 10);
+		Write write = new Write();
+		assertThat(handler.handle(write.invoke("a")), is(nullValue()));
+		assertThat(handler.handle(write.invoke("b")), is(nullValue()));
+		assertThat(sink.batches.size(), is(0));
+		assertThat(handler.getPendingCount(), is(2));
+		
+		handler.handle(write.invoke("c"));
+		assertThat(sink.batches.size(), is(1));
+		assertThat(sink.batches.get(0), is(Arrays.asList("a", "b", "c")));
+		assertThat(handler.getPendingCount(), is(0));
+		assertThat(write.count, is(0));
+	}
+	
+	/**
+	 * Test method for {@link BatchingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Targets() throws Throwable {
+		Sink sink = new Sink();
+		BatchingHandler handler = new BatchingHandler(sink, 10, 10);
+		Write clear = new Write(List.class.getMethod("clear"));
+		Write add = new Write(List.class.getMethod("add", int.class, Object.class));
+		handler.handle(clear.invoke("a"));
+		handler.handle(clear.invoke("b"));
+		handler.handle(add.invoke("c"));
+		handler.handle(clear.invoke("d"));
+		handler.flush();
+		assertThat(sink.batches.size(), is(3));
+		assertThat(sink.targets.get(0), is(clear.target));
+		assertThat(sink.batches.get(0), is(Arrays.asList("a", "b")));
+		assertThat(sink.targets.get(1), is(add.target));
+		assertThat(sink.batches.get(1), is(Arrays.asList("c")));
+		assertThat(sink.targets.get(2), is(clear.target));
+		assertThat(sink.batches.get(2), is(Arrays.asList("d")));
+	}
+	
+	/**
+	 * Test method for {@link BatchingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_NotVoid() throws Throwable {
+		Sink sink = new Sink();
+		BatchingHandler handler = new BatchingHandler(sink, 1, 1);
+		MockInvocation invocation = new MockInvocation() {
+			
+			@Override
+			public Object proceed() {
+				return "result";
+			}
+		};
+		assertThat(handler.handle(invocation), is((Object) "result"));
+		assertThat(handler.getPendingCount(), is(0));
+		assertThat(sink.batches.size(), is(0));
+	}
+	
+	/**
+	 * Test method for {@link BatchingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_SinkFailure() throws Throwable {
+		BatchingHandler handler = new BatchingHandler(new BatchSink() {
+			
+			public void flush(Method target, List<Object[]> batch) {
+				throw new IllegalStateException();
+			}
+		}, 2, 2);
+		Write write = new Write();
+		handler.handle(write.invoke("a"));
+		handler.handle(write.invoke("b"));
+		assertThat(handler.getPendingCount(), is(0));
+	}
+	
+	/**
+	 * Test method for {@link BatchingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Interval() throws Throwable {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final List<Object[]> flushed = new ArrayList<Object[]>();
+		BatchingHandler handler = new BatchingHandler(new BatchSink() {
+			
+			public void flush(Method target, List<Object[]> batch) {
+				flushed.addAll(batch);
+				latch.countDown();
+			}
+		}, 100, 100, 10, TimeUnit.MILLISECONDS);
+		try {
+			handler.handle(new Write().invoke("a"));
+			assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+			assertThat(flushed.size(), is(1));
+			assertThat(flushed.get(0)[0], is((Object) "a"));
+		} finally {
+			handler.close();
+		}
+	}
+	
+	/**
+	 * Test method for {@link BatchingHandler#flush()}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testFlush() throws Throwable {
+		Sink sink = new Sink();
+		BatchingHandler handler = new BatchingHandler(sink, 2, 10);
+		Write write = new Write();
+		handler.handle(write.invoke("a"));
+		handler.handle(write.invoke("b"));
+		handler.handle(write.invoke("c"));
+		handler.flush();
+		assertThat(sink.batches.size(), is(2));
+		assertThat(sink.batches.get(0), is(Arrays.asList("a", "b")));
+		assertThat(sink.batches.get(1), is(Arrays.asList("c")));
+		
+		handler.flush();
+		assertThat(sink.batches.size(), is(2));
+	}
+	
+	/**
+	 * Test method for {@link BatchingHandler#flush()}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testFlush_Failure() throws Throwable {
+		BatchingHandler handler = new BatchingHandler(new BatchSink() {
+			
+			public void flush(Method target, List<Object[]> batch) {
+				throw new IllegalStateException();
+			}
+		}, 2, 2);
+		handler.handle(new Write().invoke("a"));
+		try {
+			handler.flush();
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+	}
+	
+	/**
+	 * Test method for {@link BatchingHandler#close()}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testClose() throws Throwable {
+		Sink sink = new Sink();
+		BatchingHandler handler = new BatchingHandler(sink, 10, 10);
+		Write write = new Write();
+		handler.handle(write.invoke("a"));
+		handler.close();
+		assertThat(sink.batches.size(), is(1));
+		assertThat(sink.batches.get(0), is(Arrays.asList("a")));
+		
+		handler.handle(write.invoke("b"));
+		assertThat(write.count, is(1));
+		assertThat(sink.batches.size(), is(1));
+	}
+	
+	/**
+	 * 受け取ったバッチを記録する。
+	 */
+	static class Sink implements BatchSink {
+		
+		final List<Method> targets = new ArrayList<Method>();
+		
+		final List<List<String>> batches = new ArrayList<List<String>>();
+		
+
+		public void flush(Method target, List<Object[]> batch) {
+			targets.add(target);
+			List<String> values = new ArrayList<String>();
+			for (Object[] arguments : batch) {
+				values.add((String) arguments[0]);
+			}
+			batches.add(values);
+		}
+	}
+	
+	/**
+	 * 戻り値を持たないメソッドの呼び出しを表す。
+	 */
+	static class Write {
+		
+		final Method target;
+		
+		int count;
+		
+
+		Write() {
+			try {
+				target = List.class.getMethod("clear");
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		}
+		
+		Write(Method target) {
+			this.target = target;
+		}
+		
+		MockInvocation invoke(Object argument) {
+			return new MockInvocation(new Object[] {
+				argument
+			}) {
+				
+				@Override
+				public Member getTarget() {
+					return target;
+				}
+				
+				@Override
+				public Object proceed() {
+					count++;
+					return null;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Member;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link CanonicalizingHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class CanonicalizingHandlerTest {
+	
+	/**
+	 * Test method for {@link CanonicalizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle() throws Throwable {
+		CanonicalizingHandler handler = new CanonicalizingHandler();
+		Object a1 = handler.handle(new Creation("a"));
+		Object a2 = handler.handle(new Creation("a"));
+		Object b = handler.handle(new Creation("b"));
+		assertThat(a2, sameInstance(a1));
+		assertThat(b, not(sameInstance(a1)));
+		assertThat(b.toString(), is("b"));
+		assertThat(handler.getHitCount(), is(1L));
+		assertThat(handler.getMissCount(), is(2L));
+		assertThat(handler.size(), is(2));
+	}
+	
+	/**
+	 * Test method for {@link CanonicalizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Method() throws Throwable {
+		CanonicalizingHandler handler = new CanonicalizingHandler();
+		MockInvocation invocation = new MockInvocation() {
+			
+			@Override
+			public Object proceed() {
+				return new StringBuilder();
+			}
+		};
+		assertThat(handler.handle(invocation), not(sameInstance(handler.handle(invocation))));
+		assertThat(handler.size(), is(0));
+	}
+	
+	/**
+	 * Test method for {@link CanonicalizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Collected() throws Throwable {
+		CanonicalizingHandler handler = new CanonicalizingHandler();
+		handler.handle(new Creation("a"));
+		for (int i = 0; i < 100 && handler.size() > 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertThat(handler.size(), is(0));
+		handler.handle(new Creation("a"));
+		assertThat(handler.getMissCount(), is(2L));
+	}
+	
+	/**
+	 * {@link ExpensiveProduct}のインスタンス生成を表す。
+	 */
+	static class Creation extends MockInvocation {
+		
+		Creation(String value) {
+			super(new Object[] {
+				value
+			});
+		}
+		
+		@Override
+		public Member getTarget() {
+			try {
+				return ExpensiveProduct.class.getConstructor(String.class);
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		}
+		
+		@Override
+		public Object proceed() {
+			return new ExpensiveProduct((String) getArguments()[0]);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+/**
+ * 生成に手間がかかるプロダクト。
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class ExpensiveProduct {
+	
+	/** 生成された回数。 */
+	public static int created;
+	
+	private final String value;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param value 保持する値
+	 */
+	public ExpensiveProduct(String value) {
+		super();
+		if (value == null) {
+			throw new IllegalArgumentException();
+		}
+		created++;
+		this.value = value;
+	}
+	
+	/**
+	 * 値を返す。
+	 * @return 値
+	 */
+	public String getValue() {
+		return value;
+	}
+	
+	/**
+	 * 値を連結して返す。
+	 * @param suffix 連結する値
+	 * @return 連結した値
+	 */
+	public String append(String suffix) {
+		return value + suffix;
+	}
+	
+	@Override
+	public String toString() {
+		return value;
+	}
+}
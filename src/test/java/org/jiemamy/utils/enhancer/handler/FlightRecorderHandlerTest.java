@@ -0,0 +1,83 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link FlightRecorderHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class FlightRecorderHandlerTest {
+	
+	/**
+	 * Test method for {@link FlightRecorderHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle() throws Throwable {
+		FlightRecorderHandler handler = new FlightRecorderHandler(0, TimeUnit.MILLISECONDS);
+		MockInvocation invocation = new MockInvocation() {
+			
+			@Override
+			public Object proceed() {
+				return "ok";
+			}
+		};
+		assertThat(handler.handle(invocation), is((Object) "ok"));
+	}
+	
+	/**
+	 * Test method for {@link FlightRecorderHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Exception() throws Throwable {
+		FlightRecorderHandler handler = new FlightRecorderHandler(0, TimeUnit.MILLISECONDS);
+		MockInvocation invocation = new MockInvocation() {
+			
+			@Override
+			public Object proceed() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		try {
+			handler.handle(invocation);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// ok.
+		}
+	}
+	
+	/**
+	 * Test method for {@link FlightRecorderHandler#getThreshold(TimeUnit)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetThreshold() throws Exception {
+		FlightRecorderHandler handler = new FlightRecorderHandler(3, TimeUnit.MILLISECONDS);
+		assertThat(handler.getThreshold(TimeUnit.MICROSECONDS), is(3000L));
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link LatencyHistogramHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class LatencyHistogramHandlerTest {
+	
+	/**
+	 * Test method for {@link LatencyHistogramHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle() throws Throwable {
+		LatencyHistogramHandler handler = new LatencyHistogramHandler();
+		MockInvocation invocation = new MockInvocation();
+		Member target = invocation.getTarget();
+		assertThat(handler.getHistogram(target), is(nullValue()));
+		handler.handle(invocation);
+		handler.handle(invocation);
+		assertThat(handler.getHistogram(target).snapshot().getCount(), is(2L));
+		assertThat(handler.getSnapshots().get(target).getCount(), is(2L));
+		assertThat(handler.getSnapshots().size(), is(1));
+	}
+	
+	/**
+	 * Test method for {@link LatencyHistogramHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Exception() throws Throwable {
+		LatencyHistogramHandler handler = new LatencyHistogramHandler();
+		MockInvocation invocation = new MockInvocation() {
+			
+			@Override
+			public Object proceed() throws InvocationTargetException {
+				throw new InvocationTargetException(new Exception());
+			}
+		};
+		try {
+			handler.handle(invocation);
+			fail();
+		} catch (InvocationTargetException e) {
+			// ok.
+		}
+		assertThat(handler.getHistogram(invocation.getTarget()).snapshot().getCount(), is(1L));
+	}
+	
+	/**
+	 * Test method for {@link LatencyHistogramHandler#reset()}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testReset() throws Throwable {
+		LatencyHistogramHandler handler = new LatencyHistogramHandler();
+		MockInvocation invocation = new MockInvocation();
+		handler.handle(invocation);
+		handler.reset();
+		assertThat(handler.getHistogram(invocation.getTarget()).snapshot().getCount(), is(0L));
+	}
+}
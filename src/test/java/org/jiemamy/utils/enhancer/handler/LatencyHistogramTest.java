@@ -0,0 +1,125 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link LatencyHistogram}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class LatencyHistogramTest {
+	
+	/**
+	 * Test method for {@link LatencyHistogram#indexOf(long)}.
+	 */
+	@Test
+	public void testIndexOf() {
+		for (long value = 0; value < 100000; value++) {
+			int index = LatencyHistogram.indexOf(value);
+			assertThat(LatencyHistogram.upperBoundOf(index), greaterThanOrEqualTo(value));
+			if (index > 0) {
+				assertThat(LatencyHistogram.upperBoundOf(index - 1), lessThanOrEqualTo(value - 1));
+			}
+		}
+		assertThat(LatencyHistogram.indexOf(Long.MAX_VALUE), lessThanOrEqualTo(LatencyHistogram.BUCKETS - 1));
+		assertThat(LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(Long.MAX_VALUE)), is(Long.MAX_VALUE));
+	}
+	
+	/**
+	 * Test method for {@link LatencyHistogram#snapshot()}.
+	 */
+	@Test
+	public void testSnapshot() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertThat(snapshot.getCount(), is(1000L));
+		assertThat(snapshot.getSum(), is(500500L));
+		assertThat(snapshot.getMax(), is(1000L));
+		assertThat(snapshot.getMean(), is(500.5));
+		assertPercentile(snapshot.getPercentile(50), 500);
+		assertPercentile(snapshot.getPercentile(99), 990);
+		assertPercentile(snapshot.getPercentile(99.9), 999);
+		assertThat(snapshot.getPercentile(100), is(1000L));
+		assertThat(snapshot.getPercentile(0), is(1L));
+	}
+	
+	/**
+	 * Test method for {@link LatencyHistogram#snapshot()}.
+	 */
+	@Test
+	public void testSnapshot_Empty() {
+		LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+		assertThat(snapshot.getCount(), is(0L));
+		assertThat(snapshot.getPercentile(99), is(0L));
+		assertThat(snapshot.getMean(), is(0.0));
+	}
+	
+	/**
+	 * Test method for {@link LatencyHistogram#snapshot()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testSnapshot_Concurrent() throws Exception {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						histogram.record(j);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertThat(histogram.snapshot().getCount(), is(80000L));
+	}
+	
+	/**
+	 * Test method for {@link LatencyHistogram#reset()}.
+	 */
+	@Test
+	public void testReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(100);
+		LatencyHistogram.Snapshot before = histogram.snapshotAndReset();
+		assertThat(before.getCount(), is(1L));
+		histogram.record(10);
+		histogram.reset();
+		assertThat(histogram.snapshot().getCount(), is(0L));
+		assertThat(histogram.snapshot().getMax(), is(0L));
+	}
+	
+	private static void assertPercentile(long actual, long expected) {
+		assertThat(actual, greaterThanOrEqualTo(expected));
+		assertThat(actual, lessThanOrEqualTo(expected + expected / LatencyHistogram.SUB_BUCKETS));
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link LazyInstantiationHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class LazyInstantiationHandlerTest {
+	
+	/**
+	 * Initializes the test.
+	 * @throws Exception if some errors were occurred
+	 */
+	@Before
+	public void setUp() throws Exception {
+		ExpensiveProduct.created = 0;
+	}
+	
+	/**
+	 * Test method for {@link LazyInstantiationHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle() throws Throwable {
+		LazyInstantiationHandler handler = new LazyInstantiationHandler();
+		Object result = handler.handle(new Creation("a"));
+		assertThat(result, instanceOf(ExpensiveProduct.class));
+		assertThat(ExpensiveProduct.created, is(0));
+		assertThat(LazyInstantiationHandler.isPending(result), is(true));
+		
+		ExpensiveProduct product = (ExpensiveProduct) result;
+		assertThat(product.getValue(), is("a"));
+		assertThat(ExpensiveProduct.created, is(1));
+		assertThat(LazyInstantiationHandler.isPending(result), is(false));
+		
+		assertThat(product.append("b"), is("ab"));
+		assertThat(product.toString(), is("a"));
+		assertThat(ExpensiveProduct.created, is(1));
+	}
+	
+	/**
+	 * Test method for {@link LazyInstantiationHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_HiddenInitializer() throws Throwable {
+		LazyInstantiationHandler handler = new LazyInstantiationHandler();
+		Object result = handler.handle(new Creation("a"));
+		assertThat(result.getClass(), not(sameInstance((Object) ExpensiveProduct.class)));
+		for (Field field : result.getClass().getDeclaredFields()) {
+			assertThat(field.getName(), Modifier.isPrivate(field.getModifiers()), is(true));
+		}
+		assertThat(LazyInstantiationHandler.isPending(result), is(true));
+	}
+	
+	/**
+	 * Test method for {@link LazyInstantiationHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_ReuseClass() throws Throwable {
+		LazyInstantiationHandler handler = new LazyInstantiationHandler();
+		Object a = handler.handle(new Creation("a"));
+		Object b = handler.handle(new Creation("b"));
+		assertThat(a, not(sameInstance(b)));
+		assertThat(a.getClass(), sameInstance((Object) b.getClass()));
+		assertThat(((ExpensiveProduct) b).getValue(), is("b"));
+		assertThat(((ExpensiveProduct) a).getValue(), is("a"));
+	}
+	
+	/**
+	 * Test method for {@link LazyInstantiationHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Failure() throws Throwable {
+		LazyInstantiationHandler handler = new LazyInstantiationHandler();
+		ExpensiveProduct product = (ExpensiveProduct) handler.handle(new Creation(null));
+		try {
+			product.getValue();
+			fail();
+		} catch (IllegalArgumentException e) {
+			// ok.
+		}
+		assertThat(LazyInstantiationHandler.isPending(product), is(true));
+	}
+	
+	/**
+	 * Test method for {@link LazyInstantiationHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Unsupported() throws Throwable {
+		LazyInstantiationHandler handler = new LazyInstantiationHandler();
+		MockInvocation invocation = new MockInvocation() {
+			
+			@Override
+			public Member getTarget() {
+				try {
+					return StringBuilder.class.getConstructor();
+				} catch (Exception e) {
+					throw new AssertionError(e);
+				}
+			}
+			
+			@Override
+			public Object proceed() {
+				return new StringBuilder();
+			}
+		};
+		Object result = handler.handle(invocation);
+		assertThat(result.getClass(), is((Object) StringBuilder.class));
+		assertThat(LazyInstantiationHandler.isPending(result), is(false));
+	}
+	
+	/**
+	 * Test method for {@link LazyInstantiationHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Method() throws Throwable {
+		LazyInstantiationHandler handler = new LazyInstantiationHandler();
+		MockInvocation invocation = new MockInvocation() {
+			
+			@Override
+			public Object proceed() {
+				return "method";
+			}
+		};
+		assertThat(handler.handle(invocation), is((Object) "method"));
+	}
+	
+	/**
+	 * {@link ExpensiveProduct}のインスタンス生成を表す。
+	 */
+	static class Creation extends MockInvocation {
+		
+		Creation(String value) {
+			super(new Object[] {
+				value
+			});
+		}
+		
+		@Override
+		public Member getTarget() {
+			try {
+				return ExpensiveProduct.class.getConstructor(String.class);
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		}
+		
+		@Override
+		public Object proceed() {
+			return new ExpensiveProduct((String) getArguments()[0]);
+		}
+	}
+}
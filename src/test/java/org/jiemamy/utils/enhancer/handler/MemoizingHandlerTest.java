@@ -0,0 +1,206 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link MemoizingHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class MemoizingHandlerTest {
+	
+	/**
+	 * Test method for {@link MemoizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle() throws Throwable {
+		MemoizingHandler handler = new MemoizingHandler(10);
+		Counter counter = new Counter();
+		assertThat(handler.handle(counter.invoke("a")), is((Object) "a1"));
+		assertThat(handler.handle(counter.invoke("a")), is((Object) "a1"));
+		assertThat(handler.handle(counter.invoke("b")), is((Object) "b2"));
+		assertThat(handler.handle(counter.invoke("b")), is((Object) "b2"));
+		assertThat(handler.getHitCount(), is(2L));
+		assertThat(handler.getMissCount(), is(2L));
+		assertThat(handler.size(), is(2));
+	}
+	
+	/**
+	 * Test method for {@link MemoizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Null() throws Throwable {
+		MemoizingHandler handler = new MemoizingHandler(10);
+		Counter counter = new Counter();
+		assertThat(handler.handle(counter.invoke((Object) null)), is(nullValue()));
+		assertThat(handler.handle(counter.invoke((Object) null)), is(nullValue()));
+		assertThat(counter.count, is(1));
+	}
+	
+	/**
+	 * Test method for {@link MemoizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Array() throws Throwable {
+		MemoizingHandler handler = new MemoizingHandler(10);
+		Counter counter = new Counter();
+		handler.handle(counter.invoke((Object) new int[] {
+			1,
+			2
+		}));
+		handler.handle(counter.invoke((Object) new int[] {
+			1,
+			2
+		}));
+		assertThat(counter.count, is(1));
+	}
+	
+	/**
+	 * Test method for {@link MemoizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Exception() throws Throwable {
+		MemoizingHandler handler = new MemoizingHandler(10);
+		MockInvocation failure = new MockInvocation(new Object[] {
+			"a"
+		}) {
+			
+			@Override
+			public Object proceed() throws InvocationTargetException {
+				throw new InvocationTargetException(new IllegalStateException());
+			}
+		};
+		for (int i = 0; i < 2; i++) {
+			try {
+				handler.handle(failure);
+				fail();
+			} catch (InvocationTargetException e) {
+				// ok.
+			}
+		}
+		assertThat(handler.getMissCount(), is(2L));
+		assertThat(handler.size(), is(0));
+	}
+	
+	/**
+	 * Test method for {@link MemoizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Eviction() throws Throwable {
+		MemoizingHandler handler = new MemoizingHandler(1);
+		Counter counter = new Counter();
+		assertThat(handler.handle(counter.invoke("a")), is((Object) "a1"));
+		assertThat(handler.handle(counter.invoke("b")), is((Object) "b2"));
+		assertThat(handler.handle(counter.invoke("a")), is((Object) "a3"));
+		assertThat(handler.getEvictionCount(), is(2L));
+		assertThat(handler.size(), is(1));
+	}
+	
+	/**
+	 * Test method for {@link MemoizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Bounded() throws Throwable {
+		MemoizingHandler handler = new MemoizingHandler(100);
+		Counter counter = new Counter();
+		for (int i = 0; i < 1000; i++) {
+			handler.handle(counter.invoke(i));
+		}
+		assertThat(handler.size(), is(100));
+		assertThat(handler.getEvictionCount(), is(900L));
+	}
+	
+	/**
+	 * Test method for {@link MemoizingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_TimeToLive() throws Throwable {
+		MemoizingHandler handler = new MemoizingHandler(10, 1, TimeUnit.NANOSECONDS);
+		Counter counter = new Counter();
+		assertThat(handler.handle(counter.invoke("a")), is((Object) "a1"));
+		Thread.sleep(1);
+		assertThat(handler.handle(counter.invoke("a")), is((Object) "a2"));
+		assertThat(handler.getHitCount(), is(0L));
+	}
+	
+	/**
+	 * Test method for {@link MemoizingHandler#clear()}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testClear() throws Throwable {
+		MemoizingHandler handler = new MemoizingHandler(10);
+		Counter counter = new Counter();
+		handler.handle(counter.invoke("a"));
+		handler.clear();
+		assertThat(handler.size(), is(0));
+		assertThat(handler.handle(counter.invoke("a")), is((Object) "a2"));
+	}
+	
+	/**
+	 * Test method for {@link MemoizingHandler#MemoizingHandler(int)}.
+	 */
+	@SuppressWarnings("unused")
+	@Test(expected = IllegalArgumentException.class)
+	public void testMemoizingHandler_Empty() {
+		new MemoizingHandler(0);
+	}
+	
+
+	/**
+	 * 本来の処理の実行回数を数える。
+	 */
+	static class Counter {
+		
+		int count;
+		
+
+		MockInvocation invoke(final Object argument) {
+			return new MockInvocation(new Object[] {
+				argument
+			}) {
+				
+				@Override
+				public Object proceed() {
+					count++;
+					if (argument == null) {
+						return null;
+					}
+					return String.valueOf(argument) + count;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Member;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link PoolingHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class PoolingHandlerTest {
+	
+	/**
+	 * Test method for {@link PoolingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle() throws Throwable {
+		PoolingHandler handler = new PoolingHandler(2, new Resetter());
+		Object a = handler.handle(new Creation("a"));
+		assertThat(a.toString(), is("a"));
+		assertThat(handler.release(a), is(true));
+		
+		Object b = handler.handle(new Creation("b"));
+		assertThat(b, sameInstance(a));
+		assertThat(b.toString(), is("b"));
+		
+		Object c = handler.handle(new Creation("c"));
+		assertThat(c, not(sameInstance(a)));
+		assertThat(c.toString(), is("c"));
+		
+		assertThat(handler.getCreationCount(), is(2L));
+		assertThat(handler.getReuseCount(), is(1L));
+	}
+	
+	/**
+	 * Test method for {@link PoolingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_MultipleConstructors() throws Throwable {
+		PoolingHandler handler = new PoolingHandler(2, new Resetter());
+		Object a = handler.handle(new Creation("a"));
+		assertThat(handler.release(a), is(true));
+		
+		Object b = handler.handle(new Creation("b") {
+			
+			@Override
+			public Member getTarget() {
+				try {
+					return Product.class.getDeclaredConstructor(String.class, String.class);
+				} catch (Exception e) {
+					throw new AssertionError(e);
+				}
+			}
+			
+			@Override
+			public Object proceed() {
+				return new Product((String) getArguments()[0], "!");
+			}
+		});
+		assertThat(b, not(sameInstance(a)));
+		assertThat(b.toString(), is("b!"));
+		
+		// the class is no longer pooled
+		Object c = handler.handle(new Creation("c"));
+		assertThat(c, not(sameInstance(a)));
+		assertThat(handler.release(c), is(false));
+		assertThat(handler.getCreationCount(), is(3L));
+		assertThat(handler.getReuseCount(), is(0L));
+	}
+	
+	/**
+	 * Test method for {@link PoolingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Method() throws Throwable {
+		PoolingHandler handler = new PoolingHandler(2, new Resetter());
+		MockInvocation invocation = new MockInvocation() {
+			
+			@Override
+			public Object proceed() {
+				return "method";
+			}
+		};
+		assertThat(handler.handle(invocation), is((Object) "method"));
+		assertThat(handler.getCreationCount(), is(0L));
+	}
+	
+	/**
+	 * Test method for {@link PoolingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_ResetFailure() throws Throwable {
+		PoolingHandler handler = new PoolingHandler(2, new ProductResetter() {
+			
+			public void reset(Object product, Object[] arguments) {
+				throw new IllegalStateException();
+			}
+		});
+		Object a = handler.handle(new Creation("a"));
+		handler.release(a);
+		Object b = handler.handle(new Creation("b"));
+		assertThat(b, not(sameInstance(a)));
+		assertThat(b.toString(), is("b"));
+		assertThat(handler.getReuseCount(), is(0L));
+		
+		// discarded
+		Object c = handler.handle(new Creation("c"));
+		assertThat(c, not(sameInstance(a)));
+		assertThat(handler.getCreationCount(), is(3L));
+	}
+	
+	/**
+	 * Test method for {@link PoolingHandler#release(Object)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testRelease_Capacity() throws Throwable {
+		PoolingHandler handler = new PoolingHandler(2, new Resetter());
+		Object a = handler.handle(new Creation("a"));
+		Object b = handler.handle(new Creation("b"));
+		Object c = handler.handle(new Creation("c"));
+		assertThat(handler.release(a), is(true));
+		assertThat(handler.release(b), is(true));
+		assertThat(handler.release(c), is(false));
+	}
+	
+	/**
+	 * Test method for {@link PoolingHandler#release(Object)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testRelease_Unknown() throws Throwable {
+		PoolingHandler handler = new PoolingHandler(2, new Resetter());
+		assertThat(handler.release(new StringBuilder()), is(false));
+		assertThat(handler.release("unknown"), is(false));
+	}
+	
+	/**
+	 * Test method for {@link PoolingHandler#release(Object)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testRelease_Subclass() throws Throwable {
+		PoolingHandler handler = new PoolingHandler(2, new Resetter());
+		handler.handle(new Creation("a"));
+		Object product = new Product("sub") {
+			
+			// subclass (like enhanced products)
+		};
+		assertThat(handler.release(product), is(true));
+		assertThat(handler.handle(new Creation("b")), sameInstance(product));
+	}
+	
+	/**
+	 * Test method for {@link PoolingHandler#release(Object)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testRelease_OtherThread() throws Throwable {
+		final PoolingHandler handler = new PoolingHandler(2, new Resetter());
+		final Object a = handler.handle(new Creation("a"));
+		Thread thread = new Thread() {
+			
+			@Override
+			public void run() {
+				handler.release(a);
+			}
+		};
+		thread.start();
+		thread.join();
+		assertThat(handler.handle(new Creation("b")), not(sameInstance(a)));
+	}
+	
+	/**
+	 * プールされるプロダクト。
+	 */
+	static class Product {
+		
+		String value;
+		
+
+		Product(String value) {
+			this.value = value;
+		}
+		
+		Product(String value, String suffix) {
+			this.value = value + suffix;
+		}
+		
+		@Override
+		public String toString() {
+			return value;
+		}
+	}
+	
+	/**
+	 * {@link Product}の値を実引数で置き換える。
+	 */
+	static class Resetter implements ProductResetter {
+		
+		public void reset(Object product, Object[] arguments) {
+			((Product) product).value = (String) arguments[0];
+		}
+	}
+	
+	/**
+	 * {@link Product}のインスタンス生成を表す。
+	 */
+	static class Creation extends MockInvocation {
+		
+		Creation(String value) {
+			super(new Object[] {
+				value
+			});
+		}
+		
+		@Override
+		public Member getTarget() {
+			try {
+				return Product.class.getDeclaredConstructor(String.class);
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		}
+		
+		@Override
+		public Object proceed() {
+			return new Product((String) getArguments()[0]);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.Enhance;
+import org.jiemamy.utils.enhancer.FactoryEnhancer;
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+import org.jiemamy.utils.enhancer.Pointcuts;
+import org.jiemamy.utils.enhancer.TargetFactory;
+import org.jiemamy.utils.enhancer.TargetFactoryImpl;
+import org.jiemamy.utils.enhancer.TargetProduct1;
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link SamplingHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class SamplingHandlerTest {
+	
+	/**
+	 * Test method for {@link SamplingHandler#isApplicable(Object, Object[])}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testIsApplicable() throws Exception {
+		SamplingHandler handler = new SamplingHandler(new Counter(), 3);
+		List<Boolean> results = new ArrayList<Boolean>();
+		for (int i = 0; i < 6; i++) {
+			results.add(handler.isApplicable(null, new Object[0]));
+		}
+		assertThat(results.toString(), is("[false, false, true, false, false, true]"));
+	}
+	
+	/**
+	 * Test method for {@link SamplingHandler#isApplicable(Object, Object[])}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testIsApplicable_Always() throws Exception {
+		SamplingHandler handler = new SamplingHandler(new Counter(), 1);
+		for (int i = 0; i < 3; i++) {
+			assertThat(handler.isApplicable(null, new Object[0]), is(true));
+		}
+	}
+	
+	/**
+	 * Test method for {@link SamplingHandler#setRate(int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testSetRate() throws Exception {
+		SamplingHandler handler = new SamplingHandler(new Counter(), 1);
+		handler.setRate(0);
+		assertThat(handler.getRate(), is(0));
+		for (int i = 0; i < 3; i++) {
+			assertThat(handler.isApplicable(null, new Object[0]), is(false));
+		}
+		handler.setRate(2);
+		assertThat(handler.isApplicable(null, new Object[0]), is(false));
+		assertThat(handler.isApplicable(null, new Object[0]), is(true));
+	}
+	
+	/**
+	 * Test method for {@link SamplingHandler#setRate(int)}.
+	 * @throws Exception if occur
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetRate_Negative() throws Exception {
+		new SamplingHandler(new Counter(), -1);
+	}
+	
+	/**
+	 * Test method for {@link SamplingHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle() throws Throwable {
+		Counter counter = new Counter();
+		SamplingHandler handler = new SamplingHandler(counter, 100);
+		MockInvocation invocation = new MockInvocation() {
+			
+			@Override
+			public Object proceed() {
+				return "ok";
+			}
+		};
+		assertThat(handler.handle(invocation), is((Object) "ok"));
+		assertThat(counter.count, is(1));
+	}
+	
+	/**
+	 * Test method for {@link SamplingHandler#isApplicable(Object, Object[])}.
+	 * 拡張されたプロダクトを経由して、指定の割合の呼び出しにのみハンドラが適用される。
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testIsApplicable_Enhanced() throws Exception {
+		Counter counter = new Counter();
+		SamplingHandler handler = new SamplingHandler(counter, 3);
+		FactoryEnhancer<TargetFactory> enhancer =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, new Enhance(
+						Pointcuts.parse("execution(java.lang.String *..TargetProduct1.getValue())"), handler));
+		TargetFactory factory = enhancer.getEnhanced().newInstance();
+		TargetProduct1 product = factory.newProduct1("a");
+		for (int i = 0; i < 100; i++) {
+			assertThat(product.getValue(), is("a1"));
+		}
+		assertThat(counter.count, is(33));
+		
+		counter.count = 0;
+		handler.setRate(1);
+		for (int i = 0; i < 100; i++) {
+			product.getValue();
+		}
+		assertThat(counter.count, is(100));
+	}
+	
+
+	/**
+	 * 呼び出し回数を数えるハンドラ。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	static class Counter implements InvocationHandler {
+		
+		int count;
+		
+
+		public Object handle(Invocation invocation) throws Throwable {
+			count++;
+			return invocation.proceed();
+		}
+	}
+}
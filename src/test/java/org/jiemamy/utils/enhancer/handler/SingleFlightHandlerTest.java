@@ -0,0 +1,204 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.handler;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Member;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.helper.MockInvocation;
+
+/**
+ * Test for {@link SingleFlightHandler}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class SingleFlightHandlerTest {
+	
+	private ExecutorService executor = Executors.newCachedThreadPool();
+	
+
+	/**
+	 * テストの情報を破棄する。
+	 * @throws Exception if occur
+	 */
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Test method for {@link SingleFlightHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle() throws Throwable {
+		SingleFlightHandler handler = new SingleFlightHandler();
+		Backend backend = new Backend(null);
+		Future<Object> leader = submit(handler, backend.invoke("a"));
+		assertThat(backend.started.await(10, TimeUnit.SECONDS), is(true));
+		Future<Object> follower = submit(handler, backend.invoke("a"));
+		while (handler.getSharedCount() == 0) {
+			Thread.sleep(1);
+		}
+		backend.release.countDown();
+		Object result = leader.get(10, TimeUnit.SECONDS);
+		assertThat(follower.get(10, TimeUnit.SECONDS), sameInstance(result));
+		assertThat(backend.count.get(), is(1));
+		assertThat(handler.getExecutionCount(), is(1L));
+		assertThat(handler.getInFlightCount(), is(0));
+	}
+	
+	/**
+	 * Test method for {@link SingleFlightHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_Exception() throws Throwable {
+		SingleFlightHandler handler = new SingleFlightHandler();
+		Backend backend = new Backend(new IllegalStateException());
+		Future<Object> leader = submit(handler, backend.invoke("a"));
+		assertThat(backend.started.await(10, TimeUnit.SECONDS), is(true));
+		Future<Object> follower = submit(handler, backend.invoke("a"));
+		while (handler.getSharedCount() == 0) {
+			Thread.sleep(1);
+		}
+		backend.release.countDown();
+		assertThat(failureOf(leader), instanceOf(IllegalStateException.class));
+		assertThat(failureOf(follower), sameInstance(failureOf(leader)));
+		assertThat(backend.count.get(), is(1));
+	}
+	
+	/**
+	 * Test method for {@link SingleFlightHandler#handle(org.jiemamy.utils.enhancer.Invocation)}.
+	 * @throws Throwable if occur
+	 */
+	@Test
+	public void testHandle_NotCollapsed() throws Throwable {
+		SingleFlightHandler handler = new SingleFlightHandler();
+		Backend backend = new Backend(null);
+		backend.release.countDown();
+		handler.handle(backend.invoke("a"));
+		handler.handle(backend.invoke("a"));
+		Future<Object> leader = submit(handler, backend.invoke("a"));
+		leader.get(10, TimeUnit.SECONDS);
+		Backend other = new Backend(null);
+		other.release.countDown();
+		handler.handle(other.invoke("a"));
+		assertThat(backend.count.get(), is(3));
+		assertThat(handler.getExecutionCount(), is(4L));
+		assertThat(handler.getSharedCount(), is(0L));
+	}
+	
+	private Future<Object> submit(final SingleFlightHandler handler, final MockInvocation invocation) {
+		return executor.submit(new Callable<Object>() {
+			
+			public Object call() throws Exception {
+				try {
+					return handler.handle(invocation);
+				} catch (Exception e) {
+					throw e;
+				} catch (Throwable t) {
+					throw new AssertionError(t);
+				}
+			}
+		});
+	}
+	
+	private Throwable failureOf(Future<?> future) throws Exception {
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			throw new AssertionError();
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+	
+
+	/**
+	 * 解放されるまで完了しない呼び出し先。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	static class Backend {
+		
+		static final Member TARGET;
+		static {
+			try {
+				TARGET = Backend.class.getDeclaredMethod("invoke", Object[].class);
+			} catch (NoSuchMethodException e) {
+				throw new AssertionError(e);
+			}
+		}
+		
+		final CountDownLatch started = new CountDownLatch(1);
+		
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		final AtomicInteger count = new AtomicInteger();
+		
+		final RuntimeException failure;
+		
+
+		Backend(RuntimeException failure) {
+			this.failure = failure;
+		}
+		
+		MockInvocation invoke(Object... arguments) {
+			return new MockInvocation(arguments) {
+				
+				@Override
+				public Object getInvoker() {
+					return Backend.this;
+				}
+				
+				@Override
+				public Member getTarget() {
+					return TARGET;
+				}
+				
+				@Override
+				public Object proceed() {
+					count.incrementAndGet();
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new AssertionError(e);
+					}
+					if (failure != null) {
+						throw failure;
+					}
+					return new Object();
+				}
+			};
+		}
+	}
+}
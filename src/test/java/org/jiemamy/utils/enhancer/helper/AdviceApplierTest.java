@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.jiemamy.utils.enhancer.EnhanceException;
+import org.jiemamy.utils.enhancer.GuardedInvocationHandler;
 import org.jiemamy.utils.enhancer.Invocation;
 import org.jiemamy.utils.enhancer.InvocationHandler;
 import org.jiemamy.utils.enhancer.aspect.AfterIntIncrementHandler;
@@ -126,6 +127,87 @@ public class AdviceApplierTest {
         assertThat(result, is((Object) "abcde"));
     }
 
+    /**
+     * Test method for {@link AdviceApplier#method(java.util.List, Class, String, Class, String, Class[])}.
+     * @throws Throwable if occur
+     */
+    @Test
+    public void testMethod_GuardedHandlers() throws Throwable {
+        AdviceApplier helper = AdviceApplier.method(
+            handlers(
+                new BeforeStringInsertHandler("a"),
+                guarded(new BeforeStringInsertHandler("b"), "skip"),
+                new AfterStringAppendHandler("d"),
+                guarded(new AfterStringAppendHandler("e"), "skip")),
+            MethodTestTarget.class, "ident",
+            MethodTestTarget.class, "ident",
+            STRING);
+        MethodTestTarget target = new MethodTestTarget();
+        assertThat(helper.invoke(target, of("c")), is((Object) "abcde"));
+        assertThat(helper.invoke(target, of("skip")), is((Object) "askipd"));
+    }
+
+    /**
+     * Test method for {@link AdviceApplier#method(java.util.List, Class, String, Class, String, Class[])}.
+     * @throws Throwable if occur
+     */
+    @Test
+    public void testMethod_GuardedAll() throws Throwable {
+        final AtomicReference<Invocation> h = new AtomicReference<Invocation>();
+        AdviceApplier helper = AdviceApplier.method(
+            handlers(guarded(new InvocationHandler() {
+                public Object handle(Invocation invocation) throws Throwable {
+                    h.set(invocation);
+                    return invocation.proceed();
+                }
+            }, "skip")),
+            MethodTestTarget.class, "ident",
+            MethodTestTarget.class, "ident",
+            STRING);
+        MethodTestTarget target = new MethodTestTarget();
+        assertThat(helper.invoke(target, of("skip")), is((Object) "skip"));
+        assertThat(h.get(), is(nullValue()));
+        assertThat(helper.invoke(target, of("c")), is((Object) "c"));
+        assertThat(h.get(), is(notNullValue()));
+    }
+
+    /**
+     * Test method for {@link AdviceApplier#prepare(Object, Object[])}.
+     * @throws Throwable if occur
+     */
+    @Test
+    public void testPrepare() throws Throwable {
+        InvocationHandler through = new InvocationHandler() {
+            public Object handle(Invocation invocation) throws Throwable {
+                return invocation.proceed();
+            }
+        };
+        MethodTestTarget target = new MethodTestTarget();
+        AdviceApplier guardedOnly = AdviceApplier.method(
+            handlers(guarded(through, "skip")),
+            MethodTestTarget.class, "ident",
+            MethodTestTarget.class, "ident",
+            STRING);
+        assertThat(guardedOnly.prepare(target, of("skip")), is(nullValue()));
+        Invocation chain = guardedOnly.prepare(target, of("c"));
+        assertThat(chain, is(notNullValue()));
+        assertThat(guardedOnly.proceed(chain), is((Object) "c"));
+
+        AdviceApplier mixed = AdviceApplier.method(
+            handlers(guarded(through, "skip"), through),
+            MethodTestTarget.class, "ident",
+            MethodTestTarget.class, "ident",
+            STRING);
+        assertThat(mixed.prepare(target, of("skip")), is(notNullValue()));
+
+        AdviceApplier empty = AdviceApplier.method(
+            handlers(),
+            MethodTestTarget.class, "ident",
+            MethodTestTarget.class, "ident",
+            STRING);
+        assertThat(empty.prepare(target, of("c")), is(nullValue()));
+    }
+
     /**
      * Test method for {@link AdviceApplier#method(java.util.List, Class, String, Class, String, Class[])}.
      * @throws Throwable if occur
@@ -368,4 +450,17 @@ public class AdviceApplierTest {
     private Object[] of(Object...values) {
         return values;
     }
+
+    private GuardedInvocationHandler guarded(
+            final InvocationHandler handler,
+            final Object skip) {
+        return new GuardedInvocationHandler() {
+            public boolean isApplicable(Object invoker, Object[] arguments) {
+                return skip.equals(arguments[0]) == false;
+            }
+            public Object handle(Invocation invocation) throws Throwable {
+                return handler.handle(invocation);
+            }
+        };
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.CtNewMethod;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.annotation.Annotation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.Pure;
+import org.jiemamy.utils.enhancer.PureMethods;
+
+/**
+ * Test for {@link AnnotationIndex}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class AnnotationIndexTest {
+	
+	private ClassPool pool;
+	
+
+	/**
+	 * テストを初期化する。
+	 * @throws Exception if occur
+	 */
+	@Before
+	public void setUp() throws Exception {
+		pool = new ClassPool();
+		pool.appendClassPath(new ClassClassPath(getClass()));
+	}
+	
+	/**
+	 * Test method for {@link AnnotationIndex#of(ClassPool)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testOf() throws Exception {
+		assertThat(AnnotationIndex.of(pool), sameInstance(AnnotationIndex.of(pool)));
+	}
+	
+	/**
+	 * Test method for {@link AnnotationIndex#isAnnotated(javassist.CtBehavior, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testIsAnnotated() throws Exception {
+		CtClass target = pool.get(PureMethods.class.getName());
+		String pure = Pure.class.getName();
+		assertThat(AnnotationIndex.isAnnotated(target.getDeclaredMethod("pure"), pure), is(true));
+		assertThat(AnnotationIndex.isAnnotated(target.getDeclaredMethod("impure"), pure), is(false));
+		assertThat(AnnotationIndex.isAnnotated(target.getDeclaredMethod("pure"), Documented.class.getName()),
+				is(false));
+		assertThat(AnnotationIndex.of(pool).size(), is(1));
+	}
+	
+	/**
+	 * Test method for {@link AnnotationIndex#isAnnotated(javassist.CtBehavior, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testIsAnnotated_Modified() throws Exception {
+		CtClass target = pool.get(PureMethods.class.getName());
+		String pure = Pure.class.getName();
+		assertThat(AnnotationIndex.isAnnotated(target.getDeclaredMethod("pure"), pure), is(true));
+		
+		CtMethod added = CtNewMethod.make("public void added() {}", target);
+		ConstPool cp = target.getClassFile().getConstPool();
+		AnnotationsAttribute attribute = new AnnotationsAttribute(cp, AnnotationsAttribute.visibleTag);
+		attribute.addAnnotation(new Annotation(pure, cp));
+		added.getMethodInfo().addAttribute(attribute);
+		target.addMethod(added);
+		assertThat(AnnotationIndex.isAnnotated(added, pure), is(true));
+	}
+	
+	/**
+	 * Test method for {@link AnnotationIndex#isTypeAnnotated(CtClass, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testIsTypeAnnotated() throws Exception {
+		String documented = Documented.class.getName();
+		assertThat(AnnotationIndex.isTypeAnnotated(pool.get(Retention.class.getName()), documented), is(true));
+		assertThat(AnnotationIndex.isTypeAnnotated(pool.get(PureMethods.class.getName()), documented), is(false));
+		assertThat(AnnotationIndex.isTypeAnnotated(CtClass.intType, documented), is(false));
+	}
+}
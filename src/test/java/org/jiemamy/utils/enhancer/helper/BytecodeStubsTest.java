@@ -0,0 +1,142 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.Modifier;
+
+import org.jiemamy.utils.enhancer.Enhance;
+import org.jiemamy.utils.enhancer.FactoryEnhancer;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+import org.jiemamy.utils.enhancer.TargetFactory;
+import org.jiemamy.utils.enhancer.TargetFactoryImpl;
+import org.jiemamy.utils.enhancer.aspect.AfterIntIncrementHandler;
+import org.jiemamy.utils.enhancer.aspect.AfterStringAppendHandler;
+import org.jiemamy.utils.enhancer.aspect.BeforeStringInsertHandler;
+import org.jiemamy.utils.enhancer.aspect.StringParameterPointcut;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link BytecodeStubs}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class BytecodeStubsTest {
+	
+	private static final Class<?>[] INT_INT = new Class<?>[] {
+		int.class,
+		int.class
+	};
+	
+	private static final Class<?>[] STRING = new Class<?>[] {
+		String.class
+	};
+	
+
+	/**
+	 * Test method for {@link BytecodeStubs#setPointcutBody(CtMethod, CtField, int, CtMethod)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testSetPointcutBody() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		CtClass base = converter.loadCtClass(MethodTestTarget.class);
+		CtClass enhance = converter.getClassPool().makeClass("BytecodeStubsExample", base);
+		CtField holder = EnhanceManipulator.createAdviceTableField(enhance);
+		
+		CtConstructor constructor = new CtConstructor(new CtClass[0], enhance);
+		constructor.setModifiers(Modifier.PUBLIC);
+		BytecodeStubs.setSuperConstructorBody(constructor, false);
+		enhance.addConstructor(constructor);
+		
+		pointcut(enhance, base.getDeclaredMethod("add"), holder, 0, false);
+		pointcut(enhance, base.getDeclaredMethod("sub"), holder, 1, true);
+		pointcut(enhance, base.getDeclaredMethod("ident"), holder, 2, true);
+		pointcut(enhance, base.getDeclaredMethod("setValue"), holder, 3, false);
+		
+		Class<?> enhanced = converter.toClass(enhance);
+		HandlerTable table = new HandlerTable();
+		Field field = enhanced.getField(holder.getName());
+		field.set(null, new AdviceApplier[] {
+			AdviceApplier.method(table, Arrays.asList(new AfterIntIncrementHandler()), MethodTestTarget.class,
+					"add", enhanced, "addBypass", INT_INT),
+			AdviceApplier.method(table, Collections.<InvocationHandler> emptyList(), MethodTestTarget.class,
+					"sub", enhanced, "subBypass", INT_INT),
+			AdviceApplier.method(table, Arrays.asList(new AfterStringAppendHandler("!")), MethodTestTarget.class,
+					"ident", enhanced, "identBypass", STRING),
+			AdviceApplier.method(table, Collections.<InvocationHandler> emptyList(), MethodTestTarget.class,
+					"setValue", enhanced, "setValueBypass", STRING)
+		});
+		
+		MethodTestTarget target = (MethodTestTarget) enhanced.newInstance();
+		assertThat(target.add(1, 2), is(4));
+		assertThat(target.sub(5, 2), is(3));
+		assertThat(target.ident("Hello"), is("Hello!"));
+		target.setValue("value");
+		assertThat(target.getValue(), is("value"));
+	}
+	
+	/**
+	 * Test method for {@link BytecodeStubs#patchNewExpr(javassist.expr.NewExpr, CtClass, CtField, int, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testPatchNewExpr() throws Exception {
+		Enhance enhance = new Enhance(new StringParameterPointcut(), new BeforeStringInsertHandler("!"));
+		FactoryEnhancer<TargetFactory> enhancer =
+				new FactoryEnhancer<TargetFactory>(TargetFactory.class, TargetFactoryImpl.class, enhance);
+		Class<? extends TargetFactory> enhanced = enhancer.getEnhanced();
+		int helpers = 0;
+		for (Method method : enhanced.getDeclaredMethods()) {
+			if (method.getName().endsWith("__NEW__")) {
+				assertThat(method.isSynthetic(), is(true));
+				assertThat(java.lang.reflect.Modifier.isStatic(method.getModifiers()), is(true));
+				assertThat(method.getParameterTypes()[0], is((Object) Object.class));
+				helpers++;
+			}
+		}
+		assertThat(helpers > 0, is(true));
+		TargetFactory factory = enhanced.newInstance();
+		assertThat(factory.newString("s"), is("!s"));
+		assertThat(factory.newProduct1("a").getValue(), is("!a1"));
+	}
+	
+	private void pointcut(CtClass enhance, CtMethod method, CtField holder, int index, boolean guarded)
+			throws Exception {
+		CtMethod bypass = new CtMethod(method.getReturnType(), method.getName() + "Bypass",
+				method.getParameterTypes(), enhance);
+		bypass.setModifiers(Modifier.PUBLIC);
+		BytecodeStubs.setSuperMethodBody(bypass, method);
+		enhance.addMethod(bypass);
+		
+		CtMethod pointcut = new CtMethod(method.getReturnType(), method.getName(), method.getParameterTypes(), enhance);
+		pointcut.setModifiers(Modifier.PUBLIC);
+		BytecodeStubs.setPointcutBody(pointcut, holder, index, guarded ? method : null);
+		enhance.addMethod(pointcut);
+	}
+}
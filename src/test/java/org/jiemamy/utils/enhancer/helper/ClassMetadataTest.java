@@ -0,0 +1,148 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.Enhance;
+import org.jiemamy.utils.enhancer.InvocationPointcut;
+import org.jiemamy.utils.enhancer.Pointcuts;
+import org.jiemamy.utils.enhancer.TargetProduct1;
+import org.jiemamy.utils.enhancer.TargetProductBase;
+import org.jiemamy.utils.enhancer.TargetProductFinal;
+
+/**
+ * Test for {@link ClassMetadata}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class ClassMetadataTest {
+	
+	private ClassPool pool;
+	
+
+	/**
+	 * Initializes the test.
+	 * @throws Exception if some errors were occurred
+	 */
+	@Before
+	public void setUp() throws Exception {
+		pool = new ClassPool();
+		pool.appendClassPath(new ClassClassPath(getClass()));
+		pool.appendSystemPath();
+	}
+	
+	/**
+	 * Test method for {@link ClassMetadata#find(ClassPool, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testFind() throws Exception {
+		ClassMetadata metadata = ClassMetadata.find(pool, TargetProduct1.class.getName());
+		assertThat(metadata.getName(), is(TargetProduct1.class.getName()));
+		assertThat(metadata.isPublic(), is(true));
+		assertThat(metadata.isFinal(), is(false));
+		assertThat(metadata.getSuperclassName(), is(TargetProductBase.class.getName()));
+		List<String> methods = new ArrayList<String>();
+		for (ClassMetadata.MethodMetadata method : metadata.getMethods()) {
+			methods.add(method.toString());
+		}
+		assertThat(methods, hasItem("<init>()V"));
+		assertThat(methods, hasItem("<init>(Ljava/lang/String;)V"));
+		assertThat(methods, hasItem("getStatic()Ljava/lang/String;"));
+	}
+	
+	/**
+	 * Test method for {@link ClassMetadata#find(ClassPool, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testFind_Object() throws Exception {
+		ClassMetadata metadata = ClassMetadata.find(pool, Object.class.getName());
+		assertThat(metadata.getName(), is(Object.class.getName()));
+		assertThat(metadata.getSuperclassName(), is(nullValue()));
+		
+		ClassMetadata string = ClassMetadata.find(pool, String.class.getName());
+		assertThat(string.isFinal(), is(true));
+		assertThat(string.getInterfaceNames(), hasItem(Serializable.class.getName()));
+	}
+	
+	/**
+	 * Test method for {@link ClassMetadata#find(ClassPool, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testFind_InvokeDynamic() throws Exception {
+		String name = "java.util.stream.Collectors";
+		assumeThat(pool.find(name), is(notNullValue()));
+		ClassMetadata metadata = ClassMetadata.find(pool, name);
+		assertThat(metadata.getName(), is(name));
+		assertThat(metadata.isFinal(), is(true));
+	}
+	
+	/**
+	 * Test method for {@link ClassMetadata#find(ClassPool, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testFind_Missing() throws Exception {
+		assertThat(ClassMetadata.find(pool, "java.lang.__Missing__"), is(nullValue()));
+	}
+	
+	/**
+	 * Test method for {@link EnhanceManager#isCandidateProduct(ClassMetadata)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testIsCandidateProduct() throws Exception {
+		ClassMetadata product = ClassMetadata.find(pool, TargetProduct1.class.getName());
+		ClassMetadata productFinal = ClassMetadata.find(pool, TargetProductFinal.class.getName());
+		
+		EnhanceManager any = manager(Pointcuts.TRUE);
+		assertThat(any.isCandidateProduct(product), is(true));
+		assertThat(any.isCandidateProduct(productFinal), is(false));
+		
+		EnhanceManager constructors = manager(Pointcuts.and(Pointcuts.CONSTRUCTORS, Pointcuts.TRUE));
+		assertThat(constructors.isCandidateProduct(product), is(false));
+		
+		EnhanceManager named = manager(Pointcuts.parse("execution(* *..TargetProduct1.*(..))"));
+		assertThat(named.isCandidateProduct(product), is(true));
+		assertThat(named.isCandidateProduct(ClassMetadata.find(pool, ArrayList.class.getName())), is(false));
+		
+		EnhanceManager guarded = manager(Pointcuts.or(Pointcuts.CONSTRUCTORS, Pointcuts.PURE));
+		assertThat(guarded.isCandidateProduct(product), is(true));
+	}
+	
+	private static EnhanceManager manager(InvocationPointcut pointcut) {
+		return new EnhanceManager(Collections.singletonList(new Enhance(pointcut, new PointcutParserTest.Handler())));
+	}
+}
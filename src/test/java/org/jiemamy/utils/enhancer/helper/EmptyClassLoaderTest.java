@@ -0,0 +1,60 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link EmptyClassLoader}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class EmptyClassLoaderTest {
+	
+	/**
+	 * Test method for {@link EmptyClassLoader#EmptyClassLoader(ClassLoader)}.
+	 * Java SE 7 以降では、並列なクラスのロードに対応するクラスローダとして登録される。
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParallelCapable() throws Exception {
+		boolean supported;
+		try {
+			ClassLoader.class.getDeclaredMethod("registerAsParallelCapable");
+			supported = true;
+		} catch (NoSuchMethodException e) {
+			supported = false;
+		}
+		assertThat(EmptyClassLoader.PARALLEL_CAPABLE, is(supported));
+	}
+	
+	/**
+	 * Test method for {@link EmptyClassLoader#getShared(ClassLoader)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetShared() throws Exception {
+		ClassLoader parent = getClass().getClassLoader();
+		EmptyClassLoader shared = EmptyClassLoader.getShared(parent);
+		assertThat(EmptyClassLoader.getShared(parent), sameInstance(shared));
+		assertThat(new EmptyClassLoader(parent), not(sameInstance(shared)));
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javassist.CtClass;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.EnhanceListener;
+import org.jiemamy.utils.enhancer.EnhancePhaseReport;
+import org.jiemamy.utils.enhancer.EnhanceReport;
+import org.jiemamy.utils.enhancer.GeneratedClassReport;
+
+/**
+ * Test for {@link EnhanceMonitor}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class EnhanceMonitorTest {
+	
+	/**
+	 * Test method for {@link EnhanceMonitor#end(int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testEnd() throws Exception {
+		Recorder recorder = new Recorder();
+		EnhanceMonitor monitor = new EnhanceMonitor("Hello", Arrays.asList(recorder));
+		monitor.begin("a");
+		monitor.end(1);
+		monitor.begin("b");
+		monitor.begin("c");
+		monitor.end(2);
+		assertThat(recorder.phases.size(), is(2));
+		EnhancePhaseReport first = recorder.phases.get(0);
+		assertThat(first.getFactoryName(), is("Hello"));
+		assertThat(first.getPhaseName(), is("a"));
+		assertThat(first.getCount(), is(1));
+		assertThat(first.getElapsedNanos() >= 0, is(true));
+		EnhancePhaseReport second = recorder.phases.get(1);
+		assertThat(second.getPhaseName(), is("c"));
+		assertThat(second.getCount(), is(2));
+	}
+	
+	/**
+	 * Test method for {@link EnhanceMonitor#end(int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testEnd_NotStarted() throws Exception {
+		EnhanceMonitor monitor = new EnhanceMonitor("Hello", Collections.<EnhanceListener> emptyList());
+		monitor.begin("a");
+		monitor.end(1);
+		try {
+			monitor.end(1);
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+	}
+	
+	/**
+	 * Test method for {@link EnhanceMonitor#generated(CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGenerated() throws Exception {
+		Recorder recorder = new Recorder();
+		EnhanceMonitor monitor = new EnhanceMonitor("Hello", Arrays.asList(recorder));
+		JavassistConverter converter = new JavassistConverter(getClass());
+		CtClass target = converter.loadCtClass(MethodTestTarget.class);
+		monitor.generated(target);
+		assertThat(recorder.classes.size(), is(1));
+		GeneratedClassReport report = recorder.classes.get(0);
+		assertThat(report.getFactoryName(), is("Hello"));
+		assertThat(report.getClassName(), is(MethodTestTarget.class.getName()));
+		assertThat(report.getBytecodeSize(), is(target.toBytecode().length));
+		assertThat(report.getConstantPoolSize(), is(target.getClassFile2().getConstPool().getSize()));
+	}
+	
+	/**
+	 * Test method for {@link EnhanceMonitor#completed(int, int, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testCompleted() throws Exception {
+		Recorder recorder = new Recorder();
+		EnhanceMonitor monitor = new EnhanceMonitor("Hello", Arrays.asList(recorder));
+		monitor.completed(1, 2, 3);
+		assertThat(recorder.completed.size(), is(1));
+		EnhanceReport report = recorder.completed.get(0);
+		assertThat(report.getFactoryName(), is("Hello"));
+		assertThat(report.getProductCount(), is(1));
+		assertThat(report.getJoinpointCount(), is(2));
+		assertThat(report.getAdviceTableSize(), is(3));
+		assertThat(report.getElapsedNanos() >= 0, is(true));
+	}
+	
+
+	/**
+	 * 通知された情報を記録するリスナー。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	static class Recorder implements EnhanceListener {
+		
+		final List<EnhancePhaseReport> phases = new ArrayList<EnhancePhaseReport>();
+		
+		final List<GeneratedClassReport> classes = new ArrayList<GeneratedClassReport>();
+		
+		final List<EnhanceReport> completed = new ArrayList<EnhanceReport>();
+		
+
+		public void phaseCompleted(EnhancePhaseReport report) {
+			phases.add(report);
+		}
+		
+		public void classGenerated(GeneratedClassReport report) {
+			classes.add(report);
+		}
+		
+		public void enhanceCompleted(EnhanceReport report) {
+			completed.add(report);
+		}
+	}
+}
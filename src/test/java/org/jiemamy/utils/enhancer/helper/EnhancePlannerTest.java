@@ -0,0 +1,84 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javassist.CtClass;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.Enhance;
+import org.jiemamy.utils.enhancer.TargetFactoryImpl;
+import org.jiemamy.utils.enhancer.TargetProduct1;
+import org.jiemamy.utils.enhancer.aspect.AfterStringAppendHandler;
+import org.jiemamy.utils.enhancer.aspect.StringResultPointcut;
+
+/**
+ * Test for {@link EnhancePlanner}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class EnhancePlannerTest {
+	
+	/**
+	 * Test method for {@link EnhancePlanner#collectNewSites(CtClass, EnhanceManager, Set, Map)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testCollectNewSites() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		CtClass factory = converter.loadCtClass(TargetFactoryImpl.class);
+		EnhanceManager manager = new EnhanceManager(Collections.singletonList(new Enhance(
+				new StringResultPointcut(), new AfterStringAppendHandler("!"))));
+		String product = TargetProduct1.class.getName();
+		
+		Map<String, Set<String>> constructors = new HashMap<String, Set<String>>();
+		List<String> newSites =
+				EnhancePlanner.collectNewSites(factory, manager, Collections.singleton(product), constructors);
+		assertThat(newSites.size(), is(3));
+		assertThat(constructors.keySet(), is(Collections.singleton(product)));
+		assertThat(constructors.get(product), is((Set<String>) new HashSet<String>(Arrays.asList(
+				"()V",
+				"(Ljava/lang/String;)V"))));
+	}
+	
+	/**
+	 * Test method for {@link EnhancePlanner#planProduct(EnhanceManager, CtClass, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testPlanProduct() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		CtClass product = converter.loadCtClass(TargetProduct1.class);
+		EnhanceManager manager = new EnhanceManager(Collections.singletonList(new Enhance(
+				new StringResultPointcut(), new AfterStringAppendHandler("!"))));
+		
+		int pruned = EnhancePlanner.planProduct(manager, product, 1).getEstimatedBytecodeSize();
+		int all = EnhancePlanner.planProduct(manager, product, 2).getEstimatedBytecodeSize();
+		assertThat(pruned < all, is(true));
+		assertThat(EnhancePlanner.planProduct(manager, product, 1).getJoinpoints().isEmpty(), is(false));
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.EnhancePhaseReport;
+
+/**
+ * Test for {@link FlightRecorderSupport}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class FlightRecorderSupportTest {
+	
+	private Object recording;
+	
+	private File output;
+	
+
+	/**
+	 * テストを初期化する。
+	 * @throws Exception if occur
+	 */
+	@Before
+	public void setUp() throws Exception {
+		assumeTrue(FlightRecorderSupport.isAvailable());
+		Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+		recording = recordingClass.newInstance();
+		recordingClass.getMethod("enable", String.class).invoke(recording, "org.jiemamy.enhancer.EnhancePhase");
+		recordingClass.getMethod("enable", String.class).invoke(recording, "org.jiemamy.enhancer.SlowInvocation");
+		recordingClass.getMethod("start").invoke(recording);
+		output = File.createTempFile("enhancer", ".jfr");
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * @throws Exception if occur
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (recording != null) {
+			recording.getClass().getMethod("close").invoke(recording);
+		}
+		if (output != null) {
+			output.delete();
+		}
+	}
+	
+	/**
+	 * Test method for {@link FlightRecorderSupport#phaseCompleted(EnhancePhaseReport)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testPhaseCompleted() throws Exception {
+		FlightRecorderSupport.phaseCompleted(new EnhancePhaseReport("Hello", "testing", 3, 100L, 200L));
+		List<String> events = readEvents("phase", "factory", "count", "elapsed", "allocated");
+		assertThat(events.size(), is(1));
+		assertThat(events.get(0).startsWith("testing:Hello:3:"), is(true));
+		assertThat(events.get(0).endsWith(":200"), is(true));
+	}
+	
+	/**
+	 * Test method for {@link FlightRecorderSupport#slowInvocation(java.lang.reflect.Member, Object, long)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testSlowInvocation() throws Exception {
+		Method target = Object.class.getMethod("toString");
+		FlightRecorderSupport.slowInvocation(target, "", 100L);
+		List<String> events = readEvents("target", "invoker", "elapsed");
+		assertThat(events.size(), is(1));
+		assertThat(events.get(0).startsWith(target + ":java.lang.String:"), is(true));
+	}
+	
+	private List<String> readEvents(String... names) throws Exception {
+		Class<?> recordingClass = recording.getClass();
+		recordingClass.getMethod("stop").invoke(recording);
+		Object path = File.class.getMethod("toPath").invoke(output);
+		Class<?> pathClass = Class.forName("java.nio.file.Path");
+		recordingClass.getMethod("dump", pathClass).invoke(recording, path);
+		Class<?> fileClass = Class.forName("jdk.jfr.consumer.RecordingFile");
+		List<?> events = (List<?>) fileClass.getMethod("readAllEvents", pathClass).invoke(null, path);
+		List<String> results = new ArrayList<String>();
+		for (Object event : events) {
+			Method getValue = event.getClass().getMethod("getValue", String.class);
+			StringBuilder buf = new StringBuilder();
+			for (String name : names) {
+				if (buf.length() > 0) {
+					buf.append(':');
+				}
+				buf.append(String.valueOf(getValue.invoke(event, name)));
+			}
+			results.add(buf.toString());
+		}
+		return results;
+	}
+}
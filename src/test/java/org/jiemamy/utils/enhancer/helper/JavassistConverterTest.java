@@ -25,16 +25,20 @@ import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
 import javassist.ClassPool;
 import javassist.CtClass;
 import javassist.CtConstructor;
+import javassist.CtField;
 import javassist.CtMethod;
 
 import org.junit.Test;
 
+import org.jiemamy.utils.enhancer.EnhanceException;
+
 /**
  * Test for {@link JavassistConverter}.
  * @author Suguru ARAKAWA
@@ -71,6 +75,31 @@ public class JavassistConverterTest {
 		assertThat(created3, is(not((Object) created1)));
 	}
 	
+	/**
+	 * Test method for {@link JavassistConverter#JavassistConverter(java.lang.Class, boolean)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testJavassistConverter_Shared() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass(), true);
+		JavassistConverter another = new JavassistConverter(getClass(), true);
+		ClassLoader loader = converter.getClassPool().getClassLoader();
+		assertThat(loader, instanceOf(EmptyClassLoader.class));
+		assertThat(another.getClassPool().getClassLoader(), sameInstance(loader));
+		assertThat(new JavassistConverter(getClass()).getClassPool().getClassLoader(), not(sameInstance(loader)));
+		
+		String name1 = ((EmptyClassLoader) loader).reserve("SharedExample");
+		String name2 = ((EmptyClassLoader) loader).reserve("SharedExample");
+		assertThat(name2, is(not(name1)));
+		
+		Class<?> created1 = converter.toClass(converter.getClassPool().makeClass(name1));
+		Class<?> created2 = another.toClass(another.getClassPool().makeClass(name2));
+		assertThat(created1.getName(), is(name1));
+		assertThat(created2.getName(), is(name2));
+		assertThat(created1.getClassLoader(), sameInstance(loader));
+		assertThat(created2.getClassLoader(), sameInstance(loader));
+	}
+	
 	/**
 	 * Test method for {@link JavassistConverter#loadCtClass(Class)}.
 	 * @throws Exception if occur
@@ -124,6 +153,30 @@ public class JavassistConverterTest {
 		}
 	}
 	
+	/**
+	 * Test method for {@link JavassistConverter#release(javassist.CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testRelease() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		ClassPool pool = converter.getClassPool();
+		CtClass example = pool.makeClass("Example");
+		CtClass loaded = converter.loadCtClass(getClass());
+		converter.toClass(example);
+		int cached = converter.getCachedClassCount();
+		
+		assertThat(converter.release(example), is(true));
+		assertThat(converter.release(example), is(false));
+		
+		assertThat(converter.releaseAll(Arrays.asList(new CtClass[] {
+			loaded,
+			CtClass.intType
+		})), is(1));
+		assertThat(converter.getCachedClassCount(), is(cached - 2));
+		assertThat(converter.loadCtClass(getClass()), not(sameInstance(loaded)));
+	}
+	
 	/**
 	 * Test method for {@link JavassistConverter#toClass(javassist.CtClass)}.
 	 * @throws Exception if occur
@@ -180,6 +233,54 @@ public class JavassistConverterTest {
 		assertThat(replay, sameInstance((Object) klass));
 	}
 	
+	/**
+	 * Test method for {@link JavassistConverter#toClass(javassist.CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testToClass_Define() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		ClassPool pool = converter.getClassPool();
+		CtClass example = pool.makeClass("Example");
+		byte[] bytecode = example.toBytecode();
+		example.defrost();
+		
+		Class<?> klass = converter.toClass(example);
+		assertThat(klass.getClassLoader(), instanceOf(EmptyClassLoader.class));
+		assertThat(klass.getProtectionDomain(), sameInstance(EmptyClassLoader.class.getProtectionDomain()));
+		
+		EmptyClassLoader loader = (EmptyClassLoader) klass.getClassLoader();
+		assertThat(loader.define("Example", bytecode), sameInstance((Object) klass));
+		
+		example.defrost();
+		example.addField(CtField.make("public int value;", example));
+		try {
+			loader.define("Example", example.toBytecode());
+			fail("different definition");
+		} catch (LinkageError e) {
+			// ok.
+		}
+	}
+	
+	/**
+	 * Test method for {@link JavassistConverter#toClass(javassist.CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testToClass_LinkageError() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		ClassPool pool = converter.getClassPool();
+		CtClass missing = pool.makeInterface("Missing");
+		CtClass example = pool.makeClass("Example");
+		example.addInterface(missing);
+		try {
+			converter.toClass(example);
+			fail();
+		} catch (EnhanceException e) {
+			assertThat(e.getCause(), instanceOf(LinkageError.class));
+		}
+	}
+	
 	/**
 	 * Test method for {@link JavassistConverter#toClass(javassist.CtClass)}.
 	 * @throws Exception if occur
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.Enhance;
+import org.jiemamy.utils.enhancer.EnhanceException;
+import org.jiemamy.utils.enhancer.Pointcuts;
+import org.jiemamy.utils.enhancer.TargetProduct1;
+
+/**
+ * Test for {@link LazyProductInstaller}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class LazyProductInstallerTest {
+	
+	/**
+	 * Test method for {@link LazyProductInstaller#install()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testInstall() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		ClassPool pool = converter.getClassPool();
+		CtClass base = converter.loadCtClass(TargetProduct1.class);
+		CtClass enhanced = pool.makeClass(TargetProduct1.class.getName() + "__LAZY_TEST__", base);
+		LazyProductInstaller installer =
+				new LazyProductInstaller(converter, new HandlerTable(), createManager(), base, enhanced);
+		assertThat(installer.isInstalled(), is(false));
+		
+		Class<?> installed = installer.install();
+		assertThat(installer.isInstalled(), is(true));
+		assertThat(installed.getName(), is(enhanced.getName()));
+		assertThat(((TargetProduct1) installed.newInstance()).getValue(), is("1"));
+		assertThat(installer.install(), sameInstance((Object) installed));
+		
+		// both classes are already released
+		assertThat(converter.release(base), is(false));
+		assertThat(converter.release(enhanced), is(false));
+	}
+	
+	/**
+	 * Test method for {@link LazyProductInstaller#install()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testInstall_Failure() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		ClassPool pool = converter.getClassPool();
+		CtClass base = converter.loadCtClass(TargetProduct1.class);
+		CtClass enhanced = pool.makeClass(TargetProduct1.class.getName() + "__LAZY_TEST__", base);
+		enhanced.addInterface(pool.makeInterface("Missing"));
+		LazyProductInstaller installer =
+				new LazyProductInstaller(converter, new HandlerTable(), createManager(), base, enhanced);
+		EnhanceException first = null;
+		try {
+			installer.install();
+			fail();
+		} catch (EnhanceException e) {
+			first = e;
+		}
+		try {
+			installer.install();
+			fail();
+		} catch (EnhanceException e) {
+			assertThat(e.getCause(), sameInstance((Throwable) first));
+		}
+		assertThat(installer.isInstalled(), is(false));
+		assertThat(converter.release(base), is(false));
+		assertThat(converter.release(enhanced), is(false));
+	}
+	
+	private static EnhanceManager createManager() {
+		return new EnhanceManager(Collections.singletonList(new Enhance(
+				Pointcuts.parse("execution(java.lang.String *..TargetProduct1.getValue())"),
+				new PointcutParserTest.Handler())));
+	}
+}
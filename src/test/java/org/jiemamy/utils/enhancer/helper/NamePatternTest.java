@@ -0,0 +1,87 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link NamePattern}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class NamePatternTest {
+	
+	/**
+	 * Test method for {@link NamePattern#matches(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testMatches_Any() throws Exception {
+		NamePattern pattern = NamePattern.compile("*");
+		assertThat(pattern.matches("a"), is(true));
+		assertThat(pattern.matches("a.b.C"), is(true));
+		assertThat(pattern.getLiteralPrefix(), is(""));
+	}
+	
+	/**
+	 * Test method for {@link NamePattern#matches(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testMatches_Exact() throws Exception {
+		NamePattern pattern = NamePattern.compile("java.lang.String");
+		assertThat(pattern.isLiteral(), is(true));
+		assertThat(pattern.matches("java.lang.String"), is(true));
+		assertThat(pattern.matches("java.lang.StringBuilder"), is(false));
+		assertThat(pattern.getLiteralPrefix(), is("java.lang.String"));
+	}
+	
+	/**
+	 * Test method for {@link NamePattern#matches(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testMatches_Prefix() throws Exception {
+		NamePattern pattern = NamePattern.compile("java.lang.*");
+		assertThat(pattern.matches("java.lang.String"), is(true));
+		assertThat(pattern.matches("java.lang.reflect.Method"), is(false));
+		assertThat(pattern.matches("java.util.List"), is(false));
+		assertThat(pattern.getLiteralPrefix(), is("java.lang."));
+	}
+	
+	/**
+	 * Test method for {@link NamePattern#matches(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testMatches_Regex() throws Exception {
+		NamePattern pattern = NamePattern.compile("com.example..*Product");
+		assertThat(pattern.matches("com.example.Product"), is(true));
+		assertThat(pattern.matches("com.example.FooProduct"), is(true));
+		assertThat(pattern.matches("com.example.a.b.FooProduct"), is(true));
+		assertThat(pattern.matches("com.example.FooProducts"), is(false));
+		assertThat(pattern.matches("com.examples.FooProduct"), is(false));
+		assertThat(pattern.getLiteralPrefix(), is("com.example"));
+		
+		NamePattern middle = NamePattern.compile("get*Name");
+		assertThat(middle.matches("getName"), is(true));
+		assertThat(middle.matches("getFullName"), is(true));
+		assertThat(middle.matches("setName"), is(false));
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.jiemamy.utils.enhancer.Pointcuts.CONSTRUCTORS;
+import static org.jiemamy.utils.enhancer.Pointcuts.FALSE;
+import static org.jiemamy.utils.enhancer.Pointcuts.METHODS;
+import static org.jiemamy.utils.enhancer.Pointcuts.PURE;
+import static org.jiemamy.utils.enhancer.Pointcuts.TRUE;
+import static org.jiemamy.utils.enhancer.Pointcuts.and;
+import static org.jiemamy.utils.enhancer.Pointcuts.not;
+import static org.jiemamy.utils.enhancer.Pointcuts.or;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import javassist.ClassPool;
+import javassist.CtBehavior;
+import javassist.CtClass;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.InvocationPointcut;
+import org.jiemamy.utils.enhancer.Pure;
+
+/**
+ * Test for {@link PointcutOptimizer}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class PointcutOptimizerTest {
+	
+	/**
+	 * Test method for {@link PointcutOptimizer#optimize(InvocationPointcut)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testOptimize_Fold() throws Exception {
+		Counter counter = new Counter();
+		assertThat(PointcutOptimizer.optimize(and(counter, FALSE)), is((InvocationPointcut) FALSE));
+		assertThat(PointcutOptimizer.optimize(or(counter, TRUE)), is((InvocationPointcut) TRUE));
+		assertThat(PointcutOptimizer.optimize(and(counter, TRUE)), is((InvocationPointcut) counter));
+		assertThat(PointcutOptimizer.optimize(or(FALSE, counter)), is((InvocationPointcut) counter));
+		assertThat(PointcutOptimizer.optimize(not(not(counter))), is((InvocationPointcut) counter));
+		assertThat(PointcutOptimizer.optimize(not(and(TRUE, TRUE))), is((InvocationPointcut) FALSE));
+		assertThat(PointcutOptimizer.optimize(and(TRUE, TRUE)), is((InvocationPointcut) TRUE));
+		assertThat(PointcutOptimizer.optimize(or(FALSE, FALSE)), is((InvocationPointcut) FALSE));
+	}
+	
+	/**
+	 * Test method for {@link PointcutOptimizer#optimize(InvocationPointcut)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testOptimize_FlattenAndSort() throws Exception {
+		Counter counter = new Counter();
+		InvocationPointcut pointcut = and(counter, and(PURE, and(counter, METHODS)));
+		InvocationPointcut optimized = PointcutOptimizer.optimize(pointcut);
+		assertThat(optimized, instanceOf(AndInvocationPointcut.class));
+		assertThat(((AndInvocationPointcut) optimized).getTerms(), is(Arrays.<InvocationPointcut> asList(counter,
+				METHODS, PURE)));
+		
+		InvocationPointcut disjunction = PointcutOptimizer.optimize(or(or(new AnnotatedPointcut(Pure.class),
+				CONSTRUCTORS), or(new AnnotatedPointcut(Pure.class), counter, METHODS)));
+		assertThat(((OrInvocationPointcut) disjunction).getTerms(), is(Arrays.<InvocationPointcut> asList(
+				CONSTRUCTORS, new AnnotatedPointcut(Pure.class), counter, METHODS)));
+	}
+	
+	/**
+	 * Test method for {@link PointcutOptimizer#optimize(InvocationPointcut)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testOptimize_ShortCircuit() throws Exception {
+		Counter counter = new CostedCounter(CostedPointcut.COST_HIERARCHY);
+		InvocationPointcut optimized = PointcutOptimizer.optimize(and(counter, CONSTRUCTORS));
+		CtClass object = ClassPool.getDefault().get(Object.class.getName());
+		CtBehavior method = object.getDeclaredMethod("hashCode");
+		assertThat(optimized.isTarget(object, method), is(false));
+		assertThat(counter.count, is(0));
+		
+		CtBehavior constructor = object.getDeclaredConstructor(new CtClass[0]);
+		assertThat(optimized.isTarget(object, constructor), is(true));
+		assertThat(counter.count, is(1));
+	}
+	
+	/**
+	 * Test method for {@link PointcutOptimizer#optimize(InvocationPointcut)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testOptimize_Unchanged() throws Exception {
+		InvocationPointcut pointcut = and(METHODS, PURE);
+		assertThat(PointcutOptimizer.optimize(pointcut), is(pointcut));
+		assertThat(PointcutOptimizer.optimize(METHODS), is((InvocationPointcut) METHODS));
+	}
+	
+	/**
+	 * Test method for {@link PointcutOptimizer#costOf(InvocationPointcut)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testCostOf() throws Exception {
+		assertThat(PointcutOptimizer.costOf(TRUE), is(CostedPointcut.COST_CONSTANT));
+		assertThat(PointcutOptimizer.costOf(METHODS), is(CostedPointcut.COST_KIND));
+		assertThat(PointcutOptimizer.costOf(new Counter()), is(CostedPointcut.COST_UNKNOWN));
+		assertThat(PointcutOptimizer.costOf(and(METHODS, PURE)), is(CostedPointcut.COST_KIND
+				+ CostedPointcut.COST_ANNOTATION));
+		assertThat(PointcutOptimizer.costOf(not(PURE)), is(CostedPointcut.COST_ANNOTATION));
+	}
+	
+	/**
+	 * Test method for {@link PointcutOptimizer#optimize(InvocationPointcut)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testOptimize_Barrier() throws Exception {
+		Counter guard = new Counter();
+		InvocationPointcut pointcut = and(new CostedCounter(CostedPointcut.COST_HIERARCHY), guard, PURE, METHODS);
+		AndInvocationPointcut optimized = (AndInvocationPointcut) PointcutOptimizer.optimize(pointcut);
+		assertThat(optimized.getTerms().get(1), is((InvocationPointcut) guard));
+		assertThat(optimized.getTerms().get(2), is((InvocationPointcut) METHODS));
+		assertThat(optimized.getTerms().get(3), is((InvocationPointcut) PURE));
+	}
+	
+
+	/**
+	 * 評価された回数を記録するポイントカット定義。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	static class Counter implements InvocationPointcut {
+		
+		int count;
+		
+
+		public boolean isTarget(CtClass self, CtBehavior behavior) {
+			count++;
+			return true;
+		}
+	}
+	
+	/**
+	 * コストを宣言する{@link Counter}。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	static class CostedCounter extends Counter implements CostedPointcut {
+		
+		final int cost;
+		
+
+		CostedCounter(int cost) {
+			this.cost = cost;
+		}
+		
+		public int getCost() {
+			return cost;
+		}
+	}
+}
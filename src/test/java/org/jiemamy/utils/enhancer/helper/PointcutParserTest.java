@@ -0,0 +1,131 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.enhancer.Enhance;
+import org.jiemamy.utils.enhancer.Invocation;
+import org.jiemamy.utils.enhancer.InvocationHandler;
+import org.jiemamy.utils.enhancer.InvocationPointcut;
+import org.jiemamy.utils.enhancer.Pointcuts;
+import org.jiemamy.utils.enhancer.PureMethods;
+import org.jiemamy.utils.enhancer.TargetProduct1;
+
+/**
+ * Test for {@link PointcutParser}.
+ * @version $Date$
+ * @author Suguru ARAKAWA (Gluegent, Inc.)
+ */
+public class PointcutParserTest {
+	
+	/**
+	 * Test method for {@link PointcutParser#parse(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Precedence() throws Exception {
+		InvocationPointcut pointcut = PointcutParser.parse("false && true || !false");
+		assertThat(pointcut, instanceOf(OrInvocationPointcut.class));
+		assertThat(pointcut.isTarget(null, null), is(true));
+		assertThat(PointcutParser.parse("false && (true || !false)").isTarget(null, null), is(false));
+		assertThat(PointcutParser.parse(" ! ! true ").isTarget(null, null), is(true));
+	}
+	
+	/**
+	 * Test method for {@link PointcutParser#parse(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_TypePrefix() throws Exception {
+		TypePrefixedPointcut and = (TypePrefixedPointcut) PointcutParser
+			.parse("execution(* com.example..*Product.get*(..)) && within(com.example.a.*)");
+		assertThat(and.getTypePrefix(), is("com.example.a."));
+		
+		TypePrefixedPointcut or = (TypePrefixedPointcut) PointcutParser
+			.parse("new(com.example.a.Foo) || new(com.example.b.Foo)");
+		assertThat(or.getTypePrefix(), is("com.example."));
+		
+		TypePrefixedPointcut mixed = (TypePrefixedPointcut) PointcutParser
+			.parse("new(com.example.a.Foo) || annotated(@Pure)");
+		assertThat(mixed.getTypePrefix(), is(""));
+	}
+	
+	/**
+	 * Test method for {@link EnhanceManager#hasApplicableMethod(CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_EnhanceManager() throws Exception {
+		InvocationPointcut pointcut = PointcutParser.parse("execution(* org.jiemamy..*Methods.pure(..))");
+		EnhanceManager manager = new EnhanceManager(Collections.singletonList(new Enhance(pointcut, new Handler())));
+		ClassPool pool = new ClassPool();
+		pool.appendClassPath(new ClassClassPath(getClass()));
+		assertThat(manager.hasApplicableMethod(pool.get(PureMethods.class.getName())), is(true));
+		assertThat(manager.hasApplicableMethod(pool.get(TargetProduct1.class.getName())), is(false));
+	}
+	
+	/**
+	 * Test method for {@link PointcutParser#parse(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Invalid() throws Exception {
+		String[] invalids = {
+			"",
+			"unknown(*)",
+			"execution(*)",
+			"execution(unknown * *(..))",
+			"execution(* *(..)",
+			"within(com.example.)",
+			"annotated(Pure)",
+			"true false",
+		};
+		for (String invalid : invalids) {
+			try {
+				PointcutParser.parse(invalid);
+				fail(invalid);
+			} catch (IllegalArgumentException e) {
+				// ok.
+			}
+		}
+		InvocationPointcut expected = Pointcuts.TRUE;
+		assertThat(PointcutParser.parse("true"), is(expected));
+	}
+	
+	/**
+	 * 何も行わないハンドラ。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA (Gluegent, Inc.)
+	 */
+	static class Handler implements InvocationHandler {
+		
+		public Object handle(Invocation invocation) throws Throwable {
+			return invocation.proceed();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.enhancer.helper;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link TypeHierarchyCache}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class TypeHierarchyCacheTest {
+	
+	/**
+	 * Test method for {@link TypeHierarchyCache#of(ClassPool)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testOf() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		TypeHierarchyCache cache = TypeHierarchyCache.of(converter.getClassPool());
+		assertThat(cache, sameInstance(converter.getTypeHierarchyCache()));
+		assertThat(TypeHierarchyCache.of(converter.getClassPool()), sameInstance(cache));
+		
+		ClassPool pool = new ClassPool(true);
+		assertThat(TypeHierarchyCache.of(pool), not(sameInstance(TypeHierarchyCache.of(pool))));
+	}
+	
+	/**
+	 * Test method for {@link TypeHierarchyCache#getMethods(CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetMethods() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		TypeHierarchyCache cache = converter.getTypeHierarchyCache();
+		CtClass target = converter.loadCtClass(MethodTestTarget.class);
+		
+		List<CtMethod> methods = cache.getMethods(target);
+		assertThat(methods.size(), is(target.getMethods().length));
+		assertThat(cache.getMethods(target), sameInstance(methods));
+		
+		CtClass generated = converter.getClassPool().makeClass("TypeHierarchyCacheExample", target);
+		List<CtMethod> generatedMethods = cache.getMethods(generated);
+		assertThat(generatedMethods.size(), is(methods.size()));
+		assertThat("modified classes are not cached", cache.getMethods(generated),
+				not(sameInstance(generatedMethods)));
+	}
+	
+	/**
+	 * Test method for {@link TypeHierarchyCache#getInterfaceClosure(CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testGetInterfaceClosure() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		TypeHierarchyCache cache = converter.getTypeHierarchyCache();
+		CtClass list = converter.loadCtClass(List.class);
+		CtClass collection = converter.loadCtClass(Collection.class);
+		CtClass iterable = converter.loadCtClass(Iterable.class);
+		
+		assertThat(cache.getInterfaceClosure(list), is(Arrays.asList(list, collection, iterable)));
+		assertThat(cache.getInterfaceClosure(collection), sameInstance(cache.getInterfaceClosure(collection)));
+		assertThat(cache.getInterfaceClosure(iterable), is(Arrays.asList(iterable)));
+	}
+	
+	/**
+	 * Test method for {@link TypeHierarchyCache#isSubtype(CtClass, CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testIsSubtype() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		TypeHierarchyCache cache = converter.getTypeHierarchyCache();
+		CtClass arrayList = converter.loadCtClass(ArrayList.class);
+		CtClass collection = converter.loadCtClass(Collection.class);
+		
+		assertThat(cache.isSubtype(arrayList, collection), is(true));
+		assertThat(cache.isSubtype(collection, arrayList), is(false));
+		assertThat(cache.isSubtype(arrayList, collection), is(true));
+		assertThat(cache.isSubtype(arrayList, arrayList), is(true));
+	}
+	
+	/**
+	 * Test method for {@link TypeHierarchyCache#hasMethod(CtClass, String, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testHasMethod() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		TypeHierarchyCache cache = converter.getTypeHierarchyCache();
+		CtClass target = converter.loadCtClass(MethodTestTarget.class);
+		
+		assertThat(cache.hasMethod(target, "add", "(II)I"), is(true));
+		assertThat(cache.hasMethod(target, "add", "(JJ)J"), is(false));
+		assertThat(cache.hasMethod(target, "hashCode", "()I"), is(true));
+		assertThat(cache.hasMethod(target, "add", "(II)I"), is(true));
+	}
+	
+	/**
+	 * Test method for {@link TypeHierarchyCache#evict(CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testEvict() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		TypeHierarchyCache cache = converter.getTypeHierarchyCache();
+		CtClass list = converter.loadCtClass(List.class);
+		CtClass collection = converter.loadCtClass(Collection.class);
+		CtClass iterable = converter.loadCtClass(Iterable.class);
+		CtClass arrayList = converter.loadCtClass(ArrayList.class);
+		CtClass target = converter.loadCtClass(MethodTestTarget.class);
+		
+		cache.getInterfaceClosure(list);
+		cache.isSubtype(arrayList, collection);
+		cache.isSubtype(arrayList, iterable);
+		cache.hasMethod(collection, "size", "()I");
+		List<CtMethod> methods = cache.getMethods(target);
+		int size = cache.size();
+		
+		// closures of List and Collection, ArrayList<:Collection, Collection#size()
+		assertThat(cache.evict(collection), is(4));
+		assertThat(cache.size(), is(size - 4));
+		assertThat(cache.getMethods(target), sameInstance(methods));
+		assertThat(cache.evict(collection), is(0));
+	}
+	
+	/**
+	 * Test method for {@link TypeHierarchyCache#clear()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testClear() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		TypeHierarchyCache cache = converter.getTypeHierarchyCache();
+		cache.getMethods(converter.loadCtClass(MethodTestTarget.class));
+		cache.isSubtype(converter.loadCtClass(ArrayList.class), converter.loadCtClass(Collection.class));
+		assertThat(cache.size(), is(2));
+		
+		cache.clear();
+		assertThat(cache.size(), is(0));
+	}
+	
+	/**
+	 * Test method for {@link JavassistConverter#release(CtClass)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testEvict_Release() throws Exception {
+		JavassistConverter converter = new JavassistConverter(getClass());
+		TypeHierarchyCache cache = converter.getTypeHierarchyCache();
+		CtClass target = converter.loadCtClass(MethodTestTarget.class);
+		CtClass other = converter.loadCtClass(ArrayList.class);
+		List<CtMethod> methods = cache.getMethods(target);
+		List<CtMethod> otherMethods = cache.getMethods(other);
+		assertThat(cache.size(), is(2));
+		
+		converter.release(target);
+		assertThat(cache.size(), is(1));
+		assertThat(cache.getMethods(other), sameInstance(otherMethods));
+		CtClass reloaded = converter.loadCtClass(MethodTestTarget.class);
+		assertThat(cache.getMethods(reloaded), not(sameInstance(methods)));
+	}
+}